@@ -0,0 +1,123 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.elasticpath.tools.mavenminimal.diff.GitFilesystemProjectRepository;
+import com.elasticpath.tools.mavenminimal.diff.RepoDiffBuilder;
+import com.elasticpath.tools.mavenminimal.pom.PomProject;
+
+/**
+ * Benchmarks how quickly mvnmin finds the modules of a set of changed files, in generated repositories of different
+ * sizes and depths.  Run with "-prof gc" for the allocation rate of each.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = ChangeDetectionBenchmark.WARMUP_ITERATIONS, time = ChangeDetectionBenchmark.ITERATION_SECONDS)
+@Measurement(iterations = ChangeDetectionBenchmark.MEASUREMENT_ITERATIONS, time = ChangeDetectionBenchmark.ITERATION_SECONDS)
+public class ChangeDetectionBenchmark {
+
+	static final int WARMUP_ITERATIONS = 3;
+	static final int MEASUREMENT_ITERATIONS = 5;
+	static final int ITERATION_SECONDS = 2;
+
+	@Param({"100", "1000", "10000"})
+	private int modules;
+
+	@Param({"2", "4"})
+	private int depth;
+
+	@Param({"1", "10", "100"})
+	private int changedModules;
+
+	private SyntheticRepository repository;
+	private GitFilesystemProjectRepository projectRepository;
+	private Set<String> changedFiles;
+
+	/**
+	 * Generate the repository, and change some of its modules.
+	 * @throws IOException if the repository cannot be written
+	 */
+	@Setup(Level.Trial)
+	public void generateRepository() throws IOException {
+		repository = SyntheticRepository.create(Files.createTempDirectory("mvnmin-benchmark"), modules, depth);
+		changedFiles = repository.change(changedModules);
+		projectRepository = new GitFilesystemProjectRepository(repository.getRoot());
+	}
+
+	/**
+	 * Delete the repository.
+	 * @throws IOException if the repository cannot be deleted
+	 */
+	@TearDown(Level.Trial)
+	public void deleteRepository() throws IOException {
+		repository.delete();
+	}
+
+	/**
+	 * Find the pom owning each changed file, and read its project identifier; after the first call, the poms come from
+	 * mvnmin's cache of parsed poms, as in a server.
+	 * @return the project identifiers
+	 */
+	@Benchmark
+	public Set<String> resolveOwningPoms() {
+		return projectRepository.determineProjectIdsForFilesOrFolders(changedFiles);
+	}
+
+	/**
+	 * Parse the poms of the changed modules, without the cache.
+	 * @param blackhole consumes the parsed poms
+	 * @throws IOException if a pom cannot be read
+	 */
+	@Benchmark
+	public void parsePoms(final Blackhole blackhole) throws IOException {
+		for (Path pom : repository.getChangedPoms()) {
+			blackhole.consume(PomProject.parse(pom));
+		}
+	}
+
+	/**
+	 * Find the changed modules as mvnmin does by default: run git status, and resolve each dirty file's module.
+	 * @return the project identifiers
+	 */
+	@Benchmark
+	public Set<String> diff() {
+		return new RepoDiffBuilder().withAllCurrentlyDirtyFiles().diff(projectRepository);
+	}
+}
@@ -0,0 +1,267 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * A git repository of generated maven modules, for the benchmarks to detect changes in.
+ *
+ * The modules form a tree of aggregator poms, as evenly spread as the depth allows: with 1000 modules and a depth of 3,
+ * each aggregator has up to 10 modules.  Modules without child modules have the same Java sources as the tests' fake
+ * projects, so a changed file is as far from its pom as in a real project.  The same sizes always generate the same
+ * repository, so runs can be compared.
+ */
+public final class SyntheticRepository {
+
+	private static final String GROUP_ID = "com.example.benchmark";
+	private static final String SOURCE_FOLDER = "src/main/java/com/example/tools";
+	private static final List<String> SOURCE_FILES = Arrays.asList("Example.java", "ExampleUtil.java", "ExampleCli.java");
+	private static final String POM_FILE = "pom.xml";
+	private static final int BUFFER_SIZE = 8192;
+
+	private final Path root;
+	private final List<String> moduleFolders = new ArrayList<>();
+	private final List<Integer> parents = new ArrayList<>();
+	private final List<List<String>> childModules = new ArrayList<>();
+	private final List<Path> changedPoms = new ArrayList<>();
+
+	private SyntheticRepository(final Path root) {
+		this.root = root;
+	}
+
+	/**
+	 * Generate a repository, and commit its modules.
+	 * @param root the empty folder to generate the repository in
+	 * @param modules the number of modules, including the root aggregator
+	 * @param depth the most folders a module is nested below the root
+	 * @return the repository
+	 * @throws IOException if the repository cannot be written
+	 */
+	public static SyntheticRepository create(final Path root, final int modules, final int depth) throws IOException {
+		SyntheticRepository repository = new SyntheticRepository(root);
+		repository.layOut(modules, childrenPerModule(modules, depth));
+		repository.write();
+		repository.git("init", "-q", ".");
+		// git would otherwise pack the loose objects in the background, during the measurements
+		repository.git("config", "gc.auto", "0");
+		repository.git("add", "--all");
+		repository.git("-c", "user.name=mvnmin", "-c", "user.email=mvnmin@example.com", "commit", "-q", "-m", "Generated modules");
+		return repository;
+	}
+
+	// The fewest children per module which fit the modules within the depth.
+	private static int childrenPerModule(final int modules, final int depth) {
+		int children = 1;
+		while (treeSize(children, depth) < modules) {
+			children++;
+		}
+		return children;
+	}
+
+	private static long treeSize(final int children, final int depth) {
+		long size = 1;
+		long level = 1;
+		for (int nesting = 1; nesting <= depth; nesting++) {
+			level *= children;
+			size += level;
+		}
+		return size;
+	}
+
+	// Fill the tree breadth first, so every level but the last is full.
+	private void layOut(final int modules, final int children) {
+		addModule("", null);
+		for (int parent = 0; moduleFolders.size() < modules; parent++) {
+			String parentFolder = moduleFolders.get(parent);
+			for (int child = 0; child < children && moduleFolders.size() < modules; child++) {
+				String name = "module-" + moduleFolders.size();
+				childModules.get(parent).add(name);
+				addModule(parentFolder.isEmpty() ? name : parentFolder + "/" + name, parent);
+			}
+		}
+	}
+
+	private void addModule(final String folder, final Integer parent) {
+		moduleFolders.add(folder);
+		parents.add(parent);
+		childModules.add(new ArrayList<>());
+	}
+
+	private void write() throws IOException {
+		for (int module = 0; module < moduleFolders.size(); module++) {
+			Path folder = root.resolve(moduleFolders.get(module));
+			Files.createDirectories(folder);
+			Files.write(folder.resolve(POM_FILE), pom(module).getBytes(StandardCharsets.UTF_8));
+			if (childModules.get(module).isEmpty()) {
+				Path sources = folder.resolve(SOURCE_FOLDER);
+				Files.createDirectories(sources);
+				for (String sourceFile : SOURCE_FILES) {
+					String className = sourceFile.substring(0, sourceFile.indexOf('.'));
+					String source = "package com.example.tools;\n\npublic class " + className + " {\n}\n";
+					Files.write(sources.resolve(sourceFile), source.getBytes(StandardCharsets.UTF_8));
+				}
+			}
+		}
+	}
+
+	private String pom(final int module) {
+		List<String> children = childModules.get(module);
+		StringBuilder pom = new StringBuilder()
+				.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+				.append("<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n")
+				.append("\t<modelVersion>4.0.0</modelVersion>\n");
+		if (module == 0) {
+			pom.append("\t<groupId>").append(GROUP_ID).append("</groupId>\n");
+		} else {
+			// The group is inherited, as in most multi-module projects
+			pom.append("\t<parent>\n")
+					.append("\t\t<groupId>").append(GROUP_ID).append("</groupId>\n")
+					.append("\t\t<artifactId>").append(artifactId(parents.get(module))).append("</artifactId>\n")
+					.append("\t\t<version>1.0.0-SNAPSHOT</version>\n")
+					.append("\t</parent>\n");
+		}
+		pom.append("\t<artifactId>").append(artifactId(module)).append("</artifactId>\n")
+				.append("\t<version>1.0.0-SNAPSHOT</version>\n")
+				.append("\t<packaging>").append(children.isEmpty() ? "jar" : "pom").append("</packaging>\n");
+		if (children.isEmpty()) {
+			pom.append("\t<dependencies>\n")
+					.append("\t\t<dependency>\n")
+					.append("\t\t\t<groupId>junit</groupId>\n")
+					.append("\t\t\t<artifactId>junit</artifactId>\n")
+					.append("\t\t\t<version>4.13.2</version>\n")
+					.append("\t\t\t<scope>test</scope>\n")
+					.append("\t\t</dependency>\n")
+					.append("\t</dependencies>\n");
+		} else {
+			pom.append("\t<modules>\n");
+			children.forEach(child -> pom.append("\t\t<module>").append(child).append("</module>\n"));
+			pom.append("\t</modules>\n");
+		}
+		return pom.append("</project>\n").toString();
+	}
+
+	private String artifactId(final int module) {
+		return module == 0 ? "root" : Paths.get(moduleFolders.get(module)).getFileName().toString();
+	}
+
+	/**
+	 * Change a file in each of some modules, spread evenly through the repository, without committing them: a source
+	 * file of a module with sources, or the pom of an aggregator.
+	 * @param modules the number of modules to change, at most all of them
+	 * @return the changed files, relative to the root, as git reports them
+	 * @throws IOException if a file cannot be changed
+	 */
+	public Set<String> change(final int modules) throws IOException {
+		Set<String> changedFiles = new LinkedHashSet<>();
+		int changes = Math.min(modules, moduleFolders.size());
+		for (int change = 0; change < changes; change++) {
+			int module = (int) ((long) change * moduleFolders.size() / changes);
+			String folder = moduleFolders.get(module);
+			String prefix = folder.isEmpty() ? "" : folder + "/";
+			String file;
+			if (childModules.get(module).isEmpty()) {
+				file = prefix + SOURCE_FOLDER + "/" + SOURCE_FILES.get(change % SOURCE_FILES.size());
+			} else {
+				file = prefix + POM_FILE;
+			}
+			Files.write(root.resolve(file), "\n// changed\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+			changedFiles.add(file);
+			changedPoms.add(root.resolve(prefix + POM_FILE));
+		}
+		return changedFiles;
+	}
+
+	/**
+	 * @return the poms of the modules change() changed.
+	 */
+	public List<Path> getChangedPoms() {
+		return Collections.unmodifiableList(changedPoms);
+	}
+
+	/**
+	 * @return the folder of each module, relative to the root, with "" for the root aggregator.
+	 */
+	public List<String> getModuleFolders() {
+		return Collections.unmodifiableList(moduleFolders);
+	}
+
+	/**
+	 * @param moduleFolder the folder of a module, as from getModuleFolders()
+	 * @return the module's project identifier, as mvnmin reports it
+	 */
+	public String getProjectId(final String moduleFolder) {
+		return GROUP_ID + ":" + artifactId(moduleFolders.indexOf(moduleFolder));
+	}
+
+	/**
+	 * @return the root of the repository.
+	 */
+	public Path getRoot() {
+		return root;
+	}
+
+	/**
+	 * Delete the repository.
+	 * @throws IOException if a file cannot be deleted
+	 */
+	public void delete() throws IOException {
+		try (Stream<Path> files = Files.walk(root)) {
+			for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+				Files.deleteIfExists(file);
+			}
+		}
+	}
+
+	private void git(final String... args) throws IOException {
+		List<String> command = new ArrayList<>();
+		command.add("git");
+		command.addAll(Arrays.asList(args));
+		Process process = new ProcessBuilder(command).directory(root.toFile()).redirectErrorStream(true).start();
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		try (InputStream stream = process.getInputStream()) {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			for (int read = stream.read(buffer); read >= 0; read = stream.read(buffer)) {
+				output.write(buffer, 0, read);
+			}
+		}
+		try {
+			if (process.waitFor() != 0) {
+				throw new IllegalStateException("Failed to run " + String.join(" ", command) + ": "
+						+ new String(output.toByteArray(), StandardCharsets.UTF_8));
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted running " + String.join(" ", command), e);
+		}
+	}
+}
@@ -0,0 +1,62 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.benchmarks;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.elasticpath.tools.mavenminimal.diff.GitFilesystemProjectRepository;
+import com.elasticpath.tools.mavenminimal.diff.RepoDiffBuilder;
+
+/**
+ * Validate that generated repositories have the requested shape, and that mvnmin finds their changed modules.
+ */
+class SyntheticRepositoryTest {
+
+	@TempDir
+	Path root;
+
+	@Test
+	void testChangedModulesAreFoundInTheGeneratedTree() throws IOException {
+		SyntheticRepository repository = SyntheticRepository.create(root, 100, 4);
+
+		assertThat(repository.getModuleFolders()).hasSize(100).doesNotHaveDuplicates();
+		assertThat(repository.getModuleFolders()).allMatch(folder -> folder.split("/").length <= 4)
+				.anyMatch(folder -> folder.split("/").length == 4)
+				.allMatch(folder -> Files.isRegularFile(root.resolve(folder).resolve("pom.xml")));
+
+		Set<String> changedFiles = repository.change(10);
+		assertThat(changedFiles).hasSize(10).contains("pom.xml");
+		Set<String> changedModules = repository.getChangedPoms().stream()
+				.map(pom -> repository.getProjectId(root.relativize(pom.getParent()).toString()))
+				.collect(Collectors.toSet());
+		assertThat(changedModules).hasSize(10).contains("com.example.benchmark:root");
+
+		GitFilesystemProjectRepository projectRepository = new GitFilesystemProjectRepository(root);
+		assertThat(projectRepository.determineProjectIdsForFilesOrFolders(changedFiles)).isEqualTo(changedModules);
+		assertThat(projectRepository.findAllPomFiles(5)).hasSize(100).contains("./pom.xml");
+		assertThat(new RepoDiffBuilder().withAllCurrentlyDirtyFiles().diff(projectRepository)).isEqualTo(changedModules);
+	}
+}
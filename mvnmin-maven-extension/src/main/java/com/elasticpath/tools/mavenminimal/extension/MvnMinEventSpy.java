@@ -0,0 +1,129 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.extension;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Properties;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.apache.maven.eventspy.AbstractEventSpy;
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.project.MavenProject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.elasticpath.tools.mavenminimal.reactor.BuildEventLog;
+import com.elasticpath.tools.mavenminimal.util.BufferedChannelWriter;
+
+/**
+ * Writes the start and end of each module and mojo maven builds, and the builder thread which built them, to an event
+ * log, for mvnmin's --timings summary and --trace.
+ *
+ * The spy does nothing unless the build is started with -Dmvnmin.events.file=&lt;file&gt;.
+ */
+@Named("mvnmin-events")
+@Singleton
+public class MvnMinEventSpy extends AbstractEventSpy {
+
+	private static final Logger LOG = LoggerFactory.getLogger(MvnMinEventSpy.class);
+
+	private BufferedChannelWriter writer;
+
+	@Override
+	public void init(final Context context) throws IOException {
+		Map<String, Object> data = context.getData();
+		String eventsFile = property(data, "userProperties");
+		if (eventsFile == null) {
+			eventsFile = property(data, "systemProperties");
+		}
+		if (eventsFile == null) {
+			return;
+		}
+		Path file = Paths.get(eventsFile);
+		if (file.getParent() != null) {
+			Files.createDirectories(file.getParent());
+		}
+		writer = new BufferedChannelWriter(file);
+	}
+
+	private static String property(final Map<String, Object> data, final String key) {
+		Object properties = data.get(key);
+		if (properties instanceof Properties) {
+			return ((Properties) properties).getProperty(BuildEventLog.EVENTS_FILE_PROPERTY);
+		}
+		return null;
+	}
+
+	@Override
+	public void onEvent(final Object event) {
+		if (writer == null || !(event instanceof ExecutionEvent)) {
+			return;
+		}
+		ExecutionEvent executionEvent = (ExecutionEvent) event;
+		MavenProject project = executionEvent.getProject();
+		if (project == null) {
+			return;
+		}
+
+		String mojo = "";
+		switch (executionEvent.getType()) {
+			case MojoStarted:
+			case MojoSucceeded:
+			case MojoFailed:
+				mojo = mojoName(executionEvent.getMojoExecution());
+				break;
+			case ProjectStarted:
+			case ProjectSucceeded:
+			case ProjectFailed:
+			case ProjectSkipped:
+				break;
+			default:
+				return;
+		}
+
+		String line = BuildEventLog.format(System.currentTimeMillis(), executionEvent.getType().name(),
+				project.getGroupId() + ":" + project.getArtifactId(), mojo, Thread.currentThread().getName());
+		try {
+			// called from each of maven's builder threads, the writer is synchronized
+			writer.writeLine(line);
+		} catch (IOException e) {
+			LOG.warn("mvnmin: failed to write a build event: {}", e.toString());
+		}
+	}
+
+	private static String mojoName(final MojoExecution execution) {
+		if (execution == null) {
+			return "";
+		}
+		return execution.getArtifactId() + ":" + execution.getGoal() + " (" + execution.getExecutionId() + ")";
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (writer != null) {
+			writer.close();
+			writer = null;
+		}
+	}
+}
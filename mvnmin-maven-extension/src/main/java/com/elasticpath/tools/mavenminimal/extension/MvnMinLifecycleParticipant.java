@@ -0,0 +1,144 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.extension;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.apache.maven.AbstractMavenLifecycleParticipant;
+import org.apache.maven.MavenExecutionException;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.project.MavenProject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.elasticpath.tools.mavenminimal.config.MvnMinConfigurationException;
+import com.elasticpath.tools.mavenminimal.config.XmlMvnMinConfig;
+import com.elasticpath.tools.mavenminimal.diff.GitFilesystemProjectRepository;
+import com.elasticpath.tools.mavenminimal.diff.RepoDiffBuilder;
+import com.elasticpath.tools.mavenminimal.reactor.ExtendedReactor;
+import com.elasticpath.tools.mavenminimal.reactor.ModuleRequests;
+
+/**
+ * Prunes maven's reactor to the modules mvnmin would build, before the lifecycle starts, so mvnmin's activation runs
+ * inside the maven JVM rather than as a separate wrapper.
+ *
+ * The extension does nothing unless the build is started with -Dmvnmin, and is configured from the project's
+ * mvnmin.xml, with the properties below in place of the mvnmin command line options:
+ * <ul>
+ *     <li>-Dmvnmin : build the projects with dirty files, according to git status</li>
+ *     <li>-Dmvnmin.diff[=commit[..commit]] : also build the projects changed in the commits (default: master..)</li>
+ *     <li>-Dmvnmin.all : build all the projects (as --all)</li>
+ *     <li>-Dmvnmin.nbi : don't consider build-if rules (as --nbi)</li>
+ * </ul>
+ */
+@Named("mvnmin")
+@Singleton
+public class MvnMinLifecycleParticipant extends AbstractMavenLifecycleParticipant {
+
+	/**
+	 * The property which enables the extension.
+	 */
+	static final String ENABLE_PROPERTY = "mvnmin";
+
+	private static final Logger LOG = LoggerFactory.getLogger(MvnMinLifecycleParticipant.class);
+	private static final String DEFAULT_COMMIT_RANGE = "master..";
+	private static final int MAX_POM_DEPTH = 6;
+
+	@Override
+	public void afterProjectsRead(final MavenSession session) throws MavenExecutionException {
+		Properties properties = session.getUserProperties();
+		if (properties.getProperty(ENABLE_PROPERTY) == null) {
+			return;
+		}
+
+		// mvnmin reads git and the poms relative to the working directory, so only prune a build started in its root
+		File projectRoot = new File(session.getExecutionRootDirectory());
+		if (!projectRoot.getAbsoluteFile().equals(new File("").getAbsoluteFile())) {
+			LOG.warn("mvnmin: not pruning the reactor, as maven wasn't started from the project root {}", projectRoot);
+			return;
+		}
+
+		Set<String> modules;
+		ClassLoader previousClassLoader = Thread.currentThread().getContextClassLoader();
+		try {
+			// XMLInputFactory, which reads mvnmin.xml and the poms, looks its implementation up through the context class loader;
+			// this one makes it the same StAX parser whichever plugin realm maven left as the context
+			Thread.currentThread().setContextClassLoader(getClass().getClassLoader());
+			modules = findModulesToBuild(projectRoot, properties);
+		} catch (MvnMinConfigurationException | IllegalStateException e) {
+			throw new MavenExecutionException("mvnmin failed to determine the projects to build: " + e.getMessage(), e);
+		} finally {
+			Thread.currentThread().setContextClassLoader(previousClassLoader);
+		}
+
+		List<MavenProject> projects = pruneProjects(session.getProjects(), modules);
+		if (projects.isEmpty()) {
+			// as the mvnmin command, fail rather than let maven fail with a confusing error about missing goals
+			throw new MavenExecutionException("mvnmin: No modified project files detected. This usually means that you don't have"
+					+ " any uncommitted changes in the repo.", session.getRequest().getPom());
+		}
+		LOG.info("mvnmin: building {} of {} projects", projects.size(), session.getProjects().size());
+		session.setProjects(projects);
+	}
+
+	/**
+	 * Determine the modules to build, as the mvnmin command would.
+	 * @param projectRoot the root folder of the project
+	 * @param properties the user properties of the build
+	 * @return the groupId:artifactId of each module to build
+	 */
+	Set<String> findModulesToBuild(final File projectRoot, final Properties properties) {
+		RepoDiffBuilder diffSource = new RepoDiffBuilder();
+		if (properties.getProperty("mvnmin.all") != null) {
+			diffSource.withAllPomFiles();
+			diffSource.withMaxDepth(MAX_POM_DEPTH);
+		} else {
+			diffSource.withAllCurrentlyDirtyFiles();
+			String commitRange = properties.getProperty("mvnmin.diff");
+			if (commitRange != null && (commitRange.isEmpty() || commitRange.equals("true"))) {
+				diffSource.withFilesChangedInDiff(DEFAULT_COMMIT_RANGE);
+			} else if (commitRange != null) {
+				diffSource.withFilesChangedInDiff(commitRange);
+			}
+		}
+
+		List<ModuleRequests> moduleRequests = Collections.singletonList(
+				new ModuleRequests(diffSource.diff(new GitFilesystemProjectRepository())));
+		boolean buildIfEnabled = properties.getProperty("mvnmin.nbi") == null;
+		return new ExtendedReactor(XmlMvnMinConfig.load(projectRoot), moduleRequests, buildIfEnabled).getModules();
+	}
+
+	/**
+	 * @param projects the projects in maven's reactor, in build order
+	 * @param modules the groupId:artifactId of each module to build
+	 * @return the projects to build, in build order
+	 */
+	static List<MavenProject> pruneProjects(final List<MavenProject> projects, final Set<String> modules) {
+		return projects.stream()
+				.filter(project -> modules.contains(project.getGroupId() + ":" + project.getArtifactId()))
+				.collect(Collectors.toCollection(ArrayList::new));
+	}
+}
@@ -0,0 +1,114 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.extension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.project.MavenProject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.elasticpath.tools.mavenminimal.reactor.BuildEventLog;
+import com.elasticpath.tools.mavenminimal.reactor.ModuleTiming;
+
+/**
+ * Validate that maven's module and mojo events are written to the event log.
+ */
+class MvnMinEventSpyTest {
+
+	@TempDir
+	Path folder;
+
+	@Test
+	void testModuleAndMojoEventsAreLogged() throws Exception {
+		Path eventsFile = folder.resolve("events").resolve("1-main.tsv");
+		MvnMinEventSpy spy = new MvnMinEventSpy();
+		spy.init(() -> data(eventsFile.toString()));
+
+		MavenProject project = new MavenProject();
+		project.setGroupId("com.example");
+		project.setArtifactId("core");
+		Plugin plugin = new Plugin();
+		plugin.setArtifactId("maven-compiler-plugin");
+		MojoExecution compile = new MojoExecution(plugin, "compile", "default-compile");
+
+		spy.onEvent(event(ExecutionEvent.Type.SessionStarted, null, null));
+		spy.onEvent(event(ExecutionEvent.Type.ProjectStarted, project, null));
+		spy.onEvent(event(ExecutionEvent.Type.MojoStarted, project, compile));
+		spy.onEvent(event(ExecutionEvent.Type.MojoSucceeded, project, compile));
+		spy.onEvent(event(ExecutionEvent.Type.ProjectSucceeded, project, null));
+		spy.onEvent("not an execution event");
+		spy.close();
+
+		List<ModuleTiming> timings = BuildEventLog.read("main", eventsFile);
+		assertThat(timings).extracting(ModuleTiming::getModule).containsExactly("com.example:core");
+		assertThat(timings.get(0).getMojoMillis()).containsOnlyKeys("maven-compiler-plugin:compile (default-compile)");
+		assertThat(Files.readAllLines(eventsFile)).hasSize(4);
+		assertThat(BuildEventLog.readEvents(eventsFile)).extracting(BuildEventLog.Event::getThread)
+				.containsOnly(Thread.currentThread().getName());
+	}
+
+	@Test
+	void testSpyIsInertWithoutAnEventsFile() throws IOException {
+		MvnMinEventSpy spy = new MvnMinEventSpy();
+		spy.init(() -> data(null));
+
+		spy.onEvent(event(ExecutionEvent.Type.ProjectStarted, new MavenProject(), null));
+		spy.close();
+
+		assertThat(folder).isEmptyDirectory();
+	}
+
+	private static Map<String, Object> data(final String eventsFile) {
+		Properties userProperties = new Properties();
+		if (eventsFile != null) {
+			userProperties.setProperty(BuildEventLog.EVENTS_FILE_PROPERTY, eventsFile);
+		}
+		Map<String, Object> data = new HashMap<>();
+		data.put("userProperties", userProperties);
+		data.put("systemProperties", new Properties());
+		return data;
+	}
+
+	private static ExecutionEvent event(final ExecutionEvent.Type type, final MavenProject project, final MojoExecution mojo) {
+		return (ExecutionEvent) Proxy.newProxyInstance(ExecutionEvent.class.getClassLoader(), new Class<?>[] {ExecutionEvent.class},
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+						case "getType":
+							return type;
+						case "getProject":
+							return project;
+						case "getMojoExecution":
+							return mojo;
+						default:
+							return null;
+					}
+				});
+	}
+}
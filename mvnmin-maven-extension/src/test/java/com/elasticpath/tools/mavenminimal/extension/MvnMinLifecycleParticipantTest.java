@@ -0,0 +1,51 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.extension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.apache.maven.project.MavenProject;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Validate that maven's reactor is pruned to the modules mvnmin would build.
+ */
+class MvnMinLifecycleParticipantTest {
+
+	@Test
+	void testProjectsArePrunedInBuildOrder() {
+		MavenProject core = project("core");
+		MavenProject api = project("api");
+		MavenProject web = project("web");
+
+		List<MavenProject> pruned = MvnMinLifecycleParticipant.pruneProjects(
+				Arrays.asList(core, api, web), new HashSet<>(Arrays.asList("com.example:web", "com.example:core", "com.example:other")));
+
+		assertThat(pruned).containsExactly(core, web);
+	}
+
+	private static MavenProject project(final String artifactId) {
+		MavenProject project = new MavenProject();
+		project.setGroupId("com.example");
+		project.setArtifactId(artifactId);
+		return project;
+	}
+}
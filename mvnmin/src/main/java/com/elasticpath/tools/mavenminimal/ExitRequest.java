@@ -0,0 +1,42 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal;
+
+/**
+ * Unwinds mvnmin to MvnMinSession.run(), which returns the exit value, so that the JVM keeps running when mvnmin runs
+ * within another program, or the mvnmin server.
+ */
+final class ExitRequest extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+
+	private final int exitValue;
+
+	/**
+	 * @param exitValue the exit value for run() to return
+	 */
+	ExitRequest(final int exitValue) {
+		super("mvnmin exited with " + exitValue, null, false, false);
+		this.exitValue = exitValue;
+	}
+
+	/**
+	 * @return the exit value for run() to return.
+	 */
+	int getExitValue() {
+		return exitValue;
+	}
+}
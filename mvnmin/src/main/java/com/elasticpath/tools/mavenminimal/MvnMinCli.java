@@ -0,0 +1,96 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+package com.elasticpath.tools.mavenminimal;
+
+import java.io.BufferedInputStream;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.OptionalInt;
+
+import org.fusesource.jansi.internal.CLibrary;
+
+import com.elasticpath.tools.mavenminimal.diff.GitFilesystemProjectRepository;
+import com.elasticpath.tools.mavenminimal.diff.ProjectRepository;
+import com.elasticpath.tools.mavenminimal.server.MvnMinClient;
+
+/**
+ * The main Maven Minimal class.
+ */
+public final class MvnMinCli {
+
+	// Prevent instantiation
+	private MvnMinCli() { }
+
+	/**
+	 * The default command line entry point for mvnmin.
+	 *
+	 * This method ALWAYS calls System.exit() as it's last step.  If you don't want this, look at run() instead.
+	 *
+	 * When an mvnmin server is running for the working folder, mvnmin runs in the server instead.
+	 *
+	 * @param args the commmand line arguments
+	 */
+	public static void main(final String[] args) {
+		final int stdinDescriptor = 0;
+		final int stdoutDescriptor = 1;
+		// Don't read stdin when it's the terminal, not a file or stream
+		BufferedInputStream stdin = CLibrary.isatty(stdinDescriptor) != 1 ? new BufferedInputStream(System.in) : null;
+		OptionalInt serverExitValue = MvnMinClient.forward(args, stdin, System.out);
+		if (serverExitValue.isPresent()) {
+			System.exit(serverExitValue.getAsInt());
+		}
+		int mavenExitValue = run(new GitFilesystemProjectRepository(), args, System.out, stdin, CLibrary.isatty(stdoutDescriptor) == 1);
+		System.exit(mavenExitValue);
+	}
+
+	/**
+	 * A secondary entry point for mnvmin.  The cli should call main().  run() is more for programmatic invocation
+	 * of mvnmin.
+	 *
+	 * Within the project this is used to launch mvnmin for testing.
+	 *
+	 * @param projectRepository the RepoOperations instance to operate upon.
+	 * @param args the arguments to drive mvnmin's different functions.
+	 * @param out a PrintStream where all output should go.
+	 * @param enabledStdIn reading from stdin can cause hangs if not corrently handled - this flag allows that do be disabled.
+	 * @return 0 if mvnmin runs successfully, >1 otherwise.  If maven is actually invoked then its exit value is returned.
+	 */
+	public static int run(final ProjectRepository projectRepository, final String[] args, final PrintStream out, final boolean enabledStdIn) {
+		final int stdinDescriptor = 0;
+		final int stdoutDescriptor = 1;
+		// Don't read stdin when it's the terminal, not a file or stream
+		InputStream stdin = enabledStdIn && CLibrary.isatty(stdinDescriptor) != 1 ? System.in : null;
+		return run(projectRepository, args, out, stdin, CLibrary.isatty(stdoutDescriptor) == 1);
+	}
+
+	/**
+	 * Run mvnmin with a stdin and terminal other than the JVM's, such as those of a client of the mvnmin server.
+	 *
+	 * Each run is a new MvnMinSession, so runs on different threads don't affect each other.
+	 *
+	 * @param projectRepository the RepoOperations instance to operate upon.
+	 * @param args the arguments to drive mvnmin's different functions.
+	 * @param out a PrintStream where all output should go.
+	 * @param stdin the stream to read projects to activate from, or null to read none.
+	 * @param terminal true if the output is shown on a terminal.
+	 * @return 0 if mvnmin runs successfully, >1 otherwise.  If maven is actually invoked then its exit value is returned.
+	 */
+	public static int run(final ProjectRepository projectRepository, final String[] args, final PrintStream out, final InputStream stdin,
+			final boolean terminal) {
+		return new MvnMinSession(projectRepository, out, stdin, terminal).run(args);
+	}
+
+}
@@ -0,0 +1,978 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+package com.elasticpath.tools.mavenminimal;
+
+import static com.elasticpath.tools.mavenminimal.util.StringUtil.defaultString;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.Properties;
+import java.util.Scanner;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.elasticpath.tools.mavenminimal.cache.BuildCache;
+import com.elasticpath.tools.mavenminimal.cache.ModuleIndex;
+import com.elasticpath.tools.mavenminimal.cache.RemoteBuildCache;
+import com.elasticpath.tools.mavenminimal.config.MvnMinConfigurationException;
+import com.elasticpath.tools.mavenminimal.config.XmlMvnMinConfig;
+import com.elasticpath.tools.mavenminimal.diff.RepoDiffBuilder;
+import com.elasticpath.tools.mavenminimal.jfr.FlightRecording;
+import com.elasticpath.tools.mavenminimal.jfr.ReactorPartitionEvent;
+import com.elasticpath.tools.mavenminimal.reactor.BuildHistory;
+import com.elasticpath.tools.mavenminimal.reactor.BuildMetrics;
+import com.elasticpath.tools.mavenminimal.reactor.BuildPlan;
+import com.elasticpath.tools.mavenminimal.reactor.BuildProgress;
+import com.elasticpath.tools.mavenminimal.reactor.BuildTimings;
+import com.elasticpath.tools.mavenminimal.reactor.BuildTrace;
+import com.elasticpath.tools.mavenminimal.reactor.EmbeddedMavenEngine;
+import com.elasticpath.tools.mavenminimal.reactor.ExtendedReactor;
+import com.elasticpath.tools.mavenminimal.reactor.ForkedMavenEngine;
+import com.elasticpath.tools.mavenminimal.reactor.MavenDriver;
+import com.elasticpath.tools.mavenminimal.reactor.MavenEngine;
+import com.elasticpath.tools.mavenminimal.reactor.MvndMavenEngine;
+import com.elasticpath.tools.mavenminimal.reactor.ModuleRequests;
+import com.elasticpath.tools.mavenminimal.reactor.ModuleTiming;
+import com.elasticpath.tools.mavenminimal.reactor.Reactor;
+import com.elasticpath.tools.mavenminimal.reactor.ReactorMemoryMonitor;
+import com.elasticpath.tools.mavenminimal.reactor.ReactorPrinter;
+import com.elasticpath.tools.mavenminimal.reactor.ReactorScheduler;
+import com.elasticpath.tools.mavenminimal.reactor.ResourceBudget;
+import com.elasticpath.tools.mavenminimal.reactor.RetryLog;
+import com.elasticpath.tools.mavenminimal.reactor.ShardPlanner;
+import com.elasticpath.tools.mavenminimal.reactor.ThreadAllocator;
+import com.elasticpath.tools.mavenminimal.diff.ProjectRepository;
+import com.elasticpath.tools.mavenminimal.server.MvnMinServer;
+import com.elasticpath.tools.mavenminimal.util.CgroupLimits;
+import com.elasticpath.tools.mavenminimal.util.Environment;
+import com.elasticpath.tools.mavenminimal.util.Logger;
+import com.elasticpath.tools.mavenminimal.util.Profiler;
+import com.elasticpath.tools.mavenminimal.util.StateDirectory;
+
+/**
+ * A single run of mvnmin: its options, where its output goes, and the build it is running.
+ *
+ * Nothing is shared between sessions, other than the files they read and write, so many sessions can run at the same
+ * time in one JVM, such as in the mvnmin server.
+ */
+public class MvnMinSession {
+
+	private static final String MVNMIN_MAXDEPTH_ENVVAR = "MVNMIN_MAXDEPTHS";
+
+	private static final int DEFAULT_MAX_DEPTH = 6;
+	private static final String MAIN_BRANCH = "master";
+	private static final String VERSION_RESOURCE = "/mvnmin-version.properties";
+
+	private static final List<String> ENGINES = Arrays.asList("fork", "embedded", "mvnd");
+	private static final int MAX_TIMING_ROWS = 25;
+	private static final double MILLIS_PER_SECOND = 1000.0;
+	private static final int REMOTE_CACHE_CONCURRENCY = 4;
+	private static final int REMOTE_CACHE_TIMEOUT_MILLIS = 10_000;
+	private static final int DEFAULT_SERVER_IDLE_MINUTES = 60;
+	private static final long MILLIS_PER_MINUTE = 60_000;
+
+	private final ProjectRepository projectRepository;
+	private final PrintStream out;
+	private final InputStream stdin;
+	private final boolean terminal;
+
+	private boolean allPomMode;
+	private boolean diffCommitMode;
+	private String commitDiffArg = MAIN_BRANCH;
+	private boolean dryRunMode;
+	private boolean printMode;
+	private boolean versionMode;
+	private boolean buildIfEnabled = true;
+	private int maxParallelReactors = 1;
+	private boolean reactorLogsMode;
+	private boolean liveStatusMode;
+	private boolean autoThreadsMode;
+	private String engineName;
+	private boolean timingsMode;
+	private boolean buildCacheMode;
+	private URI buildCacheUrl;
+	private boolean resumeMode;
+	private int maxRetries;
+	private int shardNumber;
+	private int shardCount;
+	private Path shardHistory;
+	private Path emitPlanFile;
+	private Path planFile;
+	private boolean serverMode;
+	private int serverIdleMinutes = DEFAULT_SERVER_IDLE_MINUTES;
+	private boolean profileMode;
+	private Path profileFile;
+	private Profiler.Phase profile;
+	private Path flightRecordingFile;
+	private Path traceFile;
+	private BuildTimings tracedTimings;
+	private List<Reactor> tracedReactors = Collections.emptyList();
+	private Path metricsFile;
+	private BuildMetrics metrics;
+	private FlightRecording flightRecording;
+	private volatile ReactorScheduler runningScheduler;
+	private volatile boolean cancelRequested;
+
+	/**
+	 * Create a session.
+	 * @param projectRepository the repository to find changed projects in.
+	 * @param out a PrintStream where all output should go.
+	 * @param stdin the stream to read projects to activate from, or null to read none.
+	 * @param terminal true if the output is shown on a terminal.
+	 */
+	public MvnMinSession(final ProjectRepository projectRepository, final PrintStream out, final InputStream stdin, final boolean terminal) {
+		this.projectRepository = projectRepository;
+		this.out = out;
+		this.stdin = stdin;
+		this.terminal = terminal;
+	}
+
+	/**
+	 * Run mvnmin.  A session runs once.
+	 * @param args the arguments to drive mvnmin's different functions.
+	 * @return 0 if mvnmin runs successfully, >1 otherwise.  If maven is actually invoked then its exit value is returned.
+	 */
+	public int run(final String[] args) {
+		Logger.init(out);
+		try {
+			return recordExitValue(runWithOptions(args));
+		} catch (ExitRequest e) {
+			return recordExitValue(e.getExitValue());
+		} finally {
+			if (profile != null) {
+				profile.close();
+				if (profileMode) {
+					reportProfile();
+				}
+				if (traceFile != null) {
+					writeTrace();
+				}
+				if (metrics != null) {
+					writeMetrics();
+				}
+			}
+			if (flightRecording != null) {
+				flightRecording.close();
+				printFileNote("mvnmin: wrote the flight recording to " + flightRecording.getFile());
+			}
+		}
+	}
+
+	private int recordExitValue(final int exitValue) {
+		if (metrics != null) {
+			metrics.withExitValue(exitValue);
+		}
+		return exitValue;
+	}
+
+	/**
+	 * Cancel the build run() is running on another thread, if any: no further reactors are started, and the running
+	 * ones are cancelled.
+	 */
+	public void cancel() {
+		cancelRequested = true;
+		ReactorScheduler scheduler = runningScheduler;
+		if (scheduler != null) {
+			scheduler.cancel();
+		}
+	}
+
+	private int runWithOptions(final String[] args) {
+		parseArgs(args);
+
+		if (versionMode) {
+			out.println(getVersionString());
+			return 0;
+		}
+
+		if (serverMode) {
+			return new MvnMinServer(Paths.get(""), projectRepository, serverIdleMinutes * MILLIS_PER_MINUTE).serve(out);
+		}
+
+		if (profileMode || traceFile != null || metricsFile != null) {
+			profile = Profiler.begin("mvnmin");
+		}
+		if (metricsFile != null) {
+			metrics = new BuildMetrics();
+		}
+		if (flightRecordingFile != null) {
+			if (!FlightRecording.isAvailable()) {
+				out.println("The option '--jfr' needs a JVM with the Flight Recorder: Java 11, or Java 8u272 or later, exiting.");
+				return 1;
+			}
+			flightRecording = FlightRecording.start(flightRecordingFile);
+		}
+
+		XmlMvnMinConfig mvnMinConfig;
+		ExtendedReactor reactor;
+		Set<String> activatedFiles;
+		if (planFile != null) {
+			BuildPlan plan;
+			List<String> changedFiles;
+			try (Profiler.Phase phase = Profiler.start("read build plan")) {
+				plan = BuildPlan.read(planFile);
+				changedFiles = plan.findChangedInputs(Paths.get("."));
+			}
+			if (!changedFiles.isEmpty()) {
+				out.println("mvnmin: building the planned modules, though these files changed since the plan was made: "
+						+ String.join(", ", changedFiles));
+			}
+			mvnMinConfig = XmlMvnMinConfig.load();
+			reactor = partitionReactors(mvnMinConfig, Collections.singletonList(new ModuleRequests(plan.getModules())), false);
+			plan.applyTo(reactor.getSubReactors());
+			activatedFiles = plan.getInputFiles();
+			recordActivatedModules("plan", plan.getModules());
+		} else {
+			RepoDiffBuilder diffSource = createDiffSource();
+			List<ModuleRequests> moduleRequests = determineRequestedModules(projectRepository, diffSource, args);
+			mvnMinConfig = XmlMvnMinConfig.load();
+			reactor = partitionReactors(mvnMinConfig, moduleRequests, buildIfEnabled);
+			activatedFiles = diffSource.getActivatedFiles();
+			recordActivatedModules("build if", reactor.getBuildIfModules());
+		}
+
+		BuildProgress buildProgress = null;
+		if (resumeMode) {
+			buildProgress = BuildProgress.load(getBuildProgressFile());
+			buildProgress.resume(reactor.getSubReactors());
+		} else if (shardCount > 1 && !reactor.getModules().isEmpty()) {
+			// Each agent's own history differs, so only a history given to every agent keeps the shards the same
+			ShardPlanner shardPlanner = ShardPlanner.create(shardCount, ModuleIndex.scan(Paths.get("."), getMaxDepthSetting()),
+					shardHistory == null ? null : BuildHistory.load(shardHistory));
+			Set<String> activatedModules = new TreeSet<>(reactor.getActiveModules());
+			if (!printMode) {
+				String weighedBy = shardHistory == null ? "module count" : "the build times in " + shardHistory;
+				out.println("mvnmin: shard " + shardNumber + "/" + shardCount + " of " + activatedModules.size()
+						+ " modules, weighed by " + weighedBy
+						+ ", partition inputs " + shardPlanner.fingerprint(activatedModules));
+			}
+			reactor.retainModules(shardPlanner.partition(activatedModules).get(shardNumber - 1));
+			if (reactor.getModules().isEmpty()) {
+				out.println("mvnmin: shard " + shardNumber + "/" + shardCount + " has no modules to build.");
+				return 0;
+			}
+		}
+
+		if (metrics != null) {
+			metrics.withReactors(reactor.getSubReactors());
+		}
+
+		if (emitPlanFile != null) {
+			BuildPlan plan = BuildPlan.create(reactor.getSubReactors(), removeNonMavenArgs(args), mvnMinConfig.getMvnCommand(),
+					Paths.get("."), activatedFiles);
+			plan.write(emitPlanFile);
+			out.println("mvnmin: wrote the build plan to " + emitPlanFile);
+			return 0;
+		}
+
+		if (printMode) {
+			out.println(projectsAsString(reactor.getModules()));
+			return 0;
+		}
+
+		if (reactor.getModules().isEmpty() && buildProgress == null) {
+			if (outputIsATerminal()) {
+				out.println("No modified project files detected. This usually means that you don't have any"
+						+ " uncommitted changes in the repo.");
+			}
+			return 1;
+		}
+
+		return executeMavenOnReactors(reactor, args, dryRunMode, mvnMinConfig, buildProgress);
+	}
+
+	private static String getVersionString() {
+		String version = MvnMinCli.class.getPackage().getImplementationVersion();
+		if (version == null) {
+			// The native executable has no jar manifest
+			version = readVersionResource();
+		}
+		return "mvnmin " + defaultString(version, "version unknown");
+	}
+
+	private static String readVersionResource() {
+		try (InputStream stream = MvnMinCli.class.getResourceAsStream(VERSION_RESOURCE)) {
+			if (stream != null) {
+				Properties properties = new Properties();
+				properties.load(stream);
+				return properties.getProperty("version");
+			}
+		} catch (IOException e) {
+			Logger.debug("Failed to read " + VERSION_RESOURCE, e);
+		}
+		return null;
+	}
+
+	private void writeTrace() {
+		BuildTrace trace = new BuildTrace().withPhases(profile);
+		try {
+			for (Reactor reactor : tracedReactors) {
+				List<Path> eventFiles = tracedTimings == null ? Collections.emptyList() : tracedTimings.getEventFiles(reactor);
+				for (int attempt = 1; attempt <= eventFiles.size(); attempt++) {
+					String name = "maven " + reactor.getReactorName() + (attempt > 1 ? " (attempt " + attempt + ")" : "");
+					trace.withMavenEvents(name, eventFiles.get(attempt - 1));
+				}
+			}
+			trace.write(traceFile);
+			printFileNote("mvnmin: wrote the trace to " + traceFile);
+		} catch (IOException e) {
+			Logger.debug("Failed to write " + traceFile, e);
+			printFileNote("mvnmin: failed to write the trace to " + traceFile);
+		}
+	}
+
+	private List<ModuleRequests> determineRequestedModules(
+			final ProjectRepository repository, final RepoDiffBuilder diffSource, final String[] args) {
+		try (Profiler.Phase phase = Profiler.start("determine requested modules")) {
+			List<ModuleRequests> moduleRequests = new ArrayList<>();
+			if (stdin != null) {
+				ModuleRequests stdinRequests = getProjectsFromStdin(stdin);
+				recordActivatedModules("stdin", stdinRequests.getEnabledProjects());
+				moduleRequests.add(stdinRequests);
+			}
+			ModuleRequests argRequests = getProjectsFromArgs(args);
+			recordActivatedModules("projects", argRequests.getEnabledProjects());
+			moduleRequests.add(argRequests);
+			moduleRequests.add(new ModuleRequests(diffSource.diff(repository)));
+			if (metrics != null) {
+				diffSource.getActivatedProjectsBySource(repository).forEach(this::recordActivatedModules);
+			}
+			return moduleRequests;
+		}
+	}
+
+	private void recordActivatedModules(final String source, final Set<String> modules) {
+		if (metrics != null) {
+			metrics.withActivatedModules(source.replace(' ', '_'), modules.size());
+		}
+	}
+
+	private static ExtendedReactor partitionReactors(final XmlMvnMinConfig mvnMinConfig, final List<ModuleRequests> moduleRequests,
+			final boolean buildIf) {
+		ReactorPartitionEvent event = FlightRecording.isEnabled() ? new ReactorPartitionEvent(buildIf) : null;
+		try (Profiler.Phase phase = Profiler.start("partition reactors")) {
+			ExtendedReactor reactor = new ExtendedReactor(mvnMinConfig, moduleRequests, buildIf);
+			phase.count("modules", reactor.getModules().size());
+			phase.count("reactors", reactor.getSubReactors().size());
+			if (event != null) {
+				event.end(reactor.getModules().size(), reactor.getSubReactors().size());
+			}
+			return reactor;
+		}
+	}
+
+	private void writeMetrics() {
+		long pomsRead = profile.getTotalCount("poms read");
+		metrics.withPhases(profile)
+				.withCache("pom", pomsRead, pomsRead - profile.getTotalCount("poms parsed"));
+		try {
+			metrics.write(metricsFile);
+			printFileNote("mvnmin: wrote the metrics to " + metricsFile);
+		} catch (IOException e) {
+			Logger.debug("Failed to write " + metricsFile, e);
+			printFileNote("mvnmin: failed to write the metrics to " + metricsFile);
+		}
+	}
+
+	private void reportProfile() {
+		if (profileFile == null) {
+			out.println();
+			out.println("mvnmin: profile");
+			profile.report().forEach(out::println);
+			return;
+		}
+		try {
+			Files.write(profileFile, profile.toJson().getBytes(StandardCharsets.UTF_8));
+			printFileNote("mvnmin: wrote the profile to " + profileFile);
+		} catch (IOException e) {
+			Logger.debug("Failed to write " + profileFile, e);
+			printFileNote("mvnmin: failed to write the profile to " + profileFile);
+		}
+	}
+
+	/**
+	 * Print a note about a file mvnmin wrote, other than in print mode, where the output is only the modules to build.
+	 * @param note the note
+	 */
+	private void printFileNote(final String note) {
+		if (printMode) {
+			Logger.debug(note);
+		} else {
+			out.println(note);
+		}
+	}
+
+	private RepoDiffBuilder createDiffSource() {
+		RepoDiffBuilder diffSource = new RepoDiffBuilder();
+		if (allPomMode) {
+			diffSource.withAllPomFiles();
+			diffSource.withMaxDepth(getMaxDepthSetting());
+		} else {
+			diffSource.withAllCurrentlyDirtyFiles();
+			if (diffCommitMode) {
+				diffSource.withFilesChangedInDiff(commitDiffArg);
+			}
+		}
+		return diffSource;
+	}
+
+	/**
+	 * Parses the incoming arguments, setting flags as appropriate.
+	 * @param args the args from the command line.
+	 */
+	private void parseArgs(final String[] args) {
+		for (String arg : args) {
+			if (arg.matches("--all")) {
+				allPomMode = true;
+			} else if (arg.equals("-d") || arg.equals("--dry-run")) {
+				dryRunMode = true;
+			} else if (arg.matches("--diff.*")) {
+				int equalsIndex = arg.indexOf('=');
+				if (equalsIndex > -1 && equalsIndex + 1 < arg.length()) {
+					commitDiffArg = arg.substring(equalsIndex + 1);
+				}
+				if (!commitDiffArg.contains("..")) {
+					commitDiffArg += "..";
+				}
+				diffCommitMode = true;
+			} else if (arg.matches("--help")) {
+				printUsage(out);
+				exit(0);
+			} else if (arg.equals("-p")) {
+				printMode = true;
+			} else if (arg.equals("--nbi")) {
+				buildIfEnabled = false;
+			} else if (arg.equals("--version")) {
+				versionMode = true;
+			} else if (arg.startsWith("--max-parallel-reactors=")) {
+				maxParallelReactors = parsePositiveInt(arg, out);
+			} else if (arg.equals("--reactor-logs")) {
+				reactorLogsMode = true;
+			} else if (arg.equals("--live-status")) {
+				liveStatusMode = true;
+			} else if (arg.equals("--auto-threads")) {
+				autoThreadsMode = true;
+			} else if (arg.startsWith("--engine=")) {
+				engineName = parseChoice(arg, ENGINES, out);
+			} else if (arg.equals("--timings")) {
+				timingsMode = true;
+			} else if (arg.equals("--build-cache")) {
+				buildCacheMode = true;
+			} else if (arg.startsWith("--build-cache-url=")) {
+				buildCacheMode = true;
+				buildCacheUrl = parseUrl(arg, out);
+			} else if (arg.equals("--resume")) {
+				resumeMode = true;
+			} else if (arg.startsWith("--retry-failed=")) {
+				maxRetries = parsePositiveInt(arg, out);
+			} else if (arg.startsWith("--shard=")) {
+				parseShard(arg);
+			} else if (arg.startsWith("--shard-history=")) {
+				shardHistory = parseShardHistory(arg);
+			} else if (arg.startsWith("--emit-plan=")) {
+				emitPlanFile = Paths.get(arg.substring(arg.indexOf('=') + 1));
+			} else if (arg.startsWith("--plan=")) {
+				planFile = Paths.get(arg.substring(arg.indexOf('=') + 1));
+			} else if (arg.equals("--server")) {
+				serverMode = true;
+			} else if (arg.startsWith("--server=")) {
+				serverMode = true;
+				serverIdleMinutes = parsePositiveInt(arg, out);
+			} else if (arg.equals("--profile")) {
+				profileMode = true;
+			} else if (arg.startsWith("--profile=")) {
+				profileMode = true;
+				profileFile = Paths.get(arg.substring(arg.indexOf('=') + 1));
+			} else if (arg.equals("--jfr")) {
+				flightRecordingFile = StateDirectory.resolve("mvnmin.jfr");
+			} else if (arg.startsWith("--jfr=")) {
+				flightRecordingFile = Paths.get(arg.substring(arg.indexOf('=') + 1));
+			} else if (arg.equals("--trace")) {
+				traceFile = StateDirectory.resolve("trace.json");
+			} else if (arg.startsWith("--trace=")) {
+				traceFile = Paths.get(arg.substring(arg.indexOf('=') + 1));
+			} else if (arg.equals("--metrics")) {
+				metricsFile = StateDirectory.resolve("metrics.prom");
+			} else if (arg.startsWith("--metrics=")) {
+				metricsFile = Paths.get(arg.substring(arg.indexOf('=') + 1));
+			} else if (arg.equals("-f") || arg.equals("--file")) {
+				out.println("The options '-f' and '--file' are not supported by mvnmin, exiting.");
+				exit(1);
+			}
+		}
+	}
+
+	private static String parseChoice(final String arg, final List<String> choices, final PrintStream out) {
+		String value = arg.substring(arg.indexOf('=') + 1);
+		if (!choices.contains(value)) {
+			out.println("Invalid value for " + arg.substring(0, arg.indexOf('=')) + ", expected one of: " + String.join(", ", choices));
+			exit(1);
+		}
+		return value;
+	}
+
+	private static URI parseUrl(final String arg, final PrintStream out) {
+		try {
+			URI url = new URI(arg.substring(arg.indexOf('=') + 1));
+			if ("http".equals(url.getScheme()) || "https".equals(url.getScheme())) {
+				return url;
+			}
+		} catch (URISyntaxException e) {
+			Logger.debug("Invalid URL: " + arg, e);
+		}
+		out.println("The option '" + arg + "' requires an http or https URL, exiting.");
+		exit(1);
+		return null;
+	}
+
+	private void parseShard(final String arg) {
+		String[] shard = arg.substring(arg.indexOf('=') + 1).split("/");
+		try {
+			if (shard.length == 2) {
+				shardNumber = Integer.parseInt(shard[0]);
+				shardCount = Integer.parseInt(shard[1]);
+				if (shardNumber >= 1 && shardNumber <= shardCount) {
+					return;
+				}
+			}
+		} catch (NumberFormatException e) {
+			Logger.debug("Invalid shard: " + arg, e);
+		}
+		out.println("The option '" + arg + "' requires a shard number and count, like --shard=1/4, exiting.");
+		exit(1);
+	}
+
+	private Path parseShardHistory(final String arg) {
+		Path folder = Paths.get(arg.substring(arg.indexOf('=') + 1));
+		if (!Files.isDirectory(folder)) {
+			out.println("The option '" + arg + "' requires the folder of a build history, such as a copy of .mvnmin/history, exiting.");
+			exit(1);
+		}
+		return folder;
+	}
+
+	private static int parsePositiveInt(final String arg, final PrintStream out) {
+		try {
+			int value = Integer.parseInt(arg.substring(arg.indexOf('=') + 1));
+			if (value > 0) {
+				return value;
+			}
+		} catch (NumberFormatException e) {
+			Logger.debug("Invalid number: " + arg, e);
+		}
+		out.println("The option '" + arg + "' requires a positive number, exiting.");
+		exit(1);
+		return 1;
+	}
+
+	private static void printUsage(final PrintStream out) {
+		out.println("usage: mvmin [options] [<maven goal(s)>] [<maven phase(s)>] [<maven arg(s)>]");
+		out.println();
+		out.println("  Project Activation/Deactivation");
+		out.println("    --all                      Activate all `pom.xml` files in all sub directories");
+		out.println("                               (default max depth: " + DEFAULT_MAX_DEPTH + ")");
+		out.println("    --diff[=commit[..commit]]  Activate all projects changed since the specified commit, ");
+		out.println("                               or range of specified commits.");
+		out.println("                               (default: 'master')");
+		out.println("    -pl,--projects <arg>       Comma-delimited list of specified reactor projects");
+		out.println("                               to build as well as those otherwise activated.");
+		out.println("                               A project can be specified by `groupId:artifactId`");
+		out.println("                               A project can be deactivated by leading with an");
+		out.println("                               exclamation mark or hyphen: `-groupId:artifactId`");
+		out.println("    --nbi                      No build-if dependencies are considered, just ");
+		out.println("                               changed modules.");
+		out.println();
+		out.println("  Scripting");
+		out.println("    -p                         Don't invoke maven, print out activated projects,");
+		out.println("                               sorted, newline separated.");
+		out.println("    --emit-plan=<file>         Don't invoke maven, write the activated projects of");
+		out.println("                               each reactor, and the files which activated them,");
+		out.println("                               to a JSON build plan.");
+		out.println("    --plan=<file>              Build the projects of a build plan, instead of");
+		out.println("                               detecting changes.");
+		out.println();
+		out.println("  Execution");
+		out.println("    --max-parallel-reactors=<n>");
+		out.println("                               Build up to <n> reactors at the same time, as allowed");
+		out.println("                               by their `depends-on` attributes, and while their");
+		out.println("                               memory and CPU weights fit the container. (default: 1)");
+		out.println("    --reactor-logs             Write each reactor's maven output to");
+		out.println("                               `.mvnmin/logs/<reactor>.log`.");
+		out.println("    --live-status              Show the current module and elapsed time of each");
+		out.println("                               running reactor, instead of maven's output.");
+		out.println("                               Implies --reactor-logs.");
+		out.println("    --auto-threads             Replace maven's -T option with a thread count for");
+		out.println("                               each reactor, based on how many of its active");
+		out.println("                               modules can build at the same time, and an even");
+		out.println("                               share of the CPUs between the reactors that can");
+		out.println("                               run at the same time.");
+		out.println("    --engine=<fork|embedded|mvnd>");
+		out.println("                               How maven is run: a new maven process for each");
+		out.println("                               reactor (fork), inside mvnmin's JVM, sharing one");
+		out.println("                               warm maven between the reactors (embedded), or by a");
+		out.println("                               pool of warm maven daemons (mvnd).");
+		out.println("                               (default: mvnd if the maven command is mvnd, else fork)");
+		out.println("    --timings                  Print the slowest modules, and their slowest mojo,");
+		out.println("                               when the build finishes.  Needs the mvnmin maven");
+		out.println("                               extension jar.");
+		out.println("    --build-cache              Restore modules whose sources, pom and upstream");
+		out.println("                               modules are unchanged since they last built,");
+		out.println("                               instead of building them.  Only for builds which");
+		out.println("                               install.");
+		out.println("    --build-cache-url=<url>    Also share the build cache through an HTTP server,");
+		out.println("                               which stores blobs by GET and PUT of <url>/<key>.");
+		out.println("                               Implies --build-cache.");
+		out.println("    --resume                   Resume the last build which failed: skip the reactors");
+		out.println("                               which succeeded, and resume the failed reactor from");
+		out.println("                               the module it failed on.");
+		out.println("    --retry-failed=<n>         Build the failed modules of a reactor again, with");
+		out.println("                               the modules skipped after them, up to <n> times");
+		out.println("                               before failing.  Flaky modules are reported.");
+		out.println("    --shard=<i>/<n>            Build only the i-th of n shards of the activated");
+		out.println("                               modules, for splitting a build between CI agents.");
+		out.println("                               Modules which depend on each other share a shard,");
+		out.println("                               and shards are balanced by module count, or by the");
+		out.println("                               usual build times from --shard-history.");
+		out.println("    --shard-history=<folder>   The build history to balance --shard by, the same on");
+		out.println("                               every agent, such as a copy of .mvnmin/history.");
+		out.println("    --server[=<minutes>]       Run as a server for the project in the working folder,");
+		out.println("                               keeping mvnmin.xml and the poms it has read until they");
+		out.println("                               change.  mvnmin started in the same folder runs in the");
+		out.println("                               server.  Stops after <minutes> without a build.");
+		out.println("                               (default: " + DEFAULT_SERVER_IDLE_MINUTES + ")");
+		out.println();
+		out.println("  Debug");
+		out.println("    -d --dry-run               Don't invoke maven, print out the commands that");
+		out.println("                               would have been executed.");
+		out.println("       --version               Print the version number of mvnmin and exit.");
+		out.println("    --profile[=<file>]         Print how long each step of mvnmin took, and the files");
+		out.println("                               and poms it read, or write them to a JSON <file>.");
+		out.println("    --jfr[=<file>]             Record mvnmin's Java Flight Recorder events, with the");
+		out.println("                               JVM's default events, to <file>.");
+		out.println("                               (default: .mvnmin/mvnmin.jfr)");
+		out.println("    --trace[=<file>]           Write a timeline of mvnmin's steps, and with the mvnmin");
+		out.println("                               maven extension jar, each reactor's modules and mojos,");
+		out.println("                               for Perfetto or chrome://tracing.");
+		out.println("                               (default: .mvnmin/trace.json)");
+		out.println("    --metrics[=<file>]         Write the run's activated modules, step and reactor");
+		out.println("                               times, cache hits and exit codes as OpenMetrics, for");
+		out.println("                               the node-exporter textfile collector.");
+		out.println("                               (default: .mvnmin/metrics.prom)");
+		out.println();
+
+	}
+
+
+
+
+	private static String projectsAsString(final Set<String> projectIds) {
+		List<String> sorted = new ArrayList<>(projectIds);
+		Collections.sort(sorted);
+		return String.join("\n", sorted);
+	}
+
+	private static int getMaxDepthSetting() {
+		try {
+			return Integer.parseInt(Environment.get(MVNMIN_MAXDEPTH_ENVVAR));
+		} catch (NumberFormatException nfe) {
+			return DEFAULT_MAX_DEPTH;
+		}
+	}
+
+	private boolean outputIsATerminal() {
+		return terminal;
+	}
+
+	/**
+	 * Parse out the -pl and --projects arguments passed into mvnmin via command line arg.
+	 * @param args the arguments passed to mvnmin
+	 * @return the modules requested
+	 */
+	private static ModuleRequests getProjectsFromArgs(final String[] args) {
+		Set<String> modulesRequestedParam = new HashSet<>();
+
+		for (int x = 0; x < args.length; x++) {
+			if ("-pl".equals(args[x]) || "--projects".equals(args[x])) {
+				if (x + 1 < args.length) {  // we need the next arg, make sure it's there first
+					try (Scanner inputScanner = new Scanner(args[ x + 1 ])) {
+						inputScanner.useDelimiter(",|$");
+						while (inputScanner.hasNext()) {
+							modulesRequestedParam.add(inputScanner.next());
+						}
+					}
+				}
+			}
+		}
+		return new ModuleRequests(modulesRequestedParam);
+	}
+
+	private static ModuleRequests getProjectsFromStdin(final InputStream stdin) {
+		Set<String> modulesRequestedStdin = new HashSet<>();
+
+		try (Scanner scanner = new Scanner(stdin)) {
+			scanner.useDelimiter("\n|$");
+			while (scanner.hasNext()) {
+				modulesRequestedStdin.add(scanner.next());
+			}
+		}
+		return new ModuleRequests(modulesRequestedStdin);
+	}
+
+	private int executeMavenOnReactors(final ExtendedReactor xreactor, final String[] args, final boolean dryRun,
+			final XmlMvnMinConfig mvnMinConfig, final BuildProgress resumedProgress) {
+		List<String> filteredArgs = removeNonMavenArgs(args);
+
+		OptionalInt maxReactorNameLength = xreactor.getSubReactors().stream()
+				.map(Reactor::getReactorName)
+				.mapToInt(String::length)
+				.max();
+
+		BuildHistory buildHistory = BuildHistory.load(StateDirectory.resolve("history"));
+		buildHistory.refineWeights(xreactor.getSubReactors());
+
+		CgroupLimits limits = CgroupLimits.system();
+		MavenEngine engine = createMavenEngine(mvnMinConfig, limits);
+
+		// Dry runs don't invoke maven, so run them one at a time to keep the output in a stable order
+		int parallelReactors = dryRun || !engine.supportsConcurrentReactors() ? 1 : maxParallelReactors;
+		ReactorScheduler scheduler = new ReactorScheduler(xreactor.getSubReactors(), parallelReactors)
+				.withMavenEngine(engine)
+				.withBuildHistory(buildHistory);
+		if (parallelReactors > 1) {
+			scheduler.withResourceBudget(new ResourceBudget(limits.availableMemory(), limits.availableCpus()));
+		}
+		if (autoThreadsMode) {
+			long reactorsToBuild = xreactor.getSubReactors().stream().filter(Reactor::shouldBuild).count();
+			int concurrentReactors = (int) Math.min(parallelReactors, reactorsToBuild);
+			ModuleIndex moduleIndex = ModuleIndex.scan(Paths.get("."), getMaxDepthSetting());
+			scheduler.withThreadAllocator(new ThreadAllocator(limits.availableCpus(), concurrentReactors)
+					.withUpstreamModules(moduleIndex::upstreamOf));
+		}
+		RemoteBuildCache remoteBuildCache = null;
+		if (buildCacheMode && !dryRun) {
+			if (BuildCache.appliesTo(filteredArgs)) {
+				BuildCache buildCache = BuildCache.create(filteredArgs, getMaxDepthSetting());
+				if (buildCacheUrl != null) {
+					remoteBuildCache = new RemoteBuildCache(buildCacheUrl, REMOTE_CACHE_CONCURRENCY, REMOTE_CACHE_TIMEOUT_MILLIS);
+					buildCache.withRemote(remoteBuildCache);
+				}
+				Set<String> restored;
+				try (Profiler.Phase phase = Profiler.start("restore build cache")) {
+					restored = buildCache.restoreHits(xreactor.getSubReactors());
+					phase.count("modules", restored.size());
+				}
+				if (metrics != null) {
+					metrics.withCache("build", buildCache.getLookups(), restored.size());
+				}
+				if (!restored.isEmpty()) {
+					out.println("mvnmin: restored " + restored.size() + " modules from the build cache: "
+							+ String.join(", ", restored));
+				}
+				scheduler.withBuildCache(buildCache);
+			} else {
+				out.println("mvnmin: the build cache is only used by builds which install, and don't deploy.");
+			}
+		}
+		BuildProgress buildProgress = resumedProgress;
+		if (buildProgress == null && !dryRun) {
+			buildProgress = BuildProgress.plan(getBuildProgressFile(), xreactor.getSubReactors());
+		}
+		if (buildProgress != null) {
+			scheduler.withBuildProgress(buildProgress);
+		}
+		BuildTimings buildTimings = null;
+		if (timingsMode && !dryRun) {
+			buildTimings = BuildTimings.locate(StateDirectory.resolve("events"));
+		} else if (traceFile != null && !dryRun) {
+			try {
+				buildTimings = BuildTimings.locate(StateDirectory.resolve("events"));
+			} catch (MvnMinConfigurationException e) {
+				out.println("mvnmin: the trace has no modules or mojos: " + e.getMessage());
+			}
+		}
+		if (buildTimings != null) {
+			scheduler.withBuildTimings(buildTimings);
+		}
+		if (metrics != null) {
+			scheduler.withBuildMetrics(metrics);
+		}
+		tracedTimings = buildTimings;
+		tracedReactors = xreactor.getSubReactors();
+		RetryLog retryLog = null;
+		if (maxRetries > 0 && !dryRun) {
+			retryLog = RetryLog.load(StateDirectory.resolve("history"));
+			scheduler.withRetries(maxRetries, retryLog);
+		}
+
+		int mavenExitValue;
+		ReactorMemoryMonitor memoryMonitor = ReactorMemoryMonitor.system();
+		try (ReactorPrinter printer = createReactorPrinter(maxReactorNameLength.getAsInt(), parallelReactors)) {
+			printer.withBuildHistory(buildHistory);
+			printer.newline();     // add some spacing
+			OptionalLong expectedMillis = xreactor.estimateBuildMillis(buildHistory);
+			if (!dryRun && parallelReactors == 1 && expectedMillis.isPresent()) {
+				printer.expectedBuildTime(expectedMillis.getAsLong());
+			}
+			if (!dryRun) {
+				memoryMonitor.start();
+			}
+			runningScheduler = scheduler;
+			if (cancelRequested) {
+				scheduler.cancel();
+			}
+			try (Profiler.Phase phase = Profiler.start("maven")) {
+				mavenExitValue = scheduler.run(filteredArgs, mvnMinConfig.getMvnCommand(), dryRun, printer);
+			}
+		} finally {
+			runningScheduler = null;
+			memoryMonitor.close();
+			engine.close();
+			if (remoteBuildCache != null) {
+				remoteBuildCache.close();
+			}
+		}
+
+		if (!dryRun) {
+			xreactor.getSubReactors().forEach(subReactor -> buildHistory.recordPeakRss(subReactor, memoryMonitor.getPeakRss(subReactor)));
+			if (buildTimings != null && timingsMode) {
+				List<ModuleTiming> moduleTimings = buildTimings.collect(xreactor.getSubReactors());
+				buildHistory.recordModules(moduleTimings);
+				out.println();
+				BuildTimings.summary(moduleTimings, MAX_TIMING_ROWS).forEach(out::println);
+			}
+			for (BuildHistory.Regression regression : buildHistory.findRegressions()) {
+				out.println(String.format("mvnmin: %s took %.1fs, usually %.1fs.", regression.getName(),
+						regression.getMillis() / MILLIS_PER_SECOND, regression.getUsualMillis() / MILLIS_PER_SECOND));
+			}
+			buildHistory.save();
+			if (retryLog != null) {
+				for (String module : retryLog.findFlakyModules()) {
+					out.println(String.format("mvnmin: %s failed, then passed when retried; flaky in %d recorded runs.", module,
+							retryLog.countFlakyRuns(module)));
+				}
+				retryLog.save();
+			}
+			if (buildProgress.isComplete()) {
+				buildProgress.delete();
+			}
+		}
+		if (mavenExitValue != 0) {
+			out.println("mvnmin: Maven failed to run successfully.");
+			if (!dryRun) {
+				out.println("mvnmin: run again with --resume to continue from the failed module.");
+			}
+		}
+		return mavenExitValue;
+	}
+
+	private static Path getBuildProgressFile() {
+		return StateDirectory.resolve("resume", "progress.tsv");
+	}
+
+	private MavenEngine createMavenEngine(final XmlMvnMinConfig mvnMinConfig, final CgroupLimits limits) {
+		String mvnCommand = MavenDriver.determineMvnExecutable(mvnMinConfig.getMvnCommand());
+		if ("embedded".equals(engineName)) {
+			return EmbeddedMavenEngine.locate();
+		} else if ("mvnd".equals(engineName) || engineName == null && MvndMavenEngine.isMvnd(mvnCommand)) {
+			String mvndCommand = MvndMavenEngine.isMvnd(mvnCommand) ? mvnCommand : null;
+			return MvndMavenEngine.locate(mvndCommand, maxParallelReactors, limits.availableCpus());
+		}
+		return new ForkedMavenEngine();
+	}
+
+	private ReactorPrinter createReactorPrinter(final int maxReactorNameLength, final int parallelReactors) {
+		ReactorPrinter printer = new ReactorPrinter(maxReactorNameLength, out);
+		if (parallelReactors > 1) {
+			printer.withPrefixedOutput();
+		}
+		if (terminal) {
+			printer.withColour();
+		}
+		if (reactorLogsMode || liveStatusMode) {
+			printer.withLogDirectory(StateDirectory.resolve("logs"));
+		}
+		if (liveStatusMode && terminal) {
+			printer.withLiveStatus();
+		}
+		return printer;
+	}
+
+	private static List<String> removeNonMavenArgs(final String[] args) {
+		List<String> mavenArguments = new ArrayList<>(Arrays.asList(args));
+		removeArgPair(mavenArguments, "-pl");
+		removeArgPair(mavenArguments, "--projects");
+
+		mavenArguments.removeIf(s -> s.equals("--all"));
+		mavenArguments.removeIf(s -> s.equals("--d"));
+		mavenArguments.removeIf(s -> s.matches("--diff.*"));
+		mavenArguments.removeIf(s -> s.equals("--dry-run"));
+		mavenArguments.removeIf(s -> s.equals("--nbi"));
+		mavenArguments.removeIf(s -> s.equals("-p"));
+		mavenArguments.removeIf(s -> s.equals("--version"));
+		mavenArguments.removeIf(s -> s.startsWith("--max-parallel-reactors="));
+		mavenArguments.removeIf(s -> s.startsWith("--engine="));
+		mavenArguments.removeIf(s -> s.equals("--reactor-logs"));
+		mavenArguments.removeIf(s -> s.equals("--live-status"));
+		mavenArguments.removeIf(s -> s.equals("--auto-threads"));
+		mavenArguments.removeIf(s -> s.equals("--timings"));
+		mavenArguments.removeIf(s -> s.equals("--build-cache"));
+		mavenArguments.removeIf(s -> s.startsWith("--build-cache-url="));
+		mavenArguments.removeIf(s -> s.equals("--resume"));
+		mavenArguments.removeIf(s -> s.startsWith("--retry-failed="));
+		mavenArguments.removeIf(s -> s.startsWith("--shard="));
+		mavenArguments.removeIf(s -> s.startsWith("--shard-history="));
+		mavenArguments.removeIf(s -> s.startsWith("--emit-plan="));
+		mavenArguments.removeIf(s -> s.startsWith("--plan="));
+		mavenArguments.removeIf(s -> s.matches("--server(=.*)?"));
+		mavenArguments.removeIf(s -> s.matches("--profile(=.*)?"));
+		mavenArguments.removeIf(s -> s.matches("--jfr(=.*)?"));
+		mavenArguments.removeIf(s -> s.matches("--trace(=.*)?"));
+		mavenArguments.removeIf(s -> s.matches("--metrics(=.*)?"));
+		return mavenArguments;
+	}
+
+	private static void removeArgPair(final List<String> mavenArguments, final String arg) {
+		int argIndex = mavenArguments.indexOf(arg);
+		if (argIndex > -1) {
+			// Remove twice to delete the arg marker and the value
+			mavenArguments.remove(argIndex);
+			mavenArguments.remove(argIndex);
+		}
+	}
+
+	/**
+	 * Stop mvnmin, with run() returning the exit value.
+	 * @param mavenExitValue the exit value
+	 */
+	private static void exit(final int mavenExitValue) {
+		throw new ExitRequest(mavenExitValue);
+	}
+
+}
@@ -0,0 +1,337 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.cache;
+
+import java.io.IOException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.elasticpath.tools.mavenminimal.reactor.Reactor;
+import com.elasticpath.tools.mavenminimal.util.Digests;
+import com.elasticpath.tools.mavenminimal.util.Environment;
+import com.elasticpath.tools.mavenminimal.util.Logger;
+
+/**
+ * A local, content-addressed cache of the artifacts of modules which built successfully, so a module whose inputs are
+ * unchanged since a previous build is restored rather than built again.
+ *
+ * Each entry is named after the hash of the module's inputs (see ModuleHasher) together with the goals, profiles and
+ * properties maven is run with, and holds the module's pom and the artifacts maven left in its target folder.  On a
+ * hit, the module is removed from its reactor's --projects, and its artifacts are copied back into its target folder
+ * and the local repository, where the modules still built find them.  Because those modules resolve the restored
+ * ones from the local repository, the cache is only used by builds which install.
+ */
+public class BuildCache {
+
+	/**
+	 * The environment variable which overrides the folder the cache is kept in.
+	 */
+	public static final String CACHE_FOLDER_ENVVAR = "MVNMIN_BUILD_CACHE";
+
+	private static final String FORMAT = "mvnmin-build-cache-1";
+	private static final String REPO_LOCAL_ARG = "-Dmaven.repo.local=";
+	private static final String POM_FILE = "pom.xml";
+
+	private final Path cacheFolder;
+	private final Path localRepository;
+	private final ModuleIndex index;
+	private final ModuleHasher hasher;
+	private final String goals;
+	private final Map<String, String> keysToStore = new ConcurrentHashMap<>();
+	private RemoteBuildCache remote;
+	private int lookups;
+
+	/**
+	 * @param cacheFolder the folder the cache entries are kept in
+	 * @param localRepository maven's local repository
+	 * @param index the modules of the project
+	 * @param mavenArgs the arguments maven is run with
+	 */
+	BuildCache(final Path cacheFolder, final Path localRepository, final ModuleIndex index, final List<String> mavenArgs) {
+		this.cacheFolder = cacheFolder;
+		this.localRepository = localRepository;
+		this.index = index;
+		this.hasher = new ModuleHasher(index);
+		this.goals = String.join(" ", effectiveGoals(mavenArgs));
+	}
+
+	/**
+	 * Create the cache for a build of the project in the working directory.
+	 * @param mavenArgs the arguments maven is run with
+	 * @param maxDepth the maximum number of folders down to look for modules
+	 * @return the cache
+	 */
+	public static BuildCache create(final List<String> mavenArgs, final int maxDepth) {
+		String configuredFolder = Environment.get(CACHE_FOLDER_ENVVAR);
+		Path m2 = Paths.get(System.getProperty("user.home"), ".m2");
+		Path cacheFolder = configuredFolder == null ? m2.resolve("mvnmin").resolve("build-cache") : Paths.get(configuredFolder);
+		return new BuildCache(cacheFolder, findLocalRepository(mavenArgs, m2), ModuleIndex.scan(Paths.get("."), maxDepth), mavenArgs);
+	}
+
+	/**
+	 * Also download entries from, and upload entries to, a cache shared between machines.
+	 * @param remote the shared cache
+	 * @return this instance.
+	 */
+	public BuildCache withRemote(final RemoteBuildCache remote) {
+		this.remote = remote;
+		return this;
+	}
+
+	/**
+	 * @param mavenArgs the arguments maven is run with
+	 * @return true if the build installs its modules, and doesn't deploy them, so cached modules may be restored.
+	 */
+	public static boolean appliesTo(final List<String> mavenArgs) {
+		return mavenArgs.contains("install") && !mavenArgs.contains("deploy");
+	}
+
+	/**
+	 * The arguments which may change what maven builds: the goals and phases, profiles and properties.
+	 * @param mavenArgs the arguments maven is run with
+	 * @return the arguments, in order
+	 */
+	static List<String> effectiveGoals(final List<String> mavenArgs) {
+		return mavenArgs.stream()
+				.filter(arg -> !arg.startsWith("-") || arg.startsWith("-D") || arg.startsWith("-P"))
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * Find the local repository from -Dmaven.repo.local, or else the default location.  The localRepository of
+	 * settings.xml is not considered.
+	 * @param mavenArgs the arguments maven is run with
+	 * @param m2 the user's .m2 folder
+	 * @return the local repository
+	 */
+	static Path findLocalRepository(final List<String> mavenArgs, final Path m2) {
+		for (String arg : mavenArgs) {
+			if (arg.startsWith(REPO_LOCAL_ARG)) {
+				return Paths.get(arg.substring(REPO_LOCAL_ARG.length()));
+			}
+		}
+		return m2.resolve("repository");
+	}
+
+	/**
+	 * The key of a module's cache entry, when built in a reactor.
+	 * @param reactor the reactor the module is built in
+	 * @param moduleId the module, as groupId:artifactId
+	 * @return the key, or null if the module can't be cached, as it isn't found or its version isn't known.
+	 */
+	String key(final Reactor reactor, final String moduleId) {
+		ProjectModule module = index.get(moduleId);
+		if (module == null || module.getVersion() == null) {
+			return null;
+		}
+		return Digests.sha256Hex(FORMAT + "\n" + goals + "\n" + reactor.getExtraParams() + "\n" + hasher.hash(moduleId));
+	}
+
+	/**
+	 * Restore every active module of the reactors which has a cache entry, and remove it from its reactor.
+	 * @param reactors the reactors about to be built
+	 * @return the modules restored from the cache
+	 */
+	public Set<String> restoreHits(final List<Reactor> reactors) {
+		Map<Reactor, Map<String, String>> keys = new LinkedHashMap<>();
+		for (Reactor reactor : reactors) {
+			if (reactor.shouldBuild()) {
+				Map<String, String> reactorKeys = new TreeMap<>();
+				for (String moduleId : reactor.getActiveModules()) {
+					String key = key(reactor, moduleId);
+					if (key != null) {
+						reactorKeys.put(moduleId, key);
+					}
+				}
+				keys.put(reactor, reactorKeys);
+				lookups += reactorKeys.size();
+			}
+		}
+
+		if (remote != null) {
+			Set<String> missing = keys.values().stream()
+					.flatMap(reactorKeys -> reactorKeys.values().stream())
+					.filter(key -> !Files.isDirectory(cacheFolder.resolve(key)))
+					.collect(Collectors.toCollection(LinkedHashSet::new));
+			remote.fetchAll(missing, cacheFolder);
+		}
+
+		Set<String> restored = new TreeSet<>();
+		for (Map.Entry<Reactor, Map<String, String>> reactorKeys : keys.entrySet()) {
+			Set<String> hits = new TreeSet<>();
+			for (Map.Entry<String, String> moduleKey : reactorKeys.getValue().entrySet()) {
+				String moduleId = moduleKey.getKey();
+				String key = moduleKey.getValue();
+				Path entry = cacheFolder.resolve(key);
+				if (Files.isDirectory(entry) && restore(index.get(moduleId), entry)) {
+					hits.add(moduleId);
+				} else {
+					keysToStore.put(moduleId, key);
+				}
+			}
+			reactorKeys.getKey().removeActiveModules(hits);
+			restored.addAll(hits);
+		}
+		return restored;
+	}
+
+	/**
+	 * @return the number of modules restoreHits() looked up in the cache, leaving out those which can't be cached.
+	 */
+	public int getLookups() {
+		return lookups;
+	}
+
+	private boolean restore(final ProjectModule module, final Path entry) {
+		try {
+			Path repositoryFolder = repositoryFolder(module);
+			Path targetFolder = module.getDirectory().resolve("target");
+			for (Path file : list(entry)) {
+				String name = file.getFileName().toString();
+				if (name.equals(POM_FILE)) {
+					copy(file, repositoryFolder.resolve(module.getArtifactId() + "-" + module.getVersion() + ".pom"));
+				} else {
+					copy(file, targetFolder.resolve(name));
+					copy(file, repositoryFolder.resolve(name));
+				}
+			}
+			Logger.debug("Restored " + module.getId() + " from the build cache " + entry);
+			return true;
+		} catch (IOException e) {
+			Logger.debug("Failed to restore " + module.getId() + " from the build cache, building it instead", e);
+			return false;
+		}
+	}
+
+	/**
+	 * Store the modules of a reactor which built successfully, which weren't restored from the cache.
+	 * @param reactor the reactor which built successfully
+	 */
+	public void store(final Reactor reactor) {
+		for (String moduleId : reactor.getActiveModules()) {
+			String key = keysToStore.remove(moduleId);
+			if (key != null) {
+				store(index.get(moduleId), key);
+			}
+		}
+	}
+
+	private void store(final ProjectModule module, final String key) {
+		Path entry = cacheFolder.resolve(key);
+		Path temporary = cacheFolder.resolve(key + ".tmp-" + System.nanoTime());
+		try {
+			List<Path> artifacts = artifacts(module);
+			if (artifacts.isEmpty() && !module.getPackaging().equals("pom")) {
+				Logger.debug("Not caching " + module.getId() + ", as no artifacts were found in its target folder");
+				return;
+			}
+			Files.createDirectories(temporary);
+			copy(module.getPom(), temporary.resolve(POM_FILE));
+			for (Path artifact : artifacts) {
+				copy(artifact, temporary.resolve(artifact.getFileName()));
+			}
+			try {
+				Files.move(temporary, entry, StandardCopyOption.ATOMIC_MOVE);
+				Logger.debug("Stored " + module.getId() + " in the build cache " + entry);
+			} catch (FileAlreadyExistsException | DirectoryNotEmptyException e) {
+				Logger.debug("The build cache already holds " + entry);
+			}
+			if (remote != null) {
+				remote.upload(key, entry);
+			}
+		} catch (IOException e) {
+			Logger.debug("Failed to store " + module.getId() + " in the build cache", e);
+		} finally {
+			deleteRecursively(temporary);
+		}
+	}
+
+	/**
+	 * The files maven built for the module: those in its target folder named artifactId-version, such as the jar and
+	 * any attached artifacts.
+	 * @param module the module
+	 * @return the artifacts
+	 * @throws IOException if the target folder cannot be read
+	 */
+	static List<Path> artifacts(final ProjectModule module) throws IOException {
+		Path targetFolder = module.getDirectory().resolve("target");
+		List<Path> artifacts = new ArrayList<>();
+		if (!Files.isDirectory(targetFolder)) {
+			return artifacts;
+		}
+		String prefix = module.getArtifactId() + "-" + module.getVersion();
+		for (Path file : list(targetFolder)) {
+			String name = file.getFileName().toString();
+			boolean artifactName = name.startsWith(prefix + ".") || name.startsWith(prefix + "-");
+			if (artifactName && Files.isRegularFile(file)) {
+				artifacts.add(file);
+			}
+		}
+		return artifacts;
+	}
+
+	private Path repositoryFolder(final ProjectModule module) {
+		return localRepository.resolve(module.getGroupId().replace('.', '/')).resolve(module.getArtifactId()).resolve(module.getVersion());
+	}
+
+	private static List<Path> list(final Path folder) throws IOException {
+		List<Path> files = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder)) {
+			stream.forEach(files::add);
+		}
+		return files;
+	}
+
+	private static void copy(final Path source, final Path target) throws IOException {
+		Files.createDirectories(target.getParent());
+		Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Delete a folder and everything in it, if it exists.
+	 * @param folder the folder to delete
+	 */
+	static void deleteRecursively(final Path folder) {
+		if (!Files.exists(folder)) {
+			return;
+		}
+		try (Stream<Path> paths = Files.walk(folder)) {
+			for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+				Files.delete(path);
+			}
+		} catch (IOException e) {
+			Logger.debug("Failed to delete " + folder, e);
+		}
+	}
+}
@@ -0,0 +1,133 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.cache;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.elasticpath.tools.mavenminimal.util.Digests;
+
+/**
+ * Computes a hash of everything a module's build depends on within the project: the files of the module, other than
+ * its target folder, hidden folders and nested modules, and the hashes of its parent and of the modules it depends on,
+ * including those its build uses as plugins, plugin dependencies or extensions, in any profile.
+ *
+ * Dependencies from outside the project are covered by the versions declared in the pom, so a changed SNAPSHOT
+ * dependency from outside the project is not noticed.
+ */
+public class ModuleHasher {
+
+	private static final String FORMAT = "mvnmin-module-inputs-2";
+
+	private final ModuleIndex index;
+	private final Map<String, String> hashes = new HashMap<>();
+	private final Set<String> hashing = new HashSet<>();
+
+	/**
+	 * @param index the modules of the project
+	 */
+	public ModuleHasher(final ModuleIndex index) {
+		this.index = index;
+	}
+
+	/**
+	 * @param moduleId the module, as groupId:artifactId
+	 * @return the hash of the module's inputs, in hexadecimal, or null if the module isn't part of the project.
+	 */
+	public synchronized String hash(final String moduleId) {
+		ProjectModule module = index.get(moduleId);
+		if (module == null) {
+			return null;
+		}
+		String hash = hashes.get(moduleId);
+		if (hash == null) {
+			if (!hashing.add(moduleId)) {
+				throw new IllegalStateException("The project's modules depend on each other in a cycle, through " + moduleId);
+			}
+			try {
+				hash = computeHash(module);
+			} finally {
+				hashing.remove(moduleId);
+			}
+			hashes.put(moduleId, hash);
+		}
+		return hash;
+	}
+
+	private String computeHash(final ProjectModule module) {
+		MessageDigest digest = Digests.sha256();
+		update(digest, FORMAT);
+		listFiles(module.getDirectory()).forEach((relativePath, fileHash) -> update(digest, "file " + relativePath + " " + fileHash));
+		if (module.getParentId() != null && index.get(module.getParentId()) != null) {
+			update(digest, "parent " + module.getParentId() + " " + hash(module.getParentId()));
+		}
+		for (String dependencyId : module.getDependencyIds()) {
+			if (index.get(dependencyId) != null) {
+				update(digest, "dependency " + dependencyId + " " + hash(dependencyId));
+			}
+		}
+		return Digests.toHex(digest.digest());
+	}
+
+	private static void update(final MessageDigest digest, final String line) {
+		digest.update((line + "\n").getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static Map<String, String> listFiles(final Path moduleDirectory) {
+		Map<String, String> files = new TreeMap<>();
+		try {
+			Files.walkFileTree(moduleDirectory, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult preVisitDirectory(final Path directory, final BasicFileAttributes attributes) {
+					if (directory.equals(moduleDirectory)) {
+						return FileVisitResult.CONTINUE;
+					}
+					String name = directory.getFileName().toString();
+					boolean nestedModule = Files.isRegularFile(directory.resolve("pom.xml"));
+					if (name.equals("target") || name.startsWith(".") || nestedModule) {
+						return FileVisitResult.SKIP_SUBTREE;
+					}
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFile(final Path file, final BasicFileAttributes attributes) throws IOException {
+					if (attributes.isRegularFile()) {
+						// use '/' on every platform, so the hash doesn't depend on the OS
+						String relativePath = moduleDirectory.relativize(file).toString().replace('\\', '/');
+						files.put(relativePath, Digests.sha256Hex(file));
+					}
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		} catch (IOException e) {
+			throw new IllegalStateException("Failed to hash the files of " + moduleDirectory, e);
+		}
+		return files;
+	}
+}
@@ -0,0 +1,147 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.cache;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.elasticpath.tools.mavenminimal.pom.PomDependency;
+import com.elasticpath.tools.mavenminimal.pom.PomParent;
+import com.elasticpath.tools.mavenminimal.pom.PomProject;
+import com.elasticpath.tools.mavenminimal.util.Logger;
+import com.elasticpath.tools.mavenminimal.util.Profiler;
+
+/**
+ * The modules of the project, found by reading every pom.xml below the project root.
+ */
+public class ModuleIndex {
+
+	private static final String PROJECT_GROUP_ID = "${project.groupId}";
+
+	private final Map<String, ProjectModule> modules = new HashMap<>();
+
+	/**
+	 * @param modules the modules of the project
+	 */
+	ModuleIndex(final Collection<ProjectModule> modules) {
+		modules.forEach(module -> this.modules.put(module.getId(), module));
+	}
+
+	/**
+	 * Read every pom.xml below the project root, other than those in target folders.
+	 * @param projectRoot the root of the project
+	 * @param maxDepth the maximum number of folders down to look
+	 * @return the index of the project's modules
+	 */
+	public static ModuleIndex scan(final Path projectRoot, final int maxDepth) {
+		try (Profiler.Phase phase = Profiler.start("scan modules")) {
+			return index(projectRoot, maxDepth);
+		}
+	}
+
+	private static ModuleIndex index(final Path projectRoot, final int maxDepth) {
+		Path root = projectRoot.toAbsolutePath().normalize();
+		List<Path> poms;
+		try (Stream<Path> paths = Files.walk(root, maxDepth)) {
+			poms = paths
+					.filter(path -> path.getFileName().toString().equals("pom.xml"))
+					.filter(path -> !root.relativize(path).toString().matches("(.*[/\\\\])?target[/\\\\].*"))
+					.filter(Files::isRegularFile)
+					.collect(Collectors.toList());
+		} catch (IOException e) {
+			throw new IllegalStateException("Failed to walk filesystem for all poms", e);
+		}
+
+		List<ProjectModule> modules = new ArrayList<>();
+		try {
+			for (Path pom : poms) {
+				modules.add(toModule(PomProject.read(pom), pom.getParent()));
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("Failed to parse the project's poms", e);
+		}
+		return new ModuleIndex(modules);
+	}
+
+	private static ProjectModule toModule(final PomProject project, final Path directory) {
+		PomParent parent = project.getParent();
+		String groupId = project.getGroupId() == null && parent != null ? parent.getGroupId() : project.getGroupId();
+		String version = project.getVersion() == null && parent != null ? parent.getVersion() : project.getVersion();
+		if (version != null && version.contains("${")) {
+			Logger.debug("The version of " + groupId + ":" + project.getArtifactId() + " is set by a property: " + version);
+			version = null;
+		}
+		String packaging = project.getPackaging() == null ? "jar" : project.getPackaging();
+		String parentId = parent == null ? null : parent.getGroupId() + ":" + parent.getArtifactId();
+
+		// the build of a module also waits for the project's plugins, plugin dependencies and extensions it uses
+		List<String> dependencyIds = new ArrayList<>();
+		List<PomDependency> dependencies = new ArrayList<>(project.getDependencies());
+		dependencies.addAll(project.getBuildDependencies());
+		for (PomDependency dependency : dependencies) {
+			if (dependency.getGroupId() == null) {
+				continue;
+			}
+			String dependencyGroupId = PROJECT_GROUP_ID.equals(dependency.getGroupId()) ? groupId : dependency.getGroupId();
+			String dependencyId = dependencyGroupId + ":" + dependency.getArtifactId();
+			if (!dependencyIds.contains(dependencyId)) {
+				dependencyIds.add(dependencyId);
+			}
+		}
+		return new ProjectModule(groupId, project.getArtifactId(), version, packaging, directory, parentId, dependencyIds);
+	}
+
+	/**
+	 * @param moduleId the module, as groupId:artifactId
+	 * @return the module, or null if it isn't part of the project
+	 */
+	public ProjectModule get(final String moduleId) {
+		return modules.get(moduleId);
+	}
+
+	/**
+	 * @param moduleId the module, as groupId:artifactId
+	 * @return the modules it depends on, including its parent, as groupId:artifactId; none if it isn't part of the project
+	 */
+	public List<String> upstreamOf(final String moduleId) {
+		ProjectModule module = modules.get(moduleId);
+		if (module == null) {
+			return Collections.emptyList();
+		}
+		List<String> upstream = new ArrayList<>(module.getDependencyIds());
+		if (module.getParentId() != null) {
+			upstream.add(module.getParentId());
+		}
+		return upstream;
+	}
+
+	/**
+	 * @return the number of modules in the project.
+	 */
+	public int size() {
+		return modules.size();
+	}
+}
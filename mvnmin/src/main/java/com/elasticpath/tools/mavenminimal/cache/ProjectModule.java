@@ -0,0 +1,118 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.cache;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A module of the project, as far as its pom.xml describes it without maven's help.
+ */
+public class ProjectModule {
+
+	private final String groupId;
+	private final String artifactId;
+	private final String version;
+	private final String packaging;
+	private final Path directory;
+	private final String parentId;
+	private final List<String> dependencyIds;
+
+	/**
+	 * @param groupId the group ID, possibly inherited from the parent
+	 * @param artifactId the artifact ID
+	 * @param version the version, possibly inherited from the parent, or null if it cannot be known without maven
+	 * @param packaging the packaging
+	 * @param directory the folder containing the module's pom.xml
+	 * @param parentId the parent, as groupId:artifactId, or null if there is none
+	 * @param dependencyIds the dependencies, and the plugins and extensions of the build, as groupId:artifactId
+	 */
+	ProjectModule(final String groupId, final String artifactId, final String version, final String packaging, final Path directory,
+			final String parentId, final List<String> dependencyIds) {
+		this.groupId = groupId;
+		this.artifactId = artifactId;
+		this.version = version;
+		this.packaging = packaging;
+		this.directory = directory;
+		this.parentId = parentId;
+		this.dependencyIds = Collections.unmodifiableList(dependencyIds);
+	}
+
+	/**
+	 * @return the module, as groupId:artifactId.
+	 */
+	public String getId() {
+		return groupId + ":" + artifactId;
+	}
+
+	/**
+	 * @return the group ID.
+	 */
+	public String getGroupId() {
+		return groupId;
+	}
+
+	/**
+	 * @return the artifact ID.
+	 */
+	public String getArtifactId() {
+		return artifactId;
+	}
+
+	/**
+	 * @return the version, or null if it cannot be known without maven, such as a version set by a property.
+	 */
+	public String getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return the packaging, such as jar or pom.
+	 */
+	public String getPackaging() {
+		return packaging;
+	}
+
+	/**
+	 * @return the folder containing the module's pom.xml.
+	 */
+	public Path getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * @return the module's pom.xml.
+	 */
+	public Path getPom() {
+		return directory.resolve("pom.xml");
+	}
+
+	/**
+	 * @return the parent, as groupId:artifactId, or null if there is none.
+	 */
+	public String getParentId() {
+		return parentId;
+	}
+
+	/**
+	 * @return the dependencies, and the plugins and extensions of the build, as groupId:artifactId.
+	 */
+	public List<String> getDependencyIds() {
+		return dependencyIds;
+	}
+}
@@ -0,0 +1,255 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.cache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URL;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import com.elasticpath.tools.mavenminimal.util.Logger;
+
+/**
+ * A build cache shared between machines, through an HTTP server which stores blobs: GET of &lt;url&gt;/&lt;key&gt;
+ * returns a blob or 404, and PUT of &lt;url&gt;/&lt;key&gt; stores one.  Each blob is a cache entry's files, compressed
+ * into a zip archive.
+ *
+ * Downloads and uploads run on a fixed number of threads.  The remote cache is only an optimisation: if the server
+ * cannot be reached or doesn't answer in time, it is not used again for the rest of the run, and the modules are
+ * built instead.
+ */
+public class RemoteBuildCache implements Closeable {
+
+	private static final int HTTP_OK = 200;
+	private static final int HTTP_NOT_FOUND = 404;
+	private static final int HTTP_MULTIPLE_CHOICES = 300;
+	private static final int CHUNK_SIZE = 64 * 1024;
+	private static final long UPLOAD_WAIT_MINUTES = 5;
+
+	private final String baseUrl;
+	private final int timeoutMillis;
+	private final ExecutorService executor;
+	private volatile boolean available = true;
+
+	/**
+	 * @param url the URL the blobs are stored under
+	 * @param concurrency the most downloads and uploads to run at the same time
+	 * @param timeoutMillis the longest to wait to connect to the server, or for it to answer
+	 */
+	public RemoteBuildCache(final URI url, final int concurrency, final int timeoutMillis) {
+		String base = url.toString();
+		this.baseUrl = base.endsWith("/") ? base : base + "/";
+		this.timeoutMillis = timeoutMillis;
+		this.executor = Executors.newFixedThreadPool(concurrency, runnable -> {
+			Thread thread = new Thread(runnable, "mvnmin-remote-cache");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Download the entries which the server holds into the local cache folder, at the same time.
+	 * @param keys the keys of the entries to download
+	 * @param cacheFolder the local cache folder, where each entry is a folder named after its key
+	 * @return the keys of the entries downloaded
+	 */
+	public Set<String> fetchAll(final Collection<String> keys, final Path cacheFolder) {
+		Set<String> fetched = ConcurrentHashMap.newKeySet();
+		List<Future<?>> downloads = new ArrayList<>();
+		for (String key : keys) {
+			downloads.add(executor.submit(() -> {
+				if (fetch(key, cacheFolder.resolve(key))) {
+					fetched.add(key);
+				}
+			}));
+		}
+		downloads.forEach(RemoteBuildCache::await);
+		return fetched;
+	}
+
+	/**
+	 * Download an entry, if the server holds it.
+	 * @param key the key of the entry
+	 * @param entry the folder to unpack the entry into
+	 * @return true if the entry was downloaded
+	 */
+	boolean fetch(final String key, final Path entry) {
+		if (!available) {
+			return false;
+		}
+		Path temporary = entry.resolveSibling(entry.getFileName() + ".download-" + System.nanoTime());
+		try {
+			HttpURLConnection connection = open(key, "GET");
+			int status = connection.getResponseCode();
+			if (status == HTTP_NOT_FOUND) {
+				return false;
+			} else if (status != HTTP_OK) {
+				Logger.debug("The remote build cache answered " + status + " for " + key);
+				return false;
+			}
+			Files.createDirectories(temporary);
+			try (ZipInputStream zip = new ZipInputStream(connection.getInputStream())) {
+				for (ZipEntry zipEntry = zip.getNextEntry(); zipEntry != null; zipEntry = zip.getNextEntry()) {
+					Files.copy(zip, temporary.resolve(safeFileName(zipEntry.getName())));
+				}
+			}
+			try {
+				Files.move(temporary, entry, StandardCopyOption.ATOMIC_MOVE);
+				Logger.debug("Downloaded " + key + " from the remote build cache");
+			} catch (FileAlreadyExistsException | DirectoryNotEmptyException e) {
+				Logger.debug("The build cache already holds " + entry);
+			}
+			return true;
+		} catch (IOException e) {
+			unavailable(e);
+			return false;
+		} finally {
+			BuildCache.deleteRecursively(temporary);
+		}
+	}
+
+	/**
+	 * Upload an entry in the background.
+	 * @param key the key of the entry
+	 * @param entry the folder of the entry's files
+	 */
+	public void upload(final String key, final Path entry) {
+		if (!available) {
+			return;
+		}
+		executor.submit(() -> put(key, entry));
+	}
+
+	private void put(final String key, final Path entry) {
+		if (!available) {
+			return;
+		}
+		try {
+			HttpURLConnection connection = open(key, "PUT");
+			connection.setDoOutput(true);
+			connection.setChunkedStreamingMode(CHUNK_SIZE);
+			connection.setRequestProperty("Content-Type", "application/zip");
+			try (OutputStream body = connection.getOutputStream();
+					ZipOutputStream zip = new ZipOutputStream(body);
+					DirectoryStream<Path> files = Files.newDirectoryStream(entry)) {
+				for (Path file : files) {
+					zip.putNextEntry(new ZipEntry(file.getFileName().toString()));
+					Files.copy(file, zip);
+					zip.closeEntry();
+				}
+			}
+			int status = connection.getResponseCode();
+			if (status < HTTP_OK || status >= HTTP_MULTIPLE_CHOICES) {
+				Logger.debug("The remote build cache answered " + status + " to storing " + key);
+				connection.disconnect();
+			} else {
+				Logger.debug("Uploaded " + key + " to the remote build cache");
+				drain(connection);
+			}
+		} catch (IOException e) {
+			unavailable(e);
+		}
+	}
+
+	private HttpURLConnection open(final String key, final String method) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + key).openConnection();
+		connection.setRequestMethod(method);
+		connection.setConnectTimeout(timeoutMillis);
+		connection.setReadTimeout(timeoutMillis);
+		return connection;
+	}
+
+	private static void drain(final HttpURLConnection connection) throws IOException {
+		// read the whole response, so the connection can be reused
+		byte[] buffer = new byte[CHUNK_SIZE];
+		try (InputStream response = connection.getInputStream()) {
+			int read = response.read(buffer);
+			while (read >= 0) {
+				read = response.read(buffer);
+			}
+		}
+	}
+
+	private void unavailable(final IOException e) {
+		if (available) {
+			available = false;
+			Logger.debug("The remote build cache " + baseUrl + " failed, not using it for the rest of the run", e);
+		}
+	}
+
+	/**
+	 * @return false if the server failed to answer, so the remote cache is no longer used.
+	 */
+	public boolean isAvailable() {
+		return available;
+	}
+
+	private static String safeFileName(final String name) throws IOException {
+		if (name.isEmpty() || name.contains("/") || name.contains("\\") || name.startsWith(".")) {
+			throw new IOException("Unexpected file in a remote build cache entry: " + name);
+		}
+		return name;
+	}
+
+	private static void await(final Future<?> future) {
+		try {
+			future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			Logger.debug("Remote build cache transfer failed", e.getCause());
+		}
+	}
+
+	/**
+	 * Wait for the uploads still running, then stop the transfer threads.
+	 */
+	@Override
+	public void close() {
+		executor.shutdown();
+		try {
+			if (!executor.awaitTermination(UPLOAD_WAIT_MINUTES, TimeUnit.MINUTES)) {
+				Logger.debug("Gave up waiting for uploads to the remote build cache");
+				executor.shutdownNow();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -17,6 +17,14 @@ package com.elasticpath.tools.mavenminimal.config;
 
 public class MvnMinConfigurationException extends RuntimeException {
 
+    /**
+     * Create a new instance with a message.
+     * @param message the message
+     */
+    public MvnMinConfigurationException(final String message) {
+        super(message);
+    }
+
     /**
      * Create a new instance with a message and an underlying cause.
      * @param message the message
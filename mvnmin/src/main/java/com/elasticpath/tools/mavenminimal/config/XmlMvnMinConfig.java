@@ -0,0 +1,527 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+package com.elasticpath.tools.mavenminimal.config;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.elasticpath.tools.mavenminimal.jfr.BuildIfEvaluationEvent;
+import com.elasticpath.tools.mavenminimal.jfr.FlightRecording;
+import com.elasticpath.tools.mavenminimal.reactor.Reactor;
+import com.elasticpath.tools.mavenminimal.util.Logger;
+import com.elasticpath.tools.mavenminimal.util.ParsedFileCache;
+import com.elasticpath.tools.mavenminimal.util.Profiler;
+import com.elasticpath.tools.mavenminimal.util.ToStringBuilder;
+import com.elasticpath.tools.mavenminimal.util.XmlElementReader;
+
+/**
+ * Provides a way to pass mvnmin a set of hints about a Maven project's reactor structure.
+ * Mvnmin uses these hints to drive the underlying project structure in an optimized manner.
+ */
+public final class XmlMvnMinConfig {
+
+	public static final String MVNMIN_CONFIG_FILE_NAME = "mvnmin.xml";
+	private static final int BUILD_IF_LOOPS = 4;
+	private static final Pattern MEMORY_SIZE = Pattern.compile("(\\d+)\\s*([kmgt]?)b?", Pattern.CASE_INSENSITIVE);
+	private static final String MEMORY_UNITS = "kmgt";
+	private static final int BITS_PER_UNIT = 10;
+	private static final ParsedFileCache<XmlMvnMinConfig> CACHE = new ParsedFileCache<>();
+
+	private final MvnMinConfigFile config;
+
+	private XmlMvnMinConfig() {
+		config = new MvnMinConfigFile();
+	}
+
+	private XmlMvnMinConfig(final MvnMinConfigFile config) {
+		this.config = config;
+	}
+
+	/**
+	 * Resolves the build-if project activation, ensuring dependent projects build.
+	 * @param modulesRequested the set of modules currently activated.
+	 * @return the super set of the input and all dependent projects
+	 */
+	public List<String> determineBuildIfProjects(final Set<String> modulesRequested) {
+
+		Map<String, List<String>> buildIfModules = getBuildIfModules();
+		BuildIfEvaluationEvent event = FlightRecording.isEnabled()
+				? new BuildIfEvaluationEvent(modulesRequested.size(), buildIfModules.size()) : null;
+		List<String> allDependentModules = new ArrayList<>(modulesRequested);
+		List<String> modulesToCheck = new ArrayList<>(allDependentModules);
+		int matches = 0;
+
+		for (int x = 0; x  < BUILD_IF_LOOPS; x++) {  // resolve dependencies a few times, to ensure we get all triggers
+			// Add dependent projects developers need so everything needed is built
+			for (String module : modulesToCheck) {
+				for (Map.Entry<String, List<String>> buildIf : buildIfModules.entrySet()) {
+					if (module.matches(buildIf.getKey())) {
+						allDependentModules.addAll(buildIf.getValue());
+						matches++;
+					}
+				}
+			}
+			modulesToCheck.addAll(allDependentModules);
+		}
+		if (event != null) {
+			event.end(matches, new HashSet<>(allDependentModules).size());
+		}
+		return allDependentModules;
+	}
+
+	/**
+	 * @return get a list of the sub-reactors included in this project
+	 */
+	public List<Reactor> getSubReactors() {
+		List<Reactor> reactors = new ArrayList<>();
+
+		int reactorNum = 1;
+		if (config.reactors != null) {
+			for (MvnMinConfigFile.ReactorDefinition reactor : config.reactors.reactors) {
+				if (!reactor.primary) {
+					reactors.add(createReactorFromDefinition(reactorNum++, reactor));
+				}
+			}
+		}
+		return reactors;
+	}
+
+	private Reactor createReactorFromDefinition(final int reactorNum, final MvnMinConfigFile.ReactorDefinition reactor) {
+		Reactor result = new Reactor(reactorNum, reactor.name, reactor.pom, new HashSet<>(reactor.patterns),
+				reactor.singleThread, reactor.extraParams, reactor.skipIf);
+		result.setDependsOn(parseDependsOn(reactor.dependsOn));
+		result.setMemoryWeight(parseMemorySize(reactor.name, reactor.memoryWeight));
+		result.setCpuWeight(parseCpuWeight(reactor.name, reactor.cpuWeight));
+		return result;
+	}
+
+	/**
+	 * Parses the memory-weight attribute, a number of bytes with an optional k, m, g or t suffix, such as "4g".
+	 * @param reactorName the name of the reactor, for error messages
+	 * @param memorySize the memory-weight attribute value, may be null
+	 * @return the number of bytes, or zero if the attribute is missing
+	 */
+	static long parseMemorySize(final String reactorName, final String memorySize) {
+		if (memorySize == null || memorySize.trim().isEmpty()) {
+			return 0;
+		}
+		Matcher matcher = MEMORY_SIZE.matcher(memorySize.trim());
+		if (!matcher.matches()) {
+			throw new MvnMinConfigurationException("Reactor '" + reactorName + "' has an invalid memory-weight: " + memorySize);
+		}
+		int unit = MEMORY_UNITS.indexOf(matcher.group(2).toLowerCase(Locale.ROOT)) + 1;
+		return Long.parseLong(matcher.group(1)) << (unit * BITS_PER_UNIT);
+	}
+
+	private static double parseCpuWeight(final String reactorName, final String cpuWeight) {
+		if (cpuWeight == null || cpuWeight.trim().isEmpty()) {
+			return 0;
+		}
+		try {
+			return Double.parseDouble(cpuWeight.trim());
+		} catch (NumberFormatException e) {
+			throw new MvnMinConfigurationException("Reactor '" + reactorName + "' has an invalid cpu-weight: " + cpuWeight, e);
+		}
+	}
+
+	/**
+	 * Splits the comma-separated depends-on attribute into reactor names.
+	 * A missing attribute is kept as null, so the reactor depends on every reactor declared before it.
+	 * @param dependsOn the depends-on attribute value, may be null
+	 * @return the list of reactor names, or null if the attribute is missing
+	 */
+	private static List<String> parseDependsOn(final String dependsOn) {
+		if (dependsOn == null) {
+			return null;
+		}
+		List<String> reactorNames = new ArrayList<>();
+		for (String reactorName : dependsOn.split(",")) {
+			if (!reactorName.trim().isEmpty()) {
+				reactorNames.add(reactorName.trim());
+			}
+		}
+		return reactorNames;
+	}
+
+	/**
+	 * @return the list of modules to ignore.
+	 */
+	public List<String> getModulesToIgnore() {
+		return config.ignoredModules == null ? Collections.emptyList() : config.ignoredModules.modules;
+	}
+
+	/**
+	 * @return a list of the build-if modules.
+	 */
+	public Map<String, List<String>> getBuildIfModules() {
+		Map<String, List<String>> buildIfModules = new HashMap<>();
+
+		if (config.buildIfs != null) {
+			for (MvnMinConfigFile.BuildIf buildIf : config.buildIfs.buildIf) {
+
+				for (MvnMinConfigFile.Match keyModule : buildIf.match) {
+					buildIfModules.put(keyModule.regex, buildIf.modules);
+				}
+			}
+		}
+		return buildIfModules;
+	}
+
+	/**
+	 * Return the configured maven command.
+	 * @return the mvn command to execute (optional)
+	 */
+	public String getMvnCommand() {
+		return config.mvnCommand;
+	}
+
+
+	/**
+	 * Loads the configuration from 'mvnmin.xml'.
+	 * @return an config object.  This will be an empty instance if the file is missing.
+	 */
+	public static XmlMvnMinConfig load() {
+		return load(new File("."));
+	}
+
+	/**
+	 * Loads the configuration from 'mvnmin.xml' in a project's root folder.  The file is only read again once it has
+	 * changed.
+	 * @param projectRoot the root folder of the project
+	 * @return an config object.  This will be an empty instance if the file is missing.
+	 */
+	public static XmlMvnMinConfig load(final File projectRoot) {
+
+		File mvnminConfigFile = new File(projectRoot, MVNMIN_CONFIG_FILE_NAME);
+
+		if (!mvnminConfigFile.exists()) {
+			Logger.debug(MVNMIN_CONFIG_FILE_NAME + " does not exist, skipping.");
+			return new XmlMvnMinConfig();
+		}
+
+		try (Profiler.Phase phase = Profiler.start("load " + MVNMIN_CONFIG_FILE_NAME)) {
+			return CACHE.get(mvnminConfigFile.toPath(), XmlMvnMinConfig::read);
+		} catch (IOException e) {
+			throw new MvnMinConfigurationException("Failed to load configuration:", e);
+		}
+	}
+
+	private static XmlMvnMinConfig read(final Path mvnminConfigFile) throws IOException {
+		Profiler.count("files parsed");
+		try (XmlElementReader xml = XmlElementReader.open(mvnminConfigFile)) {
+			if (!xml.getName().equals("mvnmin")) {
+				throw new IOException("The root element of " + mvnminConfigFile + " is <" + xml.getName() + ">, not <mvnmin>");
+			}
+			XmlMvnMinConfig config = new XmlMvnMinConfig(MvnMinConfigFile.read(xml));
+			Logger.debug(config);
+			return config;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return new ToStringBuilder(this)
+				.append("config", config)
+				.toString();
+	}
+
+	/**
+	 * @return the primary reactor if defined, null otherwise.
+	 */
+	public Reactor getPrimaryReactor() {
+		MvnMinConfigFile.ReactorDefinition overrideReactorDefinition = new MvnMinConfigFile.ReactorDefinition();
+		if (config.reactors != null) {
+			for (MvnMinConfigFile.ReactorDefinition reactorDefinition : config.reactors.reactors) {
+				if (reactorDefinition.primary) {
+					overrideReactorDefinition = reactorDefinition;
+					break;
+				}
+			}
+		}
+
+		MvnMinConfigFile.ReactorDefinition primaryReactorDefinition = getDefaultPrimaryReactorDefinition();
+		return createReactorFromDefinition(0, primaryReactorDefinition.withOverrides(overrideReactorDefinition));
+	}
+
+	private MvnMinConfigFile.ReactorDefinition getDefaultPrimaryReactorDefinition() {
+		MvnMinConfigFile.ReactorDefinition defaultPrimaryReactorDefinition = new MvnMinConfigFile.ReactorDefinition();
+		defaultPrimaryReactorDefinition.name = "Main reactor";
+		defaultPrimaryReactorDefinition.pom = "pom.xml";
+		defaultPrimaryReactorDefinition.patterns = Arrays.asList(".*");
+		defaultPrimaryReactorDefinition.singleThread = false;
+		defaultPrimaryReactorDefinition.extraParams = "";
+		defaultPrimaryReactorDefinition.skipIf = "";
+		return defaultPrimaryReactorDefinition;
+	}
+
+	/**
+	 * Model representation of the project node of a Maven POM file.
+	 */
+	static class MvnMinConfigFile {
+		private IgnoredModules ignoredModules;
+
+		private BuildGlue buildIfs;
+
+		private Reactors reactors;
+
+		private String mvnCommand;
+
+		/**
+		 * Read the mvnmin element; unknown elements are skipped.
+		 * @param xml the reader, positioned on the {@code <mvnmin>} element
+		 * @return the configuration
+		 * @throws IOException if the XML is malformed
+		 */
+		static MvnMinConfigFile read(final XmlElementReader xml) throws IOException {
+			MvnMinConfigFile configFile = new MvnMinConfigFile();
+			while (xml.nextChild()) {
+				switch (xml.getName()) {
+					case "ignored-modules":
+						configFile.ignoredModules = IgnoredModules.read(xml);
+						break;
+					case "build-ifs":
+						configFile.buildIfs = BuildGlue.read(xml);
+						break;
+					case "reactors":
+						configFile.reactors = Reactors.read(xml);
+						break;
+					case "maven-command":
+						configFile.mvnCommand = xml.getText();
+						break;
+					default:
+						xml.skip();
+				}
+			}
+			return configFile;
+		}
+
+		private static class IgnoredModules {
+			private List<String> modules = new ArrayList<>();
+
+			static IgnoredModules read(final XmlElementReader xml) throws IOException {
+				IgnoredModules ignoredModules = new IgnoredModules();
+				readChildren(xml, "module", () -> ignoredModules.modules.add(xml.getText()));
+				return ignoredModules;
+			}
+
+			@Override
+			public String toString() {
+				return new ToStringBuilder(this)
+						.append("modules", modules)
+						.toString();
+			}
+		}
+
+		private static class BuildGlue {
+			private List<BuildIf> buildIf = new ArrayList<>();
+
+			static BuildGlue read(final XmlElementReader xml) throws IOException {
+				BuildGlue buildGlue = new BuildGlue();
+				readChildren(xml, "build-if", () -> buildGlue.buildIf.add(BuildIf.read(xml)));
+				return buildGlue;
+			}
+
+			@Override
+			public String toString() {
+				return new ToStringBuilder(this)
+						.append("buildIf", buildIf)
+						.toString();
+			}
+		}
+
+		private static class ReactorDefinition {
+
+			private boolean primary;
+
+			private String name;
+
+			private String pom;
+
+			private String skipIf;
+
+			private boolean singleThread;
+
+			private String extraParams;
+
+			private String dependsOn;
+
+			private String memoryWeight;
+
+			private String cpuWeight;
+
+			private List<String> patterns = new ArrayList<>();
+
+			static ReactorDefinition read(final XmlElementReader xml) throws IOException {
+				ReactorDefinition reactor = new ReactorDefinition();
+				reactor.primary = parseBoolean(xml.getAttribute("primary"));
+				reactor.name = xml.getAttribute("name");
+				reactor.pom = xml.getAttribute("pom");
+				reactor.skipIf = xml.getAttribute("skip-if");
+				reactor.singleThread = parseBoolean(xml.getAttribute("single-thread"));
+				reactor.extraParams = xml.getAttribute("extra-params");
+				reactor.dependsOn = xml.getAttribute("depends-on");
+				reactor.memoryWeight = xml.getAttribute("memory-weight");
+				reactor.cpuWeight = xml.getAttribute("cpu-weight");
+				readChildren(xml, "pattern", () -> reactor.patterns.add(xml.getText()));
+				return reactor;
+			}
+
+			@Override
+			public String toString() {
+				return new ToStringBuilder(this)
+						.append("name", name)
+						.append("pom", pom)
+						.append("skipIf", skipIf)
+						.append("singleThread", singleThread)
+						.append("extraParams", extraParams)
+						.append("dependsOn", dependsOn)
+						.append("memoryWeight", memoryWeight)
+						.append("cpuWeight", cpuWeight)
+						.append("patterns", patterns)
+						.toString();
+			}
+
+			public ReactorDefinition withOverrides(final ReactorDefinition overridingDefinition) {
+				ReactorDefinition result = new ReactorDefinition();
+				result.name = overrideString(name, overridingDefinition.name);
+				result.pom = overrideString(pom, overridingDefinition.pom);
+				result.skipIf = overrideString(skipIf, overridingDefinition.skipIf);
+				result.extraParams = overrideString(extraParams, overridingDefinition.extraParams);
+				result.singleThread = overridingDefinition.singleThread;
+				result.dependsOn = overridingDefinition.dependsOn == null ? dependsOn : overridingDefinition.dependsOn;
+				result.memoryWeight = overrideString(memoryWeight, overridingDefinition.memoryWeight);
+				result.cpuWeight = overrideString(cpuWeight, overridingDefinition.cpuWeight);
+				result.patterns = patterns;  // patterns cannot be overridden
+				return result;
+			}
+
+			private String overrideString(final String defaultString, final String overrideString) {
+				if (overrideString == null || overrideString.equals("")) {
+					return defaultString;
+				}
+				return overrideString;
+			}
+		}
+
+		private static class BuildIf {
+			private List<Match> match = new ArrayList<>();
+
+			private List<String> modules = new ArrayList<>();
+
+			static BuildIf read(final XmlElementReader xml) throws IOException {
+				BuildIf buildIf = new BuildIf();
+				while (xml.nextChild()) {
+					if (xml.getName().equals("match")) {
+						Match match = new Match();
+						match.regex = xml.getAttribute("regex");
+						xml.skip();
+						buildIf.match.add(match);
+					} else if (xml.getName().equals("module")) {
+						buildIf.modules.add(xml.getText());
+					} else {
+						xml.skip();
+					}
+				}
+				return buildIf;
+			}
+
+			@Override
+			public String toString() {
+				return new ToStringBuilder(this)
+						.append("match", match)
+						.append("modules", modules)
+						.toString();
+			}
+		}
+
+		private static class Match {
+			private String regex;
+
+			@Override
+			public String toString() {
+				return new ToStringBuilder(this)
+						.append("regex", regex)
+						.toString();
+			}
+		}
+
+		@Override
+		public String toString() {
+			return new ToStringBuilder(this)
+					.append("ignoredModules", ignoredModules)
+					.append("buildGlue", buildIfs)
+					.append("reactors", reactors)
+					.toString();
+		}
+	}
+
+	private static class Reactors {
+		private List<MvnMinConfigFile.ReactorDefinition> reactors = new ArrayList<>();
+
+		static Reactors read(final XmlElementReader xml) throws IOException {
+			Reactors reactors = new Reactors();
+			readChildren(xml, "reactor", () -> reactors.reactors.add(MvnMinConfigFile.ReactorDefinition.read(xml)));
+			return reactors;
+		}
+	}
+
+	/**
+	 * Read each child element with the given name, skipping any others.
+	 * @param xml the reader, positioned on the parent element
+	 * @param name the name of the children to read
+	 * @param readChild reads the child the reader is positioned on
+	 * @throws IOException if the XML is malformed
+	 */
+	private static void readChildren(final XmlElementReader xml, final String name, final ChildReader readChild) throws IOException {
+		while (xml.nextChild()) {
+			if (xml.getName().equals(name)) {
+				readChild.read();
+			} else {
+				xml.skip();
+			}
+		}
+	}
+
+	/**
+	 * Parses an xs:boolean attribute, as JAXB did: a missing or unrecognised value is false.
+	 * @param value the attribute value, may be null
+	 * @return true if the value is "true" or "1"
+	 */
+	private static boolean parseBoolean(final String value) {
+		return value != null && (value.trim().equals("true") || value.trim().equals("1"));
+	}
+
+	/**
+	 * Reads the child element the XmlElementReader is positioned on.
+	 */
+	private interface ChildReader {
+		void read() throws IOException;
+	}
+
+}
+
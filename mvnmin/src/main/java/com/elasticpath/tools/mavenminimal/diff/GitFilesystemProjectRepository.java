@@ -30,28 +30,48 @@ import java.util.Scanner;
 import java.util.Set;
 import java.util.stream.Collectors;
 
-import javax.xml.bind.JAXBContext;
-import javax.xml.bind.JAXBException;
-import javax.xml.bind.Unmarshaller;
-
+import com.elasticpath.tools.mavenminimal.jfr.FlightRecording;
+import com.elasticpath.tools.mavenminimal.jfr.GitCommandEvent;
+import com.elasticpath.tools.mavenminimal.jfr.PomResolutionEvent;
 import com.elasticpath.tools.mavenminimal.pom.PomProject;
+import com.elasticpath.tools.mavenminimal.util.Profiler;
 
 public class GitFilesystemProjectRepository implements ProjectRepository {
 
 	private static final int GIT_RESULT_MODIFIER_PREFIX_LENGTH = 3;
 	private Path repoPath;
 
+	/**
+	 * A repository in the working folder.
+	 */
+	public GitFilesystemProjectRepository() {
+		// the working folder
+	}
+
+	/**
+	 * A repository in another folder, such as a generated project to benchmark against.
+	 * @param repoPath the root of the repository
+	 */
+	public GitFilesystemProjectRepository(final Path repoPath) {
+		this.repoPath = repoPath;
+	}
+
 	@Override
 	public Set<String> findDirtyFiles() {
 		try {
 			Set<String> results = new HashSet<>();
-			Process process = Runtime.getRuntime().exec("git status -s");
+			String command = "git status -s";
+			GitCommandEvent event = FlightRecording.isEnabled() ? new GitCommandEvent(command) : null;
+			Process process = Runtime.getRuntime().exec(command, null, repoPath == null ? null : repoPath.toFile());
 			try (Scanner scanner = new Scanner(process.getInputStream()).useDelimiter(System.lineSeparator())) {
 				while (scanner.hasNext()) {
 					String line = scanner.next();
 					results.add(line.substring(GIT_RESULT_MODIFIER_PREFIX_LENGTH));
 				}
 			}
+			if (event != null) {
+				event.end(results.size(), waitFor(process));
+			}
 			return results;
 		} catch (IOException e) {
 			throw new IllegalStateException("Failed to determine currently dirty files ", e);
@@ -68,28 +88,44 @@ public class GitFilesystemProjectRepository implements ProjectRepository {
 	public Set<String> gitDiffRange(final String commitRange) {
 		try {
 			Set<String> results = new HashSet<>();
-			Process process = Runtime.getRuntime().exec("git diff --name-only " + commitRange);
+			String command = "git diff --name-only " + commitRange;
+			GitCommandEvent event = FlightRecording.isEnabled() ? new GitCommandEvent(command) : null;
+			Process process = Runtime.getRuntime().exec(command, null, repoPath == null ? null : repoPath.toFile());
 			try (Scanner scanner = new Scanner(process.getInputStream()).useDelimiter(System.lineSeparator())) {
 				while (scanner.hasNext()) {
 					String line = scanner.next();
 					results.add(line);
 				}
 			}
+			if (event != null) {
+				event.end(results.size(), waitFor(process));
+			}
 			return results;
 		} catch (IOException e) {
 			throw new IllegalStateException("Failed to find files in diff for: " + commitRange, e);
 		}
 	}
 
+	private static int waitFor(final Process process) {
+		try {
+			return process.waitFor();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return -1;
+		}
+	}
+
 	@Override
 	public Set<String> findAllPomFiles(final int maxDepth) {
 		try {
+			Path root = repoPath == null ? Paths.get(".") : repoPath;
 			Set<String> results;
-			results = Files.walk(Paths.get("."), maxDepth)
+			results = Files.walk(root, maxDepth)
+					.peek(GitFilesystemProjectRepository::countDirectory)
 					.filter(Files::isRegularFile)
 					.filter(p -> p.getFileName().toString().equals("pom.xml"))
 					.filter(p -> !p.toString().contains(File.separator + "target" + File.separator))  // ignore target folders
-					.map(Path::toString)
+					.map(p -> Paths.get(".").resolve(root.relativize(p)).toString())
 					.collect(Collectors.toSet());
 			return results;
 		} catch (IOException e) {
@@ -98,6 +134,12 @@ public class GitFilesystemProjectRepository implements ProjectRepository {
 	}
 
 
+	private static void countDirectory(final Path path) {
+		if (Files.isDirectory(path)) {
+			Profiler.count("directories visited");
+		}
+	}
+
 	/**
 	 * Find all the projects containing the specified changed files.
 	 * @param changedFileOrFolderStrings a set of all the changed files and folders
@@ -105,17 +147,23 @@ public class GitFilesystemProjectRepository implements ProjectRepository {
 	 */
 	public Set<String> determineProjectIdsForFilesOrFolders(final Set<String> changedFileOrFolderStrings) {
 		Set<String> results = Collections.synchronizedSet(new HashSet<>());
-		changedFileOrFolderStrings.parallelStream().forEach(changedFileOrFolder -> {
+		Profiler.Phase phase = Profiler.current();
+		changedFileOrFolderStrings.parallelStream().forEach(changedFileOrFolder -> phase.run(() -> {
+			PomResolutionEvent event = FlightRecording.isEnabled() ? new PomResolutionEvent(changedFileOrFolder) : null;
 			File pomForChangedFile = findPomForChangedFileOrFolder(changedFileOrFolder);
+			String projectIdentifier = null;
 			if (pomForChangedFile != null) {
 				try {
-					String projectIdentifier = readProjectIdentifierFromPom(pomForChangedFile);
+					projectIdentifier = readProjectIdentifierFromPom(pomForChangedFile);
 					results.add(projectIdentifier);
-				} catch (JAXBException e) {
+				} catch (IOException e) {
 					throw new IllegalStateException("Failed to parse pom: " + pomForChangedFile, e);
 				}
 			}
-		});
+			if (event != null) {
+				event.end(pomForChangedFile == null ? null : pomForChangedFile.getPath(), projectIdentifier);
+			}
+		}));
 		return results;
 	}
 
@@ -134,7 +182,8 @@ public class GitFilesystemProjectRepository implements ProjectRepository {
 	}
 
 	private File getPomFile(final String basepath) {
-		File cwd = FileSystems.getDefault().getPath("").toAbsolutePath().toFile();
+		Profiler.count("directories visited");
+		File cwd = (repoPath == null ? FileSystems.getDefault().getPath("") : repoPath).toAbsolutePath().toFile();
 
 		File pomFile;
 		if (basepath == null) {
@@ -148,10 +197,8 @@ public class GitFilesystemProjectRepository implements ProjectRepository {
 		return null;
 	}
 
-	private  String readProjectIdentifierFromPom(final File pomFile) throws JAXBException {
-		JAXBContext jaxbContext = JAXBContext.newInstance(PomProject.class);
-		Unmarshaller jaxbUnmarshaller = jaxbContext.createUnmarshaller();
-		PomProject pomProject = (PomProject) jaxbUnmarshaller.unmarshal(pomFile);
+	private  String readProjectIdentifierFromPom(final File pomFile) throws IOException {
+		PomProject pomProject = PomProject.read(pomFile.toPath());
 		String groupId;
 		if (pomProject.getGroupId() == null) {
 			groupId = pomProject.getParent().getGroupId();
@@ -163,7 +210,7 @@ public class GitFilesystemProjectRepository implements ProjectRepository {
 
 	/**
 	 * Return the root of this repository.
-	 * @return the root path of this repository.
+	 * @return the root path of this repository, or null for the working folder.
 	 */
 	public Path getRepoPath() {
 		return repoPath;
@@ -0,0 +1,177 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+package com.elasticpath.tools.mavenminimal.diff;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.elasticpath.tools.mavenminimal.config.XmlMvnMinConfig;
+import com.elasticpath.tools.mavenminimal.util.Logger;
+import com.elasticpath.tools.mavenminimal.util.Profiler;
+import com.elasticpath.tools.mavenminimal.util.StateDirectory;
+
+/**
+ * Builds up options to perform a diff on a ProjectRepository, and performs that diff.
+ */
+public class RepoDiffBuilder {
+
+	private String commitish;
+	private boolean includeDirtyFiles;
+	private boolean includeAllPoms;
+	private int maxDepth;
+	private Set<String> activatedFiles = new HashSet<>();
+	private Set<String> activatedProjects = new HashSet<>();
+	private final Map<String, Set<String>> filesBySource = new LinkedHashMap<>();
+
+	/**
+	 * Force all pom.xml files to be included.
+	 * @return this instance.
+	 */
+	public RepoDiffBuilder withAllPomFiles() {
+		includeAllPoms = true;
+		return this;
+	}
+
+	/**
+	 * @param maxDepth the maximum number of folders down to go
+	 * @return this instance.
+	 */
+	public RepoDiffBuilder withMaxDepth(final int maxDepth) {
+		this.maxDepth = maxDepth;
+		return this;
+	}
+
+	/**
+	 * @param commitish include files changes in the supplied git diff.
+	 * @return this instance.
+	 */
+	public RepoDiffBuilder withFilesChangedInDiff(final String commitish) {
+		this.commitish = commitish;
+		return this;
+	}
+
+	/**
+	 * Include all currently dirty file system files.
+	 * @return this instance.
+	 */
+	public RepoDiffBuilder withAllCurrentlyDirtyFiles() {
+		includeDirtyFiles = true;
+		return this;
+	}
+
+	/**
+	 * Find the set of differences.
+	 * @param projectRepository the repository to run the diff against.
+	 * @return the set of changed files.
+	 */
+	public Set<String> diff(final ProjectRepository projectRepository) {
+		try (Profiler.Phase phase = Profiler.start("diff")) {
+			return diffFiles(projectRepository);
+		}
+	}
+
+	private Set<String> diffFiles(final ProjectRepository projectRepository) {
+		final Set<String> files = new HashSet<>();
+		filesBySource.clear();
+
+		if (commitish != null) {
+			Set<String> activatedByCommitish;
+			try (Profiler.Phase phase = Profiler.start("git diff " + commitish)) {
+				activatedByCommitish = projectRepository.gitDiffRange(commitish);
+				phase.count("files", activatedByCommitish.size());
+			}
+			files.addAll(activatedByCommitish);
+			filesBySource.put("git diff", activatedByCommitish);
+			Logger.debug("These changes found in a commitish (" + commitish + "): " + activatedByCommitish);
+		}
+
+		if (includeDirtyFiles) {
+			Set<String> changedFiles;
+			try (Profiler.Phase phase = Profiler.start("git status")) {
+				changedFiles = projectRepository.findDirtyFiles();
+				phase.count("files", changedFiles.size());
+			}
+			files.addAll(changedFiles);
+			filesBySource.put("git status", changedFiles);
+			Logger.debug("Git status found these files are changed: " + changedFiles);
+		}
+
+		if (includeAllPoms) {
+			Set<String> allPoms;
+			try (Profiler.Phase phase = Profiler.start("find all poms")) {
+				allPoms = projectRepository.findAllPomFiles(maxDepth);
+				phase.count("files", allPoms.size());
+			}
+			files.addAll(allPoms);
+			filesBySource.put("all poms", allPoms);
+			Logger.debug("Adding all the pom files found (maxDepth=" + maxDepth + "): " + allPoms);
+		}
+
+		if (files.contains(XmlMvnMinConfig.MVNMIN_CONFIG_FILE_NAME)) {
+			Logger.debug("Change detected in " + XmlMvnMinConfig.MVNMIN_CONFIG_FILE_NAME + ", ignoring.");
+			files.remove(XmlMvnMinConfig.MVNMIN_CONFIG_FILE_NAME);
+		}
+
+		if (files.removeIf(StateDirectory::contains)) {
+			Logger.debug("Change detected in " + StateDirectory.NAME + ", ignoring.");
+		}
+
+		Logger.debug("Consolidated list of activated files: " + files);
+		activatedFiles = files;
+
+		Set<String> projectIds;
+		try (Profiler.Phase phase = Profiler.start("determine project ids")) {
+			projectIds = projectRepository.determineProjectIdsForFilesOrFolders(files);
+			phase.count("files", files.size());
+			phase.count("projects", projectIds.size());
+		}
+		Logger.debug("Projects activated from files (" + projectIds.size() + "): " + projectIds);
+		activatedProjects = projectIds;
+
+		return projectIds;
+	}
+
+	/**
+	 * @return the changed files the last diff activated modules from.
+	 */
+	public Set<String> getActivatedFiles() {
+		return activatedFiles;
+	}
+
+	/**
+	 * Find the projects each source of the last diff activated on its own, such as "git status" or "git diff".  A
+	 * project changed in more than one source is activated by each of them.
+	 * @param projectRepository the repository the diff was run against.
+	 * @return the projects, by source, in the order the sources were read.
+	 */
+	public Map<String, Set<String>> getActivatedProjectsBySource(final ProjectRepository projectRepository) {
+		Map<String, Set<String>> projectsBySource = new LinkedHashMap<>();
+		for (Map.Entry<String, Set<String>> source : filesBySource.entrySet()) {
+			if (filesBySource.size() == 1) {
+				// The only source activated every project, so there's no need to look them up again
+				projectsBySource.put(source.getKey(), activatedProjects);
+			} else {
+				Set<String> files = new HashSet<>(source.getValue());
+				files.retainAll(activatedFiles);
+				projectsBySource.put(source.getKey(), projectRepository.determineProjectIdsForFilesOrFolders(files));
+			}
+		}
+		return projectsBySource;
+	}
+
+}
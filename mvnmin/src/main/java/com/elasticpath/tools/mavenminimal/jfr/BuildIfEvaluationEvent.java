@@ -0,0 +1,75 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+
+package com.elasticpath.tools.mavenminimal.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The evaluation of mvnmin.xml's build-if rules against the requested modules.
+ *
+ * Only create it when FlightRecording.isEnabled(), as the Flight Recorder API may not be present.
+ */
+@Name("mvnmin.BuildIfEvaluation")
+@Label("Build-If Evaluation")
+@Category("mvnmin")
+@Description("The modules added by mvnmin.xml's build-if rules")
+@StackTrace(false)
+public final class BuildIfEvaluationEvent extends Event {
+
+	@Label("Requested Modules")
+	private int requestedModules;
+
+	@Label("Rules")
+	@Description("The number of build-if match patterns")
+	private int rules;
+
+	@Label("Matches")
+	@Description("The number of times a module matched a build-if pattern")
+	private int matches;
+
+	@Label("Modules")
+	@Description("The requested modules and the modules the matches added")
+	private int modules;
+
+	/**
+	 * Start timing the evaluation.
+	 * @param requestedModules the number of modules requested
+	 * @param rules the number of build-if match patterns
+	 */
+	public BuildIfEvaluationEvent(final int requestedModules, final int rules) {
+		this.requestedModules = requestedModules;
+		this.rules = rules;
+		begin();
+	}
+
+	/**
+	 * Record the evaluation.
+	 * @param matches the number of times a module matched a build-if pattern
+	 * @param modules the number of modules, including those the matches added
+	 */
+	public void end(final int matches, final int modules) {
+		this.matches = matches;
+		this.modules = modules;
+		commit();
+	}
+}
@@ -0,0 +1,149 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+
+package com.elasticpath.tools.mavenminimal.jfr;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.HashMap;
+import java.util.Map;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+
+import com.elasticpath.tools.mavenminimal.util.Logger;
+
+/**
+ * Records mvnmin's Java Flight Recorder events, for --jfr.
+ *
+ * mvnmin's events (git commands, pom resolutions, build-if evaluations, reactor partitions and maven processes) are
+ * created only when the JVM has a Flight Recorder, and it has been started: by --jfr, or by -XX:StartFlightRecording
+ * or jcmd.  The Flight Recorder API is missing from Java 8 before 8u272, so nothing else in this package may be used
+ * unless isEnabled() is true.
+ */
+public final class FlightRecording implements AutoCloseable {
+
+	/**
+	 * The settings for mvnmin's events, shipped in the jar and the release zip.
+	 */
+	public static final String SETTINGS_RESOURCE = "/mvnmin.jfc";
+
+	private static final boolean AVAILABLE = isFlightRecorderAvailable();
+
+	private final Recording recording;
+	private final Path file;
+
+	private FlightRecording(final Recording recording, final Path file) {
+		this.recording = recording;
+		this.file = file;
+	}
+
+	/**
+	 * @return true if the JVM has a Flight Recorder.
+	 */
+	public static boolean isAvailable() {
+		return AVAILABLE;
+	}
+
+	/**
+	 * @return true if mvnmin's events should be created, as the Flight Recorder has been started.
+	 */
+	public static boolean isEnabled() {
+		return AVAILABLE && FlightRecorder.isInitialized();
+	}
+
+	private static boolean isFlightRecorderAvailable() {
+		try {
+			Class.forName("jdk.jfr.FlightRecorder");
+			return FlightRecorder.isAvailable();
+		} catch (ClassNotFoundException | LinkageError e) {
+			Logger.debug("The JVM has no Flight Recorder", e);
+			return false;
+		}
+	}
+
+	/**
+	 * Start recording mvnmin's events, and the JVM's default events.
+	 * @param file the file to write the recording to, when it's closed
+	 * @return the recording
+	 * @throws IllegalStateException if the JVM has no Flight Recorder, or the recording can't be started
+	 */
+	public static FlightRecording start(final Path file) {
+		if (!AVAILABLE) {
+			throw new IllegalStateException("The JVM has no Flight Recorder, it needs Java 11, or Java 8u272 or later");
+		}
+		try {
+			Map<String, String> settings = new HashMap<>(Configuration.getConfiguration("default").getSettings());
+			settings.putAll(readSettings().getSettings());
+			Recording recording = new Recording(settings);
+			recording.setName("mvnmin");
+			recording.start();
+			return new FlightRecording(recording, file);
+		} catch (IOException | ParseException e) {
+			throw new IllegalStateException("Failed to start the flight recording", e);
+		}
+	}
+
+	/**
+	 * @return mvnmin's event settings.
+	 * @throws IOException if the settings can't be read
+	 * @throws ParseException if the settings aren't a valid .jfc file
+	 */
+	static Configuration readSettings() throws IOException, ParseException {
+		try (InputStream stream = FlightRecording.class.getResourceAsStream(SETTINGS_RESOURCE)) {
+			if (stream == null) {
+				throw new IOException(SETTINGS_RESOURCE + " is missing");
+			}
+			try (Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8)) {
+				return Configuration.create(reader);
+			}
+		}
+	}
+
+	/**
+	 * @return the file the recording is written to.
+	 */
+	public Path getFile() {
+		return file;
+	}
+
+	/**
+	 * Stop recording, and write the recording to its file.
+	 * @throws IllegalStateException if the recording can't be written
+	 */
+	@Override
+	public void close() {
+		try {
+			recording.stop();
+			if (file.getParent() != null) {
+				Files.createDirectories(file.getParent());
+			}
+			recording.dump(file);
+		} catch (IOException e) {
+			throw new IllegalStateException("Failed to write the flight recording to " + file, e);
+		} finally {
+			recording.close();
+		}
+	}
+}
@@ -0,0 +1,68 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+
+package com.elasticpath.tools.mavenminimal.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A git process run to find the changed files.
+ *
+ * Only create it when FlightRecording.isEnabled(), as the Flight Recorder API may not be present.
+ */
+@Name("mvnmin.GitCommand")
+@Label("Git Command")
+@Category("mvnmin")
+@Description("A git process mvnmin ran to find the changed files")
+@StackTrace(false)
+public final class GitCommandEvent extends Event {
+
+	@Label("Command")
+	private String command;
+
+	@Label("Files")
+	@Description("The number of files git listed")
+	private int files;
+
+	@Label("Exit Value")
+	private int exitValue;
+
+	/**
+	 * Start timing a git process.
+	 * @param command the git command line
+	 */
+	public GitCommandEvent(final String command) {
+		this.command = command;
+		begin();
+	}
+
+	/**
+	 * Record the git process, once it has ended.
+	 * @param files the number of files git listed
+	 * @param exitValue the exit value of the git process
+	 */
+	public void end(final int files, final int exitValue) {
+		this.files = files;
+		this.exitValue = exitValue;
+		commit();
+	}
+}
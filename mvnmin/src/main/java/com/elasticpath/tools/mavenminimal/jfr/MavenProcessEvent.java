@@ -0,0 +1,79 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+
+package com.elasticpath.tools.mavenminimal.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A maven build of one reactor, from its start until it exits.
+ *
+ * Only create it when FlightRecording.isEnabled(), as the Flight Recorder API may not be present.
+ */
+@Name("mvnmin.MavenProcess")
+@Label("Maven Process")
+@Category("mvnmin")
+@Description("A maven build of one reactor, from its start until it exits")
+@StackTrace(false)
+public final class MavenProcessEvent extends Event {
+
+	@Label("Reactor")
+	private String reactor;
+
+	@Label("Engine")
+	@Description("The MavenEngine which ran maven, such as ForkedMavenEngine")
+	private String engine;
+
+	@Label("Command")
+	private String command;
+
+	@Label("Modules")
+	@Description("The number of modules the reactor built")
+	private int modules;
+
+	@Label("Exit Value")
+	private int exitValue;
+
+	/**
+	 * Start timing a maven build.
+	 * @param reactor the name of the reactor
+	 * @param engine the name of the MavenEngine running maven
+	 * @param command the maven command line
+	 * @param modules the number of modules to build
+	 */
+	public MavenProcessEvent(final String reactor, final String engine, final String command, final int modules) {
+		this.reactor = reactor;
+		this.engine = engine;
+		this.command = command;
+		this.modules = modules;
+		begin();
+	}
+
+	/**
+	 * Record the build, once maven has exited.
+	 * @param exitValue maven's exit value
+	 */
+	public void end(final int exitValue) {
+		this.exitValue = exitValue;
+		commit();
+	}
+}
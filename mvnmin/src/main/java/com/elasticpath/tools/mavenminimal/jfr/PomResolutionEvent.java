@@ -0,0 +1,69 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+
+package com.elasticpath.tools.mavenminimal.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The search for the pom of a changed file, and the reading of its project identifier.
+ *
+ * Only create it when FlightRecording.isEnabled(), as the Flight Recorder API may not be present.
+ */
+@Name("mvnmin.PomResolution")
+@Label("Pom Resolution")
+@Category("mvnmin")
+@Description("The pom of a changed file found, and its project identifier read")
+@StackTrace(false)
+public final class PomResolutionEvent extends Event {
+
+	@Label("Path")
+	@Description("The changed file or folder")
+	private String path;
+
+	@Label("Pom")
+	@Description("The pom of the nearest folder containing the path, if any")
+	private String pom;
+
+	@Label("Project")
+	private String project;
+
+	/**
+	 * Start timing the resolution of a changed file's pom.
+	 * @param path the changed file or folder
+	 */
+	public PomResolutionEvent(final String path) {
+		this.path = path;
+		begin();
+	}
+
+	/**
+	 * Record the resolution.
+	 * @param pom the pom found, or null if none was
+	 * @param project the project identifier read from the pom, or null if there is no pom
+	 */
+	public void end(final String pom, final String project) {
+		this.pom = pom;
+		this.project = project;
+		commit();
+	}
+}
@@ -0,0 +1,68 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+
+package com.elasticpath.tools.mavenminimal.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The partitioning of the activated modules into mvnmin.xml's reactors.
+ *
+ * Only create it when FlightRecording.isEnabled(), as the Flight Recorder API may not be present.
+ */
+@Name("mvnmin.ReactorPartition")
+@Label("Reactor Partition")
+@Category("mvnmin")
+@Description("The activated modules partitioned into reactors")
+@StackTrace(false)
+public final class ReactorPartitionEvent extends Event {
+
+	@Label("Build-Ifs")
+	@Description("Whether build-if rules were evaluated")
+	private boolean buildIfs;
+
+	@Label("Modules")
+	private int modules;
+
+	@Label("Reactors")
+	private int reactors;
+
+	/**
+	 * Start timing the partitioning.
+	 * @param buildIfs true if build-if rules are evaluated
+	 */
+	public ReactorPartitionEvent(final boolean buildIfs) {
+		this.buildIfs = buildIfs;
+		begin();
+	}
+
+	/**
+	 * Record the partitioning.
+	 * @param modules the number of modules activated
+	 * @param reactors the number of reactors
+	 */
+	public void end(final int modules, final int reactors) {
+		this.modules = modules;
+		this.reactors = reactors;
+		commit();
+	}
+}
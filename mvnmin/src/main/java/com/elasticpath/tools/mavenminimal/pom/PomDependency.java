@@ -0,0 +1,96 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+package com.elasticpath.tools.mavenminimal.pom;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.elasticpath.tools.mavenminimal.util.XmlElementReader;
+
+/**
+ * Model representation of a dependency node of a Maven POM file.
+ */
+public class PomDependency {
+	private String groupId;
+
+	private String artifactId;
+
+	/**
+	 * Read the dependency node of a pom.
+	 * @param xml the reader, positioned on the {@code <dependency>} element
+	 * @return the model of the element
+	 * @throws IOException if the XML is malformed
+	 */
+	static PomDependency read(final XmlElementReader xml) throws IOException {
+		return read(xml, null);
+	}
+
+	/**
+	 * Read the plugin node of a pom, which names its artifact as a dependency does.
+	 * @param xml the reader, positioned on the {@code <plugin>} element
+	 * @param pluginDependencies the list to add the dependencies of the plugin to
+	 * @return the model of the plugin's artifact
+	 * @throws IOException if the XML is malformed
+	 */
+	static PomDependency readPlugin(final XmlElementReader xml, final List<PomDependency> pluginDependencies) throws IOException {
+		return read(xml, pluginDependencies);
+	}
+
+	private static PomDependency read(final XmlElementReader xml, final List<PomDependency> pluginDependencies) throws IOException {
+		PomDependency result = new PomDependency();
+		while (xml.nextChild()) {
+			if (!PomProject.isPomElement(xml)) {
+				xml.skip();
+				continue;
+			}
+			switch (xml.getName()) {
+				case "groupId":
+					result.groupId = xml.getText().trim();
+					break;
+				case "artifactId":
+					result.artifactId = xml.getText().trim();
+					break;
+				case "dependencies":
+					if (pluginDependencies == null) {
+						xml.skip();
+					} else {
+						PomProject.readDependencies(xml, pluginDependencies);
+					}
+					break;
+				default:
+					xml.skip();
+			}
+		}
+		return result;
+	}
+	/**
+	 * The group ID of the dependency.
+	 *
+	 * @return the group ID
+	 */
+	public String getGroupId() {
+		return groupId;
+	}
+
+	/**
+	 * The artifact ID of the dependency.
+	 *
+	 * @return the artifact ID
+	 */
+	public String getArtifactId() {
+		return artifactId;
+	}
+}
@@ -0,0 +1,87 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+package com.elasticpath.tools.mavenminimal.pom;
+
+import java.io.IOException;
+
+import com.elasticpath.tools.mavenminimal.util.XmlElementReader;
+
+/**
+ * Model representation of the parent node of a Maven POM file.
+ */
+public class PomParent {
+	private String groupId;
+
+	private String artifactId;
+
+	private String version;
+
+	/**
+	 * Read the parent node of a pom.
+	 * @param xml the reader, positioned on the {@code <parent>} element
+	 * @return the model of the element
+	 * @throws IOException if the XML is malformed
+	 */
+	static PomParent read(final XmlElementReader xml) throws IOException {
+		PomParent result = new PomParent();
+		while (xml.nextChild()) {
+			if (!PomProject.isPomElement(xml)) {
+				xml.skip();
+				continue;
+			}
+			switch (xml.getName()) {
+				case "groupId":
+					result.groupId = xml.getText().trim();
+					break;
+				case "artifactId":
+					result.artifactId = xml.getText().trim();
+					break;
+				case "version":
+					result.version = xml.getText().trim();
+					break;
+				default:
+					xml.skip();
+			}
+		}
+		return result;
+	}
+	/**
+	 * The group ID of the project parent.
+	 *
+	 * @return the group ID
+	 */
+	public String getGroupId() {
+		return groupId;
+	}
+
+	/**
+	 * The artifact ID of the project parent.
+	 *
+	 * @return the artifact ID
+	 */
+	public String getArtifactId() {
+		return artifactId;
+	}
+
+	/**
+	 * The version of the project parent.
+	 *
+	 * @return the version
+	 */
+	public String getVersion() {
+		return version;
+	}
+}
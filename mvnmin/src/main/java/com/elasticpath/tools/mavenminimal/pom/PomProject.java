@@ -0,0 +1,257 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.pom;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.elasticpath.tools.mavenminimal.util.ParsedFileCache;
+import com.elasticpath.tools.mavenminimal.util.Profiler;
+import com.elasticpath.tools.mavenminimal.util.XmlElementReader;
+
+/**
+ * Model representation of the project node of a Maven POM file.
+ */
+public class PomProject {
+
+	static final String NAMESPACE = "http://maven.apache.org/POM/4.0.0";
+
+	private static final ParsedFileCache<PomProject> CACHE = new ParsedFileCache<>();
+
+
+	private PomParent parent;
+
+	private String groupId;
+
+	private String artifactId;
+
+	private String version;
+
+	private String packaging;
+
+	private List<PomDependency> dependencies = new ArrayList<>();
+
+	private List<PomDependency> buildDependencies = new ArrayList<>();
+
+
+	/**
+	 * Read the project node of a pom file.
+	 *
+	 * Only the elements of this model are read, the rest of the pom is skipped.  A pom which hasn't changed since it
+	 * was last read isn't read again.
+	 *
+	 * @param pomFile the pom file to read
+	 * @return the project model
+	 * @throws IOException if the file cannot be read, or isn't a maven pom
+	 */
+	public static PomProject read(final Path pomFile) throws IOException {
+		Profiler.count("poms read");
+		return CACHE.get(pomFile, PomProject::parse);
+	}
+
+	/**
+	 * Read the project node of a pom file, whether or not it was read before.
+	 * @param pomFile the pom file to read
+	 * @return the project model
+	 * @throws IOException if the file cannot be read, or isn't a maven pom
+	 */
+	public static PomProject parse(final Path pomFile) throws IOException {
+		Profiler.count("poms parsed");
+		try (XmlElementReader xml = XmlElementReader.open(pomFile)) {
+			if (!isPomElement(xml) || !xml.getName().equals("project")) {
+				throw new IOException("Malformed pom " + pomFile + ": the root element is <" + xml.getName()
+						+ ">, not a maven <project>");
+			}
+			PomProject project = new PomProject();
+			while (xml.nextChild()) {
+				if (!isPomElement(xml)) {
+					xml.skip();
+					continue;
+				}
+				switch (xml.getName()) {
+					case "parent":
+						project.parent = PomParent.read(xml);
+						break;
+					case "groupId":
+						project.groupId = xml.getText().trim();
+						break;
+					case "artifactId":
+						project.artifactId = xml.getText().trim();
+						break;
+					case "version":
+						project.version = xml.getText().trim();
+						break;
+					case "packaging":
+						project.packaging = xml.getText().trim();
+						break;
+					case "dependencies":
+						readDependencies(xml, project.dependencies);
+						break;
+					case "build":
+						readBuild(xml, project.buildDependencies);
+						break;
+					case "profiles":
+						while (xml.nextChild()) {
+							if (isPomElement(xml) && xml.getName().equals("profile")) {
+								readProfile(xml, project.buildDependencies);
+							} else {
+								xml.skip();
+							}
+						}
+						break;
+					default:
+						xml.skip();
+				}
+			}
+			return project;
+		}
+	}
+
+	/**
+	 * Read a list of dependencies.
+	 * @param xml the reader, positioned on the {@code <dependencies>} element
+	 * @param dependencies the list to add the dependencies to
+	 * @throws IOException if the XML is malformed
+	 */
+	static void readDependencies(final XmlElementReader xml, final List<PomDependency> dependencies) throws IOException {
+		while (xml.nextChild()) {
+			if (isPomElement(xml) && xml.getName().equals("dependency")) {
+				dependencies.add(PomDependency.read(xml));
+			} else {
+				xml.skip();
+			}
+		}
+	}
+
+	/**
+	 * Read the plugins, their dependencies, and the extensions of a build.  The plugin management is skipped, as maven
+	 * doesn't order the reactor by it.
+	 * @param xml the reader, positioned on the {@code <build>} element
+	 * @param buildDependencies the list to add the plugins, their dependencies and the extensions to
+	 * @throws IOException if the XML is malformed
+	 */
+	private static void readBuild(final XmlElementReader xml, final List<PomDependency> buildDependencies) throws IOException {
+		while (xml.nextChild()) {
+			if (isPomElement(xml) && xml.getName().equals("plugins")) {
+				while (xml.nextChild()) {
+					if (isPomElement(xml) && xml.getName().equals("plugin")) {
+						buildDependencies.add(PomDependency.readPlugin(xml, buildDependencies));
+					} else {
+						xml.skip();
+					}
+				}
+			} else if (isPomElement(xml) && xml.getName().equals("extensions")) {
+				while (xml.nextChild()) {
+					if (isPomElement(xml) && xml.getName().equals("extension")) {
+						buildDependencies.add(PomDependency.read(xml));
+					} else {
+						xml.skip();
+					}
+				}
+			} else {
+				xml.skip();
+			}
+		}
+	}
+
+	private static void readProfile(final XmlElementReader xml, final List<PomDependency> buildDependencies) throws IOException {
+		while (xml.nextChild()) {
+			if (isPomElement(xml) && xml.getName().equals("dependencies")) {
+				readDependencies(xml, buildDependencies);
+			} else if (isPomElement(xml) && xml.getName().equals("build")) {
+				readBuild(xml, buildDependencies);
+			} else {
+				xml.skip();
+			}
+		}
+	}
+
+	/**
+	 * Maven accepts poms without the POM namespace, so elements without a namespace are read too.
+	 * @param xml the reader, positioned on an element
+	 * @return true if the element is in the POM namespace, or has none
+	 */
+	static boolean isPomElement(final XmlElementReader xml) {
+		return xml.getNamespace().isEmpty() || xml.getNamespace().equals(NAMESPACE);
+	}
+
+	/**
+	 * The parent node of the project.
+	 *
+	 * @return the PomParent model
+	 */
+	public PomParent getParent() {
+		return parent;
+	}
+
+	/**
+	 * The group ID of the project.
+	 *
+	 * @return the group ID
+	 */
+	public String getGroupId() {
+		return groupId;
+	}
+
+	/**
+	 * The artifact ID of the project.
+	 *
+	 * @return the artifact ID
+	 */
+	public String getArtifactId() {
+		return artifactId;
+	}
+
+	/**
+	 * The version of the project, if not inherited from the parent.
+	 *
+	 * @return the version
+	 */
+	public String getVersion() {
+		return version;
+	}
+
+	/**
+	 * The packaging of the project, if not the default.
+	 *
+	 * @return the packaging
+	 */
+	public String getPackaging() {
+		return packaging;
+	}
+
+	/**
+	 * The dependencies of the project, not including those of its profiles or dependency management.
+	 *
+	 * @return the dependencies
+	 */
+	public List<PomDependency> getDependencies() {
+		return dependencies;
+	}
+
+	/**
+	 * The other artifacts the build of the project uses: its plugins and their dependencies, its build extensions, and
+	 * the dependencies, plugins and extensions of all its profiles, whether or not they are active.
+	 *
+	 * @return the artifacts, as dependencies; the group ID of a plugin may be left out
+	 */
+	public List<PomDependency> getBuildDependencies() {
+		return buildDependencies;
+	}
+}
@@ -0,0 +1,229 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.reactor;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.elasticpath.tools.mavenminimal.util.Logger;
+
+/**
+ * The file of build events the mvnmin maven extension writes while maven runs, and mvnmin reads afterwards.
+ *
+ * Each line is an event, as tab separated fields: the time in epoch milliseconds, the event type (the name of
+ * maven's ExecutionEvent.Type), the project as groupId:artifactId, for mojo events the mojo as
+ * "artifactId:goal (executionId)", and the name of the maven thread the event happened on.  Logs written by older
+ * extensions have no thread field.
+ */
+public final class BuildEventLog {
+
+	/**
+	 * The maven user property naming the file the extension writes events to.
+	 */
+	public static final String EVENTS_FILE_PROPERTY = "mvnmin.events.file";
+
+	/** A project started building. */
+	public static final String PROJECT_STARTED = "ProjectStarted";
+	/** A project built successfully. */
+	public static final String PROJECT_SUCCEEDED = "ProjectSucceeded";
+	/** A project failed to build. */
+	public static final String PROJECT_FAILED = "ProjectFailed";
+	/** A project was skipped. */
+	public static final String PROJECT_SKIPPED = "ProjectSkipped";
+	/** A mojo started running. */
+	public static final String MOJO_STARTED = "MojoStarted";
+	/** A mojo ran successfully. */
+	public static final String MOJO_SUCCEEDED = "MojoSucceeded";
+	/** A mojo failed. */
+	public static final String MOJO_FAILED = "MojoFailed";
+
+	private static final String SEPARATOR = "\t";
+	private static final int FIELD_COUNT = 5;
+	private static final int MOJO_FIELD = 3;
+	private static final int THREAD_FIELD = 4;
+
+	private BuildEventLog() {
+		// static utility
+	}
+
+	/**
+	 * Format an event as a line of the log.
+	 * @param timeMillis when the event happened, in epoch milliseconds
+	 * @param type the event type
+	 * @param project the project, as groupId:artifactId
+	 * @param mojo the mojo, or an empty string for project events
+	 * @param thread the name of the thread the event happened on
+	 * @return the line, without a line terminator
+	 */
+	public static String format(final long timeMillis, final String type, final String project, final String mojo,
+			final String thread) {
+		return timeMillis + SEPARATOR + type + SEPARATOR + project + SEPARATOR + mojo + SEPARATOR + thread.replace(SEPARATOR, " ");
+	}
+
+	/**
+	 * Read the events of an event log, skipping malformed lines.
+	 * @param eventsFile the event log
+	 * @return the events, in the order they happened
+	 * @throws IOException if the log cannot be read
+	 */
+	public static List<Event> readEvents(final Path eventsFile) throws IOException {
+		List<Event> events = new ArrayList<>();
+		for (String line : Files.readAllLines(eventsFile, StandardCharsets.UTF_8)) {
+			String[] fields = line.split(SEPARATOR, -1);
+			long timeMillis;
+			try {
+				timeMillis = Long.parseLong(fields[0]);
+			} catch (NumberFormatException e) {
+				Logger.debug("Ignoring malformed build event: " + line, e);
+				continue;
+			}
+			if (fields.length != FIELD_COUNT && fields.length != FIELD_COUNT - 1) {
+				Logger.debug("Ignoring malformed build event: " + line);
+				continue;
+			}
+			String thread = fields.length == FIELD_COUNT ? fields[THREAD_FIELD] : "";
+			events.add(new Event(timeMillis, fields[1], fields[2], fields[MOJO_FIELD], thread));
+		}
+		return events;
+	}
+
+	/**
+	 * Read the module timings from an event log.
+	 *
+	 * Modules which started but didn't finish, because maven was stopped, are left out.
+	 * @param reactorName the name of the reactor the log is for
+	 * @param eventsFile the event log
+	 * @return the timings of the modules, in the order they finished
+	 * @throws IOException if the log cannot be read
+	 */
+	public static List<ModuleTiming> read(final String reactorName, final Path eventsFile) throws IOException {
+		Map<String, Long> projectStarts = new HashMap<>();
+		Map<String, Long> mojoStarts = new HashMap<>();
+		Map<String, Map<String, Long>> mojoMillis = new HashMap<>();
+		List<ModuleTiming> timings = new ArrayList<>();
+
+		for (Event event : readEvents(eventsFile)) {
+			long timeMillis = event.getTimeMillis();
+			String project = event.getProject();
+			String mojo = event.getMojo();
+			String mojoKey = project + SEPARATOR + mojo;
+
+			switch (event.getType()) {
+				case PROJECT_STARTED:
+					projectStarts.put(project, timeMillis);
+					mojoMillis.put(project, new LinkedHashMap<>());
+					break;
+				case MOJO_STARTED:
+					mojoStarts.put(mojoKey, timeMillis);
+					break;
+				case MOJO_SUCCEEDED:
+				case MOJO_FAILED:
+					Long mojoStart = mojoStarts.remove(mojoKey);
+					if (mojoStart != null) {
+						mojoMillis.computeIfAbsent(project, key -> new LinkedHashMap<>())
+								.merge(mojo, timeMillis - mojoStart, Long::sum);
+					}
+					break;
+				case PROJECT_SKIPPED:
+					timings.add(new ModuleTiming(reactorName, project, ModuleTiming.Outcome.SKIPPED, 0, new HashMap<>()));
+					break;
+				case PROJECT_SUCCEEDED:
+				case PROJECT_FAILED:
+					Long projectStart = projectStarts.remove(project);
+					if (projectStart != null) {
+						ModuleTiming.Outcome outcome = PROJECT_SUCCEEDED.equals(event.getType())
+								? ModuleTiming.Outcome.SUCCEEDED
+								: ModuleTiming.Outcome.FAILED;
+						timings.add(new ModuleTiming(reactorName, project, outcome, timeMillis - projectStart,
+								mojoMillis.remove(project)));
+					}
+					break;
+				default:
+					Logger.debug("Ignoring unknown build event: " + event.getType());
+			}
+		}
+		return timings;
+	}
+
+	/**
+	 * A line of the event log.
+	 */
+	public static final class Event {
+		private final long timeMillis;
+		private final String type;
+		private final String project;
+		private final String mojo;
+		private final String thread;
+
+		/**
+		 * @param timeMillis when the event happened, in epoch milliseconds
+		 * @param type the event type
+		 * @param project the project, as groupId:artifactId
+		 * @param mojo the mojo, or an empty string for project events
+		 * @param thread the name of the thread the event happened on, or an empty string if it isn't known
+		 */
+		Event(final long timeMillis, final String type, final String project, final String mojo, final String thread) {
+			this.timeMillis = timeMillis;
+			this.type = type;
+			this.project = project;
+			this.mojo = mojo;
+			this.thread = thread;
+		}
+
+		/**
+		 * @return when the event happened, in epoch milliseconds.
+		 */
+		public long getTimeMillis() {
+			return timeMillis;
+		}
+
+		/**
+		 * @return the event type, the name of maven's ExecutionEvent.Type.
+		 */
+		public String getType() {
+			return type;
+		}
+
+		/**
+		 * @return the project, as groupId:artifactId.
+		 */
+		public String getProject() {
+			return project;
+		}
+
+		/**
+		 * @return the mojo, or an empty string for project events.
+		 */
+		public String getMojo() {
+			return mojo;
+		}
+
+		/**
+		 * @return the name of the thread the event happened on, or an empty string if it isn't known.
+		 */
+		public String getThread() {
+			return thread;
+		}
+	}
+}
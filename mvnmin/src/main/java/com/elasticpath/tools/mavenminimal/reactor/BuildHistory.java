@@ -0,0 +1,322 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.reactor;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.stream.Collectors;
+
+import com.elasticpath.tools.mavenminimal.util.BufferedChannelWriter;
+import com.elasticpath.tools.mavenminimal.util.Logger;
+
+/**
+ * Remembers how long each reactor and module took to build in previous runs, how the builds ended, and how much
+ * memory each reactor used, so that mvnmin can schedule the slowest work first, estimate how long a build will take,
+ * and notice when a module becomes slower to build.
+ *
+ * The history is an append-only file of records: each run adds its records to the end.  Once the file holds more than
+ * twice the records still of use, it is compacted to the latest {@value #KEPT_SAMPLES} records of each reactor and
+ * module.  Estimates use the median of the successful builds kept.
+ */
+public class BuildHistory {
+
+	/**
+	 * The number of records kept for each reactor and module when the history is compacted.
+	 */
+	public static final int KEPT_SAMPLES = 10;
+
+	private static final String FILE_NAME = "builds.tsv";
+	private static final int MIN_COMPACTION_LINES = 100;
+	private static final int MIN_REGRESSION_SAMPLES = 3;
+	private static final double REGRESSION_FACTOR = 1.5;
+	private static final long MIN_REGRESSION_MILLIS = 5000;
+
+	private final Path file;
+	private final long runMillis;
+	private final Map<String, List<BuildRecord>> samples = new LinkedHashMap<>();
+	private final Map<String, BuildRecord> newRecords = new LinkedHashMap<>();
+	private int storedLines;
+
+	/**
+	 * @param folder the folder the history is kept in
+	 * @param runMillis when this run started, in epoch milliseconds
+	 */
+	BuildHistory(final Path folder, final long runMillis) {
+		this.file = folder.resolve(FILE_NAME);
+		this.runMillis = runMillis;
+		if (!Files.isReadable(file)) {
+			return;
+		}
+		try {
+			for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+				storedLines++;
+				BuildRecord record = BuildRecord.parse(line);
+				if (record == null) {
+					Logger.debug("Ignoring malformed build history record: " + line);
+				} else {
+					addSample(record);
+				}
+			}
+		} catch (IOException e) {
+			Logger.debug("Ignoring unreadable build history " + file, e);
+		}
+	}
+
+	/**
+	 * Load the build history.
+	 * @param folder the folder the history is kept in
+	 * @return the history, empty if there is none yet
+	 */
+	public static BuildHistory load(final Path folder) {
+		return new BuildHistory(folder, System.currentTimeMillis());
+	}
+
+	private void addSample(final BuildRecord record) {
+		List<BuildRecord> records = samples.computeIfAbsent(record.getKey(), key -> new ArrayList<>());
+		records.add(record);
+		if (records.size() > KEPT_SAMPLES) {
+			records.remove(0);
+		}
+	}
+
+	/**
+	 * Record the build of a reactor in this run.
+	 * @param reactor the reactor that was built
+	 * @param millis how long maven took
+	 * @param exitValue maven's exit value
+	 */
+	public synchronized void recordReactor(final Reactor reactor, final long millis, final int exitValue) {
+		ModuleTiming.Outcome outcome = exitValue == 0 ? ModuleTiming.Outcome.SUCCEEDED : ModuleTiming.Outcome.FAILED;
+		BuildRecord record = new BuildRecord(runMillis, BuildRecord.Kind.REACTOR, reactor.getReactorName(), millis, outcome, 0,
+				reactor.getActiveModules().size());
+		newRecords.put(record.getKey(), record);
+	}
+
+	/**
+	 * Record the peak memory a reactor used in this run.
+	 * @param reactor the reactor that was built
+	 * @param peakRss the most memory its processes used at once, in bytes, or zero if unknown
+	 */
+	public synchronized void recordPeakRss(final Reactor reactor, final long peakRss) {
+		BuildRecord record = newRecords.get(BuildRecord.key(BuildRecord.Kind.REACTOR, reactor.getReactorName()));
+		if (record != null && peakRss > 0) {
+			record.setPeakRss(peakRss);
+		}
+	}
+
+	/**
+	 * Record the builds of modules in this run.  Skipped modules are not recorded.
+	 * @param timings the timings of the modules
+	 */
+	public synchronized void recordModules(final List<ModuleTiming> timings) {
+		for (ModuleTiming timing : timings) {
+			if (timing.getOutcome() != ModuleTiming.Outcome.SKIPPED) {
+				BuildRecord record = new BuildRecord(runMillis, BuildRecord.Kind.MODULE, timing.getModule(), timing.getWallMillis(),
+						timing.getOutcome(), 0, 1);
+				newRecords.put(record.getKey(), record);
+			}
+		}
+	}
+
+	/**
+	 * The typical time a reactor takes to build, preferring previous builds of the same number of modules.
+	 * @param reactor the reactor to look up
+	 * @return the median duration of the reactor's successful builds, in milliseconds, if it has any.
+	 */
+	public synchronized OptionalLong expectedReactorMillis(final Reactor reactor) {
+		List<BuildRecord> successes = successes(BuildRecord.key(BuildRecord.Kind.REACTOR, reactor.getReactorName()));
+		List<BuildRecord> sameSize = successes.stream()
+				.filter(record -> record.getModules() == reactor.getActiveModules().size())
+				.collect(Collectors.toList());
+		return median(sameSize.isEmpty() ? successes : sameSize);
+	}
+
+	/**
+	 * @param module the module, as groupId:artifactId
+	 * @return the median duration of the module's successful builds, in milliseconds, if it has any.
+	 */
+	public synchronized OptionalLong expectedModuleMillis(final String module) {
+		return median(successes(BuildRecord.key(BuildRecord.Kind.MODULE, module)));
+	}
+
+	/**
+	 * @param reactor the reactor to look up
+	 * @return the most memory the reactor used in the kept builds, in bytes, or zero if it was never measured.
+	 */
+	public synchronized long getPeakRss(final Reactor reactor) {
+		return samples.getOrDefault(BuildRecord.key(BuildRecord.Kind.REACTOR, reactor.getReactorName()), Collections.emptyList())
+				.stream()
+				.mapToLong(BuildRecord::getPeakRss)
+				.max()
+				.orElse(0);
+	}
+
+	/**
+	 * Replace the memory weight of each reactor with measured memory use with its peak.
+	 *
+	 * As only the latest builds are kept, a peak from a run which built all of a reactor's modules is forgotten in time.
+	 * @param reactors the reactors to refine
+	 */
+	public void refineWeights(final List<Reactor> reactors) {
+		for (Reactor reactor : reactors) {
+			long peak = getPeakRss(reactor);
+			if (peak > 0) {
+				Logger.debug("Memory weight of " + reactor.getReactorName() + " refined from " + reactor.getMemoryWeight()
+						+ " to " + peak);
+				reactor.setMemoryWeight(peak);
+			}
+		}
+	}
+
+	/**
+	 * Find the reactors and modules which built successfully in this run, but much slower than they usually do.
+	 *
+	 * A reactor is only compared with previous builds of the same number of modules.
+	 * @return the regressions, in the order they were recorded
+	 */
+	public synchronized List<Regression> findRegressions() {
+		List<Regression> regressions = new ArrayList<>();
+		for (BuildRecord record : newRecords.values()) {
+			if (!record.isSuccessful()) {
+				continue;
+			}
+			List<BuildRecord> comparable = successes(record.getKey()).stream()
+					.filter(sample -> sample.getModules() == record.getModules())
+					.collect(Collectors.toList());
+			if (comparable.size() < MIN_REGRESSION_SAMPLES) {
+				continue;
+			}
+			long usualMillis = median(comparable).getAsLong();
+			if (record.getMillis() > usualMillis * REGRESSION_FACTOR && record.getMillis() - usualMillis > MIN_REGRESSION_MILLIS) {
+				regressions.add(new Regression(record.getName(), record.getMillis(), usualMillis));
+			}
+		}
+		return regressions;
+	}
+
+	/**
+	 * Append this run's records to the history file, and compact the file if it has grown large.
+	 */
+	public synchronized void save() {
+		if (newRecords.isEmpty()) {
+			return;
+		}
+		try {
+			Files.createDirectories(file.toAbsolutePath().getParent());
+			try (BufferedChannelWriter writer = new BufferedChannelWriter(file, StandardOpenOption.APPEND)) {
+				for (BuildRecord record : newRecords.values()) {
+					writer.writeLine(record.format());
+				}
+			}
+			storedLines += newRecords.size();
+			newRecords.values().forEach(this::addSample);
+			newRecords.clear();
+
+			int keptLines = samples.values().stream().mapToInt(List::size).sum();
+			if (storedLines > Math.max(MIN_COMPACTION_LINES, 2 * keptLines)) {
+				compact();
+			}
+		} catch (IOException e) {
+			Logger.debug("Failed to save build history " + file, e);
+		}
+	}
+
+	private void compact() throws IOException {
+		Logger.debug("Compacting build history " + file + " from " + storedLines + " records");
+		List<BuildRecord> kept = samples.values().stream()
+				.flatMap(List::stream)
+				.sorted(Comparator.comparingLong(BuildRecord::getRunMillis))
+				.collect(Collectors.toList());
+		Path compacted = file.resolveSibling(FILE_NAME + ".tmp");
+		try (BufferedChannelWriter writer = new BufferedChannelWriter(compacted)) {
+			for (BuildRecord record : kept) {
+				writer.writeLine(record.format());
+			}
+		}
+		Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		storedLines = kept.size();
+	}
+
+	/**
+	 * @return the number of records in the history file.
+	 */
+	int getStoredLines() {
+		return storedLines;
+	}
+
+	private List<BuildRecord> successes(final String key) {
+		return samples.getOrDefault(key, Collections.emptyList()).stream()
+				.filter(BuildRecord::isSuccessful)
+				.collect(Collectors.toList());
+	}
+
+	private static OptionalLong median(final List<BuildRecord> records) {
+		if (records.isEmpty()) {
+			return OptionalLong.empty();
+		}
+		long[] millis = records.stream().mapToLong(BuildRecord::getMillis).sorted().toArray();
+		return OptionalLong.of(millis[millis.length / 2]);
+	}
+
+	/**
+	 * A reactor or module which built much slower than usual.
+	 */
+	public static final class Regression {
+
+		private final String name;
+		private final long millis;
+		private final long usualMillis;
+
+		private Regression(final String name, final long millis, final long usualMillis) {
+			this.name = name;
+			this.millis = millis;
+			this.usualMillis = usualMillis;
+		}
+
+		/**
+		 * @return the reactor name or module id.
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return how long it took to build in this run, in milliseconds.
+		 */
+		public long getMillis() {
+			return millis;
+		}
+
+		/**
+		 * @return the median duration of its previous successful builds, in milliseconds.
+		 */
+		public long getUsualMillis() {
+			return usualMillis;
+		}
+	}
+}
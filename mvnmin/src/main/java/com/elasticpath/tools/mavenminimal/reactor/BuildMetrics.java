@@ -0,0 +1,223 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+
+package com.elasticpath.tools.mavenminimal.reactor;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.elasticpath.tools.mavenminimal.util.Profiler;
+
+/**
+ * Collects the metrics of a mvnmin run, and writes them in the OpenMetrics text format.
+ *
+ * The file suits the node-exporter textfile collector: it's replaced atomically, and every metric is a gauge of the
+ * last run, so activation and build costs can be charted across many runs.
+ */
+public class BuildMetrics {
+
+	private static final double MILLIS_PER_SECOND = 1000.0;
+	private static final long MICROS_PER_MILLI = 1000;
+	private static final double MICROS_PER_SECOND = 1_000_000.0;
+	private static final String ACTIVATED_MODULES = "mvnmin_activated_modules";
+	private static final String REACTOR_MODULES = "mvnmin_reactor_modules";
+	private static final String PHASE_DURATION = "mvnmin_phase_duration_seconds";
+	private static final String CACHE_LOOKUPS = "mvnmin_cache_lookups";
+	private static final String CACHE_HITS = "mvnmin_cache_hits";
+	private static final String CACHE_HIT_RATIO = "mvnmin_cache_hit_ratio";
+	private static final String REACTOR_DURATION = "mvnmin_reactor_duration_seconds";
+	private static final String REACTOR_EXIT_CODE = "mvnmin_reactor_exit_code";
+	private static final String EXIT_CODE = "mvnmin_exit_code";
+	private static final String LAST_RUN = "mvnmin_last_run_timestamp_seconds";
+
+	private final Map<String, Family> families = new LinkedHashMap<>();
+
+	/**
+	 * Create an empty set of metrics.
+	 */
+	public BuildMetrics() {
+		family(ACTIVATED_MODULES, "source", "Modules requested by each source, such as git status, or added by build-ifs.");
+		family(REACTOR_MODULES, "reactor", "Modules activated in each reactor.");
+		family(PHASE_DURATION, "phase", "Seconds each of mvnmin's phases took, including the phases nested in it.");
+		family(CACHE_LOOKUPS, "cache", "Lookups in each of mvnmin's caches.");
+		family(CACHE_HITS, "cache", "Lookups found in each of mvnmin's caches.");
+		family(CACHE_HIT_RATIO, "cache", "Lookups found per lookup in each of mvnmin's caches.");
+		family(REACTOR_DURATION, "reactor", "Seconds each reactor's maven build took, including retries.");
+		family(REACTOR_EXIT_CODE, "reactor", "Exit code of each reactor's maven build.");
+		family(EXIT_CODE, null, "Exit code of mvnmin.");
+		family(LAST_RUN, null, "When mvnmin finished, in seconds since the epoch.");
+	}
+
+	/**
+	 * Record how many modules a source of module requests activated.
+	 * @param source the source, such as "stdin" or "git_status"
+	 * @param modules the number of modules
+	 * @return this instance.
+	 */
+	public synchronized BuildMetrics withActivatedModules(final String source, final int modules) {
+		families.get(ACTIVATED_MODULES).samples.put(source, modules);
+		return this;
+	}
+
+	/**
+	 * Record how many modules each reactor is to build.
+	 * @param reactors the reactors
+	 * @return this instance.
+	 */
+	public synchronized BuildMetrics withReactors(final List<Reactor> reactors) {
+		for (Reactor reactor : reactors) {
+			families.get(REACTOR_MODULES).samples.put(reactor.getReactorName(), reactor.getActiveModules().size());
+		}
+		return this;
+	}
+
+	/**
+	 * Record how long each phase of the run took.  Phases are named by their path from the outermost phase, such as
+	 * "mvnmin/determine requested modules/diff", and the times of phases with the same path are added together.
+	 * @param root the outermost phase
+	 * @return this instance.
+	 */
+	public synchronized BuildMetrics withPhases(final Profiler.Phase root) {
+		addPhase(root.getName(), root);
+		return this;
+	}
+
+	private void addPhase(final String path, final Profiler.Phase phase) {
+		double seconds = Math.round(phase.getMillis() * MICROS_PER_MILLI) / MICROS_PER_SECOND;
+		families.get(PHASE_DURATION).samples.merge(path, seconds,
+				(first, second) -> first.doubleValue() + second.doubleValue());
+		for (Profiler.Phase child : phase.getChildren()) {
+			addPhase(path + "/" + child.getName(), child);
+		}
+	}
+
+	/**
+	 * Record how well a cache did.  The hit ratio is left out when there were no lookups.
+	 * @param cache the name of the cache, such as "build"
+	 * @param lookups the number of lookups
+	 * @param hits the number of lookups found in the cache
+	 * @return this instance.
+	 */
+	public synchronized BuildMetrics withCache(final String cache, final long lookups, final long hits) {
+		families.get(CACHE_LOOKUPS).samples.put(cache, lookups);
+		families.get(CACHE_HITS).samples.put(cache, hits);
+		if (lookups > 0) {
+			families.get(CACHE_HIT_RATIO).samples.put(cache, hits / (double) lookups);
+		}
+		return this;
+	}
+
+	/**
+	 * Record the maven build of a reactor.
+	 * @param reactor the reactor
+	 * @param millis how long maven took, including any retries
+	 * @param exitValue maven's exit value
+	 */
+	public synchronized void recordReactor(final Reactor reactor, final long millis, final int exitValue) {
+		families.get(REACTOR_DURATION).samples.put(reactor.getReactorName(), millis / MILLIS_PER_SECOND);
+		families.get(REACTOR_EXIT_CODE).samples.put(reactor.getReactorName(), exitValue);
+	}
+
+	/**
+	 * Record how mvnmin finished, and when.
+	 * @param exitValue mvnmin's exit value
+	 * @return this instance.
+	 */
+	public synchronized BuildMetrics withExitValue(final int exitValue) {
+		families.get(EXIT_CODE).samples.put(null, exitValue);
+		families.get(LAST_RUN).samples.put(null, System.currentTimeMillis() / MILLIS_PER_SECOND);
+		return this;
+	}
+
+	/**
+	 * @return the metrics in the OpenMetrics text format, leaving out metrics without samples.
+	 */
+	public synchronized String toOpenMetrics() {
+		StringBuilder text = new StringBuilder();
+		for (Family family : families.values()) {
+			if (family.samples.isEmpty()) {
+				continue;
+			}
+			text.append("# TYPE ").append(family.name).append(" gauge\n");
+			text.append("# HELP ").append(family.name).append(' ').append(family.help).append('\n');
+			family.samples.forEach((labelValue, value) -> {
+				text.append(family.name);
+				if (labelValue != null) {
+					text.append('{').append(family.label).append("=\"").append(escape(labelValue)).append("\"}");
+				}
+				text.append(' ').append(format(value)).append('\n');
+			});
+		}
+		return text.append("# EOF\n").toString();
+	}
+
+	/**
+	 * Write the metrics to a file, replacing it in one step so collectors never read a partly written file.
+	 * @param file the file to write, which the textfile collector expects to end in .prom
+	 * @throws IOException if the file cannot be written
+	 */
+	public void write(final Path file) throws IOException {
+		Path folder = file.toAbsolutePath().getParent();
+		Files.createDirectories(folder);
+		Path temporary = Files.createTempFile(folder, file.getFileName().toString(), ".tmp");
+		try {
+			Files.write(temporary, toOpenMetrics().getBytes(StandardCharsets.UTF_8));
+			Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temporary);
+		}
+	}
+
+	private void family(final String name, final String label, final String help) {
+		families.put(name, new Family(name, label, help));
+	}
+
+	private static String format(final Number value) {
+		if (value instanceof Double) {
+			// Plain decimals, as the epoch seconds would otherwise be written in scientific notation
+			return BigDecimal.valueOf(value.doubleValue()).toPlainString();
+		}
+		return value.toString();
+	}
+
+	private static String escape(final String labelValue) {
+		return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+
+	/**
+	 * A metric, and its samples by the value of its one label, or by null if it has no label.
+	 */
+	private static final class Family {
+		private final String name;
+		private final String label;
+		private final String help;
+		private final Map<String, Number> samples = new LinkedHashMap<>();
+
+		Family(final String name, final String label, final String help) {
+			this.name = name;
+			this.label = label;
+			this.help = help;
+		}
+	}
+}
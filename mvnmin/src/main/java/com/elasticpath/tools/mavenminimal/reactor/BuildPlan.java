@@ -0,0 +1,260 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.reactor;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import com.elasticpath.tools.mavenminimal.config.MvnMinConfigurationException;
+import com.elasticpath.tools.mavenminimal.config.XmlMvnMinConfig;
+import com.elasticpath.tools.mavenminimal.util.Digests;
+import com.elasticpath.tools.mavenminimal.util.JsonReader;
+import com.elasticpath.tools.mavenminimal.util.JsonWriter;
+
+/**
+ * The modules a build activated, and the reactors they were split between, saved as JSON so later stages of a
+ * pipeline can build exactly the same modules without detecting changes again.
+ *
+ * The plan also records the SHA-256 of mvnmin.xml and of each changed file the modules were activated by (null for a
+ * deleted file), so a stage using the plan can tell if the files have changed since, and the maven command line each
+ * reactor would have been built with.
+ */
+public final class BuildPlan {
+
+	private static final long FORMAT_VERSION = 1;
+
+	private final String configSha256;
+	private final Map<String, String> inputs;
+	private final List<PlannedReactor> reactors;
+
+	private BuildPlan(final String configSha256, final Map<String, String> inputs, final List<PlannedReactor> reactors) {
+		this.configSha256 = configSha256;
+		this.inputs = inputs;
+		this.reactors = reactors;
+	}
+
+	/**
+	 * Plan the build of the reactors.
+	 * @param subReactors the reactors, with their active modules
+	 * @param args the maven arguments
+	 * @param overrideMvnCommand an override to use for a maven command
+	 * @param projectRoot the root of the project
+	 * @param inputFiles the changed files which activated the modules, relative to the project root
+	 * @return the plan
+	 */
+	public static BuildPlan create(final List<Reactor> subReactors, final List<String> args, final String overrideMvnCommand,
+			final Path projectRoot, final Collection<String> inputFiles) {
+		Map<String, String> inputs = new TreeMap<>();
+		inputFiles.forEach(file -> inputs.put(file, sha256(projectRoot.resolve(file))));
+
+		List<PlannedReactor> reactors = new ArrayList<>();
+		for (Reactor reactor : subReactors) {
+			List<String> command = new ArrayList<>();
+			for (String arg : MavenDriver.determineMavenCommand(reactor, args, overrideMvnCommand).toStrings()) {
+				command.add(arg.trim());
+			}
+			reactors.add(new PlannedReactor(reactor.getReactorName(), reactor.shouldBuild(), reactor.getActiveModules(), command));
+		}
+		return new BuildPlan(sha256(projectRoot.resolve(XmlMvnMinConfig.MVNMIN_CONFIG_FILE_NAME)), inputs, reactors);
+	}
+
+	/**
+	 * Save the plan.
+	 * @param file the file to save it to
+	 */
+	public void write(final Path file) {
+		JsonWriter json = new JsonWriter()
+				.beginObject()
+				.name("version").value(FORMAT_VERSION)
+				.name("config").beginObject()
+				.name("file").value(XmlMvnMinConfig.MVNMIN_CONFIG_FILE_NAME)
+				.name("sha256").value(configSha256)
+				.endObject()
+				.name("inputs").beginArray();
+		inputs.forEach((input, sha256) -> json.beginObject().name("file").value(input).name("sha256").value(sha256).endObject());
+		json.endArray().name("reactors").beginArray();
+		for (PlannedReactor reactor : reactors) {
+			json.beginObject()
+					.name("name").value(reactor.name)
+					.name("build").value(reactor.build)
+					.name("modules").values(reactor.modules)
+					.name("command").values(reactor.command)
+					.endObject();
+		}
+		json.endArray().endObject();
+
+		try {
+			if (file.toAbsolutePath().getParent() != null) {
+				Files.createDirectories(file.toAbsolutePath().getParent());
+			}
+			Files.write(file, (json + "\n").getBytes(StandardCharsets.UTF_8));
+		} catch (IOException e) {
+			throw new IllegalStateException("Failed to write the build plan " + file, e);
+		}
+	}
+
+	/**
+	 * Load a saved plan.
+	 * @param file the file the plan was saved to
+	 * @return the plan
+	 * @throws MvnMinConfigurationException if the file can't be read, or isn't a build plan
+	 */
+	public static BuildPlan read(final Path file) {
+		Map<?, ?> plan;
+		try {
+			plan = as(Map.class, JsonReader.parse(new String(Files.readAllBytes(file), StandardCharsets.UTF_8)), file);
+		} catch (IOException | IllegalArgumentException e) {
+			throw new MvnMinConfigurationException("Failed to read the build plan " + file + ": " + e.getMessage(), e);
+		}
+		if (!Objects.equals(plan.get("version"), FORMAT_VERSION)) {
+			throw new MvnMinConfigurationException("Unsupported build plan version in " + file + ": " + plan.get("version"));
+		}
+
+		Map<String, String> inputs = new TreeMap<>();
+		for (Object input : as(List.class, plan.get("inputs"), file)) {
+			Map<?, ?> inputObject = as(Map.class, input, file);
+			inputs.put(as(String.class, inputObject.get("file"), file), (String) inputObject.get("sha256"));
+		}
+		List<PlannedReactor> reactors = new ArrayList<>();
+		for (Object reactor : as(List.class, plan.get("reactors"), file)) {
+			Map<?, ?> reactorObject = as(Map.class, reactor, file);
+			reactors.add(new PlannedReactor(
+					as(String.class, reactorObject.get("name"), file),
+					Boolean.TRUE.equals(reactorObject.get("build")),
+					strings(reactorObject.get("modules"), file),
+					new ArrayList<>(strings(reactorObject.get("command"), file))));
+		}
+		String configSha256 = (String) as(Map.class, plan.get("config"), file).get("sha256");
+		return new BuildPlan(configSha256, inputs, reactors);
+	}
+
+	private static <T> T as(final Class<T> type, final Object value, final Path file) {
+		if (!type.isInstance(value)) {
+			throw new MvnMinConfigurationException(
+					"Malformed build plan " + file + ": expected a " + type.getSimpleName() + ", found " + value);
+		}
+		return type.cast(value);
+	}
+
+	private static Set<String> strings(final Object value, final Path file) {
+		Set<String> strings = new TreeSet<>();
+		for (Object element : as(List.class, value, file)) {
+			strings.add(as(String.class, element, file));
+		}
+		return strings;
+	}
+
+	/**
+	 * @return every module the plan builds.
+	 */
+	public Set<String> getModules() {
+		Set<String> modules = new HashSet<>();
+		reactors.forEach(reactor -> modules.addAll(reactor.modules));
+		return modules;
+	}
+
+	/**
+	 * @return the changed files the modules were activated by.
+	 */
+	public Set<String> getInputFiles() {
+		return inputs.keySet();
+	}
+
+	/**
+	 * Give each reactor exactly the modules the plan gave it.
+	 * @param subReactors the reactors of this build
+	 * @throws MvnMinConfigurationException if the plan has a reactor which isn't configured
+	 */
+	public void applyTo(final List<Reactor> subReactors) {
+		Map<String, Reactor> reactorsByName = new HashMap<>();
+		subReactors.forEach(reactor -> reactorsByName.put(reactor.getReactorName(), reactor));
+		for (PlannedReactor planned : reactors) {
+			if (!reactorsByName.containsKey(planned.name)) {
+				throw new MvnMinConfigurationException("The build plan has reactor '" + planned.name + "', which isn't configured.");
+			}
+		}
+		for (Reactor reactor : subReactors) {
+			reactor.removeActiveModules(new HashSet<>(reactor.getActiveModules()));
+			reactors.stream()
+					.filter(planned -> planned.name.equals(reactor.getReactorName()))
+					.forEach(planned -> reactor.consumeActiveModules(new HashSet<>(planned.modules)));
+			reactor.setSkipReactor(!reactor.hasActiveModules());
+		}
+	}
+
+	/**
+	 * Find the files which have changed since the plan was made.
+	 * @param projectRoot the root of the project
+	 * @return mvnmin.xml and the input files whose content differs from when the plan was made
+	 */
+	public List<String> findChangedInputs(final Path projectRoot) {
+		List<String> changed = new ArrayList<>();
+		if (!Objects.equals(configSha256, sha256(projectRoot.resolve(XmlMvnMinConfig.MVNMIN_CONFIG_FILE_NAME)))) {
+			changed.add(XmlMvnMinConfig.MVNMIN_CONFIG_FILE_NAME);
+		}
+		inputs.forEach((input, sha256) -> {
+			if (!Objects.equals(sha256, sha256(projectRoot.resolve(input)))) {
+				changed.add(input);
+			}
+		});
+		return changed;
+	}
+
+	/**
+	 * @param file a file
+	 * @return the SHA-256 of the file's content, or null if it isn't a file.
+	 */
+	static String sha256(final Path file) {
+		if (!Files.isRegularFile(file)) {
+			return null;
+		}
+		try {
+			return Digests.sha256Hex(file);
+		} catch (IOException e) {
+			throw new IllegalStateException("Failed to read " + file, e);
+		}
+	}
+
+	/**
+	 * A reactor of the plan.
+	 */
+	private static final class PlannedReactor {
+		private final String name;
+		private final boolean build;
+		private final Set<String> modules;
+		private final List<String> command;
+
+		PlannedReactor(final String name, final boolean build, final Set<String> modules, final List<String> command) {
+			this.name = name;
+			this.build = build;
+			this.modules = new TreeSet<>(modules);
+			this.command = command;
+		}
+	}
+}
@@ -0,0 +1,240 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.reactor;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.elasticpath.tools.mavenminimal.config.MvnMinConfigurationException;
+import com.elasticpath.tools.mavenminimal.util.Logger;
+
+/**
+ * The plan of a build and how far it got, kept so a failed build can be resumed.
+ *
+ * The plan is saved when the build starts, and again as each reactor finishes.  A build resumed from it skips the
+ * reactors which succeeded, and resumes a failed reactor from the module maven reports it failed on (maven's
+ * -rf option), so the modules which built before the failure aren't built again.  The plan is deleted once every
+ * reactor has succeeded.
+ *
+ * The plan is stored one reactor per line, as tab separated fields: the reactor name, its status, the module it
+ * failed on (empty if unknown) and its active modules, comma separated.
+ */
+public final class BuildProgress {
+
+	/**
+	 * How far a reactor got.
+	 */
+	enum Status {
+		/** The reactor hasn't finished building. */
+		PENDING,
+		/** The reactor built successfully, or had nothing to build. */
+		SUCCEEDED,
+		/** The reactor failed to build. */
+		FAILED
+	}
+
+	private static final String SEPARATOR = "\t";
+	private static final String MODULE_SEPARATOR = ",";
+	private static final int FIELD_COUNT = 4;
+	private static final int MODULES_FIELD = 3;
+
+	private final Path file;
+	private final Map<String, ReactorProgress> reactors;
+	private final Map<String, String> resumeFrom = new HashMap<>();
+
+	private BuildProgress(final Path file, final Map<String, ReactorProgress> reactors) {
+		this.file = file;
+		this.reactors = reactors;
+	}
+
+	/**
+	 * Plan a new build of the reactors, and save the plan.
+	 * @param file the file to keep the plan in
+	 * @param reactors the reactors about to be built, with their active modules
+	 * @return the progress of the build
+	 */
+	public static BuildProgress plan(final Path file, final List<Reactor> reactors) {
+		Map<String, ReactorProgress> planned = new LinkedHashMap<>();
+		for (Reactor reactor : reactors) {
+			planned.put(reactor.getReactorName(), new ReactorProgress(Status.PENDING, "", reactor.getActiveModules()));
+		}
+		BuildProgress progress = new BuildProgress(file, planned);
+		progress.save();
+		return progress;
+	}
+
+	/**
+	 * Load the plan of the last build, to resume it.
+	 * @param file the file the plan is kept in
+	 * @return the progress of the last build
+	 * @throws MvnMinConfigurationException if there is no build to resume
+	 */
+	public static BuildProgress load(final Path file) {
+		if (!Files.isReadable(file)) {
+			throw new MvnMinConfigurationException("There is no failed build to resume, " + file + " doesn't exist.");
+		}
+		Map<String, ReactorProgress> loaded = new LinkedHashMap<>();
+		try {
+			for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+				String[] fields = line.split(SEPARATOR, -1);
+				if (fields.length != FIELD_COUNT) {
+					Logger.debug("Ignoring malformed build progress: " + line);
+					continue;
+				}
+				Set<String> modules = new HashSet<>();
+				if (!fields[MODULES_FIELD].isEmpty()) {
+					modules.addAll(Arrays.asList(fields[MODULES_FIELD].split(MODULE_SEPARATOR)));
+				}
+				loaded.put(fields[0], new ReactorProgress(Status.valueOf(fields[1]), fields[2], modules));
+			}
+		} catch (IOException | IllegalArgumentException e) {
+			throw new IllegalStateException("Failed to read the build progress " + file, e);
+		}
+		BuildProgress progress = new BuildProgress(file, loaded);
+		loaded.forEach((name, reactor) -> {
+			if (reactor.status == Status.FAILED && !reactor.failedModule.isEmpty()) {
+				progress.resumeFrom.put(name, reactor.failedModule);
+			}
+		});
+		return progress;
+	}
+
+	/**
+	 * Restore the planned active modules of each reactor, and skip the reactors which already succeeded.
+	 * Reactors which weren't part of the plan are skipped.
+	 * @param subReactors the reactors of the resumed build
+	 */
+	public void resume(final List<Reactor> subReactors) {
+		for (Reactor reactor : subReactors) {
+			ReactorProgress planned = reactors.get(reactor.getReactorName());
+			reactor.removeActiveModules(new HashSet<>(reactor.getActiveModules()));
+			if (planned == null || planned.status == Status.SUCCEEDED) {
+				reactor.setSkipReactor(true);
+			} else {
+				reactor.consumeActiveModules(new HashSet<>(planned.modules));
+				reactor.setSkipReactor(!reactor.hasActiveModules());
+			}
+		}
+	}
+
+	/**
+	 * Add the argument which resumes a reactor from the module it failed on, if the reactor is being resumed.
+	 * @param reactor the reactor about to be built
+	 * @param args the maven arguments for the reactor
+	 * @return a copy of the arguments, with maven's resume-from option added if needed
+	 */
+	public List<String> withResumeArguments(final Reactor reactor, final List<String> args) {
+		String module = resumeFrom.get(reactor.getReactorName());
+		if (module == null) {
+			return args;
+		}
+		List<String> reactorArgs = new ArrayList<>(args);
+		reactorArgs.add("-rf");
+		reactorArgs.add(module);
+		return reactorArgs;
+	}
+
+	/**
+	 * Record the outcome of a reactor, and save the progress.
+	 * @param reactor the reactor which finished
+	 * @param exitValue the exit value of maven
+	 */
+	public synchronized void recordReactor(final Reactor reactor, final int exitValue) {
+		ReactorProgress planned = reactors.get(reactor.getReactorName());
+		if (planned == null) {
+			return;
+		}
+		if (exitValue == 0) {
+			planned.status = Status.SUCCEEDED;
+			planned.failedModule = "";
+		} else {
+			planned.status = Status.FAILED;
+			planned.failedModule = reactor.getFailedModule() == null ? "" : reactor.getFailedModule();
+		}
+		save();
+	}
+
+	/**
+	 * @return true if every reactor in the plan succeeded.
+	 */
+	public synchronized boolean isComplete() {
+		return reactors.values().stream().allMatch(reactor -> reactor.status == Status.SUCCEEDED);
+	}
+
+	/**
+	 * @param reactorName the name of a reactor
+	 * @return the status of the reactor, or null if it isn't part of the plan
+	 */
+	synchronized Status getStatus(final String reactorName) {
+		ReactorProgress planned = reactors.get(reactorName);
+		return planned == null ? null : planned.status;
+	}
+
+	/**
+	 * Delete the saved plan, as there is nothing left to resume.
+	 */
+	public void delete() {
+		try {
+			Files.deleteIfExists(file);
+		} catch (IOException e) {
+			Logger.debug("Failed to delete the build progress " + file, e);
+		}
+	}
+
+	private synchronized void save() {
+		List<String> lines = new ArrayList<>();
+		reactors.forEach((name, reactor) -> lines.add(String.join(SEPARATOR,
+				name, reactor.status.name(), reactor.failedModule, String.join(MODULE_SEPARATOR, new TreeSet<>(reactor.modules)))));
+		try {
+			Path folder = file.toAbsolutePath().getParent();
+			Files.createDirectories(folder);
+			Path temporary = Files.createTempFile(folder, file.getFileName().toString(), ".tmp");
+			Files.write(temporary, lines, StandardCharsets.UTF_8);
+			Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			Logger.debug("Failed to save the build progress " + file, e);
+		}
+	}
+
+	/**
+	 * The planned modules of a reactor, and how far it got.
+	 */
+	private static final class ReactorProgress {
+		private final Set<String> modules;
+		private Status status;
+		private String failedModule;
+
+		ReactorProgress(final Status status, final String failedModule, final Set<String> modules) {
+			this.status = status;
+			this.failedModule = failedModule;
+			this.modules = Collections.unmodifiableSet(new HashSet<>(modules));
+		}
+	}
+}
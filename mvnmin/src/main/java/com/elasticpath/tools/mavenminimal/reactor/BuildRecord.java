@@ -0,0 +1,175 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.reactor;
+
+/**
+ * A single reactor or module build, as kept in the build history.
+ *
+ * Records are stored one per line, as tab separated fields: the time of the run in epoch milliseconds, the kind, the
+ * reactor name or module id, the duration in milliseconds, the outcome, the peak memory in bytes (zero if unknown) and
+ * the number of modules built.
+ */
+class BuildRecord {
+
+	/**
+	 * What was built.
+	 */
+	enum Kind {
+		/** A whole reactor, named by its reactor name. */
+		REACTOR,
+		/** A single module, named groupId:artifactId. */
+		MODULE
+	}
+
+	private static final String SEPARATOR = "\t";
+	private static final int FIELD_COUNT = 7;
+	private static final int MILLIS_FIELD = 3;
+	private static final int OUTCOME_FIELD = 4;
+	private static final int PEAK_RSS_FIELD = 5;
+	private static final int MODULES_FIELD = 6;
+
+	private final long runMillis;
+	private final Kind kind;
+	private final String name;
+	private final long millis;
+	private final ModuleTiming.Outcome outcome;
+	private long peakRss;
+	private final int modules;
+
+	/**
+	 * @param runMillis when the run started, in epoch milliseconds
+	 * @param kind what was built
+	 * @param name the reactor name or module id
+	 * @param millis how long the build took
+	 * @param outcome how the build ended
+	 * @param peakRss the most memory used at once, in bytes, or zero if unknown
+	 * @param modules the number of modules built
+	 */
+	BuildRecord(final long runMillis, final Kind kind, final String name, final long millis, final ModuleTiming.Outcome outcome,
+			final long peakRss, final int modules) {
+		this.runMillis = runMillis;
+		this.kind = kind;
+		this.name = name;
+		this.millis = millis;
+		this.outcome = outcome;
+		this.peakRss = peakRss;
+		this.modules = modules;
+	}
+
+	/**
+	 * @param line a line of the history file
+	 * @return the record, or null if the line is malformed
+	 */
+	static BuildRecord parse(final String line) {
+		String[] fields = line.split(SEPARATOR, -1);
+		if (fields.length != FIELD_COUNT) {
+			return null;
+		}
+		try {
+			return new BuildRecord(
+					Long.parseLong(fields[0]),
+					Kind.valueOf(fields[1]),
+					fields[2],
+					Long.parseLong(fields[MILLIS_FIELD]),
+					ModuleTiming.Outcome.valueOf(fields[OUTCOME_FIELD]),
+					Long.parseLong(fields[PEAK_RSS_FIELD]),
+					Integer.parseInt(fields[MODULES_FIELD]));
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return the record as a line of the history file, without a line terminator.
+	 */
+	String format() {
+		return String.join(SEPARATOR, String.valueOf(runMillis), kind.name(), name, String.valueOf(millis), outcome.name(),
+				String.valueOf(peakRss), String.valueOf(modules));
+	}
+
+	/**
+	 * @return the key records of the same reactor or module share.
+	 */
+	String getKey() {
+		return key(kind, name);
+	}
+
+	/**
+	 * @param kind what was built
+	 * @param name the reactor name or module id
+	 * @return the key records of the reactor or module share
+	 */
+	static String key(final Kind kind, final String name) {
+		return kind + SEPARATOR + name;
+	}
+
+	/**
+	 * @return when the run started, in epoch milliseconds.
+	 */
+	long getRunMillis() {
+		return runMillis;
+	}
+
+	/**
+	 * @return what was built.
+	 */
+	Kind getKind() {
+		return kind;
+	}
+
+	/**
+	 * @return the reactor name or module id.
+	 */
+	String getName() {
+		return name;
+	}
+
+	/**
+	 * @return how long the build took, in milliseconds.
+	 */
+	long getMillis() {
+		return millis;
+	}
+
+	/**
+	 * @return true if the build succeeded.
+	 */
+	boolean isSuccessful() {
+		return outcome == ModuleTiming.Outcome.SUCCEEDED;
+	}
+
+	/**
+	 * @return the most memory used at once, in bytes, or zero if unknown.
+	 */
+	long getPeakRss() {
+		return peakRss;
+	}
+
+	/**
+	 * @param peakRss the most memory used at once, in bytes
+	 */
+	void setPeakRss(final long peakRss) {
+		this.peakRss = peakRss;
+	}
+
+	/**
+	 * @return the number of modules built.
+	 */
+	int getModules() {
+		return modules;
+	}
+}
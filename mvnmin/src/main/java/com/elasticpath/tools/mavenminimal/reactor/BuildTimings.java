@@ -0,0 +1,243 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.reactor;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.elasticpath.tools.mavenminimal.config.MvnMinConfigurationException;
+import com.elasticpath.tools.mavenminimal.util.Environment;
+import com.elasticpath.tools.mavenminimal.util.Logger;
+
+/**
+ * Collects how long maven took to build each module, by loading the mvnmin maven extension into every maven
+ * invocation, where its event spy writes the start and end of each module and mojo to an event log.
+ *
+ * The extension jar is found from the MVNMIN_EXTENSION_JAR environment variable, or else next to the mvnmin jar.
+ */
+public class BuildTimings {
+
+	/**
+	 * The environment variable which locates the mvnmin maven extension jar.
+	 */
+	public static final String EXTENSION_JAR_ENVVAR = "MVNMIN_EXTENSION_JAR";
+
+	private static final String EXT_CLASS_PATH_ARG = "-Dmaven.ext.class.path=";
+	private static final String EXTENSION_JAR_GLOB = "mvnmin-maven-extension*.jar";
+	private static final double MILLIS_PER_SECOND = 1000.0;
+
+	private final Path extensionJar;
+	private final Path eventsFolder;
+	private final Map<Reactor, List<Path>> eventFiles = new ConcurrentHashMap<>();
+
+	/**
+	 * @param extensionJar the mvnmin maven extension jar
+	 * @param eventsFolder the folder to write each reactor's event log into
+	 */
+	public BuildTimings(final Path extensionJar, final Path eventsFolder) {
+		this.extensionJar = extensionJar.toAbsolutePath();
+		this.eventsFolder = eventsFolder.toAbsolutePath();
+	}
+
+	/**
+	 * Create the timings, with the extension jar found through the environment, or next to the mvnmin jar.
+	 * @param eventsFolder the folder to write each reactor's event log into
+	 * @return the timings
+	 * @throws MvnMinConfigurationException if the extension jar cannot be found
+	 */
+	public static BuildTimings locate(final Path eventsFolder) {
+		return new BuildTimings(findExtensionJar(Environment.getAll(), mvnminJarFolder()), eventsFolder);
+	}
+
+	/**
+	 * Find the mvnmin maven extension jar.
+	 * @param environment the environment variables
+	 * @param mvnminJarFolder the folder the mvnmin jar is in, or null if mvnmin isn't running from a jar
+	 * @return the extension jar
+	 * @throws MvnMinConfigurationException if the extension jar cannot be found
+	 */
+	static Path findExtensionJar(final Map<String, String> environment, final Path mvnminJarFolder) {
+		String configuredJar = environment.get(EXTENSION_JAR_ENVVAR);
+		if (configuredJar != null) {
+			Path jar = Paths.get(configuredJar);
+			if (!Files.isRegularFile(jar)) {
+				throw new MvnMinConfigurationException(EXTENSION_JAR_ENVVAR + " doesn't name a file: " + configuredJar);
+			}
+			return jar;
+		}
+		if (mvnminJarFolder != null) {
+			try (DirectoryStream<Path> jars = Files.newDirectoryStream(mvnminJarFolder, EXTENSION_JAR_GLOB)) {
+				Iterator<Path> iterator = jars.iterator();
+				if (iterator.hasNext()) {
+					return iterator.next();
+				}
+			} catch (IOException e) {
+				Logger.debug("Failed to list " + mvnminJarFolder, e);
+			}
+		}
+		throw new MvnMinConfigurationException("Build timings need the mvnmin maven extension jar, "
+				+ "place it next to the mvnmin jar or set " + EXTENSION_JAR_ENVVAR + ".");
+	}
+
+	private static Path mvnminJarFolder() {
+		CodeSource codeSource = BuildTimings.class.getProtectionDomain().getCodeSource();
+		if (codeSource == null) {
+			return null;
+		}
+		try {
+			Path location = Paths.get(codeSource.getLocation().toURI());
+			return Files.isRegularFile(location) ? location.getParent() : null;
+		} catch (URISyntaxException e) {
+			Logger.debug("Failed to locate the mvnmin jar", e);
+			return null;
+		}
+	}
+
+	/**
+	 * Add the arguments which load the extension and set its event log, replacing any old log for the reactor.
+	 *
+	 * An extension class path already in the arguments is kept, with the mvnmin extension added to it.  When a reactor
+	 * is built again, as its failed modules are retried, each attempt has its own event log.
+	 * @param reactor the reactor about to be built
+	 * @param args the maven arguments for the reactor
+	 * @return a copy of the arguments, with the extension's arguments added
+	 */
+	public List<String> withEventArguments(final Reactor reactor, final List<String> args) {
+		List<Path> reactorEventFiles = eventFiles.computeIfAbsent(reactor, key -> new ArrayList<>());
+		String fileName = reactor.getReactorNumber() + "-" + reactor.getReactorName().replaceAll("[^\\w.-]", "_")
+				+ (reactorEventFiles.isEmpty() ? "" : "." + (reactorEventFiles.size() + 1)) + ".tsv";
+		Path eventsFile = eventsFolder.resolve(fileName);
+		try {
+			Files.createDirectories(eventsFolder);
+			Files.deleteIfExists(eventsFile);
+		} catch (IOException e) {
+			throw new IllegalStateException("Failed to prepare the event log " + eventsFile, e);
+		}
+		reactorEventFiles.add(eventsFile);
+
+		String extClassPath = extensionJar.toString();
+		List<String> reactorArgs = new ArrayList<>();
+		for (String arg : args) {
+			if (arg.startsWith(EXT_CLASS_PATH_ARG)) {
+				extClassPath = arg.substring(EXT_CLASS_PATH_ARG.length()) + File.pathSeparator + extClassPath;
+			} else {
+				reactorArgs.add(arg);
+			}
+		}
+		reactorArgs.add(EXT_CLASS_PATH_ARG + extClassPath);
+		reactorArgs.add("-D" + BuildEventLog.EVENTS_FILE_PROPERTY + "=" + eventsFile);
+		return reactorArgs;
+	}
+
+	/**
+	 * Read the timings of the modules of every reactor built with the event arguments, from every attempt.
+	 * @param reactors the reactors, in the order their modules should be listed
+	 * @return the timings of the modules, slowest first
+	 */
+	public List<ModuleTiming> collect(final List<Reactor> reactors) {
+		List<ModuleTiming> timings = new ArrayList<>();
+		for (Reactor reactor : reactors) {
+			for (Path eventsFile : eventFiles.getOrDefault(reactor, Collections.emptyList())) {
+				timings.addAll(read(reactor, eventsFile));
+			}
+		}
+		timings.sort(Comparator.comparingLong(ModuleTiming::getWallMillis).reversed());
+		return timings;
+	}
+
+	/**
+	 * @param reactor the reactor
+	 * @return the event log of each attempt to build the reactor with the event arguments, in order.
+	 */
+	public List<Path> getEventFiles(final Reactor reactor) {
+		return Collections.unmodifiableList(eventFiles.getOrDefault(reactor, Collections.emptyList()));
+	}
+
+	/**
+	 * Read the timings of the modules of the most recent attempt to build a reactor.
+	 * @param reactor the reactor
+	 * @return the timings of the modules, in the order they finished, or null if the reactor wasn't built with the event
+	 *         arguments
+	 */
+	public List<ModuleTiming> latest(final Reactor reactor) {
+		List<Path> reactorEventFiles = eventFiles.get(reactor);
+		if (reactorEventFiles == null || reactorEventFiles.isEmpty()) {
+			return null;
+		}
+		return read(reactor, reactorEventFiles.get(reactorEventFiles.size() - 1));
+	}
+
+	private static List<ModuleTiming> read(final Reactor reactor, final Path eventsFile) {
+		if (!Files.isRegularFile(eventsFile)) {
+			return Collections.emptyList();
+		}
+		try {
+			return BuildEventLog.read(reactor.getReactorName(), eventsFile);
+		} catch (IOException e) {
+			Logger.debug("Failed to read the event log " + eventsFile, e);
+			return Collections.emptyList();
+		}
+	}
+
+	/**
+	 * Format a table of module timings.
+	 * @param timings the timings, in the order to list them
+	 * @param maxRows the most modules to list
+	 * @return the lines of the table
+	 */
+	public static List<String> summary(final List<ModuleTiming> timings, final int maxRows) {
+		int moduleWidth = "Module".length();
+		int reactorWidth = "Reactor".length();
+		List<ModuleTiming> rows = timings.subList(0, Math.min(maxRows, timings.size()));
+		for (ModuleTiming timing : rows) {
+			moduleWidth = Math.max(moduleWidth, timing.getModule().length());
+			reactorWidth = Math.max(reactorWidth, timing.getReactorName().length());
+		}
+		String rowFormat = "%-" + moduleWidth + "s  %-" + reactorWidth + "s  %9s  %-9s  %s";
+
+		List<String> lines = new ArrayList<>();
+		lines.add(String.format(rowFormat, "Module", "Reactor", "Time", "Result", "Slowest mojo"));
+		for (ModuleTiming timing : rows) {
+			String slowestMojo = timing.getSlowestMojo()
+					.map(mojo -> String.format("%s %.1fs", mojo, timing.getMojoMillis().get(mojo) / MILLIS_PER_SECOND))
+					.orElse("");
+			lines.add(String.format(rowFormat,
+					timing.getModule(),
+					timing.getReactorName(),
+					String.format("%.1fs", timing.getWallMillis() / MILLIS_PER_SECOND),
+					timing.getOutcome(),
+					slowestMojo).trim());
+		}
+		if (timings.size() > rows.size()) {
+			lines.add(String.format("... and %d more modules", timings.size() - rows.size()));
+		}
+		return lines;
+	}
+}
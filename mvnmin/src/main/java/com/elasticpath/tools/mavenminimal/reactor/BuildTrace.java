@@ -0,0 +1,231 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+
+package com.elasticpath.tools.mavenminimal.reactor;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.elasticpath.tools.mavenminimal.util.JsonWriter;
+import com.elasticpath.tools.mavenminimal.util.Profiler;
+
+/**
+ * Writes a timeline of a build in the Trace Event Format, which Perfetto (ui.perfetto.dev) and chrome://tracing open.
+ *
+ * mvnmin's own phases are the first process, on the threads which ran them.  Each maven build of a reactor follows as
+ * a process of its own, with a thread for each of maven's builder threads, showing the modules it built and the mojos
+ * within them.  All times are microseconds since the epoch, so the processes line up with each other.
+ */
+public class BuildTrace {
+
+	private static final long MICROS_PER_MILLI = 1000;
+	private static final String MAVEN_THREAD = "maven";
+
+	private final JsonWriter json = new JsonWriter(true);
+	private int processCount;
+	private boolean ended;
+
+	/**
+	 * Start a trace.
+	 */
+	public BuildTrace() {
+		json.beginObject()
+				.name("displayTimeUnit").value("ms")
+				.name("traceEvents").beginArray();
+	}
+
+	/**
+	 * Add mvnmin's phases, as the next process.
+	 * @param root the outermost phase
+	 * @return this instance.
+	 */
+	public BuildTrace withPhases(final Profiler.Phase root) {
+		Process process = startProcess(root.getName());
+		writePhase(process, root);
+		return this;
+	}
+
+	private void writePhase(final Process process, final Profiler.Phase phase) {
+		writeSpan(process, phase.getThread(), phase.getName(), "mvnmin", phase.getStartEpochMicros(),
+				Math.round(phase.getMillis() * MICROS_PER_MILLI));
+		json.name("args").beginObject();
+		phase.getCounts().forEach((name, amount) -> json.name(name).value(amount));
+		json.endObject().endObject();
+		phase.getChildren().forEach(child -> writePhase(process, child));
+	}
+
+	/**
+	 * Add the modules and mojos of a maven build, as the next process.
+	 *
+	 * Modules and mojos which started but didn't finish, because maven was stopped, are left out.
+	 * @param name the name of the process, such as the reactor's name
+	 * @param eventsFile the event log the mvnmin maven extension wrote during the build
+	 * @return this instance.
+	 * @throws IOException if the event log cannot be read
+	 */
+	public BuildTrace withMavenEvents(final String name, final Path eventsFile) throws IOException {
+		Process process = startProcess(name);
+		Map<String, BuildEventLog.Event> starts = new HashMap<>();
+		for (BuildEventLog.Event event : BuildEventLog.readEvents(eventsFile)) {
+			String key = event.getProject() + "\t" + event.getMojo();
+			switch (event.getType()) {
+				case BuildEventLog.PROJECT_STARTED:
+				case BuildEventLog.MOJO_STARTED:
+					starts.put(key, event);
+					break;
+				case BuildEventLog.PROJECT_SUCCEEDED:
+				case BuildEventLog.PROJECT_FAILED:
+					writeMavenSpan(process, starts.remove(key), event, "module", event.getProject());
+					json.name("args").beginObject()
+							.name("outcome").value(outcome(event))
+							.endObject().endObject();
+					break;
+				case BuildEventLog.MOJO_SUCCEEDED:
+				case BuildEventLog.MOJO_FAILED:
+					writeMavenSpan(process, starts.remove(key), event, "mojo", event.getMojo());
+					json.name("args").beginObject()
+							.name("module").value(event.getProject())
+							.name("outcome").value(outcome(event))
+							.endObject().endObject();
+					break;
+				case BuildEventLog.PROJECT_SKIPPED:
+					int tid = process.threadId(threadName(event));
+					json.beginObject()
+							.name("name").value(event.getProject())
+							.name("cat").value("module")
+							.name("ph").value("i")
+							.name("s").value("t")
+							.name("ts").value(event.getTimeMillis() * MICROS_PER_MILLI)
+							.name("pid").value(process.pid)
+							.name("tid").value(tid)
+							.name("args").beginObject().name("outcome").value("skipped").endObject()
+							.endObject();
+					break;
+				default:
+					break;
+			}
+		}
+		return this;
+	}
+
+	// Write the start of a span from a maven start and end event, leaving the caller to add the args and end the object.
+	// Without a start event, the span has no duration.
+	private void writeMavenSpan(final Process process, final BuildEventLog.Event start, final BuildEventLog.Event end,
+			final String category, final String name) {
+		long startMillis = start == null ? end.getTimeMillis() : start.getTimeMillis();
+		writeSpan(process, threadName(start == null ? end : start), name, category, startMillis * MICROS_PER_MILLI,
+				(end.getTimeMillis() - startMillis) * MICROS_PER_MILLI);
+	}
+
+	private static String outcome(final BuildEventLog.Event end) {
+		boolean succeeded = BuildEventLog.PROJECT_SUCCEEDED.equals(end.getType()) || BuildEventLog.MOJO_SUCCEEDED.equals(end.getType());
+		return succeeded ? "succeeded" : "failed";
+	}
+
+	private static String threadName(final BuildEventLog.Event event) {
+		return event.getThread().isEmpty() ? MAVEN_THREAD : event.getThread();
+	}
+
+	private void writeSpan(final Process process, final String thread, final String name, final String category,
+			final long startMicros, final long durationMicros) {
+		// a new thread's name is written before the span
+		int tid = process.threadId(thread);
+		json.beginObject()
+				.name("name").value(name)
+				.name("cat").value(category)
+				.name("ph").value("X")
+				.name("ts").value(startMicros)
+				.name("dur").value(durationMicros)
+				.name("pid").value(process.pid)
+				.name("tid").value(tid);
+	}
+
+	private Process startProcess(final String name) {
+		Process process = new Process(++processCount);
+		writeMetadata(process.pid, null, "process_name", name);
+		json.beginObject()
+				.name("name").value("process_sort_index")
+				.name("ph").value("M")
+				.name("pid").value(process.pid)
+				.name("args").beginObject().name("sort_index").value(process.pid).endObject()
+				.endObject();
+		return process;
+	}
+
+	private void writeMetadata(final int pid, final Integer tid, final String type, final String name) {
+		json.beginObject()
+				.name("name").value(type)
+				.name("ph").value("M")
+				.name("pid").value(pid);
+		if (tid != null) {
+			json.name("tid").value(tid);
+		}
+		json.name("args").beginObject().name("name").value(name).endObject()
+				.endObject();
+	}
+
+	/**
+	 * End the trace; nothing more can be added.
+	 * @return the trace, as a JSON document.
+	 */
+	public String toJson() {
+		if (!ended) {
+			json.endArray().endObject();
+			ended = true;
+		}
+		return json.toString();
+	}
+
+	/**
+	 * End the trace, and write it to a file.
+	 * @param file the file
+	 * @throws IOException if the file cannot be written
+	 */
+	public void write(final Path file) throws IOException {
+		if (file.getParent() != null) {
+			Files.createDirectories(file.getParent());
+		}
+		Files.write(file, toJson().getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * A process of the trace, and the ids given to its threads.
+	 */
+	private final class Process {
+		private final int pid;
+		private final Map<String, Integer> threadIds = new LinkedHashMap<>();
+
+		Process(final int pid) {
+			this.pid = pid;
+		}
+
+		int threadId(final String thread) {
+			Integer tid = threadIds.get(thread);
+			if (tid == null) {
+				tid = threadIds.size() + 1;
+				threadIds.put(thread, tid);
+				writeMetadata(pid, tid, "thread_name", thread);
+			}
+			return tid;
+		}
+	}
+}
@@ -0,0 +1,64 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.reactor;
+
+import org.apache.commons.exec.ExecuteWatchdog;
+
+/**
+ * A watchdog that allows an in-flight (or not yet started) maven process to be cancelled.
+ *
+ * Unlike ExecuteWatchdog.destroyProcess(), cancel() never blocks waiting for a process to start,
+ * so it is safe to call for reactors that are skipped or only dry-run.
+ */
+class CancellableWatchdog extends ExecuteWatchdog {
+
+	private Process process;
+	private boolean cancelled;
+
+	/**
+	 * Create a watchdog with no timeout.
+	 */
+	CancellableWatchdog() {
+		super(ExecuteWatchdog.INFINITE_TIMEOUT);
+	}
+
+	@Override
+	public synchronized void start(final Process processToMonitor) {
+		this.process = processToMonitor;
+		super.start(processToMonitor);
+		if (cancelled) {
+			processToMonitor.destroy();
+		}
+	}
+
+	/**
+	 * Cancel the monitored process, or prevent it running if it has not started yet.
+	 */
+	synchronized void cancel() {
+		cancelled = true;
+		if (process != null) {
+			process.destroy();
+		}
+	}
+
+	/**
+	 * @return true if cancel() has been called.
+	 */
+	synchronized boolean isCancelled() {
+		return cancelled;
+	}
+}
@@ -0,0 +1,222 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.reactor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.BooleanSupplier;
+
+import org.apache.commons.exec.CommandLine;
+import org.apache.commons.exec.ExecuteWatchdog;
+import org.apache.commons.exec.OS;
+
+import com.elasticpath.tools.mavenminimal.config.MvnMinConfigurationException;
+import com.elasticpath.tools.mavenminimal.util.Environment;
+import com.elasticpath.tools.mavenminimal.util.Logger;
+
+/**
+ * Runs maven inside the mvnmin JVM, with the MavenCli of a local maven installation.
+ *
+ * Maven's classes are loaded once, and one plexus container is kept for every reactor in the run (see WarmMavenCli),
+ * so only the first reactor pays for class loading, JIT warm-up, and loading the realms of its plugins.  Maven keeps
+ * its settings in JVM-wide state, such as the system properties and System.out, so reactors are built one at a time,
+ * across all the engines in the JVM, such as those of concurrent mvnmin sessions, and the state is restored after
+ * each reactor.  A cancelled reactor fails as its next module or mojo starts.
+ */
+public class EmbeddedMavenEngine implements MavenEngine {
+
+	private static final String[] CLASSPATH_FOLDERS = {"boot", "lib", "lib" + File.separator + "ext"};
+	private static final Object JVM_WIDE_LOCK = new Object();
+
+	private final Path mavenHome;
+	private URLClassLoader mavenLoader;
+	private WarmMavenCli mavenCli;
+
+	/**
+	 * @param mavenHome the folder maven is installed in
+	 */
+	public EmbeddedMavenEngine(final Path mavenHome) {
+		this.mavenHome = mavenHome;
+	}
+
+	/**
+	 * Create an engine for the maven installation found through the environment.
+	 * @return the engine
+	 * @throws MvnMinConfigurationException if no maven installation is found, or mvnmin is running as a native executable
+	 */
+	public static EmbeddedMavenEngine locate() {
+		if (System.getProperty("org.graalvm.nativeimage.imagecode") != null) {
+			// A native executable can't load classes at runtime, so it can't load maven
+			throw new MvnMinConfigurationException("--engine=embedded needs mvnmin's jar, it can't run in the native executable.");
+		}
+		return new EmbeddedMavenEngine(findMavenHome(Environment.getAll()));
+	}
+
+	/**
+	 * Find the maven installation from the MAVEN_HOME or M2_HOME variables, or else the mvn executable on the PATH.
+	 * @param environment the environment variables
+	 * @return the folder maven is installed in
+	 * @throws MvnMinConfigurationException if no maven installation is found
+	 */
+	static Path findMavenHome(final Map<String, String> environment) {
+		List<Path> candidates = new ArrayList<>();
+		for (String variable : new String[] {"MAVEN_HOME", "M2_HOME"}) {
+			if (environment.get(variable) != null) {
+				candidates.add(Paths.get(environment.get(variable)));
+			}
+		}
+		String path = environment.get("PATH");
+		if (path != null) {
+			String executable = OS.isFamilyWindows() ? "mvn.cmd" : "mvn";
+			for (String folder : path.split(File.pathSeparator)) {
+				Path mvn = Paths.get(folder, executable);
+				if (Files.isRegularFile(mvn)) {
+					try {
+						// mvn is often a symlink, such as /usr/bin/mvn -> /usr/share/maven/bin/mvn
+						candidates.add(mvn.toRealPath().getParent().getParent());
+					} catch (IOException e) {
+						Logger.debug("Failed to resolve " + mvn, e);
+					}
+				}
+			}
+		}
+
+		for (Path candidate : candidates) {
+			if (Files.isDirectory(candidate.resolve("lib")) && Files.isDirectory(candidate.resolve("boot"))) {
+				return candidate;
+			}
+		}
+		throw new MvnMinConfigurationException("Unable to find a maven installation for the embedded engine, set MAVEN_HOME.");
+	}
+
+	@Override
+	public int execute(final Reactor reactor, final CommandLine command, final ReactorOutput output,
+			final ExecuteWatchdog watchdog) throws IOException {
+		BooleanSupplier cancelled = watchdog instanceof CancellableWatchdog ? ((CancellableWatchdog) watchdog)::isCancelled : () -> false;
+		synchronized (JVM_WIDE_LOCK) {
+			if (cancelled.getAsBoolean()) {
+				throw new IOException("The build of " + reactor.getReactorName() + " was cancelled before maven started");
+			}
+			String workingDirectory = Paths.get("").toAbsolutePath().toString();
+			String[] args = Arrays.stream(command.getArguments())
+					.map(String::trim)
+					.filter(arg -> !arg.isEmpty())
+					.toArray(String[]::new);
+
+			Properties systemProperties = (Properties) System.getProperties().clone();
+			PrintStream systemOut = System.out;
+			PrintStream systemErr = System.err;
+			Thread thread = Thread.currentThread();
+			ClassLoader previousClassLoader = thread.getContextClassLoader();
+			PrintStream stdout = new PrintStream(output.getStdout(), true, "UTF-8");
+			PrintStream stderr = new PrintStream(output.getStderr(), true, "UTF-8");
+			try {
+				System.setProperty("maven.home", mavenHome.toString());
+				System.setProperty("maven.conf", mavenHome.resolve("conf").toString());
+				System.setProperty("maven.multiModuleProjectDirectory", workingDirectory);
+				System.setOut(stdout);
+				System.setErr(stderr);
+				WarmMavenCli cli = getMavenCli();
+				thread.setContextClassLoader(mavenLoader);
+				return cli.run(args, workingDirectory, stderr, cancelled);
+			} catch (ReflectiveOperationException e) {
+				throw new IOException("Failed to run maven from " + mavenHome, e);
+			} finally {
+				// maven sets its user properties (-D) as system properties too
+				System.setProperties(systemProperties);
+				System.setOut(systemOut);
+				System.setErr(systemErr);
+				thread.setContextClassLoader(previousClassLoader);
+				stdout.flush();
+				stderr.flush();
+			}
+		}
+	}
+
+	@Override
+	public boolean supportsConcurrentReactors() {
+		return false;
+	}
+
+	@Override
+	public void close() {
+		synchronized (JVM_WIDE_LOCK) {
+			if (mavenCli != null) {
+				mavenCli.dispose();
+				mavenCli = null;
+			}
+			if (mavenLoader != null) {
+				try {
+					mavenLoader.close();
+				} catch (IOException e) {
+					Logger.debug("Failed to close the maven class loader", e);
+				}
+				mavenLoader = null;
+			}
+		}
+	}
+
+	/**
+	 * @return how many plexus containers the engine has created, one for the run if the reactors shared it.
+	 */
+	int getContainersCreated() {
+		return mavenCli == null ? 0 : mavenCli.getContainersCreated();
+	}
+
+	private WarmMavenCli getMavenCli() throws IOException {
+		if (mavenCli == null) {
+			Logger.debug("Loading maven from " + mavenHome);
+			// Maven's classes must not see mvnmin's, so share only the JDK's platform classes
+			mavenLoader = new URLClassLoader(findMavenJars(), ClassLoader.getSystemClassLoader().getParent());
+			mavenCli = new WarmMavenCli(mavenLoader);
+		}
+		return mavenCli;
+	}
+
+	private URL[] findMavenJars() throws IOException {
+		List<URL> jars = new ArrayList<>();
+		// As in maven's bin/m2.conf, the logging configuration is loaded from the classpath
+		jars.add(mavenHome.resolve("conf").resolve("logging").toUri().toURL());
+		for (String folder : CLASSPATH_FOLDERS) {
+			Path jarFolder = mavenHome.resolve(folder);
+			if (!Files.isDirectory(jarFolder)) {
+				continue;
+			}
+			List<Path> folderJars = new ArrayList<>();
+			try (DirectoryStream<Path> stream = Files.newDirectoryStream(jarFolder, "*.jar")) {
+				stream.forEach(folderJars::add);
+			}
+			folderJars.sort(null);
+			for (Path jar : folderJars) {
+				jars.add(jar.toUri().toURL());
+			}
+		}
+		return jars.toArray(new URL[0]);
+	}
+}
@@ -19,6 +19,7 @@ package com.elasticpath.tools.mavenminimal.reactor;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.OptionalLong;
 import java.util.Set;
 
 import com.elasticpath.tools.mavenminimal.config.XmlMvnMinConfig;
@@ -29,6 +30,7 @@ public class ExtendedReactor {
 	private final List<Reactor> subReactorsToBuild;
 	private final Set<String> modulesToBuild;
 	private final XmlMvnMinConfig mvnMinConfig;
+	private final Set<String> buildIfModules = new HashSet<>();
 
 	/**
 	 * @param mvnMinConfig The hints to drive the reactor differently.
@@ -57,6 +59,56 @@ public class ExtendedReactor {
 		return modulesToBuild;
 	}
 
+	/**
+	 * @return the modules the build-ifs added, which weren't otherwise requested.
+	 */
+	public Set<String> getBuildIfModules() {
+		return buildIfModules;
+	}
+
+	/**
+	 * @return the modules the subreactors will build.
+	 */
+	public Set<String> getActiveModules() {
+		Set<String> activeModules = new HashSet<>();
+		subReactorsToBuild.forEach(reactor -> activeModules.addAll(reactor.getActiveModules()));
+		return activeModules;
+	}
+
+	/**
+	 * Build only some of the modules, such as those of a shard.
+	 * @param modules the modules to keep building
+	 */
+	public void retainModules(final Set<String> modules) {
+		modulesToBuild.retainAll(modules);
+		for (Reactor reactor : subReactorsToBuild) {
+			Set<String> dropped = new HashSet<>(reactor.getActiveModules());
+			dropped.removeAll(modules);
+			reactor.removeActiveModules(dropped);
+		}
+	}
+
+	/**
+	 * Estimate how long building the subreactors one after the other will take, from the history of previous builds.
+	 * @param buildHistory the history of previous builds
+	 * @return the estimated milliseconds, if there are subreactors to build, and every one has been built before.
+	 */
+	public OptionalLong estimateBuildMillis(final BuildHistory buildHistory) {
+		long total = 0;
+		boolean anyToBuild = false;
+		for (Reactor reactor : subReactorsToBuild) {
+			if (reactor.shouldBuild()) {
+				OptionalLong expected = buildHistory.expectedReactorMillis(reactor);
+				if (!expected.isPresent()) {
+					return OptionalLong.empty();
+				}
+				total += expected.getAsLong();
+				anyToBuild = true;
+			}
+		}
+		return anyToBuild ? OptionalLong.of(total) : OptionalLong.empty();
+	}
+
 	private Set<String> determineModulesToBuild(final List<ModuleRequests> moduleRequests, final boolean buildIfEnabled) {
 		Set<String> modulesToBuild = new HashSet<>();
 
@@ -64,7 +116,9 @@ public class ExtendedReactor {
 		moduleRequests.forEach(m -> modulesToBuild.removeAll(m.getDisabledProjects()));
 
 		if (buildIfEnabled) {
-			modulesToBuild.addAll(mvnMinConfig.determineBuildIfProjects(modulesToBuild));
+			buildIfModules.addAll(mvnMinConfig.determineBuildIfProjects(modulesToBuild));
+			buildIfModules.removeAll(modulesToBuild);
+			modulesToBuild.addAll(buildIfModules);
 		}
 
 		// Some modules can break the reactor  (Needs fixing, or needs some 'additionalProjects" glue and some explaining)
@@ -0,0 +1,69 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.reactor;
+
+import static com.elasticpath.tools.mavenminimal.util.StringUtil.defaultString;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.exec.CommandLine;
+import org.apache.commons.exec.DefaultExecutor;
+import org.apache.commons.exec.ExecuteWatchdog;
+import org.apache.commons.exec.PumpStreamHandler;
+
+import com.elasticpath.tools.mavenminimal.util.Environment;
+import com.elasticpath.tools.mavenminimal.util.Logger;
+
+/**
+ * Runs maven as a separate process (and so a new JVM) for each reactor.  This is mvnmin's default engine.
+ */
+public class ForkedMavenEngine implements MavenEngine {
+
+	@Override
+	public int execute(final Reactor reactor, final CommandLine command, final ReactorOutput output, final ExecuteWatchdog watchdog)
+			throws IOException {
+		DefaultExecutor executor = new DefaultExecutor();
+		executor.setWatchdog(watchdog);
+		executor.setStreamHandler(new PumpStreamHandler(output.getStdout(), output.getStderr()));
+		return executor.execute(command, createCustomizedSubProcessEnvironment(reactor));
+	}
+
+	@Override
+	public boolean supportsConcurrentReactors() {
+		return true;
+	}
+
+	/**
+	 * @param reactor the reactor the process is started for
+	 * @return the environment of the maven process
+	 */
+	Map<String, String> createCustomizedSubProcessEnvironment(final Reactor reactor) {
+		Map<String, String> subprocessEnv = new HashMap<>(Environment.getAll());
+		preserveTerminalColoring(subprocessEnv);
+		subprocessEnv.put(ReactorMemoryMonitor.MARKER_VARIABLE, ReactorMemoryMonitor.marker(reactor));
+		return subprocessEnv;
+	}
+
+	private static void preserveTerminalColoring(final Map<String, String> subProcessEnv) {
+		String mavenOpts = defaultString(subProcessEnv.get("MAVEN_OPTS"));
+		mavenOpts = mavenOpts.concat(" -Djansi.passthrough=true").trim();
+		Logger.debug("Running with MAVEN_OPTS = " + mavenOpts);
+		subProcessEnv.put("MAVEN_OPTS", mavenOpts);
+	}
+}
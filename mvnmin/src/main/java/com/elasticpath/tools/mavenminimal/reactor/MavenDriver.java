@@ -30,9 +30,11 @@ import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.commons.exec.CommandLine;
-import org.apache.commons.exec.DefaultExecutor;
 import org.apache.commons.exec.OS;
 
+import com.elasticpath.tools.mavenminimal.jfr.FlightRecording;
+import com.elasticpath.tools.mavenminimal.jfr.MavenProcessEvent;
+import com.elasticpath.tools.mavenminimal.util.Environment;
 import com.elasticpath.tools.mavenminimal.util.Logger;
 
 /**
@@ -66,6 +68,23 @@ public class MavenDriver {
 	public static int runMvnForReactor(
 			final Reactor reactor, final List<String> args, final String overrideMvnCommand,
 			final boolean dryRun, final ReactorPrinter printer) {
+		return runMvnForReactor(reactor, args, overrideMvnCommand, dryRun, printer, new ForkedMavenEngine(), new CancellableWatchdog());
+	}
+
+	/**
+	 * Runs maven for the specified reactor with an engine, allowing maven to be cancelled.
+	 * @param reactor the reactor to build
+	 * @param args command line arguments to consider when invoking maven.
+	 * @param overrideMvnCommand an override to use for a maven command
+	 * @param dryRun false to invoke maven, true to skip
+	 * @param printer the output printer
+	 * @param engine the engine to run maven with
+	 * @param watchdog the watchdog used to cancel the maven process
+	 * @return the exit status of the maven invocation (or zero if dryRun is true)
+	 */
+	static int runMvnForReactor(
+			final Reactor reactor, final List<String> args, final String overrideMvnCommand,
+			final boolean dryRun, final ReactorPrinter printer, final MavenEngine engine, final CancellableWatchdog watchdog) {
 		CommandLine command = determineMavenCommand(reactor, args, overrideMvnCommand);
 
 		printer.commandSummary(reactor, command);
@@ -74,22 +93,43 @@ public class MavenDriver {
 			return 0;
 		}
 
-		return executeMaven(command, printer);
+		return executeMaven(reactor, command, printer, engine, watchdog);
 	}
 
-	private static int executeMaven(final CommandLine command, final ReactorPrinter printer) {
-		DefaultExecutor executor = new DefaultExecutor();
+	private static int executeMaven(final Reactor reactor, final CommandLine command, final ReactorPrinter printer,
+			final MavenEngine engine, final CancellableWatchdog watchdog) {
+		ReactorOutput output;
 		try {
-			return executor.execute(command, createCustomizedSubProcessEnvironment());
+			output = printer.openReactorOutput(reactor);
+		} catch (IOException e) {
+			throw new IllegalStateException("Failed to open the output for reactor " + reactor.getReactorName(), e);
+		}
+
+		int exitValue = 1;
+		reactor.setFailedModule(null);
+		MavenProcessEvent event = FlightRecording.isEnabled() ? new MavenProcessEvent(reactor.getReactorName(),
+				engine.getClass().getSimpleName(), String.join(" ", command.toStrings()), reactor.getActiveModules().size()) : null;
+		try {
+			exitValue = engine.execute(reactor, command, output, watchdog);
+			if (exitValue != 0) {
+				reactor.setFailedModule(output.getResumeFrom());
+			}
 		} catch (IOException e) {
 			Logger.debug("Failed to execute maven", e);
-			if (e.getMessage().contains(command.getExecutable())) {
+			if (watchdog.isCancelled()) {
+				printer.commandCancelled(command.getExecutable());
+			} else if (e.getMessage().contains(command.getExecutable())) {
 				// Mentioning the executable in the exception likely
 				// means the command couldn't be found.
 				printer.commandNotExecutable(command.getExecutable());
 			}
+		} finally {
+			printer.reactorFinished(output, exitValue);
+			if (event != null) {
+				event.end(exitValue);
+			}
 		}
-		return 1;
+		return exitValue;
 	}
 
 	/**
@@ -100,7 +140,7 @@ public class MavenDriver {
 	 * @param overrideMvnCommand the mvn command to used (can be null)
 	 * @return the Maven command to execute
 	 */
-	private static CommandLine determineMavenCommand(final Reactor reactor, final List<String> inputArgs, final String overrideMvnCommand) {
+	public static CommandLine determineMavenCommand(final Reactor reactor, final List<String> inputArgs, final String overrideMvnCommand) {
 		AtomicReference<String> goal = new AtomicReference<>("");
 
 		List<String> mavenMinimalArguments = new ArrayList<>(inputArgs);
@@ -170,9 +210,15 @@ public class MavenDriver {
 		}
 	}
 
-	private static String determineMvnExecutable(final String overrideMvnCommand) {
+	/**
+	 * Determine the maven executable: the MVN_COMMAND environment variable, the maven-command in mvnmin.xml,
+	 * the maven wrapper, or mvn on the PATH, in that order.
+	 * @param overrideMvnCommand the mvn command configured in mvnmin.xml (can be null)
+	 * @return the maven executable
+	 */
+	public static String determineMvnExecutable(final String overrideMvnCommand) {
 		String mvnCommand;
-		String envOverrideMvnCommand = System.getenv(MVN_COMMAND_ENV_ARG);
+		String envOverrideMvnCommand = Environment.get(MVN_COMMAND_ENV_ARG);
 
 		if (envOverrideMvnCommand != null) {
 			mvnCommand = envOverrideMvnCommand;   // use environment variable override if specified
@@ -201,17 +247,4 @@ public class MavenDriver {
 		return commandExtension;
 	}
 
-	private static Map<String, String> createCustomizedSubProcessEnvironment() {
-		Map<String, String> subprocessEnv = new HashMap<>(System.getenv());
-		preserveTerminalColoring(subprocessEnv);
-		return subprocessEnv;
-	}
-
-	private static void preserveTerminalColoring(final Map<String, String> subProcessEnv) {
-		String mavenOpts = defaultString(subProcessEnv.get("MAVEN_OPTS"));
-		mavenOpts = mavenOpts.concat(" -Djansi.passthrough=true").trim();
-		Logger.debug("Running with MAVEN_OPTS = " + mavenOpts);
-		subProcessEnv.put("MAVEN_OPTS", mavenOpts);
-	}
-
 }
@@ -0,0 +1,51 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.reactor;
+
+import java.io.IOException;
+
+import org.apache.commons.exec.CommandLine;
+import org.apache.commons.exec.ExecuteWatchdog;
+
+/**
+ * Runs a maven command for a reactor, and reports its exit value.
+ */
+public interface MavenEngine {
+
+	/**
+	 * Run maven.
+	 * @param reactor the reactor being built
+	 * @param command the maven command, as it would be run from the shell
+	 * @param output the output to write maven's stdout and stderr to
+	 * @param watchdog the watchdog used to cancel maven, where the engine supports it
+	 * @return the exit value of maven
+	 * @throws IOException if maven could not be run
+	 */
+	int execute(Reactor reactor, CommandLine command, ReactorOutput output, ExecuteWatchdog watchdog) throws IOException;
+
+	/**
+	 * @return true if several reactors may be built with this engine at the same time.
+	 */
+	boolean supportsConcurrentReactors();
+
+	/**
+	 * Release what the engine kept between reactors, once the run's reactors have been built.
+	 */
+	default void close() {
+		// most engines keep nothing
+	}
+}
@@ -0,0 +1,106 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.reactor;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * How long maven took to build a single module, and each of the mojos it ran for the module.
+ */
+public class ModuleTiming {
+
+	/**
+	 * How the module's build ended.
+	 */
+	public enum Outcome {
+		/** The module built successfully. */
+		SUCCEEDED,
+		/** The module failed to build. */
+		FAILED,
+		/** Maven skipped the module, as a module it depends on failed. */
+		SKIPPED
+	}
+
+	private final String reactorName;
+	private final String module;
+	private final Outcome outcome;
+	private final long wallMillis;
+	private final Map<String, Long> mojoMillis;
+
+	/**
+	 * @param reactorName the name of the reactor the module was built in
+	 * @param module the module, as groupId:artifactId
+	 * @param outcome how the module's build ended
+	 * @param wallMillis the milliseconds from maven starting the module to finishing it
+	 * @param mojoMillis the milliseconds each mojo took, in the order they ran
+	 */
+	public ModuleTiming(final String reactorName, final String module, final Outcome outcome, final long wallMillis,
+			final Map<String, Long> mojoMillis) {
+		this.reactorName = reactorName;
+		this.module = module;
+		this.outcome = outcome;
+		this.wallMillis = wallMillis;
+		this.mojoMillis = Collections.unmodifiableMap(new LinkedHashMap<>(mojoMillis));
+	}
+
+	/**
+	 * @return the name of the reactor the module was built in.
+	 */
+	public String getReactorName() {
+		return reactorName;
+	}
+
+	/**
+	 * @return the module, as groupId:artifactId.
+	 */
+	public String getModule() {
+		return module;
+	}
+
+	/**
+	 * @return how the module's build ended.
+	 */
+	public Outcome getOutcome() {
+		return outcome;
+	}
+
+	/**
+	 * @return the milliseconds from maven starting the module to finishing it.
+	 */
+	public long getWallMillis() {
+		return wallMillis;
+	}
+
+	/**
+	 * @return the milliseconds each mojo took, keyed by "artifactId:goal (executionId)", in the order they ran.
+	 */
+	public Map<String, Long> getMojoMillis() {
+		return mojoMillis;
+	}
+
+	/**
+	 * @return the mojo which took the longest, if any ran.
+	 */
+	public Optional<String> getSlowestMojo() {
+		return mojoMillis.entrySet().stream()
+				.max(Map.Entry.comparingByValue())
+				.map(Map.Entry::getKey);
+	}
+}
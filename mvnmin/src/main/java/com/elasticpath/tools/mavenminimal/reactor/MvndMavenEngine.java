@@ -0,0 +1,240 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.reactor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.regex.Pattern;
+
+import org.apache.commons.exec.CommandLine;
+import org.apache.commons.exec.DefaultExecutor;
+import org.apache.commons.exec.ExecuteWatchdog;
+import org.apache.commons.exec.PumpStreamHandler;
+
+import com.elasticpath.tools.mavenminimal.util.Digests;
+import com.elasticpath.tools.mavenminimal.util.Environment;
+import com.elasticpath.tools.mavenminimal.util.Logger;
+import com.elasticpath.tools.mavenminimal.util.StateDirectory;
+
+/**
+ * Runs maven through the maven daemon (mvnd), routing each reactor to a warm daemon from a small pool.
+ *
+ * The pool has a slot for each reactor that may run at the same time.  Each slot keeps its own daemon registry, so
+ * concurrent reactors never queue for the same daemon, and a reactor returns to the slot it used last time, where the
+ * daemon has already loaded and JIT-compiled its plugins.  The pool is kept per JDK and .mvn/jvm.config, as a daemon
+ * only serves builds with the JVM settings it was started with.
+ */
+public class MvndMavenEngine extends ForkedMavenEngine {
+
+	private static final Pattern IDLE_DAEMON = Pattern.compile("\\bidle\\b", Pattern.CASE_INSENSITIVE);
+	private static final Pattern THREADING_FLAG = Pattern.compile("-T.*|--threads.*");
+	private static final long STATUS_TIMEOUT_MILLIS = 10_000;
+	private static final int POOL_KEY_LENGTH = 12;
+
+	private final String mvndCommand;
+	private final int poolSize;
+	private final int threadsPerReactor;
+	private final Path poolFolder;
+	private final Path slotHistoryFile;
+	private final Properties slotHistory = new Properties();
+	private final BitSet slotsInUse = new BitSet();
+	private final Map<Reactor, Integer> reactorSlots = new HashMap<>();
+
+	/**
+	 * @param mvndCommand the mvnd executable
+	 * @param poolSize the number of daemons to pool, which is the most reactors that may build at the same time
+	 * @param availableCpus the CPUs to share between the daemons
+	 * @param poolFolder the folder to keep the daemon registries of the pool in
+	 * @param slotHistoryFile the file to remember the slot each reactor used in
+	 */
+	MvndMavenEngine(final String mvndCommand, final int poolSize, final int availableCpus, final Path poolFolder,
+			final Path slotHistoryFile) {
+		this.mvndCommand = mvndCommand;
+		this.poolSize = Math.max(1, poolSize);
+		this.threadsPerReactor = Math.max(1, availableCpus / this.poolSize);
+		this.poolFolder = poolFolder;
+		this.slotHistoryFile = slotHistoryFile;
+		if (Files.isReadable(slotHistoryFile)) {
+			try (Reader reader = Files.newBufferedReader(slotHistoryFile, StandardCharsets.UTF_8)) {
+				slotHistory.load(reader);
+			} catch (IOException | IllegalArgumentException e) {
+				Logger.debug("Ignoring unreadable mvnd slot history " + slotHistoryFile, e);
+			}
+		}
+	}
+
+	/**
+	 * Create an engine for the mvnd found through the environment, with a pool for the current JDK and jvm.config.
+	 * @param mvndCommand the mvnd executable, or null to find it from MVND_HOME, or else the PATH
+	 * @param poolSize the most reactors that may build at the same time
+	 * @param availableCpus the CPUs to share between the daemons
+	 * @return the engine
+	 */
+	public static MvndMavenEngine locate(final String mvndCommand, final int poolSize, final int availableCpus) {
+		String command = mvndCommand;
+		if (command == null) {
+			command = "mvnd";
+			String mvndHome = Environment.get("MVND_HOME");
+			if (mvndHome != null && Files.isRegularFile(Paths.get(mvndHome, "bin", "mvnd"))) {
+				command = Paths.get(mvndHome, "bin", "mvnd").toString();
+			}
+		}
+		String javaHome = Environment.get("JAVA_HOME") == null ? System.getProperty("java.home") : Environment.get("JAVA_HOME");
+		String poolKey = poolKey(javaHome, Paths.get(".mvn", "jvm.config"));
+		Path poolFolder = Paths.get(System.getProperty("user.home"), ".m2", "mvnd", "mvnmin", poolKey);
+		return new MvndMavenEngine(command, poolSize, availableCpus, poolFolder, StateDirectory.resolve("mvnd-slots.properties"));
+	}
+
+	/**
+	 * @param command a maven command
+	 * @return true if the command is mvnd
+	 */
+	public static boolean isMvnd(final String command) {
+		return command != null && Paths.get(command).getFileName().toString().matches("mvnd(\\.cmd|\\.exe|\\.sh)?");
+	}
+
+	/**
+	 * @param javaHome the JDK the daemons run on
+	 * @param jvmConfig the project's .mvn/jvm.config, which may not exist
+	 * @return a short key for the JDK and JVM settings, to name the pool after
+	 */
+	static String poolKey(final String javaHome, final Path jvmConfig) {
+		String settings = javaHome;
+		if (Files.isReadable(jvmConfig)) {
+			try {
+				settings += "\n" + new String(Files.readAllBytes(jvmConfig), StandardCharsets.UTF_8).trim();
+			} catch (IOException e) {
+				Logger.debug("Failed to read " + jvmConfig, e);
+			}
+		}
+		return Digests.sha256Hex(settings).substring(0, POOL_KEY_LENGTH);
+	}
+
+	@Override
+	public int execute(final Reactor reactor, final CommandLine command, final ReactorOutput output, final ExecuteWatchdog watchdog)
+			throws IOException {
+		int slot = acquireSlot(reactor);
+		try {
+			Path daemonStorage = poolFolder.resolve("slot-" + slot);
+			boolean warm = hasIdleDaemon(daemonStorage);
+			Logger.debug("Reactor " + reactor.getReactorName() + " uses mvnd slot " + slot + (warm ? " (warm)" : " (cold)"));
+			output.line(String.format("[mvnmin] Building with %s mvnd daemon from slot %d", warm ? "a warm" : "a cold", slot));
+			return super.execute(reactor, mvndCommand(command, daemonStorage), output, watchdog);
+		} finally {
+			releaseSlot(reactor);
+		}
+	}
+
+	/**
+	 * Rewrite a maven command to run with mvnd, using a daemon from the pool.
+	 * @param command the maven command
+	 * @param daemonStorage the daemon registry folder of the slot to use
+	 * @return the mvnd command
+	 */
+	CommandLine mvndCommand(final CommandLine command, final Path daemonStorage) {
+		CommandLine mvnd = new CommandLine(mvndCommand);
+		mvnd.addArguments(command.getArguments(), false);
+		mvnd.addArgument("-Dmvnd.daemonStorage=" + daemonStorage.toAbsolutePath(), false);
+		// mvnmin prefixes and logs maven's output line by line, so it must not be multiplexed into mvnd's rich display
+		mvnd.addArgument("--raw-streams", false);
+		// mvnd defaults to all but one CPU per build, which oversubscribes the CPUs when reactors build concurrently
+		if (Arrays.stream(command.getArguments()).noneMatch(arg -> THREADING_FLAG.matcher(arg).matches())) {
+			mvnd.addArgument("-T" + threadsPerReactor, false);
+		}
+		return mvnd;
+	}
+
+	/**
+	 * Take a free slot for a reactor, preferring the slot the reactor used last time.
+	 * @param reactor the reactor about to build
+	 * @return the slot number
+	 */
+	synchronized int acquireSlot(final Reactor reactor) {
+		int slot = -1;
+		try {
+			slot = Integer.parseInt(slotHistory.getProperty(reactor.getReactorName(), "-1"));
+		} catch (NumberFormatException e) {
+			Logger.debug("Ignoring invalid slot for " + reactor.getReactorName(), e);
+		}
+		if (slot < 0 || slot >= poolSize || slotsInUse.get(slot)) {
+			slot = slotsInUse.nextClearBit(0);
+		}
+		slotsInUse.set(slot);
+		reactorSlots.put(reactor, slot);
+		slotHistory.setProperty(reactor.getReactorName(), String.valueOf(slot));
+		saveSlotHistory();
+		return slot;
+	}
+
+	/**
+	 * Return the slot of a reactor which has finished.
+	 * @param reactor the reactor which finished
+	 */
+	synchronized void releaseSlot(final Reactor reactor) {
+		Integer slot = reactorSlots.remove(reactor);
+		if (slot != null) {
+			slotsInUse.clear(slot);
+		}
+	}
+
+	private void saveSlotHistory() {
+		try {
+			Files.createDirectories(slotHistoryFile.toAbsolutePath().getParent());
+			try (Writer writer = Files.newBufferedWriter(slotHistoryFile, StandardCharsets.UTF_8)) {
+				slotHistory.store(writer, "The mvnd daemon slot last used by each reactor, maintained by mvnmin");
+			}
+		} catch (IOException e) {
+			Logger.debug("Failed to save mvnd slot history " + slotHistoryFile, e);
+		}
+	}
+
+	private boolean hasIdleDaemon(final Path daemonStorage) {
+		if (!Files.isDirectory(daemonStorage)) {
+			return false;
+		}
+		CommandLine status = new CommandLine(mvndCommand);
+		status.addArgument("--status", false);
+		status.addArgument("-Dmvnd.daemonStorage=" + daemonStorage.toAbsolutePath(), false);
+
+		ByteArrayOutputStream statusOutput = new ByteArrayOutputStream();
+		DefaultExecutor executor = new DefaultExecutor();
+		executor.setWatchdog(new ExecuteWatchdog(STATUS_TIMEOUT_MILLIS));
+		executor.setStreamHandler(new PumpStreamHandler(statusOutput));
+		executor.setExitValues(null);
+		try {
+			executor.execute(status);
+			return IDLE_DAEMON.matcher(statusOutput.toString(StandardCharsets.UTF_8.name())).find();
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		} catch (IOException e) {
+			Logger.debug("Failed to check the mvnd daemons in " + daemonStorage, e);
+			return false;
+		}
+	}
+}
@@ -19,6 +19,7 @@ package com.elasticpath.tools.mavenminimal.reactor;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 import java.util.regex.Pattern;
 
@@ -39,6 +40,10 @@ public class Reactor {
 	private final boolean singleThread;
 	private final String extraParams;
 	private final Set<String> activeModules = new HashSet<>();
+	private List<String> dependsOn;
+	private long memoryWeight;
+	private double cpuWeight;
+	private String failedModule;
 
 	/**
 	 * Creates a reactor instance.
@@ -100,6 +105,14 @@ public class Reactor {
 		}
 	}
 
+	/**
+	 * Stop building modules, such as those restored from the build cache.
+	 * @param modules the modules to no longer build
+	 */
+	public void removeActiveModules(final Set<String> modules) {
+		activeModules.removeAll(modules);
+	}
+
 	/**
 	 * Determine if this Reactor currently has any active modules.  That is, is it worth building?
 	 * @return true if this consumed a module
@@ -136,6 +149,65 @@ public class Reactor {
 		return extraParams;
 	}
 
+	/**
+	 * @return the names of the reactors this Reactor depends on, or null if it depends on all reactors declared before it.
+	 */
+	public List<String> getDependsOn() {
+		return dependsOn;
+	}
+
+	/**
+	 * @param dependsOn the names of the reactors that must build successfully before this Reactor,
+	 *                  or null to depend on all reactors declared before it.
+	 */
+	public void setDependsOn(final List<String> dependsOn) {
+		this.dependsOn = dependsOn == null ? null : Collections.unmodifiableList(dependsOn);
+	}
+
+	/**
+	 * @return the bytes of memory this Reactor's maven process, and any processes it forks, are expected to use,
+	 *         or zero if unknown.
+	 */
+	public long getMemoryWeight() {
+		return memoryWeight;
+	}
+
+	/**
+	 * @param memoryWeight the bytes of memory this Reactor is expected to use, or zero if unknown.
+	 */
+	public void setMemoryWeight(final long memoryWeight) {
+		this.memoryWeight = Math.max(0, memoryWeight);
+	}
+
+	/**
+	 * @return the number of CPUs this Reactor is expected to keep busy, or zero if unknown.
+	 */
+	public double getCpuWeight() {
+		return cpuWeight;
+	}
+
+	/**
+	 * @param cpuWeight the number of CPUs this Reactor is expected to keep busy, or zero if unknown.
+	 */
+	public void setCpuWeight(final double cpuWeight) {
+		this.cpuWeight = Math.max(0, cpuWeight);
+	}
+
+	/**
+	 * @return the module maven reported the last build of this Reactor failed on, as maven's -rf option expects it,
+	 *         or null if the last build didn't fail on a module.
+	 */
+	public String getFailedModule() {
+		return failedModule;
+	}
+
+	/**
+	 * @param failedModule the module maven reported the build of this Reactor failed on, or null.
+	 */
+	public void setFailedModule(final String failedModule) {
+		this.failedModule = failedModule;
+	}
+
 	/**
 	 * @return the pattern that, if matched, would cause this Reactor to skip building
 	 */
@@ -162,6 +234,9 @@ public class Reactor {
 				.append("singleThread", singleThread)
 				.append("activeModules", activeModules)
 				.append("extraParams", extraParams)
+				.append("dependsOn", dependsOn)
+				.append("memoryWeight", memoryWeight)
+				.append("cpuWeight", cpuWeight)
 				.toString();
 	}
 
@@ -0,0 +1,208 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.reactor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.elasticpath.tools.mavenminimal.util.Logger;
+
+/**
+ * Samples the resident memory (RSS) of each reactor's maven process, and every process it forks, such as surefire,
+ * recording the peak seen for each reactor.
+ *
+ * The processes are found through Linux's /proc filesystem, by the marker variable MavenDriver adds to the
+ * environment of each maven process, which is inherited by anything maven forks.  On other platforms nothing is
+ * sampled.
+ */
+public class ReactorMemoryMonitor implements Closeable {
+
+	/**
+	 * The environment variable identifying the reactor a process belongs to.
+	 */
+	public static final String MARKER_VARIABLE = "MVNMIN_REACTOR_ID";
+
+	// Distinguishes the processes of this mvnmin from those of any other mvnmin running at the same time
+	private static final String RUN_ID = ManagementFactory.getRuntimeMXBean().getName().split("@")[0];
+
+	private static final long SAMPLE_INTERVAL_MILLIS = 2000;
+	private static final long BYTES_PER_KILOBYTE = 1024;
+	private static final Pattern VM_RSS = Pattern.compile("^VmRSS:\\s+(\\d+) kB", Pattern.MULTILINE);
+
+	private final Path procRoot;
+	private final byte[] markerPrefix;
+	private final Map<Integer, Long> peakRss = new ConcurrentHashMap<>();
+	private Thread samplerThread;
+	private volatile boolean closed;
+
+	/**
+	 * @param procRoot the folder the proc filesystem is mounted on
+	 * @param runId the run identifier in the marker variables of the processes to sample
+	 */
+	ReactorMemoryMonitor(final Path procRoot, final String runId) {
+		this.procRoot = procRoot;
+		this.markerPrefix = (MARKER_VARIABLE + "=" + runId + ":").getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * @return a monitor of the processes started by this mvnmin.
+	 */
+	public static ReactorMemoryMonitor system() {
+		return new ReactorMemoryMonitor(Paths.get("/proc"), RUN_ID);
+	}
+
+	/**
+	 * @param reactor the reactor a maven process is started for
+	 * @return the value of the marker variable for the reactor's processes
+	 */
+	public static String marker(final Reactor reactor) {
+		return RUN_ID + ":" + reactor.getReactorNumber();
+	}
+
+	/**
+	 * Start sampling in the background, if the platform supports it.
+	 */
+	public synchronized void start() {
+		if (samplerThread != null || !Files.isDirectory(procRoot.resolve("self"))) {
+			return;
+		}
+		samplerThread = new Thread(this::sampleUntilClosed, "mvnmin-memory");
+		samplerThread.setDaemon(true);
+		samplerThread.start();
+	}
+
+	/**
+	 * @param reactor the reactor to report on
+	 * @return the most resident memory the reactor's processes used at once, in bytes, or zero if it wasn't sampled.
+	 */
+	public long getPeakRss(final Reactor reactor) {
+		return peakRss.getOrDefault(reactor.getReactorNumber(), 0L);
+	}
+
+	/**
+	 * Stop sampling.
+	 */
+	@Override
+	public void close() {
+		Thread thread;
+		synchronized (this) {
+			closed = true;
+			thread = samplerThread;
+			samplerThread = null;
+		}
+		if (thread != null) {
+			thread.interrupt();
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private void sampleUntilClosed() {
+		while (!closed) {
+			sample();
+			try {
+				Thread.sleep(SAMPLE_INTERVAL_MILLIS);
+			} catch (InterruptedException e) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Add up the RSS of the marked processes of each reactor, and record any new peaks.
+	 */
+	void sample() {
+		Map<Integer, Long> rssByReactor = new HashMap<>();
+		try (DirectoryStream<Path> processes = Files.newDirectoryStream(procRoot, "[0-9]*")) {
+			for (Path process : processes) {
+				int reactorNumber = readReactorNumber(process);
+				if (reactorNumber >= 0) {
+					rssByReactor.merge(reactorNumber, readRss(process), Long::sum);
+				}
+			}
+		} catch (IOException e) {
+			Logger.debug("Failed to list processes in " + procRoot, e);
+			return;
+		}
+		rssByReactor.forEach((reactorNumber, rss) -> peakRss.merge(reactorNumber, rss, Math::max));
+	}
+
+	private int readReactorNumber(final Path process) {
+		byte[] environment;
+		try {
+			environment = Files.readAllBytes(process.resolve("environ"));
+		} catch (IOException e) {
+			// The process has exited, or belongs to another user
+			return -1;
+		}
+
+		// The environment is a sequence of NUL terminated NAME=value entries
+		int start = 0;
+		while (start < environment.length) {
+			int end = start;
+			while (end < environment.length && environment[end] != 0) {
+				end++;
+			}
+			if (startsWith(environment, start, end, markerPrefix)) {
+				int valueStart = start + markerPrefix.length;
+				try {
+					return Integer.parseInt(new String(environment, valueStart, end - valueStart, StandardCharsets.UTF_8));
+				} catch (NumberFormatException e) {
+					return -1;
+				}
+			}
+			start = end + 1;
+		}
+		return -1;
+	}
+
+	private static boolean startsWith(final byte[] bytes, final int start, final int end, final byte[] prefix) {
+		if (end - start < prefix.length) {
+			return false;
+		}
+		for (int x = 0; x < prefix.length; x++) {
+			if (bytes[start + x] != prefix[x]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static long readRss(final Path process) {
+		try {
+			String status = new String(Files.readAllBytes(process.resolve("status")), StandardCharsets.UTF_8);
+			Matcher matcher = VM_RSS.matcher(status);
+			return matcher.find() ? Long.parseLong(matcher.group(1)) * BYTES_PER_KILOBYTE : 0;
+		} catch (IOException e) {
+			return 0;
+		}
+	}
+}
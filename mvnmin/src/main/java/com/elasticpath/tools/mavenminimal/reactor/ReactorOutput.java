@@ -0,0 +1,167 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.reactor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.exec.LogOutputStream;
+
+import com.elasticpath.tools.mavenminimal.util.BufferedChannelWriter;
+import com.elasticpath.tools.mavenminimal.util.Logger;
+
+/**
+ * Collects the output of a single maven process, line by line, from both its stdout and stderr.
+ *
+ * Each line is written to the reactor's log file (if any), inspected to track the module currently building,
+ * and handed to the ReactorPrinter for display.
+ */
+public class ReactorOutput implements Closeable {
+
+	private static final Pattern ANSI_ESCAPE = Pattern.compile("\u001B\\[[;\\d]*[A-Za-z]");
+
+	// Maven 3.6+ starts each module with a line like: "[INFO] ------------< groupId:artifactId >------------"
+	private static final Pattern MODULE_HEADER = Pattern.compile("-+< (\\S+:\\S+) >-+");
+
+	// A failed build ends with the command to resume it, like: "[ERROR]   mvn <args> -rf :artifactId"
+	private static final Pattern RESUME_FROM = Pattern.compile("\\s-rf\\s+(\\S+)\\s*$");
+
+	private final Reactor reactor;
+	private final ReactorPrinter printer;
+	private final Path logFile;
+	private final BufferedChannelWriter log;
+	private final long startMillis = System.currentTimeMillis();
+	private final LineStream stdout = new LineStream();
+	private final LineStream stderr = new LineStream();
+	private volatile String currentModule = "";
+	private volatile String resumeFrom;
+
+	/**
+	 * Create the output for a reactor.
+	 * @param reactor the reactor being built
+	 * @param printer the printer to pass lines to
+	 * @param logFile the file to write all output to, or null for no log file
+	 * @throws IOException if the log file cannot be opened
+	 */
+	ReactorOutput(final Reactor reactor, final ReactorPrinter printer, final Path logFile) throws IOException {
+		this.reactor = reactor;
+		this.printer = printer;
+		this.logFile = logFile;
+		this.log = logFile == null ? null : new BufferedChannelWriter(logFile);
+	}
+
+	/**
+	 * @return the stream to pump the maven process' stdout to.
+	 */
+	public OutputStream getStdout() {
+		return stdout;
+	}
+
+	/**
+	 * @return the stream to pump the maven process' stderr to.
+	 */
+	public OutputStream getStderr() {
+		return stderr;
+	}
+
+	/**
+	 * @return the reactor this output is for.
+	 */
+	public Reactor getReactor() {
+		return reactor;
+	}
+
+	/**
+	 * @return the module maven most recently started building, or an empty string.
+	 */
+	public String getCurrentModule() {
+		return currentModule;
+	}
+
+	/**
+	 * @return the module maven suggested resuming the failed build from, or null if it hasn't.
+	 */
+	public String getResumeFrom() {
+		return resumeFrom;
+	}
+
+	/**
+	 * @return the number of milliseconds since the output was opened.
+	 */
+	public long getElapsedMillis() {
+		return System.currentTimeMillis() - startMillis;
+	}
+
+	/**
+	 * @return the log file, or null if the output isn't logged.
+	 */
+	public Path getLogFile() {
+		return logFile;
+	}
+
+	/**
+	 * Handle a line of output from the maven process.
+	 * @param line the line, without line terminators
+	 */
+	synchronized void line(final String line) {
+		String plainLine = ANSI_ESCAPE.matcher(line).replaceAll("");
+		Matcher moduleHeader = MODULE_HEADER.matcher(plainLine);
+		if (moduleHeader.find()) {
+			currentModule = moduleHeader.group(1);
+		}
+		Matcher resumeCommand = RESUME_FROM.matcher(plainLine);
+		if (resumeCommand.find()) {
+			resumeFrom = resumeCommand.group(1);
+		}
+
+		if (log != null) {
+			try {
+				log.writeLine(plainLine);
+			} catch (IOException e) {
+				Logger.debug("Failed to write to " + logFile, e);
+			}
+		}
+		printer.reactorLine(this, line);
+	}
+
+	/**
+	 * Process any partial lines still buffered, and close the log file.
+	 * @throws IOException if the log file could not be written
+	 */
+	@Override
+	public void close() throws IOException {
+		stdout.close();
+		stderr.close();
+		if (log != null) {
+			log.close();
+		}
+	}
+
+	/**
+	 * Splits a stream of bytes into lines.
+	 */
+	private class LineStream extends LogOutputStream {
+		@Override
+		protected void processLine(final String line, final int logLevel) {
+			line(line);
+		}
+	}
+}
@@ -0,0 +1,345 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.reactor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.exec.CommandLine;
+import org.fusesource.jansi.Ansi;
+
+import com.elasticpath.tools.mavenminimal.util.Logger;
+
+/**
+ * Prints mvnmin's reactor output.
+ *
+ * All output is queued and written by a single background thread, so slow terminals don't hold up the maven
+ * processes.  When several reactors build at once, each line of maven output can be prefixed with its reactor's
+ * name, or replaced entirely by a live status view of the running reactors.
+ */
+public class ReactorPrinter implements Closeable {
+
+	private static final Ansi.Color[] REACTOR_COLOURS = {
+			Ansi.Color.CYAN, Ansi.Color.GREEN, Ansi.Color.YELLOW, Ansi.Color.MAGENTA, Ansi.Color.BLUE, Ansi.Color.RED };
+	private static final long STATUS_REFRESH_MILLIS = 1000;
+	private static final long MILLIS_PER_SECOND = 1000;
+	private static final long SECONDS_PER_MINUTE = 60;
+
+	private final PrintStream out;
+
+	private final int maxReactorNameLength;
+
+	private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+	private final List<ReactorOutput> runningReactors = new CopyOnWriteArrayList<>();
+	private final Object closeMarker = new Object();
+	private Thread writerThread;
+	private int statusLinesDrawn;
+
+	private boolean prefixedOutput;
+	private boolean colour;
+	private boolean liveStatus;
+	private Path logDirectory;
+	private BuildHistory buildHistory;
+
+	/**
+	 * Create a new printer.
+	 * @param maxReactorNameLength the maximum number of characters of the reactor name to print out.
+	 * @param out the PrintStream to print to.
+	 */
+	public ReactorPrinter(final int maxReactorNameLength, final PrintStream out) {
+		this.maxReactorNameLength = maxReactorNameLength;
+		this.out = out;
+	}
+
+	/**
+	 * Prefix each line of maven output with the name of the reactor that produced it.
+	 * @return this instance.
+	 */
+	public ReactorPrinter withPrefixedOutput() {
+		prefixedOutput = true;
+		return this;
+	}
+
+	/**
+	 * Colour the reactor name prefixes and status view.
+	 * @return this instance.
+	 */
+	public ReactorPrinter withColour() {
+		colour = true;
+		return this;
+	}
+
+	/**
+	 * Show a live status view of the running reactors, instead of maven's output.
+	 * @return this instance.
+	 */
+	public ReactorPrinter withLiveStatus() {
+		liveStatus = true;
+		return this;
+	}
+
+	/**
+	 * Write the full output of each reactor to its own log file.
+	 * @param logDirectory the folder to write the log files into.
+	 * @return this instance.
+	 */
+	public ReactorPrinter withLogDirectory(final Path logDirectory) {
+		this.logDirectory = logDirectory;
+		return this;
+	}
+
+	/**
+	 * Show each running reactor's usual build time alongside its elapsed time in the live status view.
+	 * @param buildHistory the history of previous builds.
+	 * @return this instance.
+	 */
+	public ReactorPrinter withBuildHistory(final BuildHistory buildHistory) {
+		this.buildHistory = buildHistory;
+		return this;
+	}
+
+	/**
+	 * Output a newline.
+	 */
+	public void newline() {
+		print("");
+	}
+
+	/**
+	 * Print a human friendly summary of the command that would execute for the specified reactor.
+	 * @param reactor the reactor to summarize the command for
+	 * @param command the command to summarize
+	 */
+	public void commandSummary(final Reactor reactor, final CommandLine command) {
+		String action = reactor.shouldBuild() ? "RUN" : "SKIP";
+		Logger.debug(command);
+		print(
+				String.format("%-4.4s %s %-" + maxReactorNameLength + "s : %s",
+						action,
+						reactor.getReactorNumber(),
+						trim(reactor.getReactorName()),
+						String.join(" ", command.toStrings())));
+	}
+
+	/**
+	 * Report how long the build is expected to take.
+	 * @param expectedMillis the expected duration of the build
+	 */
+	public void expectedBuildTime(final long expectedMillis) {
+		print(String.format("Expected build time, from previous builds: %s", formatElapsed(expectedMillis)));
+	}
+
+	/**
+	 * Report that the maven command couldn't be executed.
+	 * @param command the name of the command that was attempted
+	 */
+	public void commandNotExecutable(final String command) {
+		print(String.format("Failed to execute '%s', either it couldn't be found, or it isn't executable.", command));
+	}
+
+	/**
+	 * Report that the maven command was cancelled, as another reactor failed.
+	 * @param command the name of the command that was cancelled
+	 */
+	public void commandCancelled(final String command) {
+		print(String.format("Cancelled '%s', as another reactor failed.", command));
+	}
+
+	/**
+	 * Report that a reactor failed, and is being built again.
+	 * @param reactor the reactor being retried
+	 * @param attempt the number of the attempt about to start
+	 * @param maxAttempts the most attempts which will be made
+	 */
+	public void retrying(final Reactor reactor, final int attempt, final int maxAttempts) {
+		print(String.format("%sfailed, retrying (attempt %d of %d): %s", prefix(reactor), attempt, maxAttempts,
+				String.join(",", reactor.getActiveModules())));
+	}
+
+	/**
+	 * Start collecting the output of a reactor's maven process.
+	 * @param reactor the reactor about to be built
+	 * @return the output to pump the maven process' streams to
+	 * @throws IOException if the reactor's log file cannot be created
+	 */
+	public ReactorOutput openReactorOutput(final Reactor reactor) throws IOException {
+		Path logFile = null;
+		if (logDirectory != null) {
+			Files.createDirectories(logDirectory);
+			String fileName = reactor.getReactorNumber() + "-" + reactor.getReactorName().replaceAll("[^\\w.-]", "_") + ".log";
+			logFile = logDirectory.resolve(fileName);
+		}
+		ReactorOutput output = new ReactorOutput(reactor, this, logFile);
+		runningReactors.add(output);
+		return output;
+	}
+
+	/**
+	 * Finish collecting the output of a reactor's maven process.
+	 * @param output the output opened for the reactor
+	 * @param exitValue the exit value of the maven process
+	 */
+	public void reactorFinished(final ReactorOutput output, final int exitValue) {
+		runningReactors.remove(output);
+		try {
+			output.close();
+		} catch (IOException e) {
+			Logger.debug("Failed to close the output of " + output.getReactor().getReactorName(), e);
+		}
+		if (output.getLogFile() != null) {
+			print(String.format("%s%s after %s, log: %s",
+					prefix(output.getReactor()),
+					exitValue == 0 ? "finished" : "FAILED",
+					formatElapsed(output.getElapsedMillis()),
+					output.getLogFile()));
+		}
+	}
+
+	/**
+	 * Print a line of maven output.
+	 * @param output the output of the reactor which produced the line
+	 * @param line the line of output
+	 */
+	void reactorLine(final ReactorOutput output, final String line) {
+		if (liveStatus) {
+			return;
+		}
+		print(prefixedOutput ? prefix(output.getReactor()) + line : line);
+	}
+
+	/**
+	 * Wait for all queued output to be printed.
+	 */
+	public void flush() {
+		CountDownLatch flushed = new CountDownLatch(1);
+		enqueue(flushed);
+		try {
+			flushed.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Print all queued output, and stop the background writer.
+	 */
+	@Override
+	public void close() {
+		flush();
+		synchronized (this) {
+			if (writerThread != null) {
+				queue.add(closeMarker);
+				try {
+					writerThread.join();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				writerThread = null;
+			}
+		}
+	}
+
+	private void print(final String line) {
+		enqueue(line);
+	}
+
+	private synchronized void enqueue(final Object item) {
+		if (writerThread == null) {
+			writerThread = new Thread(this::writeQueuedOutput, "mvnmin-printer");
+			writerThread.setDaemon(true);
+			writerThread.start();
+		}
+		queue.add(item);
+	}
+
+	private void writeQueuedOutput() {
+		try {
+			while (true) {
+				Object item = liveStatus ? queue.poll(STATUS_REFRESH_MILLIS, TimeUnit.MILLISECONDS) : queue.take();
+				if (item == closeMarker) {
+					clearStatus();
+					return;
+				} else if (item instanceof CountDownLatch) {
+					((CountDownLatch) item).countDown();
+				} else if (item != null) {
+					clearStatus();
+					out.println(item);
+				}
+				if (liveStatus && queue.isEmpty()) {
+					drawStatus();
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void drawStatus() {
+		clearStatus();
+		List<String> lines = new ArrayList<>();
+		for (ReactorOutput output : runningReactors) {
+			String elapsed = formatElapsed(output.getElapsedMillis());
+			if (buildHistory != null) {
+				OptionalLong expected = buildHistory.expectedReactorMillis(output.getReactor());
+				if (expected.isPresent()) {
+					elapsed += "/" + formatElapsed(expected.getAsLong());
+				}
+			}
+			lines.add(String.format("%s%s  %s", prefix(output.getReactor()), elapsed, output.getCurrentModule()));
+		}
+		lines.forEach(out::println);
+		out.flush();
+		statusLinesDrawn = lines.size();
+	}
+
+	private void clearStatus() {
+		if (statusLinesDrawn > 0) {
+			out.print(Ansi.ansi().cursorUpLine(statusLinesDrawn).eraseScreen(Ansi.Erase.FORWARD));
+			statusLinesDrawn = 0;
+		}
+	}
+
+	private String prefix(final Reactor reactor) {
+		String name = String.format("%-" + maxReactorNameLength + "s", trim(reactor.getReactorName()));
+		if (colour) {
+			Ansi.Color reactorColour = REACTOR_COLOURS[reactor.getReactorNumber() % REACTOR_COLOURS.length];
+			return Ansi.ansi().fg(reactorColour).a(name).reset().a(" | ").toString();
+		}
+		return name + " | ";
+	}
+
+	private static String formatElapsed(final long elapsedMillis) {
+		long seconds = elapsedMillis / MILLIS_PER_SECOND;
+		return String.format("%02d:%02d", seconds / SECONDS_PER_MINUTE, seconds % SECONDS_PER_MINUTE);
+	}
+
+	private String trim(final String input) {
+		return input.substring(0, Math.min(input.length(), maxReactorNameLength));
+	}
+
+}
@@ -0,0 +1,494 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.reactor;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.elasticpath.tools.mavenminimal.cache.BuildCache;
+import com.elasticpath.tools.mavenminimal.config.MvnMinConfigurationException;
+import com.elasticpath.tools.mavenminimal.util.Logger;
+import com.elasticpath.tools.mavenminimal.util.Pair;
+import com.elasticpath.tools.mavenminimal.util.Profiler;
+
+/**
+ * Runs the sub-reactors of an ExtendedReactor, honouring the dependencies declared between them.
+ *
+ * A reactor is started as soon as all the reactors it depends on have built successfully, with at most
+ * maxParallelReactors running at once.  A reactor without a declared depends-on list depends on every reactor
+ * declared before it, so with no depends-on attributes the reactors run in their declared order.
+ *
+ * The first reactor to fail stops any further reactors from starting, and cancels those still running.  cancel()
+ * does the same from another thread, such as when the client of an mvnmin server goes away.
+ *
+ * With a ResourceBudget, a ready reactor also waits until its memory and CPU weights fit alongside the reactors
+ * already running, and a later ready reactor which does fit may start before it.
+ */
+public class ReactorScheduler {
+
+	/**
+	 * The exit value of a build cancelled before all its reactors ran, as for a shell command interrupted by SIGINT.
+	 */
+	public static final int CANCELLED_EXIT_VALUE = 130;
+
+	private final List<Reactor> reactors;
+	private final Map<Reactor, Set<Reactor>> dependencies;
+	private final int maxParallelReactors;
+	private ThreadAllocator threadAllocator;
+	private ResourceBudget resourceBudget;
+	private BuildTimings buildTimings;
+	private BuildHistory buildHistory;
+	private BuildMetrics buildMetrics;
+	private BuildCache buildCache;
+	private BuildProgress buildProgress;
+	private int maxRetries;
+	private RetryLog retryLog;
+	private MavenEngine mavenEngine = new ForkedMavenEngine();
+	private final Set<CancellableWatchdog> watchdogs = ConcurrentHashMap.newKeySet();
+	private volatile boolean cancelled;
+
+	/**
+	 * Create a scheduler for the reactors.
+	 * @param reactors the reactors to run, in their declared order.
+	 * @param maxParallelReactors the maximum number of reactors to build at the same time.
+	 * @throws MvnMinConfigurationException if a reactor depends on an unknown reactor, or the dependencies form a cycle.
+	 */
+	public ReactorScheduler(final List<Reactor> reactors, final int maxParallelReactors) {
+		this.reactors = new ArrayList<>(reactors);
+		this.maxParallelReactors = Math.max(1, maxParallelReactors);
+		this.dependencies = resolveDependencies(this.reactors);
+		checkForCycles();
+	}
+
+	/**
+	 * Replace any maven thread count argument with one decided for each reactor as it starts.
+	 * @param threadAllocator decides the thread count of each reactor.
+	 * @return this instance.
+	 */
+	public ReactorScheduler withThreadAllocator(final ThreadAllocator threadAllocator) {
+		this.threadAllocator = threadAllocator;
+		return this;
+	}
+
+	/**
+	 * Run maven with an engine other than the default, which forks a maven process per reactor.
+	 * The engine must support concurrent reactors if maxParallelReactors is more than one.
+	 * @param mavenEngine the engine to run maven with.
+	 * @return this instance.
+	 */
+	public ReactorScheduler withMavenEngine(final MavenEngine mavenEngine) {
+		this.mavenEngine = mavenEngine;
+		return this;
+	}
+
+	/**
+	 * Record how long maven takes to build each module, through the mvnmin maven extension.
+	 * @param buildTimings adds the extension's arguments to each reactor's maven arguments.
+	 * @return this instance.
+	 */
+	public ReactorScheduler withBuildTimings(final BuildTimings buildTimings) {
+		this.buildTimings = buildTimings;
+		return this;
+	}
+
+	/**
+	 * Record how long each reactor takes to build, and when more than one reactor may run at once, start the reactors
+	 * which usually take longest first, so the short ones fill in around them.
+	 * @param buildHistory the history to record to, and order the reactors by.
+	 * @return this instance.
+	 */
+	public ReactorScheduler withBuildHistory(final BuildHistory buildHistory) {
+		this.buildHistory = buildHistory;
+		return this;
+	}
+
+	/**
+	 * Record how long each reactor takes to build, and its exit value, in the run's metrics.
+	 * @param buildMetrics the metrics to record to.
+	 * @return this instance.
+	 */
+	public ReactorScheduler withBuildMetrics(final BuildMetrics buildMetrics) {
+		this.buildMetrics = buildMetrics;
+		return this;
+	}
+
+	/**
+	 * Store the modules of each reactor which builds successfully in the build cache.
+	 * @param buildCache the cache to store the modules in.
+	 * @return this instance.
+	 */
+	public ReactorScheduler withBuildCache(final BuildCache buildCache) {
+		this.buildCache = buildCache;
+		return this;
+	}
+
+	/**
+	 * Record the outcome of each reactor, so a failed build can be resumed, and resume the reactors which failed before
+	 * from the module they failed on.
+	 * @param buildProgress the progress to record to, and resume from.
+	 * @return this instance.
+	 */
+	public ReactorScheduler withBuildProgress(final BuildProgress buildProgress) {
+		this.buildProgress = buildProgress;
+		return this;
+	}
+
+	/**
+	 * Build the modules of a reactor which failed again, along with the modules maven skipped because of the failure,
+	 * before failing the build.  Without build timings, which report each module's outcome, the reactor is resumed from
+	 * the module maven reports it failed on.
+	 * @param maxRetries the most times to retry a reactor.
+	 * @param retryLog the log to record each attempt to.
+	 * @return this instance.
+	 */
+	public ReactorScheduler withRetries(final int maxRetries, final RetryLog retryLog) {
+		this.maxRetries = maxRetries;
+		this.retryLog = retryLog;
+		return this;
+	}
+
+	/**
+	 * Only start reactors while their memory and CPU weights fit in the budget.
+	 * @param resourceBudget admits reactors to run.
+	 * @return this instance.
+	 */
+	public ReactorScheduler withResourceBudget(final ResourceBudget resourceBudget) {
+		this.resourceBudget = resourceBudget;
+		return this;
+	}
+
+	/**
+	 * Build all the reactors with maven.
+	 * @param args command line arguments to consider when invoking maven.
+	 * @param overrideMvnCommand an override to use for a maven command
+	 * @param dryRun false to invoke maven, true to skip
+	 * @param printer the output printer
+	 * @return zero if all reactors built successfully, otherwise the exit value of the first reactor to fail.
+	 */
+	public int run(final List<String> args, final String overrideMvnCommand, final boolean dryRun, final ReactorPrinter printer) {
+		return run((reactor, watchdog) -> {
+			boolean allocateThreads = threadAllocator != null && !reactor.isSingleThread() && reactor.shouldBuild();
+			List<String> reactorArgs = args;
+			if (allocateThreads) {
+				reactorArgs = withThreadCount(args, threadAllocator.allocate(reactor));
+			}
+			if (buildProgress != null && reactor.shouldBuild()) {
+				reactorArgs = buildProgress.withResumeArguments(reactor, reactorArgs);
+			}
+			try {
+				long startMillis = System.currentTimeMillis();
+				int exitValue = runMaven(reactor, reactorArgs, overrideMvnCommand, dryRun, printer, watchdog);
+				if (maxRetries > 0 && exitValue != 0 && reactor.shouldBuild() && !dryRun) {
+					exitValue = retryFailedModules(reactor, reactorArgs, overrideMvnCommand, printer, watchdog, exitValue);
+				}
+				long elapsedMillis = System.currentTimeMillis() - startMillis;
+				if (buildHistory != null && reactor.shouldBuild() && !dryRun) {
+					buildHistory.recordReactor(reactor, elapsedMillis, exitValue);
+				}
+				if (buildMetrics != null && reactor.shouldBuild() && !dryRun) {
+					buildMetrics.recordReactor(reactor, elapsedMillis, exitValue);
+				}
+				if (buildCache != null && reactor.shouldBuild() && exitValue == 0 && !dryRun) {
+					buildCache.store(reactor);
+				}
+				if (buildProgress != null && !dryRun) {
+					buildProgress.recordReactor(reactor, exitValue);
+				}
+				printer.newline();
+				return exitValue;
+			} finally {
+				if (allocateThreads) {
+					threadAllocator.release(reactor);
+				}
+			}
+		});
+	}
+
+	private int runMaven(final Reactor reactor, final List<String> args, final String overrideMvnCommand, final boolean dryRun,
+			final ReactorPrinter printer, final CancellableWatchdog watchdog) {
+		List<String> reactorArgs = args;
+		if (buildTimings != null && reactor.shouldBuild()) {
+			reactorArgs = buildTimings.withEventArguments(reactor, reactorArgs);
+		}
+		try (Profiler.Phase phase = Profiler.start("maven " + reactor.getReactorName())) {
+			phase.count("modules", reactor.getActiveModules().size());
+			return MavenDriver.runMvnForReactor(reactor, reactorArgs, overrideMvnCommand, dryRun, printer, mavenEngine, watchdog);
+		}
+	}
+
+	/**
+	 * Build the failed modules of a reactor again, until they pass or the retries run out.
+	 *
+	 * The modules which built are found from the build timings, and only the others are built again.  Without build
+	 * timings, maven resumes the reactor from the module it reports it failed on.  The reactor's active modules are
+	 * restored afterwards.
+	 * @param reactor the reactor which failed
+	 * @param args the maven arguments for the reactor
+	 * @param overrideMvnCommand an override to use for a maven command
+	 * @param printer the output printer
+	 * @param watchdog the watchdog used to cancel the maven process
+	 * @param firstExitValue the exit value of the first attempt
+	 * @return the exit value of the last attempt
+	 */
+	private int retryFailedModules(final Reactor reactor, final List<String> args, final String overrideMvnCommand,
+			final ReactorPrinter printer, final CancellableWatchdog watchdog, final int firstExitValue) {
+		Set<String> plannedModules = new HashSet<>(reactor.getActiveModules());
+		List<String> argsWithoutResume = withoutResumeFrom(args);
+		int exitValue = firstExitValue;
+		int attempt = 1;
+		try {
+			while (true) {
+				List<ModuleTiming> timings = buildTimings == null ? null : buildTimings.latest(reactor);
+				Set<String> failedModules = exitValue == 0 ? new HashSet<>() : failedModules(reactor, timings);
+				retryLog.recordAttempt(reactor, attempt, exitValue, failedModules);
+				if (exitValue == 0 || attempt > maxRetries || watchdog.isCancelled()) {
+					return exitValue;
+				}
+
+				List<String> retryArgs = argsWithoutResume;
+				if (timings != null) {
+					Set<String> builtModules = new HashSet<>();
+					timings.stream()
+							.filter(timing -> timing.getOutcome() == ModuleTiming.Outcome.SUCCEEDED)
+							.forEach(timing -> builtModules.add(timing.getModule()));
+					if (!builtModules.containsAll(reactor.getActiveModules())) {
+						reactor.removeActiveModules(builtModules);
+					}
+				} else if (reactor.getFailedModule() != null) {
+					retryArgs = new ArrayList<>(argsWithoutResume);
+					retryArgs.add("-rf");
+					retryArgs.add(reactor.getFailedModule());
+				}
+				attempt++;
+				printer.retrying(reactor, attempt, maxRetries + 1);
+				exitValue = runMaven(reactor, retryArgs, overrideMvnCommand, false, printer, watchdog);
+			}
+		} finally {
+			reactor.removeActiveModules(new HashSet<>(reactor.getActiveModules()));
+			reactor.consumeActiveModules(plannedModules);
+		}
+	}
+
+	private static Set<String> failedModules(final Reactor reactor, final List<ModuleTiming> timings) {
+		Set<String> failedModules = new HashSet<>();
+		if (timings != null) {
+			timings.stream()
+					.filter(timing -> timing.getOutcome() == ModuleTiming.Outcome.FAILED)
+					.forEach(timing -> failedModules.add(timing.getModule()));
+		} else if (reactor.getFailedModule() != null) {
+			failedModules.add(reactor.getFailedModule());
+		}
+		return failedModules;
+	}
+
+	private static List<String> withoutResumeFrom(final List<String> args) {
+		List<String> reactorArgs = new ArrayList<>(args);
+		int resumeFromIndex = reactorArgs.indexOf("-rf");
+		if (resumeFromIndex > -1 && resumeFromIndex + 1 < reactorArgs.size()) {
+			reactorArgs.remove(resumeFromIndex);
+			reactorArgs.remove(resumeFromIndex);
+		}
+		return reactorArgs;
+	}
+
+	private static List<String> withThreadCount(final List<String> args, final int threads) {
+		List<String> reactorArgs = new ArrayList<>(args);
+		MavenDriver.removeThreadingFlags(reactorArgs);
+		reactorArgs.add("-T" + threads);
+		return reactorArgs;
+	}
+
+	/**
+	 * Run all the reactors with the provided invoker.
+	 * @param invoker invokes maven for a single reactor.
+	 * @return zero if all reactors ran successfully, otherwise the exit value of the first reactor to fail.
+	 */
+	int run(final ReactorInvoker invoker) {
+		ExecutorService executor = Executors.newFixedThreadPool(maxParallelReactors, runnable -> {
+			Thread thread = new Thread(runnable, "mvnmin-reactor");
+			thread.setDaemon(true);
+			return thread;
+		});
+		CompletionService<Pair<Reactor, Integer>> completionService = new ExecutorCompletionService<>(executor);
+
+		Set<Reactor> pending = new LinkedHashSet<>(reactors);
+		if (buildHistory != null && maxParallelReactors > 1) {
+			pending = new LinkedHashSet<>(slowestFirst(reactors, buildHistory));
+		}
+		Set<Reactor> succeeded = new HashSet<>();
+		Map<Reactor, CancellableWatchdog> running = new LinkedHashMap<>();
+		int exitValue = 0;
+
+		try {
+			while (!pending.isEmpty() || !running.isEmpty()) {
+				if (exitValue == 0 && !cancelled) {
+					startReadyReactors(pending, succeeded, running, completionService, invoker);
+				}
+				if (running.isEmpty()) {
+					break;
+				}
+
+				Pair<Reactor, Integer> result = takeResult(completionService);
+				watchdogs.remove(running.remove(result.getLeft()));
+				if (resourceBudget != null) {
+					resourceBudget.release(result.getLeft());
+				}
+				if (result.getRight() == 0) {
+					succeeded.add(result.getLeft());
+				} else if (exitValue == 0) {
+					exitValue = result.getRight();
+					Logger.debug("Reactor failed, cancelling running reactors: " + running.keySet());
+					running.values().forEach(CancellableWatchdog::cancel);
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		if (exitValue == 0 && cancelled && !pending.isEmpty()) {
+			exitValue = CANCELLED_EXIT_VALUE;
+		}
+		return exitValue;
+	}
+
+	/**
+	 * Stop a running build: no further reactors are started, and the running ones are cancelled.  Reactors built by
+	 * an engine which can't be cancelled run to completion.
+	 */
+	public void cancel() {
+		cancelled = true;
+		watchdogs.forEach(CancellableWatchdog::cancel);
+	}
+
+	private void startReadyReactors(final Set<Reactor> pending, final Set<Reactor> succeeded, final Map<Reactor, CancellableWatchdog> running,
+			final CompletionService<Pair<Reactor, Integer>> completionService, final ReactorInvoker invoker) {
+		for (Iterator<Reactor> iter = pending.iterator(); iter.hasNext() && running.size() < maxParallelReactors;) {
+			Reactor reactor = iter.next();
+			if (succeeded.containsAll(dependencies.get(reactor)) && (resourceBudget == null || resourceBudget.tryAdmit(reactor))) {
+				iter.remove();
+				CancellableWatchdog watchdog = new CancellableWatchdog();
+				running.put(reactor, watchdog);
+				watchdogs.add(watchdog);
+				if (cancelled) {
+					// cancel() may have run before the watchdog was added
+					watchdog.cancel();
+				}
+				completionService.submit(() -> Pair.of(reactor, invoker.invoke(reactor, watchdog)));
+			}
+		}
+	}
+
+	/**
+	 * Order the reactors by their usual build time, slowest first.  Reactors never built before come first, as they
+	 * may be slow.  Reactors with the same build time keep their order.
+	 * @param reactors the reactors to order
+	 * @param buildHistory the history of previous builds
+	 * @return the ordered reactors
+	 */
+	static List<Reactor> slowestFirst(final List<Reactor> reactors, final BuildHistory buildHistory) {
+		List<Reactor> ordered = new ArrayList<>(reactors);
+		ordered.sort(Comparator.comparingLong(
+				(Reactor reactor) -> buildHistory.expectedReactorMillis(reactor).orElse(Long.MAX_VALUE)).reversed());
+		return ordered;
+	}
+
+	private static Pair<Reactor, Integer> takeResult(final CompletionService<Pair<Reactor, Integer>> completionService) {
+		try {
+			Future<Pair<Reactor, Integer>> future = completionService.take();
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for maven", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Failed to run maven", e.getCause());
+		}
+	}
+
+	private static Map<Reactor, Set<Reactor>> resolveDependencies(final List<Reactor> reactors) {
+		Map<String, Reactor> reactorsByName = new HashMap<>();
+		reactors.forEach(reactor -> reactorsByName.put(reactor.getReactorName(), reactor));
+
+		Map<Reactor, Set<Reactor>> dependencies = new HashMap<>();
+		for (int x = 0; x < reactors.size(); x++) {
+			Reactor reactor = reactors.get(x);
+			Set<Reactor> reactorDependencies = new LinkedHashSet<>();
+			if (reactor.getDependsOn() == null) {
+				reactorDependencies.addAll(reactors.subList(0, x));
+			} else {
+				for (String reactorName : reactor.getDependsOn()) {
+					Reactor dependency = reactorsByName.get(reactorName);
+					if (dependency == null) {
+						throw new MvnMinConfigurationException("Reactor '" + reactor.getReactorName()
+								+ "' depends on unknown reactor '" + reactorName + "'");
+					}
+					reactorDependencies.add(dependency);
+				}
+			}
+			dependencies.put(reactor, reactorDependencies);
+		}
+		return dependencies;
+	}
+
+	private void checkForCycles() {
+		Set<Reactor> ordered = new HashSet<>();
+		boolean progress = true;
+		while (progress) {
+			progress = false;
+			for (Reactor reactor : reactors) {
+				if (!ordered.contains(reactor) && ordered.containsAll(dependencies.get(reactor))) {
+					ordered.add(reactor);
+					progress = true;
+				}
+			}
+		}
+
+		if (ordered.size() < reactors.size()) {
+			List<String> cyclicReactors = new ArrayList<>();
+			reactors.stream()
+					.filter(reactor -> !ordered.contains(reactor))
+					.forEach(reactor -> cyclicReactors.add(reactor.getReactorName()));
+			throw new MvnMinConfigurationException("Reactor dependencies form a cycle between: " + cyclicReactors);
+		}
+	}
+
+	/**
+	 * Invokes maven for a single reactor.
+	 */
+	interface ReactorInvoker {
+
+		/**
+		 * @param reactor the reactor to build.
+		 * @param watchdog the watchdog to attach to the maven process, so it can be cancelled.
+		 * @return the exit value of the maven invocation.
+		 */
+		int invoke(Reactor reactor, CancellableWatchdog watchdog);
+	}
+}
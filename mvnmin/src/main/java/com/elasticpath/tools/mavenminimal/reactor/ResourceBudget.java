@@ -0,0 +1,89 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.reactor;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.elasticpath.tools.mavenminimal.util.Pair;
+
+/**
+ * Admits reactors to run only while the memory and CPUs they are expected to use fit in the budget, so that
+ * concurrent reactors don't exhaust the container (and wake the OOM killer).
+ *
+ * A reactor's expected use is its memory and CPU weight; a reactor without weights always fits.  When nothing else is
+ * running, a reactor is admitted even if it exceeds the budget on its own, otherwise it could never run.
+ *
+ * The weights a reactor was admitted with are what is returned when it finishes, since the reactor's weights can
+ * change while it runs, such as when its skip-if pattern matches and it is skipped.
+ */
+public class ResourceBudget {
+
+	private final long memoryBudget;
+	private final double cpuBudget;
+	private final Map<Reactor, Pair<Long, Double>> admitted = new HashMap<>();
+	private long memoryInUse;
+	private double cpusInUse;
+
+	/**
+	 * @param memoryBudget the bytes of memory the running reactors may use between them.
+	 * @param cpuBudget the number of CPUs the running reactors may use between them.
+	 */
+	public ResourceBudget(final long memoryBudget, final double cpuBudget) {
+		this.memoryBudget = memoryBudget;
+		this.cpuBudget = cpuBudget;
+	}
+
+	/**
+	 * Admit a reactor, if its weights fit in what remains of the budget.
+	 * @param reactor the reactor about to start
+	 * @return true if the reactor was admitted, and may start
+	 */
+	public synchronized boolean tryAdmit(final Reactor reactor) {
+		long memory = memoryWeight(reactor);
+		double cpus = cpuWeight(reactor);
+		boolean fits = memoryInUse + memory <= memoryBudget && cpusInUse + cpus <= cpuBudget;
+		if (!fits && !admitted.isEmpty()) {
+			return false;
+		}
+		admitted.put(reactor, Pair.of(memory, cpus));
+		memoryInUse += memory;
+		cpusInUse += cpus;
+		return true;
+	}
+
+	/**
+	 * Return the budget used by a reactor that has finished.
+	 * @param reactor the reactor that finished
+	 */
+	public synchronized void release(final Reactor reactor) {
+		Pair<Long, Double> weights = admitted.remove(reactor);
+		if (weights != null) {
+			memoryInUse -= weights.getLeft();
+			cpusInUse -= weights.getRight();
+		}
+	}
+
+	// Skipped reactors don't start maven, so cost nothing
+	private static long memoryWeight(final Reactor reactor) {
+		return reactor.shouldBuild() ? reactor.getMemoryWeight() : 0;
+	}
+
+	private static double cpuWeight(final Reactor reactor) {
+		return reactor.shouldBuild() ? reactor.getCpuWeight() : 0;
+	}
+}
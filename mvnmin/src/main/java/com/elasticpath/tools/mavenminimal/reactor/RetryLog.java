@@ -0,0 +1,179 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.reactor;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.elasticpath.tools.mavenminimal.util.BufferedChannelWriter;
+import com.elasticpath.tools.mavenminimal.util.Logger;
+
+/**
+ * Records each attempt to build a reactor when failed modules are retried, so modules which fail and then pass
+ * without a change - usually because of flaky tests - can be reported.
+ *
+ * Attempts are appended to the retry log one per line, as tab separated fields: the time of the run in epoch
+ * milliseconds, the reactor name, the attempt number, the outcome, and the modules which failed, comma separated.
+ * Only the most recent attempts are kept.
+ */
+public class RetryLog {
+
+	private static final String FILE_NAME = "retries.tsv";
+	private static final String SEPARATOR = "\t";
+	private static final String MODULE_SEPARATOR = ",";
+	private static final int FIELD_COUNT = 5;
+	private static final int OUTCOME_FIELD = 3;
+	private static final int MODULES_FIELD = 4;
+	private static final int KEPT_LINES = 1000;
+
+	private final Path file;
+	private final long runMillis;
+	private final List<String> storedLines = new ArrayList<>();
+	private final List<String> newLines = new ArrayList<>();
+
+	/**
+	 * @param folder the folder the retry log is kept in
+	 * @param runMillis when this run started, in epoch milliseconds
+	 */
+	RetryLog(final Path folder, final long runMillis) {
+		this.file = folder.resolve(FILE_NAME);
+		this.runMillis = runMillis;
+		if (!Files.isReadable(file)) {
+			return;
+		}
+		try {
+			storedLines.addAll(Files.readAllLines(file, StandardCharsets.UTF_8));
+		} catch (IOException e) {
+			Logger.debug("Ignoring unreadable retry log " + file, e);
+		}
+	}
+
+	/**
+	 * Load the retry log.
+	 * @param folder the folder the retry log is kept in
+	 * @return the retry log, empty if there is none yet
+	 */
+	public static RetryLog load(final Path folder) {
+		return new RetryLog(folder, System.currentTimeMillis());
+	}
+
+	/**
+	 * Record an attempt to build a reactor in this run.
+	 * @param reactor the reactor built
+	 * @param attempt the attempt number, starting at one
+	 * @param exitValue maven's exit value
+	 * @param failedModules the modules which failed to build, if known
+	 */
+	public synchronized void recordAttempt(final Reactor reactor, final int attempt, final int exitValue, final Set<String> failedModules) {
+		ModuleTiming.Outcome outcome = exitValue == 0 ? ModuleTiming.Outcome.SUCCEEDED : ModuleTiming.Outcome.FAILED;
+		newLines.add(String.join(SEPARATOR, String.valueOf(runMillis), reactor.getReactorName(), String.valueOf(attempt),
+				outcome.name(), String.join(MODULE_SEPARATOR, new TreeSet<>(failedModules))));
+	}
+
+	/**
+	 * @return the modules which failed in this run, and then passed when their reactor was retried.
+	 */
+	public synchronized Set<String> findFlakyModules() {
+		Set<String> flakyModules = new TreeSet<>();
+		findFlakyModules(newLines).values().forEach(flakyModules::addAll);
+		return flakyModules;
+	}
+
+	/**
+	 * @param module a module
+	 * @return the number of recorded runs, including this one, in which the module failed and then passed when retried.
+	 */
+	public synchronized int countFlakyRuns(final String module) {
+		List<String> lines = new ArrayList<>(storedLines);
+		lines.addAll(newLines);
+		return (int) findFlakyModules(lines).values().stream()
+				.filter(modules -> modules.contains(module))
+				.count();
+	}
+
+	/**
+	 * Find the modules which failed and then passed, for each run and reactor.
+	 * @param lines the lines of the retry log, in the order they were recorded
+	 * @return the flaky modules, keyed by the run time and reactor name
+	 */
+	private static Map<String, Set<String>> findFlakyModules(final List<String> lines) {
+		Map<String, Set<String>> failedModules = new LinkedHashMap<>();
+		Map<String, Set<String>> flakyModules = new LinkedHashMap<>();
+		for (String line : lines) {
+			String[] fields = line.split(SEPARATOR, -1);
+			if (fields.length != FIELD_COUNT) {
+				Logger.debug("Ignoring malformed retry log line: " + line);
+				continue;
+			}
+			String key = fields[0] + SEPARATOR + fields[1];
+			if (ModuleTiming.Outcome.SUCCEEDED.name().equals(fields[OUTCOME_FIELD])) {
+				Set<String> failedBefore = failedModules.remove(key);
+				if (failedBefore != null && !failedBefore.isEmpty()) {
+					flakyModules.put(key, failedBefore);
+				}
+			} else if (!fields[MODULES_FIELD].isEmpty()) {
+				failedModules.computeIfAbsent(key, ignored -> new HashSet<>())
+						.addAll(Arrays.asList(fields[MODULES_FIELD].split(MODULE_SEPARATOR)));
+			}
+		}
+		return flakyModules;
+	}
+
+	/**
+	 * Append this run's attempts to the retry log, dropping the oldest attempts if the log has grown large.
+	 */
+	public synchronized void save() {
+		if (newLines.isEmpty()) {
+			return;
+		}
+		try {
+			Files.createDirectories(file.toAbsolutePath().getParent());
+			if (storedLines.size() + newLines.size() > KEPT_LINES) {
+				List<String> kept = new ArrayList<>(storedLines);
+				kept.addAll(newLines);
+				kept = kept.subList(kept.size() - KEPT_LINES, kept.size());
+				Path trimmed = file.resolveSibling(FILE_NAME + ".tmp");
+				Files.write(trimmed, kept, StandardCharsets.UTF_8);
+				Files.move(trimmed, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				storedLines.clear();
+				storedLines.addAll(kept);
+			} else {
+				try (BufferedChannelWriter writer = new BufferedChannelWriter(file, StandardOpenOption.APPEND)) {
+					for (String line : newLines) {
+						writer.writeLine(line);
+					}
+				}
+				storedLines.addAll(newLines);
+			}
+			newLines.clear();
+		} catch (IOException e) {
+			Logger.debug("Failed to save the retry log " + file, e);
+		}
+	}
+}
@@ -0,0 +1,185 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.reactor;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+import com.elasticpath.tools.mavenminimal.cache.ModuleIndex;
+import com.elasticpath.tools.mavenminimal.util.Digests;
+
+/**
+ * Splits the activated modules between several CI agents, each building one shard.
+ *
+ * Modules which depend on each other, directly or through their parent, are kept in the same shard, so every agent
+ * builds the upstream modules its shard needs.  The groups of connected modules are then dealt out largest first, each
+ * to the shard with the least work so far (longest processing time first), weighing each module by its usual build
+ * time.  Modules never built before weigh the average of those which have.  Ties are broken by module id.
+ *
+ * Every agent computes the same shards only from the same inputs, so the build times come from a history shared by
+ * the agents, rather than each agent's own; without one, every module weighs the same.  fingerprint() digests the
+ * inputs, for the agents to compare.
+ */
+public class ShardPlanner {
+
+	private static final long UNKNOWN_MODULE_MILLIS = 1;
+	private static final int FINGERPRINT_LENGTH = 12;
+
+	private final int shardCount;
+	private final Function<String, Collection<String>> upstreamModules;
+	private final Function<String, OptionalLong> expectedMillis;
+
+	/**
+	 * @param shardCount the number of shards to split the modules into
+	 * @param upstreamModules finds the modules a module depends on, including its parent
+	 * @param expectedMillis finds how long a module usually takes to build
+	 */
+	public ShardPlanner(final int shardCount, final Function<String, Collection<String>> upstreamModules,
+			final Function<String, OptionalLong> expectedMillis) {
+		this.shardCount = Math.max(1, shardCount);
+		this.upstreamModules = upstreamModules;
+		this.expectedMillis = expectedMillis;
+	}
+
+	/**
+	 * Plan shards from the poms of the project and a build history shared by the agents.
+	 * @param shardCount the number of shards to split the modules into
+	 * @param index the modules of the project
+	 * @param sharedHistory the history of previous builds, the same on every agent, or null to weigh every module the same
+	 * @return the planner
+	 */
+	public static ShardPlanner create(final int shardCount, final ModuleIndex index, final BuildHistory sharedHistory) {
+		Function<String, OptionalLong> expectedMillis = sharedHistory == null
+				? moduleId -> OptionalLong.empty()
+				: sharedHistory::expectedModuleMillis;
+		return new ShardPlanner(shardCount, index::upstreamOf, expectedMillis);
+	}
+
+	/**
+	 * Split the modules into shards.
+	 * @param modules the activated modules
+	 * @return the modules of each shard; a shard may be empty if there are fewer groups of connected modules than shards
+	 */
+	public List<Set<String>> partition(final Collection<String> modules) {
+		Map<String, Set<String>> groups = connectedGroups(modules);
+		Map<String, Long> weights = weigh(modules);
+
+		List<Set<String>> ordered = new ArrayList<>(groups.values());
+		Comparator<Set<String>> byWeight = Comparator.comparingLong(group -> weight(group, weights));
+		ordered.sort(byWeight.reversed().thenComparing(group -> group.iterator().next()));
+
+		List<Set<String>> shards = new ArrayList<>();
+		long[] loads = new long[shardCount];
+		for (int shard = 0; shard < shardCount; shard++) {
+			shards.add(new TreeSet<>());
+		}
+		for (Set<String> group : ordered) {
+			int lightest = 0;
+			for (int shard = 1; shard < shardCount; shard++) {
+				if (loads[shard] < loads[lightest]) {
+					lightest = shard;
+				}
+			}
+			shards.get(lightest).addAll(group);
+			loads[lightest] += weight(group, weights);
+		}
+		return shards;
+	}
+
+	/**
+	 * Digest the inputs of the partition - the shard count, and each module with its group and weight - so agents can
+	 * check they split the modules the same way.
+	 * @param modules the activated modules
+	 * @return the start of the SHA-256 of the inputs, in lowercase hexadecimal
+	 */
+	public String fingerprint(final Collection<String> modules) {
+		Map<String, Long> weights = weigh(modules);
+		StringBuilder inputs = new StringBuilder().append(shardCount).append('\n');
+		connectedGroups(modules).forEach((representative, group) -> group.forEach(module ->
+				inputs.append(module).append('\t').append(representative).append('\t').append(weights.get(module)).append('\n')));
+		return Digests.sha256Hex(inputs.toString()).substring(0, FINGERPRINT_LENGTH);
+	}
+
+	/**
+	 * Group the modules which depend on each other, through union-find over the dependencies between the modules.
+	 * @param modules the activated modules
+	 * @return the groups, each sorted, keyed by their first module
+	 */
+	private Map<String, Set<String>> connectedGroups(final Collection<String> modules) {
+		Set<String> sortedModules = new TreeSet<>(modules);
+		Map<String, String> representatives = new HashMap<>();
+		sortedModules.forEach(module -> representatives.put(module, module));
+		for (String module : sortedModules) {
+			for (String upstream : upstreamModules.apply(module)) {
+				if (representatives.containsKey(upstream)) {
+					String moduleRoot = find(representatives, module);
+					String upstreamRoot = find(representatives, upstream);
+					// keep the smallest id as the representative, so the groups don't depend on the order of the poms
+					if (moduleRoot.compareTo(upstreamRoot) < 0) {
+						representatives.put(upstreamRoot, moduleRoot);
+					} else {
+						representatives.put(moduleRoot, upstreamRoot);
+					}
+				}
+			}
+		}
+
+		Map<String, Set<String>> groups = new TreeMap<>();
+		for (String module : sortedModules) {
+			groups.computeIfAbsent(find(representatives, module), key -> new TreeSet<>()).add(module);
+		}
+		return groups;
+	}
+
+	private static String find(final Map<String, String> representatives, final String module) {
+		String root = module;
+		while (!representatives.get(root).equals(root)) {
+			root = representatives.get(root);
+		}
+		representatives.put(module, root);
+		return root;
+	}
+
+	private Map<String, Long> weigh(final Collection<String> modules) {
+		Map<String, Long> weights = new HashMap<>();
+		List<String> unknown = new ArrayList<>();
+		for (String module : modules) {
+			OptionalLong millis = expectedMillis.apply(module);
+			if (millis.isPresent()) {
+				weights.put(module, Math.max(1, millis.getAsLong()));
+			} else {
+				unknown.add(module);
+			}
+		}
+		long averageMillis = (long) weights.values().stream().mapToLong(Long::longValue).average().orElse(UNKNOWN_MODULE_MILLIS);
+		unknown.forEach(module -> weights.put(module, averageMillis));
+		return weights;
+	}
+
+	private static long weight(final Set<String> group, final Map<String, Long> weights) {
+		return group.stream().mapToLong(weights::get).sum();
+	}
+}
@@ -0,0 +1,121 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.reactor;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Shares the available CPUs between the reactors running at the same time, deciding each reactor's maven thread count.
+ *
+ * The CPUs not already given to running reactors are split evenly between the reactors which may still start
+ * alongside them - up to the number of reactors that can run at the same time - so the first reactor to start
+ * doesn't take every CPU and leave one thread each for the rest.  A reactor is also given no more threads than it
+ * can use - the width of its module graph, the most active modules none of which depends on another.  Every reactor
+ * gets at least one thread.
+ */
+public class ThreadAllocator {
+
+	private final int availableCpus;
+	private final int concurrentReactors;
+	private final Map<Reactor, Integer> allocations = new HashMap<>();
+	private Function<String, Collection<String>> upstreamModules = moduleId -> Collections.emptyList();
+
+	/**
+	 * @param availableCpus the number of CPUs to share between the running reactors.
+	 * @param concurrentReactors the most reactors which can run at the same time.
+	 */
+	public ThreadAllocator(final int availableCpus, final int concurrentReactors) {
+		this.availableCpus = Math.max(1, availableCpus);
+		this.concurrentReactors = Math.max(1, concurrentReactors);
+	}
+
+	/**
+	 * @param upstreamModules finds the modules a module depends on, including its parent; without it, no module depends on another.
+	 * @return this
+	 */
+	public ThreadAllocator withUpstreamModules(final Function<String, Collection<String>> upstreamModules) {
+		this.upstreamModules = upstreamModules;
+		return this;
+	}
+
+	/**
+	 * Decide the thread count for a reactor that is about to start.
+	 * @param reactor the reactor to allocate threads to
+	 * @return the number of threads maven should use for the reactor
+	 */
+	public synchronized int allocate(final Reactor reactor) {
+		int allocatedToOthers = allocations.values().stream().mapToInt(Integer::intValue).sum();
+		int freeSlots = Math.max(1, concurrentReactors - allocations.size());
+		int fairShare = (availableCpus - allocatedToOthers) / freeSlots;
+		int threads = Math.min(estimateGraphWidth(reactor), fairShare);
+		threads = Math.max(1, threads);
+		allocations.put(reactor, threads);
+		return threads;
+	}
+
+	/**
+	 * Return the threads allocated to a reactor that has finished.
+	 * @param reactor the reactor that finished
+	 */
+	public synchronized void release(final Reactor reactor) {
+		allocations.remove(reactor);
+	}
+
+	/**
+	 * The most modules of the reactor maven could build at the same time.
+	 *
+	 * Each active module is levelled by the most active modules on a path of dependencies up from it, counting through
+	 * modules which aren't active, so the modules of a level don't depend on each other.  The width is the size of the
+	 * widest level.
+	 * @param reactor the reactor to estimate
+	 * @return the estimated width, at least one
+	 */
+	int estimateGraphWidth(final Reactor reactor) {
+		Set<String> activeModules = reactor.getActiveModules();
+		Map<String, Integer> levels = new HashMap<>();
+		Map<Integer, Integer> widths = new HashMap<>();
+		for (String module : activeModules) {
+			widths.merge(level(module, activeModules, levels, new HashSet<>()), 1, Integer::sum);
+		}
+		return widths.values().stream().mapToInt(Integer::intValue).max().orElse(1);
+	}
+
+	private int level(final String module, final Set<String> activeModules, final Map<String, Integer> levels, final Set<String> visiting) {
+		Integer known = levels.get(module);
+		if (known != null) {
+			return known;
+		}
+		if (!visiting.add(module)) {
+			// a dependency cycle, which maven would refuse to build
+			return 0;
+		}
+		int upstreamLevel = 0;
+		for (String upstream : upstreamModules.apply(module)) {
+			upstreamLevel = Math.max(upstreamLevel, level(upstream, activeModules, levels, visiting));
+		}
+		visiting.remove(module);
+		int level = activeModules.contains(module) ? upstreamLevel + 1 : upstreamLevel;
+		levels.put(module, level);
+		return level;
+	}
+}
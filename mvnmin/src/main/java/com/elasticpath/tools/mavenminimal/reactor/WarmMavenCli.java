@@ -0,0 +1,283 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.reactor;
+
+import java.io.PrintStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+import com.elasticpath.tools.mavenminimal.config.MvnMinConfigurationException;
+import com.elasticpath.tools.mavenminimal.util.Logger;
+
+/**
+ * A maven MavenCli which keeps its plexus container, and so the class realms of the plugins it has loaded, from one
+ * build to the next.
+ *
+ * MavenCli.doMain() creates a container for each build, and disposes of it, and every realm it created, afterwards.
+ * Instead, this runs the steps of doMain() itself, creating the container for the first build only, and for later
+ * builds re-applying what MavenCli sets up in the container for each build: the log level, and the event spies, which
+ * maven closes at the end of every build.  The container is created again if a build needs different core extensions.
+ *
+ * The steps are not public, so they are run reflectively; maven 3.6 to 3.9 have them.  Each maven version has some of
+ * the optional steps.
+ */
+final class WarmMavenCli {
+
+	private static final String CLI_PACKAGE = "org.apache.maven.cli.";
+	private static final String EXT_CLASS_PATH = "maven.ext.class.path";
+	private static final List<String> STEPS_BEFORE_CONTAINER = Arrays.asList("initialize", "cli", "properties", "logging",
+			"informativeCommands", "version");
+	private static final List<String> STEPS_AFTER_CONTAINER = Arrays.asList("commands", "configure", "toolchains", "populateRequest",
+			"encryption", "repository");
+	private static final List<String> REQUIRED_STEPS = Arrays.asList("initialize", "cli", "properties", "logging", "container",
+			"configure", "populateRequest", "execute");
+	private static final int ABORTED_EXIT_VALUE = 2;
+
+	private final ClassLoader mavenLoader;
+	private final Object classWorld;
+	private final Class<?> mavenCliClass;
+	private final Class<?> cliRequestClass;
+	private final Map<String, Method> steps = new HashMap<>();
+	private Object mavenCli;
+	private Object container;
+	private ClassLoader containerRealm;
+	private String containerKey;
+	private Set<String> realmsBeforeContainer;
+	private int containersCreated;
+
+	/**
+	 * @param mavenLoader the class loader of a maven installation's boot and lib jars
+	 * @throws MvnMinConfigurationException if the maven installation isn't a version this supports
+	 */
+	WarmMavenCli(final ClassLoader mavenLoader) {
+		this.mavenLoader = mavenLoader;
+		try {
+			Class<?> classWorldClass = mavenLoader.loadClass("org.codehaus.plexus.classworlds.ClassWorld");
+			classWorld = classWorldClass.getConstructor(String.class, ClassLoader.class).newInstance("plexus.core", mavenLoader);
+			mavenCliClass = mavenLoader.loadClass(CLI_PACKAGE + "MavenCli");
+			cliRequestClass = mavenLoader.loadClass(CLI_PACKAGE + "CliRequest");
+		} catch (ReflectiveOperationException e) {
+			throw new MvnMinConfigurationException("The embedded engine needs maven 3.6 to 3.9: " + e);
+		}
+		for (Method method : mavenCliClass.getDeclaredMethods()) {
+			if (method.getParameterTypes().length == 1 && method.getParameterTypes()[0] == cliRequestClass
+					&& !method.getName().equals("doMain")) {
+				method.setAccessible(true);
+				steps.put(method.getName(), method);
+			}
+		}
+		for (String step : REQUIRED_STEPS) {
+			if (!steps.containsKey(step)) {
+				throw new MvnMinConfigurationException("The embedded engine needs maven 3.6 to 3.9, this maven's MavenCli has no "
+						+ step + " step.");
+			}
+		}
+	}
+
+	/**
+	 * Run a maven build.  Maven uses JVM-wide state, such as System.out, so only one build may run at a time.
+	 * @param args maven's arguments
+	 * @param workingDirectory the folder maven runs in
+	 * @param stderr where to report a build maven couldn't start
+	 * @param cancelled whether the build has been cancelled, checked as each module and mojo starts
+	 * @return maven's exit value
+	 * @throws ReflectiveOperationException if MavenCli could not be run
+	 */
+	int run(final String[] args, final String workingDirectory, final PrintStream stderr, final BooleanSupplier cancelled)
+			throws ReflectiveOperationException {
+		String key = extClassPath(args) + "\n" + workingDirectory;
+		if (mavenCli == null || !key.equals(containerKey)) {
+			// core extensions are loaded into the container, so a build with other extensions needs a new one
+			dispose();
+			mavenCli = mavenCliClass.getConstructor(classWorld.getClass()).newInstance(classWorld);
+			realmsBeforeContainer = realmIds();
+		}
+
+		Constructor<?> newRequest = cliRequestClass.getDeclaredConstructor(String[].class, classWorld.getClass());
+		newRequest.setAccessible(true);
+		Object cliRequest = newRequest.newInstance(args, classWorld);
+		field(cliRequestClass, "workingDirectory").set(cliRequest, workingDirectory);
+		try {
+			runSteps(STEPS_BEFORE_CONTAINER, cliRequest);
+			if (container == null) {
+				container = steps.get("container").invoke(mavenCli, cliRequest);
+				containerRealm = Thread.currentThread().getContextClassLoader();
+				containerKey = key;
+				containersCreated++;
+			} else {
+				reuseContainer(cliRequest);
+			}
+			runSteps(STEPS_AFTER_CONTAINER, cliRequest);
+			watchForCancellation(cliRequest, cancelled);
+			return (Integer) steps.get("execute").invoke(mavenCli, cliRequest);
+		} catch (InvocationTargetException e) {
+			return exitValue(e.getCause(), stderr);
+		}
+	}
+
+	private void runSteps(final List<String> names, final Object cliRequest) throws ReflectiveOperationException {
+		for (String name : names) {
+			Method step = steps.get(name);
+			if (step != null) {
+				step.invoke(mavenCli, cliRequest);
+			}
+		}
+	}
+
+	private void reuseContainer(final Object cliRequest) throws ReflectiveOperationException {
+		// MavenCli.container() makes the container realm the context class loader, and uses it for every lookup
+		Thread.currentThread().setContextClassLoader(containerRealm);
+
+		Object request = field(cliRequestClass, "request").get(cliRequest);
+		Object loggingLevel = request.getClass().getMethod("getLoggingLevel").invoke(request);
+		Object loggerManager = container.getClass().getMethod("getLoggerManager").invoke(container);
+		loggerManager.getClass().getMethod("setThresholds", int.class).invoke(loggerManager, loggingLevel);
+
+		Class<?> contextClass = mavenLoader.loadClass(CLI_PACKAGE + "event.DefaultEventSpyContext");
+		Object context = contextClass.getConstructor().newInstance();
+		@SuppressWarnings("unchecked")
+		Map<String, Object> data = (Map<String, Object>) contextClass.getMethod("getData").invoke(context);
+		data.put("plexus", container);
+		data.put("workingDirectory", field(cliRequestClass, "workingDirectory").get(cliRequest));
+		data.put("systemProperties", field(cliRequestClass, "systemProperties").get(cliRequest));
+		data.put("userProperties", field(cliRequestClass, "userProperties").get(cliRequest));
+		Method buildProperties = mavenLoader.loadClass(CLI_PACKAGE + "CLIReportingUtils").getDeclaredMethod("getBuildProperties");
+		buildProperties.setAccessible(true);
+		data.put("versionProperties", buildProperties.invoke(null));
+		Object dispatcher = field(mavenCliClass, "eventSpyDispatcher").get(mavenCli);
+		Class<?> spyContextClass = mavenLoader.loadClass("org.apache.maven.eventspy.EventSpy$Context");
+		dispatcher.getClass().getMethod("init", spyContextClass).invoke(dispatcher, context);
+	}
+
+	private void watchForCancellation(final Object cliRequest, final BooleanSupplier cancelled) throws ReflectiveOperationException {
+		Object request = field(cliRequestClass, "request").get(cliRequest);
+		Class<?> listenerClass = mavenLoader.loadClass("org.apache.maven.execution.ExecutionListener");
+		Object listener = request.getClass().getMethod("getExecutionListener").invoke(request);
+		Object cancellingListener = Proxy.newProxyInstance(mavenLoader, new Class<?>[] {listenerClass}, (proxy, method, methodArgs) -> {
+			if (method.getName().equals("equals")) {
+				return proxy == methodArgs[0];
+			} else if (method.getName().equals("hashCode")) {
+				return System.identityHashCode(proxy);
+			} else if (method.getName().equals("toString")) {
+				return "mvnmin's cancellation of " + listener;
+			}
+			// maven fails the module, and so the build, with the exception
+			if (cancelled.getAsBoolean() && (method.getName().equals("projectStarted") || method.getName().equals("mojoStarted"))) {
+				throw new IllegalStateException("The build was cancelled by mvnmin");
+			}
+			if (listener == null) {
+				return null;
+			}
+			try {
+				return method.invoke(listener, methodArgs);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+		});
+		request.getClass().getMethod("setExecutionListener", listenerClass).invoke(request, cancellingListener);
+	}
+
+	private static int exitValue(final Throwable failure, final PrintStream stderr) throws ReflectiveOperationException {
+		String failureClass = failure.getClass().getName();
+		if (failureClass.equals(CLI_PACKAGE + "MavenCli$ExitException")) {
+			Field exitCode = failure.getClass().getDeclaredField("exitCode");
+			exitCode.setAccessible(true);
+			return exitCode.getInt(failure);
+		} else if (failureClass.equals("org.apache.commons.cli.UnrecognizedOptionException")) {
+			// maven has already reported the option
+			return 1;
+		}
+		Logger.debug("Maven failed to run", failure);
+		if (failureClass.equals("org.apache.maven.BuildAbort")) {
+			stderr.println("[ERROR] ABORTED: " + failure.getMessage());
+			return ABORTED_EXIT_VALUE;
+		}
+		stderr.println("[ERROR] Error executing Maven: " + failure);
+		return 1;
+	}
+
+	private static Field field(final Class<?> type, final String name) throws NoSuchFieldException {
+		Field field = type.getDeclaredField(name);
+		field.setAccessible(true);
+		return field;
+	}
+
+	private static String extClassPath(final String[] args) {
+		StringBuilder extClassPath = new StringBuilder();
+		for (int index = 0; index < args.length; index++) {
+			String arg = args[index];
+			if (arg.equals("-D") && index + 1 < args.length) {
+				arg = "-D" + args[index + 1];
+			}
+			if (arg.startsWith("-D" + EXT_CLASS_PATH + "=")) {
+				extClassPath.append(arg);
+			}
+		}
+		return extClassPath.toString();
+	}
+
+	private Set<String> realmIds() throws ReflectiveOperationException {
+		Set<String> ids = new HashSet<>();
+		for (Object realm : (Iterable<?>) classWorld.getClass().getMethod("getRealms").invoke(classWorld)) {
+			ids.add((String) realm.getClass().getMethod("getId").invoke(realm));
+		}
+		return ids;
+	}
+
+	/**
+	 * @return how many containers have been created, which is one for a run where every reactor shares the container.
+	 */
+	int getContainersCreated() {
+		return containersCreated;
+	}
+
+	/**
+	 * Dispose of the container, and the realms created with it, such as those of the plugins and extensions it loaded.
+	 */
+	void dispose() {
+		try {
+			if (container != null) {
+				container.getClass().getMethod("dispose").invoke(container);
+			}
+			if (realmsBeforeContainer != null) {
+				Method disposeRealm = classWorld.getClass().getMethod("disposeRealm", String.class);
+				for (String realm : realmIds()) {
+					if (!realmsBeforeContainer.contains(realm)) {
+						disposeRealm.invoke(classWorld, realm);
+					}
+				}
+			}
+		} catch (ReflectiveOperationException e) {
+			Logger.debug("Failed to dispose of maven's container", e);
+		}
+		container = null;
+		containerRealm = null;
+		containerKey = null;
+		realmsBeforeContainer = null;
+		mavenCli = null;
+	}
+}
@@ -0,0 +1,227 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.Properties;
+
+import org.fusesource.jansi.internal.CLibrary;
+
+import com.elasticpath.tools.mavenminimal.util.Logger;
+
+/**
+ * Sends mvnmin's command line to the mvnmin server for the working folder, when one is running, and prints what the
+ * server sends back.
+ */
+public final class MvnMinClient {
+
+	private static final int BUFFER_BYTES = 8192;
+
+	// Prevent instantiation
+	private MvnMinClient() { }
+
+	/**
+	 * Run mvnmin in the server for the working folder, if one is running.
+	 *
+	 * The server is sent the arguments, working folder, environment, and anything piped to stdin.  mvnmin runs
+	 * itself when there is no server, or the server refuses the request, and then reads stdin from the start.
+	 *
+	 * @param args the command line arguments
+	 * @param stdin what is piped to mvnmin, or null if stdin is a terminal
+	 * @param out where to print the server's output
+	 * @return the exit value of mvnmin, or empty if mvnmin should run itself
+	 */
+	public static OptionalInt forward(final String[] args, final BufferedInputStream stdin, final PrintStream out) {
+		List<String> argList = Arrays.asList(args);
+		// The embedded engine writes maven's output to the server's stdout, not the client's
+		if (argList.stream().anyMatch(arg -> arg.matches("--server(=.*)?") || arg.equals("--engine=embedded"))) {
+			return OptionalInt.empty();
+		}
+		return forward(Paths.get("").toAbsolutePath(), argList, stdin, out);
+	}
+
+	/**
+	 * Run mvnmin in the server for a folder, if one is running.
+	 * @param directory the folder mvnmin runs in
+	 * @param args the command line arguments
+	 * @param stdin what is piped to mvnmin, or null if stdin is a terminal
+	 * @param out where to print the server's output
+	 * @return the exit value of mvnmin, or empty if mvnmin should run itself, with stdin as it was
+	 */
+	static OptionalInt forward(final Path directory, final List<String> args, final BufferedInputStream stdin, final PrintStream out) {
+		Path serverFile = ServerProtocol.serverFile(directory);
+		if (!Files.isRegularFile(serverFile)) {
+			return OptionalInt.empty();
+		}
+		Properties server = readServerFile(serverFile);
+		if (server == null) {
+			return OptionalInt.empty();
+		}
+		Socket socket = connectIfListening(server);
+		if (socket == null) {
+			return OptionalInt.empty();
+		}
+
+		// Only read stdin once a server is listening, and keep what was read, should the server refuse the request
+		String stdinText = null;
+		if (stdin != null) {
+			stdin.mark(Integer.MAX_VALUE);
+			stdinText = readFully(stdin);
+		}
+		final int stdoutDescriptor = 1;
+		ServerRequest request = new ServerRequest(server.getProperty(ServerProtocol.TOKEN_PROPERTY), directory.toString(), args,
+				System.getenv(), stdinText, CLibrary.isatty(stdoutDescriptor) == 1);
+		OptionalInt exitValue = forward(socket, request, out);
+		if (!exitValue.isPresent() && stdin != null) {
+			try {
+				stdin.reset();
+			} catch (IOException e) {
+				throw new IllegalStateException("Failed to rewind stdin, after the mvnmin server refused the request", e);
+			}
+		}
+		return exitValue;
+	}
+
+	/**
+	 * Send a request to a server.
+	 * @param server the properties of the server file
+	 * @param request the request
+	 * @param out where to print the server's output
+	 * @return the exit value of mvnmin, or empty if mvnmin should run itself
+	 */
+	static OptionalInt forward(final Properties server, final ServerRequest request, final PrintStream out) {
+		Socket socket = connectIfListening(server);
+		if (socket == null) {
+			return OptionalInt.empty();
+		}
+		return forward(socket, request, out);
+	}
+
+	private static Socket connectIfListening(final Properties server) {
+		try {
+			return connect(server);
+		} catch (IOException | IllegalArgumentException e) {
+			Logger.debug("No mvnmin server is listening, running mvnmin here", e);
+			return null;
+		}
+	}
+
+	private static OptionalInt forward(final Socket socket, final ServerRequest request, final PrintStream out) {
+		try {
+			DataOutputStream requestStream = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			ServerProtocol.write(requestStream, ServerProtocol.REQUEST, request.toJson().getBytes(StandardCharsets.UTF_8));
+			DataInputStream responseStream = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			while (true) {
+				ServerProtocol.Frame frame = ServerProtocol.read(responseStream);
+				if (frame.getType() == ServerProtocol.OUTPUT) {
+					out.write(frame.getPayload());
+					out.flush();
+				} else if (frame.getType() == ServerProtocol.EXIT) {
+					return OptionalInt.of(ByteBuffer.wrap(frame.getPayload()).getInt());
+				} else if (frame.getType() == ServerProtocol.REFUSED) {
+					Logger.debug("The mvnmin server refused the request, running mvnmin here: "
+							+ new String(frame.getPayload(), StandardCharsets.UTF_8));
+					return OptionalInt.empty();
+				} else {
+					throw new IOException("Unexpected mvnmin server frame: " + frame.getType());
+				}
+			}
+		} catch (EOFException e) {
+			out.println("mvnmin: the mvnmin server stopped before the build finished.");
+			return OptionalInt.of(1);
+		} catch (IOException e) {
+			out.println("mvnmin: lost the connection to the mvnmin server: " + e.getMessage());
+			return OptionalInt.of(1);
+		} finally {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				Logger.debug("Failed to close the connection to the mvnmin server", e);
+			}
+		}
+	}
+
+	/**
+	 * @param serverFile the server file of a project
+	 * @return true if a server is listening on the port in the server file
+	 */
+	static boolean isServerRunning(final Path serverFile) {
+		Properties server = readServerFile(serverFile);
+		if (server == null) {
+			return false;
+		}
+		try (Socket socket = connect(server)) {
+			return socket.isConnected();
+		} catch (IOException | IllegalArgumentException e) {
+			Logger.debug("No mvnmin server is listening", e);
+			return false;
+		}
+	}
+
+	/**
+	 * @param serverFile the server file of a project
+	 * @return the server file's properties, or null if it doesn't exist
+	 */
+	static Properties readServerFile(final Path serverFile) {
+		Properties properties = new Properties();
+		try (InputStream stream = Files.newInputStream(serverFile)) {
+			properties.load(stream);
+			return properties;
+		} catch (IOException e) {
+			Logger.debug("Failed to read " + serverFile, e);
+			return null;
+		}
+	}
+
+	private static Socket connect(final Properties server) throws IOException {
+		int port = Integer.parseInt(server.getProperty(ServerProtocol.PORT_PROPERTY, ""));
+		return new Socket(InetAddress.getLoopbackAddress(), port);
+	}
+
+	private static String readFully(final InputStream stream) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buffer = new byte[BUFFER_BYTES];
+		try {
+			int read = stream.read(buffer);
+			while (read != -1) {
+				bytes.write(buffer, 0, read);
+				read = stream.read(buffer);
+			}
+		} catch (IOException e) {
+			Logger.debug("Failed to read stdin", e);
+		}
+		return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+	}
+}
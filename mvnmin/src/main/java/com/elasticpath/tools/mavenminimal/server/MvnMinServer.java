@@ -0,0 +1,302 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.elasticpath.tools.mavenminimal.MvnMinSession;
+import com.elasticpath.tools.mavenminimal.diff.ProjectRepository;
+import com.elasticpath.tools.mavenminimal.util.Digests;
+import com.elasticpath.tools.mavenminimal.util.Environment;
+import com.elasticpath.tools.mavenminimal.util.Logger;
+
+/**
+ * A long-lived mvnmin for a project, which runs mvnmin for clients started in the project's root folder.
+ *
+ * Between requests the server keeps what it read from mvnmin.xml and the project's poms, reading files again only
+ * once they change, and has the JIT-compiled code of earlier runs.  Each request runs in its own thread and
+ * MvnMinSession, so clients don't wait for each other.  If a client goes away, such as when its user presses Ctrl-C,
+ * its build is cancelled.
+ *
+ * The server listens on a loopback port, described in '.mvnmin/server/server.properties' along with a secret token
+ * clients must send.  The file is readable only by its owner, so only the user who started the server can use it.
+ * The server stops after a period without requests, once no request is running.
+ */
+public class MvnMinServer {
+
+	private static final int TOKEN_BYTES = 32;
+	private static final long MILLIS_PER_SECOND = 1000;
+	private static final int EXIT_VALUE_BYTES = 4;
+	private static final int OUTPUT_BUFFER_BYTES = 8192;
+	private static final int REQUEST_TIMEOUT_MILLIS = 10_000;
+
+	private final Path projectRoot;
+	private final Path serverFile;
+	private final ProjectRepository projectRepository;
+	private final long idleTimeoutMillis;
+	private final String token;
+	private volatile ServerSocket serverSocket;
+	private volatile boolean stopped;
+	private final AtomicInteger activeRequests = new AtomicInteger();
+
+	/**
+	 * Create a server.
+	 * @param projectRoot the root folder of the project, which must be mvnmin's working folder
+	 * @param projectRepository the project repository to run mvnmin against
+	 * @param idleTimeoutMillis how long to wait for a request before stopping
+	 */
+	public MvnMinServer(final Path projectRoot, final ProjectRepository projectRepository, final long idleTimeoutMillis) {
+		this.projectRoot = projectRoot.toAbsolutePath().normalize();
+		this.serverFile = ServerProtocol.serverFile(this.projectRoot);
+		this.projectRepository = projectRepository;
+		this.idleTimeoutMillis = idleTimeoutMillis;
+		byte[] tokenBytes = new byte[TOKEN_BYTES];
+		new SecureRandom().nextBytes(tokenBytes);
+		this.token = Digests.toHex(tokenBytes);
+	}
+
+	/**
+	 * Serve requests until the server has been idle for its timeout, or is stopped.
+	 * @param log where to report the server starting and stopping
+	 * @return zero if the server ran, 1 if another server is already running for the project
+	 * @throws IllegalStateException if the server can't listen for requests
+	 */
+	public int serve(final PrintStream log) {
+		if (MvnMinClient.isServerRunning(serverFile)) {
+			log.println("mvnmin: a server is already running for " + projectRoot + ", see " + serverFile);
+			return 1;
+		}
+		Thread deleteServerFile = new Thread(this::deleteServerFile, "mvnmin-server-shutdown");
+		try (ServerSocket socket = new ServerSocket(0, 0, InetAddress.getLoopbackAddress())) {
+			serverSocket = socket;
+			socket.setSoTimeout((int) Math.min(Integer.MAX_VALUE, idleTimeoutMillis));
+			writeServerFile(socket.getLocalPort());
+			Runtime.getRuntime().addShutdownHook(deleteServerFile);
+			log.println("mvnmin: serving " + projectRoot + " on port " + socket.getLocalPort() + ".");
+			while (!stopped) {
+				try {
+					startServing(socket.accept());
+				} catch (SocketTimeoutException e) {
+					if (activeRequests.get() == 0) {
+						log.println("mvnmin: stopping the server, as it had no requests for "
+								+ idleTimeoutMillis / MILLIS_PER_SECOND + "s.");
+						return 0;
+					}
+				} catch (IOException e) {
+					if (!stopped) {
+						Logger.debug("Failed to accept a client", e);
+					}
+				}
+			}
+			log.println("mvnmin: stopped the server.");
+			return 0;
+		} catch (IOException e) {
+			throw new IllegalStateException("Failed to start the mvnmin server for " + projectRoot, e);
+		} finally {
+			deleteServerFile();
+			try {
+				Runtime.getRuntime().removeShutdownHook(deleteServerFile);
+			} catch (IllegalStateException e) {
+				// the JVM is already shutting down, and the hook will run
+				Logger.debug("Failed to remove the server's shutdown hook", e);
+			}
+		}
+	}
+
+	/**
+	 * Stop accepting requests.  Requests already running finish.
+	 */
+	void stop() {
+		stopped = true;
+		ServerSocket socket = serverSocket;
+		if (socket != null) {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				Logger.debug("Failed to close the server socket", e);
+			}
+		}
+	}
+
+	/**
+	 * @return the file the server describes itself in.
+	 */
+	Path getServerFile() {
+		return serverFile;
+	}
+
+	private void startServing(final Socket client) {
+		activeRequests.incrementAndGet();
+		Thread requestThread = new Thread(() -> {
+			try (Socket socket = client) {
+				socket.setSoTimeout(REQUEST_TIMEOUT_MILLIS);
+				serve(socket);
+			} catch (IOException e) {
+				Logger.debug("Failed to serve a client", e);
+			} finally {
+				activeRequests.decrementAndGet();
+			}
+		}, "mvnmin-server-request");
+		requestThread.start();
+	}
+
+	private void serve(final Socket client) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(client.getInputStream()));
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(client.getOutputStream()));
+		ServerRequest request;
+		try {
+			ServerProtocol.Frame frame = ServerProtocol.read(in);
+			if (frame.getType() != ServerProtocol.REQUEST) {
+				throw new IllegalArgumentException("expected a request");
+			}
+			request = ServerRequest.parse(new String(frame.getPayload(), StandardCharsets.UTF_8));
+		} catch (SocketTimeoutException e) {
+			Logger.debug("The client didn't send a request within " + REQUEST_TIMEOUT_MILLIS + "ms", e);
+			return;
+		} catch (IllegalArgumentException e) {
+			refuse(out, "Malformed request: " + e.getMessage());
+			return;
+		}
+		// The disconnect watcher blocks reading the client for as long as the request runs
+		client.setSoTimeout(0);
+		if (!MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8), request.getToken().getBytes(StandardCharsets.UTF_8))) {
+			refuse(out, "The request's token doesn't match the server's");
+		} else if (!projectRoot.equals(Paths.get(request.getDirectory()).toAbsolutePath().normalize())) {
+			refuse(out, "The server only serves requests from " + projectRoot);
+		} else {
+			int exitValue = run(request, in, out);
+			ServerProtocol.write(out, ServerProtocol.EXIT, ByteBuffer.allocate(EXIT_VALUE_BYTES).putInt(exitValue).array());
+		}
+	}
+
+	private int run(final ServerRequest request, final DataInputStream in, final DataOutputStream out) throws IOException {
+		PrintStream output = new PrintStream(new BufferedOutputStream(new OutputFrames(out), OUTPUT_BUFFER_BYTES), true, "UTF-8");
+		InputStream stdin = request.getStdin() == null ? null : new ByteArrayInputStream(request.getStdin().getBytes(StandardCharsets.UTF_8));
+		MvnMinSession session = new MvnMinSession(projectRepository, output, stdin, request.isTerminal());
+
+		AtomicBoolean finished = new AtomicBoolean();
+		Thread disconnectWatcher = new Thread(() -> {
+			try {
+				// The client sends nothing after its request, so this returns when it goes away
+				while (in.read() != -1) {
+					Logger.debug("Ignoring unexpected input from the mvnmin client");
+				}
+			} catch (IOException e) {
+				Logger.debug("The mvnmin client's connection closed", e);
+			}
+			if (!finished.get()) {
+				session.cancel();
+			}
+		}, "mvnmin-server-client");
+		disconnectWatcher.setDaemon(true);
+		disconnectWatcher.start();
+
+		Environment.set(request.getEnvironment());
+		try {
+			return session.run(request.getArgs().toArray(new String[0]));
+		} catch (RuntimeException e) {
+			// As an uncaught exception would be reported by mvnmin's JVM
+			e.printStackTrace(output);
+			return 1;
+		} finally {
+			finished.set(true);
+			Environment.reset();
+			output.flush();
+		}
+	}
+
+	private static void refuse(final DataOutputStream out, final String reason) throws IOException {
+		Logger.debug("Refused an mvnmin client: " + reason);
+		ServerProtocol.write(out, ServerProtocol.REFUSED, reason.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private void writeServerFile(final int port) throws IOException {
+		Properties properties = new Properties();
+		properties.setProperty(ServerProtocol.PORT_PROPERTY, String.valueOf(port));
+		properties.setProperty(ServerProtocol.TOKEN_PROPERTY, token);
+		properties.setProperty(ServerProtocol.PID_PROPERTY, ManagementFactory.getRuntimeMXBean().getName().split("@")[0]);
+
+		Files.createDirectories(serverFile.getParent());
+		Path newServerFile = serverFile.resolveSibling(serverFile.getFileName() + ".new");
+		Files.deleteIfExists(newServerFile);
+		try {
+			Files.createFile(newServerFile, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+		} catch (UnsupportedOperationException e) {
+			// not a POSIX filesystem, the file gets the folder's permissions
+			Files.createFile(newServerFile);
+		}
+		try (OutputStream stream = Files.newOutputStream(newServerFile)) {
+			properties.store(stream, "mvnmin server for " + projectRoot);
+		}
+		Files.move(newServerFile, serverFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private void deleteServerFile() {
+		try {
+			Files.deleteIfExists(serverFile);
+		} catch (IOException e) {
+			Logger.debug("Failed to delete " + serverFile, e);
+		}
+	}
+
+	/**
+	 * Sends everything written to it as output frames.
+	 */
+	private static final class OutputFrames extends OutputStream {
+		private final DataOutputStream out;
+
+		OutputFrames(final DataOutputStream out) {
+			this.out = out;
+		}
+
+		@Override
+		public void write(final int value) throws IOException {
+			write(new byte[] {(byte) value}, 0, 1);
+		}
+
+		@Override
+		public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+			ServerProtocol.write(out, ServerProtocol.OUTPUT, Arrays.copyOfRange(bytes, offset, offset + length));
+		}
+	}
+}
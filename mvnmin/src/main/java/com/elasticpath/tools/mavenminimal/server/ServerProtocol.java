@@ -0,0 +1,147 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.server;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import com.elasticpath.tools.mavenminimal.util.StateDirectory;
+
+/**
+ * The messages sent between the mvnmin client and server.
+ *
+ * The client sends a single request frame, then the server sends frames of output, and finally the exit value.  A
+ * frame is a type byte, the length of the payload as a 4 byte integer, and the payload.  The server refuses requests
+ * it can't serve, so that the client runs mvnmin itself instead.
+ */
+final class ServerProtocol {
+
+	/**
+	 * The version of the protocol, a client and server of different versions don't talk to each other.
+	 */
+	static final long VERSION = 1;
+
+	/**
+	 * A request, the JSON from ServerRequest.
+	 */
+	static final byte REQUEST = 'Q';
+
+	/**
+	 * Some of mvnmin's output.
+	 */
+	static final byte OUTPUT = 'O';
+
+	/**
+	 * The exit value of mvnmin, as a 4 byte integer.
+	 */
+	static final byte EXIT = 'X';
+
+	/**
+	 * The server won't serve the request, the payload is the reason.
+	 */
+	static final byte REFUSED = 'R';
+
+	/**
+	 * The server file's port property.
+	 */
+	static final String PORT_PROPERTY = "port";
+
+	/**
+	 * The server file's token property.
+	 */
+	static final String TOKEN_PROPERTY = "token";
+
+	/**
+	 * The server file's process id property.
+	 */
+	static final String PID_PROPERTY = "pid";
+
+	private static final int MAX_PAYLOAD_BYTES = 64 * 1024 * 1024;
+
+	// Prevent instantiation
+	private ServerProtocol() { }
+
+	/**
+	 * @param projectRoot the root folder of the project
+	 * @return the file a running server for the project describes itself in
+	 */
+	static Path serverFile(final Path projectRoot) {
+		return projectRoot.resolve(StateDirectory.resolve("server", "server.properties"));
+	}
+
+	/**
+	 * Write a frame, and flush it.
+	 * @param out the stream to write to
+	 * @param type the type of frame
+	 * @param payload the payload of the frame
+	 * @throws IOException if the frame can't be written
+	 */
+	static void write(final DataOutputStream out, final byte type, final byte[] payload) throws IOException {
+		synchronized (out) {
+			out.writeByte(type);
+			out.writeInt(payload.length);
+			out.write(payload);
+			out.flush();
+		}
+	}
+
+	/**
+	 * Read a frame.
+	 * @param in the stream to read from
+	 * @return the frame
+	 * @throws IOException if the frame can't be read, such as when the other side has gone away
+	 */
+	static Frame read(final DataInputStream in) throws IOException {
+		byte type = in.readByte();
+		int length = in.readInt();
+		if (length < 0 || length > MAX_PAYLOAD_BYTES) {
+			throw new IOException("Malformed mvnmin server frame, of " + length + " bytes");
+		}
+		byte[] payload = new byte[length];
+		in.readFully(payload);
+		return new Frame(type, payload);
+	}
+
+	/**
+	 * A frame that was read.
+	 */
+	static final class Frame {
+		private final byte type;
+		private final byte[] payload;
+
+		private Frame(final byte type, final byte[] payload) {
+			this.type = type;
+			this.payload = payload;
+		}
+
+		/**
+		 * @return the type of frame.
+		 */
+		byte getType() {
+			return type;
+		}
+
+		/**
+		 * @return the payload of the frame.
+		 */
+		byte[] getPayload() {
+			return payload;
+		}
+	}
+}
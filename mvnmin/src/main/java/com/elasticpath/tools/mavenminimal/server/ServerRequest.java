@@ -0,0 +1,155 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.server;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import com.elasticpath.tools.mavenminimal.util.JsonReader;
+import com.elasticpath.tools.mavenminimal.util.JsonWriter;
+
+/**
+ * A run of mvnmin, sent by the client to the server: what the client was started with.
+ */
+class ServerRequest {
+
+	private final String token;
+	private final String directory;
+	private final List<String> args;
+	private final Map<String, String> environment;
+	private final String stdin;
+	private final boolean terminal;
+
+	/**
+	 * @param token the secret from the server file, proving the client may use the server
+	 * @param directory the absolute path of the client's working folder
+	 * @param args the client's command line arguments
+	 * @param environment the client's environment variables
+	 * @param stdin everything the client read from stdin, or null if stdin is a terminal
+	 * @param terminal true if the client's output is a terminal
+	 */
+	ServerRequest(final String token, final String directory, final List<String> args, final Map<String, String> environment,
+			final String stdin, final boolean terminal) {
+		this.token = token;
+		this.directory = directory;
+		this.args = Collections.unmodifiableList(new ArrayList<>(args));
+		this.environment = Collections.unmodifiableMap(new TreeMap<>(environment));
+		this.stdin = stdin;
+		this.terminal = terminal;
+	}
+
+	/**
+	 * @return the request as JSON.
+	 */
+	String toJson() {
+		JsonWriter json = new JsonWriter(true)
+				.beginObject()
+				.name("version").value(ServerProtocol.VERSION)
+				.name("token").value(token)
+				.name("directory").value(directory)
+				.name("args").values(args)
+				.name("environment").beginObject();
+		environment.forEach((name, value) -> json.name(name).value(value));
+		return json.endObject()
+				.name("stdin").value(stdin)
+				.name("terminal").value(terminal)
+				.endObject()
+				.toString();
+	}
+
+	/**
+	 * @param json a request, as JSON
+	 * @return the request
+	 * @throws IllegalArgumentException if the JSON isn't a request of this version of the protocol
+	 */
+	static ServerRequest parse(final String json) {
+		Map<?, ?> request = as(Map.class, JsonReader.parse(json));
+		if (!Objects.equals(request.get("version"), ServerProtocol.VERSION)) {
+			throw new IllegalArgumentException("unsupported request version " + request.get("version"));
+		}
+		List<String> args = new ArrayList<>();
+		for (Object arg : as(List.class, request.get("args"))) {
+			args.add(as(String.class, arg));
+		}
+		Map<String, String> environment = new TreeMap<>();
+		Map<?, ?> environmentValues = as(Map.class, request.get("environment"));
+		for (Map.Entry<?, ?> entry : environmentValues.entrySet()) {
+			environment.put(as(String.class, entry.getKey()), as(String.class, entry.getValue()));
+		}
+		Object stdin = request.get("stdin");
+		return new ServerRequest(
+				as(String.class, request.get("token")),
+				as(String.class, request.get("directory")),
+				args,
+				environment,
+				stdin == null ? null : as(String.class, stdin),
+				Boolean.TRUE.equals(request.get("terminal")));
+	}
+
+	private static <T> T as(final Class<T> type, final Object value) {
+		if (!type.isInstance(value)) {
+			throw new IllegalArgumentException("malformed request: expected a " + type.getSimpleName() + ", found " + value);
+		}
+		return type.cast(value);
+	}
+
+	/**
+	 * @return the secret from the server file.
+	 */
+	String getToken() {
+		return token;
+	}
+
+	/**
+	 * @return the absolute path of the client's working folder.
+	 */
+	String getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * @return the client's command line arguments.
+	 */
+	List<String> getArgs() {
+		return args;
+	}
+
+	/**
+	 * @return the client's environment variables.
+	 */
+	Map<String, String> getEnvironment() {
+		return environment;
+	}
+
+	/**
+	 * @return everything the client read from stdin, or null if stdin is a terminal.
+	 */
+	String getStdin() {
+		return stdin;
+	}
+
+	/**
+	 * @return true if the client's output is a terminal.
+	 */
+	boolean isTerminal() {
+		return terminal;
+	}
+}
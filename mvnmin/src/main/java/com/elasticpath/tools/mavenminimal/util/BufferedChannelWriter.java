@@ -0,0 +1,98 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes lines of text to a file through a FileChannel, only touching the file when the buffer fills, or on flush/close.
+ */
+public class BufferedChannelWriter implements Closeable {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final FileChannel channel;
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+	/**
+	 * Open a writer that replaces any existing file.
+	 * @param file the file to write to
+	 * @throws IOException if the file cannot be opened
+	 */
+	public BufferedChannelWriter(final Path file) throws IOException {
+		this(file, StandardOpenOption.TRUNCATE_EXISTING);
+	}
+
+	/**
+	 * Open a writer.
+	 * @param file the file to write to
+	 * @param mode StandardOpenOption.APPEND or StandardOpenOption.TRUNCATE_EXISTING
+	 * @throws IOException if the file cannot be opened
+	 */
+	public BufferedChannelWriter(final Path file, final OpenOption mode) throws IOException {
+		channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, mode);
+	}
+
+	/**
+	 * Write a line of text, followed by a newline.
+	 * @param line the text to write
+	 * @throws IOException if the buffer could not be written to the file
+	 */
+	public synchronized void writeLine(final String line) throws IOException {
+		write((line + "\n").getBytes(StandardCharsets.UTF_8));
+	}
+
+	private void write(final byte[] bytes) throws IOException {
+		int offset = 0;
+		while (offset < bytes.length) {
+			if (!buffer.hasRemaining()) {
+				flush();
+			}
+			int length = Math.min(buffer.remaining(), bytes.length - offset);
+			buffer.put(bytes, offset, length);
+			offset += length;
+		}
+	}
+
+	/**
+	 * Write any buffered text to the file.
+	 * @throws IOException if the buffer could not be written to the file
+	 */
+	public synchronized void flush() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			channel.close();
+		}
+	}
+}
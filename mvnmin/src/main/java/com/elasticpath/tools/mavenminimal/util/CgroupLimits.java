@@ -0,0 +1,163 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.util;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.OptionalDouble;
+import java.util.OptionalLong;
+
+/**
+ * Reads the resource limits imposed on mvnmin's container (Linux control group), so that mvnmin sizes the work it
+ * starts to what the container allows, not to what the host has.
+ *
+ * Both cgroup v2 (unified) and v1 hierarchies are supported.  Where no limit is found, the JVM's view of the machine
+ * is used.
+ */
+public class CgroupLimits {
+
+	private static final Path DEFAULT_CGROUP_ROOT = Paths.get("/sys/fs/cgroup");
+
+	private final Path cgroupRoot;
+	private final int availableProcessors;
+	private final long physicalMemory;
+
+	/**
+	 * @param cgroupRoot the folder the cgroup filesystem is mounted on
+	 * @param availableProcessors the number of processors the JVM reports
+	 * @param physicalMemory the bytes of memory the machine has
+	 */
+	CgroupLimits(final Path cgroupRoot, final int availableProcessors, final long physicalMemory) {
+		this.cgroupRoot = cgroupRoot;
+		this.availableProcessors = availableProcessors;
+		this.physicalMemory = physicalMemory;
+	}
+
+	/**
+	 * @return the limits for the container mvnmin is running in.
+	 */
+	public static CgroupLimits system() {
+		return new CgroupLimits(DEFAULT_CGROUP_ROOT, Runtime.getRuntime().availableProcessors(), readPhysicalMemory());
+	}
+
+	// getTotalMemorySize() replaced this in Java 14, but mvnmin still targets Java 8
+	@SuppressWarnings("deprecation")
+	private static long readPhysicalMemory() {
+		OperatingSystemMXBean osBean = ManagementFactory.getOperatingSystemMXBean();
+		if (osBean instanceof com.sun.management.OperatingSystemMXBean) {
+			return ((com.sun.management.OperatingSystemMXBean) osBean).getTotalPhysicalMemorySize();
+		}
+		return Long.MAX_VALUE;
+	}
+
+	/**
+	 * @return the bytes of memory mvnmin and the processes it starts may use.
+	 */
+	public long availableMemory() {
+		OptionalLong limit = memoryLimit();
+		if (limit.isPresent()) {
+			return Math.min(limit.getAsLong(), physicalMemory);
+		}
+		return physicalMemory;
+	}
+
+	/**
+	 * @return the memory limit of the container, in bytes, if one is set.
+	 */
+	OptionalLong memoryLimit() {
+		// cgroup v2: a number, or "max"
+		String memoryMax = read(cgroupRoot.resolve("memory.max"));
+		if (memoryMax == null) {
+			// cgroup v1: an unlimited group reports a huge number, which availableMemory() caps to physical memory
+			memoryMax = read(cgroupRoot.resolve("memory").resolve("memory.limit_in_bytes"));
+		}
+		if (memoryMax != null && !memoryMax.equals("max")) {
+			try {
+				return OptionalLong.of(Long.parseLong(memoryMax));
+			} catch (NumberFormatException e) {
+				Logger.debug("Unexpected cgroup memory limit: " + memoryMax, e);
+			}
+		}
+		return OptionalLong.empty();
+	}
+
+	/**
+	 * @return the number of whole CPUs mvnmin may use, at least one.
+	 */
+	public int availableCpus() {
+		OptionalDouble quota = cpuQuota();
+		if (quota.isPresent()) {
+			return (int) Math.max(1, Math.min(availableProcessors, Math.ceil(quota.getAsDouble())));
+		}
+		return Math.max(1, availableProcessors);
+	}
+
+	/**
+	 * @return the CPU quota of the container, in CPUs, if one is set.
+	 */
+	OptionalDouble cpuQuota() {
+		// cgroup v2: "<quota> <period>" or "max <period>"
+		String cpuMax = read(cgroupRoot.resolve("cpu.max"));
+		if (cpuMax != null) {
+			String[] quotaAndPeriod = cpuMax.split("\\s+");
+			if (quotaAndPeriod.length == 2 && !quotaAndPeriod[0].equals("max")) {
+				return ratio(quotaAndPeriod[0], quotaAndPeriod[1]);
+			}
+			return OptionalDouble.empty();
+		}
+
+		// cgroup v1: a quota of -1 means unlimited
+		for (String controller : new String[] {"cpu", "cpu,cpuacct"}) {
+			String quota = read(cgroupRoot.resolve(controller).resolve("cpu.cfs_quota_us"));
+			String period = read(cgroupRoot.resolve(controller).resolve("cpu.cfs_period_us"));
+			if (quota != null && period != null) {
+				return ratio(quota, period);
+			}
+		}
+		return OptionalDouble.empty();
+	}
+
+	private static OptionalDouble ratio(final String quota, final String period) {
+		try {
+			double quotaValue = Double.parseDouble(quota);
+			double periodValue = Double.parseDouble(period);
+			if (quotaValue > 0 && periodValue > 0) {
+				return OptionalDouble.of(quotaValue / periodValue);
+			}
+		} catch (NumberFormatException e) {
+			Logger.debug("Unexpected cgroup cpu quota: " + quota + "/" + period, e);
+		}
+		return OptionalDouble.empty();
+	}
+
+	private static String read(final Path file) {
+		if (!Files.isReadable(file)) {
+			return null;
+		}
+		try {
+			return new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim();
+		} catch (IOException e) {
+			Logger.debug("Failed to read " + file, e);
+			return null;
+		}
+	}
+}
@@ -0,0 +1,86 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Content digests, for naming things after what they contain.
+ */
+public final class Digests {
+
+	private static final String HEX_DIGITS = "0123456789abcdef";
+	private static final int NIBBLE_BITS = 4;
+	private static final int NIBBLE_MASK = 0xf;
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	// Prevent instantiation
+	private Digests() { }
+
+	/**
+	 * @return a new SHA-256 digest.
+	 */
+	public static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("Every JVM is required to support SHA-256", e);
+		}
+	}
+
+	/**
+	 * @param value the text to digest
+	 * @return the SHA-256 of the UTF-8 encoded text, in lowercase hexadecimal.
+	 */
+	public static String sha256Hex(final String value) {
+		return toHex(sha256().digest(value.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	/**
+	 * @param file the file to digest
+	 * @return the SHA-256 of the file's content, in lowercase hexadecimal.
+	 * @throws IOException if the file cannot be read
+	 */
+	public static String sha256Hex(final Path file) throws IOException {
+		MessageDigest digest = sha256();
+		byte[] buffer = new byte[BUFFER_SIZE];
+		try (InputStream input = Files.newInputStream(file)) {
+			for (int read = input.read(buffer); read >= 0; read = input.read(buffer)) {
+				digest.update(buffer, 0, read);
+			}
+		}
+		return toHex(digest.digest());
+	}
+
+	/**
+	 * @param bytes the bytes to format
+	 * @return the bytes in lowercase hexadecimal.
+	 */
+	public static String toHex(final byte[] bytes) {
+		StringBuilder hex = new StringBuilder(bytes.length * 2);
+		for (byte value : bytes) {
+			hex.append(HEX_DIGITS.charAt((value >> NIBBLE_BITS) & NIBBLE_MASK)).append(HEX_DIGITS.charAt(value & NIBBLE_MASK));
+		}
+		return hex.toString();
+	}
+}
@@ -0,0 +1,71 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.util;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The environment variables mvnmin runs with.
+ *
+ * Normally these are mvnmin's own environment, but when mvnmin runs as a server, each request runs with the
+ * environment of the client which sent it.  The environment is per thread, and threads start with their parent
+ * thread's environment, so concurrent requests each see their own.
+ */
+public final class Environment {
+
+	private static final InheritableThreadLocal<Map<String, String>> VARIABLES = new InheritableThreadLocal<Map<String, String>>() {
+		@Override
+		protected Map<String, String> initialValue() {
+			return System.getenv();
+		}
+	};
+
+	// Prevent instantiation
+	private Environment() { }
+
+	/**
+	 * @param name the name of the environment variable
+	 * @return the value of the variable, or null if it isn't set
+	 */
+	public static String get(final String name) {
+		return VARIABLES.get().get(name);
+	}
+
+	/**
+	 * @return all the environment variables, unmodifiable.
+	 */
+	public static Map<String, String> getAll() {
+		return VARIABLES.get();
+	}
+
+	/**
+	 * Run this thread, and the threads it starts, with another environment, until reset() is called.
+	 * @param environment the environment variables
+	 */
+	public static void set(final Map<String, String> environment) {
+		VARIABLES.set(Collections.unmodifiableMap(new HashMap<>(environment)));
+	}
+
+	/**
+	 * Run this thread with mvnmin's own environment again.
+	 */
+	public static void reset() {
+		VARIABLES.remove();
+	}
+}
@@ -0,0 +1,215 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads a JSON document into maps, lists, strings, numbers (Long or Double), booleans and nulls.
+ */
+public final class JsonReader {
+
+	private static final int HEX_RADIX = 16;
+	private static final int UNICODE_ESCAPE_LENGTH = 4;
+
+	private final String json;
+	private int position;
+
+	private JsonReader(final String json) {
+		this.json = json;
+	}
+
+	/**
+	 * @param json the document
+	 * @return the document's value: a Map for an object, a List for an array, or a String, Long, Double, Boolean or null
+	 * @throws IllegalArgumentException if the document isn't valid JSON
+	 */
+	public static Object parse(final String json) {
+		JsonReader reader = new JsonReader(json);
+		Object value = reader.readValue();
+		reader.skipWhitespace();
+		if (reader.position < json.length()) {
+			throw reader.malformed("unexpected content after the document");
+		}
+		return value;
+	}
+
+	private Object readValue() {
+		skipWhitespace();
+		if (position >= json.length()) {
+			throw malformed("unexpected end of document");
+		}
+		char next = json.charAt(position);
+		switch (next) {
+			case '{':
+				return readObject();
+			case '[':
+				return readArray();
+			case '"':
+				return readString();
+			case 't':
+				return readLiteral("true", Boolean.TRUE);
+			case 'f':
+				return readLiteral("false", Boolean.FALSE);
+			case 'n':
+				return readLiteral("null", null);
+			default:
+				return readNumber();
+		}
+	}
+
+	private Map<String, Object> readObject() {
+		Map<String, Object> object = new LinkedHashMap<>();
+		position++;
+		skipWhitespace();
+		if (consume('}')) {
+			return object;
+		}
+		do {
+			skipWhitespace();
+			if (position >= json.length() || json.charAt(position) != '"') {
+				throw malformed("expected a member name");
+			}
+			String name = readString();
+			skipWhitespace();
+			expect(':');
+			object.put(name, readValue());
+			skipWhitespace();
+		} while (consume(','));
+		expect('}');
+		return object;
+	}
+
+	private List<Object> readArray() {
+		List<Object> array = new ArrayList<>();
+		position++;
+		skipWhitespace();
+		if (consume(']')) {
+			return array;
+		}
+		do {
+			array.add(readValue());
+			skipWhitespace();
+		} while (consume(','));
+		expect(']');
+		return array;
+	}
+
+	private String readString() {
+		StringBuilder value = new StringBuilder();
+		position++;
+		while (position < json.length()) {
+			char character = json.charAt(position++);
+			if (character == '"') {
+				return value.toString();
+			} else if (character == '\\') {
+				value.append(readEscape());
+			} else {
+				value.append(character);
+			}
+		}
+		throw malformed("unterminated string");
+	}
+
+	private char readEscape() {
+		if (position >= json.length()) {
+			throw malformed("unterminated string");
+		}
+		char escaped = json.charAt(position++);
+		switch (escaped) {
+			case 'b':
+				return '\b';
+			case 'f':
+				return '\f';
+			case 'n':
+				return '\n';
+			case 'r':
+				return '\r';
+			case 't':
+				return '\t';
+			case 'u':
+				if (position + UNICODE_ESCAPE_LENGTH > json.length()) {
+					throw malformed("truncated unicode escape");
+				}
+				try {
+					String hex = json.substring(position, position + UNICODE_ESCAPE_LENGTH);
+					position += UNICODE_ESCAPE_LENGTH;
+					return (char) Integer.parseInt(hex, HEX_RADIX);
+				} catch (NumberFormatException e) {
+					throw malformed("invalid unicode escape");
+				}
+			case '"':
+			case '\\':
+			case '/':
+				return escaped;
+			default:
+				throw malformed("invalid escape '\\" + escaped + "'");
+		}
+	}
+
+	private Object readNumber() {
+		int start = position;
+		while (position < json.length() && "+-0123456789.eE".indexOf(json.charAt(position)) >= 0) {
+			position++;
+		}
+		String number = json.substring(start, position);
+		try {
+			if (number.matches("-?\\d+")) {
+				return Long.parseLong(number);
+			}
+			return Double.parseDouble(number);
+		} catch (NumberFormatException e) {
+			position = start;
+			throw malformed("expected a value");
+		}
+	}
+
+	private Object readLiteral(final String literal, final Boolean value) {
+		if (!json.startsWith(literal, position)) {
+			throw malformed("expected a value");
+		}
+		position += literal.length();
+		return value;
+	}
+
+	private void skipWhitespace() {
+		while (position < json.length() && Character.isWhitespace(json.charAt(position))) {
+			position++;
+		}
+	}
+
+	private boolean consume(final char expected) {
+		if (position < json.length() && json.charAt(position) == expected) {
+			position++;
+			return true;
+		}
+		return false;
+	}
+
+	private void expect(final char expected) {
+		if (!consume(expected)) {
+			throw malformed("expected '" + expected + "'");
+		}
+	}
+
+	private IllegalArgumentException malformed(final String problem) {
+		return new IllegalArgumentException("Malformed JSON at offset " + position + ": " + problem);
+	}
+}
@@ -0,0 +1,226 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.util;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Writes a JSON document, value by value, into a string.
+ *
+ * Nested objects and arrays are indented, one member or element per line, unless the writer is compact.
+ */
+public class JsonWriter {
+
+	private static final int CONTROL_CHARACTERS = 0x20;
+
+	private final StringBuilder json = new StringBuilder();
+	private final Deque<Boolean> hasMembers = new ArrayDeque<>();
+	private final boolean compact;
+	private boolean afterName;
+
+	/**
+	 * Create a writer which indents the document.
+	 */
+	public JsonWriter() {
+		this(false);
+	}
+
+	/**
+	 * @param compact true to write the document without whitespace
+	 */
+	public JsonWriter(final boolean compact) {
+		this.compact = compact;
+	}
+
+	/**
+	 * @return this instance, having started an object.
+	 */
+	public JsonWriter beginObject() {
+		return open('{');
+	}
+
+	/**
+	 * @return this instance, having ended the current object.
+	 */
+	public JsonWriter endObject() {
+		return close('}');
+	}
+
+	/**
+	 * @return this instance, having started an array.
+	 */
+	public JsonWriter beginArray() {
+		return open('[');
+	}
+
+	/**
+	 * @return this instance, having ended the current array.
+	 */
+	public JsonWriter endArray() {
+		return close(']');
+	}
+
+	/**
+	 * Name the next member of the current object.
+	 * @param name the member name
+	 * @return this instance.
+	 */
+	public JsonWriter name(final String name) {
+		separate();
+		quote(name);
+		json.append(compact ? ":" : ": ");
+		afterName = true;
+		return this;
+	}
+
+	/**
+	 * @param value a string, or null
+	 * @return this instance.
+	 */
+	public JsonWriter value(final String value) {
+		separate();
+		if (value == null) {
+			json.append("null");
+		} else {
+			quote(value);
+		}
+		return this;
+	}
+
+	/**
+	 * @param value a whole number
+	 * @return this instance.
+	 */
+	public JsonWriter value(final long value) {
+		separate();
+		json.append(value);
+		return this;
+	}
+
+	/**
+	 * @param value a number, which is written as null if it isn't finite
+	 * @return this instance.
+	 */
+	public JsonWriter value(final double value) {
+		separate();
+		json.append(Double.isFinite(value) ? String.valueOf(value) : "null");
+		return this;
+	}
+
+	/**
+	 * @param value a boolean
+	 * @return this instance.
+	 */
+	public JsonWriter value(final boolean value) {
+		separate();
+		json.append(value);
+		return this;
+	}
+
+	/**
+	 * @param values strings, written as an array
+	 * @return this instance.
+	 */
+	public JsonWriter values(final Iterable<String> values) {
+		beginArray();
+		values.forEach(this::value);
+		return endArray();
+	}
+
+	/**
+	 * @return the document written so far.
+	 */
+	@Override
+	public String toString() {
+		return json.toString();
+	}
+
+	private JsonWriter open(final char bracket) {
+		separate();
+		json.append(bracket);
+		hasMembers.push(false);
+		return this;
+	}
+
+	private JsonWriter close(final char bracket) {
+		boolean nonEmpty = hasMembers.pop();
+		if (nonEmpty) {
+			newline();
+		}
+		json.append(bracket);
+		return this;
+	}
+
+	/**
+	 * Separate a value from the one before it: after a member name nothing is needed, otherwise a comma if the object
+	 * or array already has members, and a new line.
+	 */
+	private void separate() {
+		if (afterName) {
+			afterName = false;
+			return;
+		}
+		if (!hasMembers.isEmpty()) {
+			if (hasMembers.pop()) {
+				json.append(',');
+			}
+			hasMembers.push(true);
+			newline();
+		}
+	}
+
+	private void newline() {
+		if (!compact) {
+			json.append('\n');
+			for (int depth = 0; depth < hasMembers.size(); depth++) {
+				json.append('\t');
+			}
+		}
+	}
+
+	private void quote(final String value) {
+		json.append('"');
+		for (int index = 0; index < value.length(); index++) {
+			char character = value.charAt(index);
+			switch (character) {
+				case '"':
+					json.append("\\\"");
+					break;
+				case '\\':
+					json.append("\\\\");
+					break;
+				case '\n':
+					json.append("\\n");
+					break;
+				case '\r':
+					json.append("\\r");
+					break;
+				case '\t':
+					json.append("\\t");
+					break;
+				default:
+					if (character < CONTROL_CHARACTERS) {
+						json.append(String.format("\\u%04x", (int) character));
+					} else {
+						json.append(character);
+					}
+			}
+		}
+		json.append('"');
+	}
+}
@@ -19,17 +19,25 @@ import java.io.PrintStream;
 
 /**
  * A simple logging class.
+ *
+ * Each thread logs to the PrintStream it was initialised with, or else the one its parent thread had when it was
+ * started, so concurrent mvnmin sessions each log to their own output.
  */
 public class Logger {
 
-    private static PrintStream out = System.out;
+    private static final InheritableThreadLocal<PrintStream> OUT = new InheritableThreadLocal<PrintStream>() {
+        @Override
+        protected PrintStream initialValue() {
+            return System.out;
+        }
+    };
 
     /**
-     * Initialise the logger to print to the provided PrintStream.
+     * Initialise the logger to print to the provided PrintStream, on this thread and the threads it starts.
      * @param printStream the PrintStream to output to
      */
     public static void init(final PrintStream printStream) {
-        out = printStream;
+        OUT.set(printStream);
     }
 
     /**
@@ -38,7 +46,7 @@ public class Logger {
      */
     public static void debug(final Object message) {
         if (isDebugEnabled()) {
-            out.println(message);
+            OUT.get().println(message);
         }
     }
 
@@ -49,9 +57,10 @@ public class Logger {
      */
     public static void debug(final Object message, final Throwable t) {
         if (isDebugEnabled()) {
+            PrintStream out = OUT.get();
             out.println(message);
             if (t != null) {
-                t.printStackTrace(System.out);
+                t.printStackTrace(out);
             }
         }
     }
@@ -61,7 +70,7 @@ public class Logger {
      * @return true if debug is enabled, false otherwise.
      */
     public static boolean isDebugEnabled() {
-        return Boolean.parseBoolean(System.getenv("DEBUG"));
+        return Boolean.parseBoolean(Environment.get("DEBUG"));
     }
 
 }
@@ -0,0 +1,97 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps what was read from files, so that a file is only read again once it has changed.
+ *
+ * A file is considered changed when its modification time or size differ from when it was read.  This matters to a
+ * long-lived mvnmin server, which would otherwise read every pom of the project again for each request.
+ *
+ * @param <T> the type read from the files
+ */
+public class ParsedFileCache<T> {
+
+	private final Map<Path, Entry<T>> entries = new ConcurrentHashMap<>();
+
+	/**
+	 * Get what was read from a file, reading it if it's new or has changed.
+	 * @param file the file
+	 * @param parser reads the file
+	 * @return what the parser read from the file
+	 * @throws IOException if the file cannot be read
+	 */
+	public T get(final Path file, final Parser<T> parser) throws IOException {
+		Path key = file.toAbsolutePath().normalize();
+		BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+		Entry<T> entry = entries.get(key);
+		if (entry != null && entry.isCurrent(attributes)) {
+			return entry.value;
+		}
+		T value = parser.parse(file);
+		entries.put(key, new Entry<>(attributes, value));
+		return value;
+	}
+
+	/**
+	 * @return the number of files in the cache.
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Reads a file.
+	 * @param <T> the type read from the file
+	 */
+	public interface Parser<T> {
+		/**
+		 * @param file the file to read
+		 * @return what was read
+		 * @throws IOException if the file cannot be read
+		 */
+		T parse(Path file) throws IOException;
+	}
+
+	/**
+	 * What was read from a file, and when.
+	 * @param <T> the type read from the file
+	 */
+	private static final class Entry<T> {
+		private final FileTime lastModified;
+		private final long size;
+		private final T value;
+
+		Entry(final BasicFileAttributes attributes, final T value) {
+			this.lastModified = attributes.lastModifiedTime();
+			this.size = attributes.size();
+			this.value = value;
+		}
+
+		boolean isCurrent(final BasicFileAttributes attributes) {
+			return lastModified.equals(attributes.lastModifiedTime()) && size == attributes.size();
+		}
+	}
+}
@@ -0,0 +1,265 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+
+package com.elasticpath.tools.mavenminimal.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Times the phases of a mvnmin run, and counts the work each phase does, for --profile.
+ *
+ * Profiling is started on a thread with begin(), and the phases started on that thread, and the threads it starts,
+ * are nested under the phase which was running when they started.  Without begin(), phases and counts cost next to
+ * nothing and are not recorded.
+ */
+public final class Profiler {
+
+	private static final double NANOS_PER_MILLI = 1_000_000.0;
+	private static final long MICROS_PER_MILLI = 1000;
+	private static final long NANOS_PER_MICRO = 1000;
+	private static final Phase DISABLED = new Phase("", null, false);
+	private static final InheritableThreadLocal<Phase> CURRENT = new InheritableThreadLocal<>();
+
+	private Profiler() {
+		// static methods only
+	}
+
+	/**
+	 * Start profiling on this thread, and the threads it starts.
+	 * @param name the name of the whole run
+	 * @return the outermost phase, which ends profiling when closed.
+	 */
+	public static Phase begin(final String name) {
+		Phase root = new Phase(name, null, true);
+		CURRENT.set(root);
+		return root;
+	}
+
+	/**
+	 * Start a phase, nested under the phase running on this thread.
+	 * @param name the name of the phase
+	 * @return the phase, to close when it ends.
+	 */
+	public static Phase start(final String name) {
+		Phase parent = current();
+		if (!parent.enabled) {
+			return DISABLED;
+		}
+		Phase phase = new Phase(name, parent, true);
+		parent.children.add(phase);
+		CURRENT.set(phase);
+		return phase;
+	}
+
+	/**
+	 * @return the phase running on this thread, which does nothing if profiling hasn't begun.
+	 */
+	public static Phase current() {
+		Phase phase = CURRENT.get();
+		return phase == null ? DISABLED : phase;
+	}
+
+	/**
+	 * Count one more of something done by the phase running on this thread.
+	 * @param name what was done
+	 */
+	public static void count(final String name) {
+		current().count(name, 1);
+	}
+
+	/**
+	 * A timed part of a mvnmin run.
+	 */
+	public static final class Phase implements AutoCloseable {
+		private final String name;
+		private final Phase parent;
+		private final boolean enabled;
+		private final long startNanos = System.nanoTime();
+		private final long startEpochMicros;
+		private final String thread = Thread.currentThread().getName();
+		private final Map<String, Long> counts = new LinkedHashMap<>();
+		private final List<Phase> children = new CopyOnWriteArrayList<>();
+		private volatile long elapsedNanos = -1;
+
+		private Phase(final String name, final Phase parent, final boolean enabled) {
+			this.name = name;
+			this.parent = parent;
+			this.enabled = enabled;
+			if (parent == null) {
+				startEpochMicros = System.currentTimeMillis() * MICROS_PER_MILLI;
+			} else {
+				// nanoTime() is more precise than the clock, so nested phases are timed from the outermost phase
+				Phase root = parent;
+				while (root.parent != null) {
+					root = root.parent;
+				}
+				startEpochMicros = root.startEpochMicros + (startNanos - root.startNanos) / NANOS_PER_MICRO;
+			}
+		}
+
+		/**
+		 * Count things done by this phase.
+		 * @param name what was done
+		 * @param amount how many were done
+		 */
+		public void count(final String name, final long amount) {
+			if (enabled) {
+				synchronized (counts) {
+					counts.merge(name, amount, Long::sum);
+				}
+			}
+		}
+
+		/**
+		 * Run a task as part of this phase, such as on a thread from a pool which this phase didn't start.
+		 * @param task the task
+		 */
+		public void run(final Runnable task) {
+			if (!enabled) {
+				task.run();
+				return;
+			}
+			Phase previous = CURRENT.get();
+			CURRENT.set(this);
+			try {
+				task.run();
+			} finally {
+				CURRENT.set(previous);
+			}
+		}
+
+		/**
+		 * End this phase, making the phase it was nested under the running phase again.
+		 */
+		@Override
+		public void close() {
+			if (enabled && elapsedNanos < 0) {
+				elapsedNanos = System.nanoTime() - startNanos;
+				if (parent == null) {
+					CURRENT.remove();
+				} else {
+					CURRENT.set(parent);
+				}
+			}
+		}
+
+		/**
+		 * @return the name of the phase.
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return when the phase started, in microseconds since the epoch.
+		 */
+		public long getStartEpochMicros() {
+			return startEpochMicros;
+		}
+
+		/**
+		 * @return the name of the thread which started the phase.
+		 */
+		public String getThread() {
+			return thread;
+		}
+
+		/**
+		 * @return the milliseconds the phase took, or has taken so far if it hasn't ended.
+		 */
+		public double getMillis() {
+			long nanos = elapsedNanos < 0 ? System.nanoTime() - startNanos : elapsedNanos;
+			return nanos / NANOS_PER_MILLI;
+		}
+
+		/**
+		 * @return what the phase counted, in the order first counted.
+		 */
+		public Map<String, Long> getCounts() {
+			synchronized (counts) {
+				return Collections.unmodifiableMap(new LinkedHashMap<>(counts));
+			}
+		}
+
+		/**
+		 * @param name the name of the count
+		 * @return the total of the count, in this phase and the phases nested under it.
+		 */
+		public long getTotalCount(final String name) {
+			long total = getCounts().getOrDefault(name, 0L);
+			for (Phase child : children) {
+				total += child.getTotalCount(name);
+			}
+			return total;
+		}
+
+		/**
+		 * @return the phases nested under this phase, in the order they started.
+		 */
+		public List<Phase> getChildren() {
+			return Collections.unmodifiableList(children);
+		}
+
+		/**
+		 * @return a line for this phase and each nested phase, indented by depth.
+		 */
+		public List<String> report() {
+			List<String> lines = new ArrayList<>();
+			report(lines, "");
+			return lines;
+		}
+
+		private void report(final List<String> lines, final String indent) {
+			StringBuilder line = new StringBuilder(String.format("%10.1f ms  %s%s", getMillis(), indent, name));
+			Map<String, Long> phaseCounts = getCounts();
+			if (!phaseCounts.isEmpty()) {
+				List<String> countStrings = new ArrayList<>();
+				phaseCounts.forEach((countName, amount) -> countStrings.add(countName + ": " + amount));
+				line.append("  (").append(String.join(", ", countStrings)).append(')');
+			}
+			lines.add(line.toString());
+			children.forEach(child -> child.report(lines, indent + "  "));
+		}
+
+		/**
+		 * @return this phase and its nested phases as a JSON document.
+		 */
+		public String toJson() {
+			JsonWriter json = new JsonWriter();
+			write(json);
+			return json.toString();
+		}
+
+		private void write(final JsonWriter json) {
+			json.beginObject()
+					.name("name").value(name)
+					.name("millis").value(Math.round(getMillis() * MICROS_PER_MILLI) / (double) MICROS_PER_MILLI);
+			json.name("counts").beginObject();
+			getCounts().forEach((countName, amount) -> json.name(countName).value(amount));
+			json.endObject();
+			json.name("phases").beginArray();
+			children.forEach(child -> child.write(json));
+			json.endArray();
+			json.endObject();
+		}
+	}
+}
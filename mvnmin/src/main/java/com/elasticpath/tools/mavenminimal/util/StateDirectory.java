@@ -0,0 +1,54 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.util;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * The '.mvnmin' folder in the project root, where mvnmin keeps the files it writes between runs.
+ */
+public final class StateDirectory {
+
+	/**
+	 * The name of the state folder, relative to the project root.
+	 */
+	public static final String NAME = ".mvnmin";
+
+	// Prevent instantiation
+	private StateDirectory() { }
+
+	/**
+	 * @param first the first path element within the state folder
+	 * @param more any further path elements
+	 * @return the path, relative to the project root
+	 */
+	public static Path resolve(final String first, final String... more) {
+		return Paths.get(NAME).resolve(Paths.get(first, more));
+	}
+
+	/**
+	 * @param repoRelativePath a path relative to the project root, as reported by git
+	 * @return true if the path is the state folder, or within it
+	 */
+	public static boolean contains(final String repoRelativePath) {
+		return repoRelativePath.equals(NAME)
+				|| repoRelativePath.startsWith(NAME + "/")
+				|| repoRelativePath.startsWith(NAME + File.separator);
+	}
+}
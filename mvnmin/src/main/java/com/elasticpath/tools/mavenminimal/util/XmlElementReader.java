@@ -0,0 +1,174 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Reads an XML file element by element, with the JDK's StAX parser.
+ *
+ * The reader walks down the tree: nextChild() moves to each child of the current element in turn, and the caller
+ * either reads the child's text, walks into its children with nextChild(), or skips it.
+ */
+public final class XmlElementReader implements Closeable {
+
+	private static final XMLInputFactory FACTORY = createFactory();
+
+	private final Path file;
+	private final InputStream input;
+	private final XMLStreamReader reader;
+
+	private XmlElementReader(final Path file, final InputStream input, final XMLStreamReader reader) {
+		this.file = file;
+		this.input = input;
+		this.reader = reader;
+	}
+
+	private static XMLInputFactory createFactory() {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+		return factory;
+	}
+
+	/**
+	 * Open a file, and move to its root element.
+	 * @param file the XML file to read
+	 * @return the reader, positioned on the root element
+	 * @throws IOException if the file cannot be read, or has no root element
+	 */
+	public static XmlElementReader open(final Path file) throws IOException {
+		InputStream input = Files.newInputStream(file);
+		try {
+			XmlElementReader xml = new XmlElementReader(file, input, FACTORY.createXMLStreamReader(input));
+			if (!xml.nextChild()) {
+				throw new IOException("Malformed XML in " + file + ": no root element");
+			}
+			return xml;
+		} catch (XMLStreamException e) {
+			input.close();
+			throw malformed(file, e);
+		} catch (IOException | RuntimeException e) {
+			input.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * @return the local name of the current element.
+	 */
+	public String getName() {
+		return reader.getLocalName();
+	}
+
+	/**
+	 * @return the namespace of the current element, or an empty string if it has none.
+	 */
+	public String getNamespace() {
+		String namespace = reader.getNamespaceURI();
+		return namespace == null ? "" : namespace;
+	}
+
+	/**
+	 * @param name the local name of the attribute
+	 * @return the value of the current element's attribute, or null if it isn't set.
+	 */
+	public String getAttribute(final String name) {
+		return reader.getAttributeValue(null, name);
+	}
+
+	/**
+	 * Move to the next child of the current element.
+	 * @return true if positioned on the child, or false if the current element has ended
+	 * @throws IOException if the XML is malformed
+	 */
+	public boolean nextChild() throws IOException {
+		try {
+			while (reader.hasNext()) {
+				int event = reader.next();
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					return true;
+				} else if (event == XMLStreamConstants.END_ELEMENT) {
+					return false;
+				}
+			}
+			return false;
+		} catch (XMLStreamException e) {
+			throw malformed(file, e);
+		}
+	}
+
+	/**
+	 * Read the text of the current element, skipping any children it has.
+	 * @return the text, untrimmed
+	 * @throws IOException if the XML is malformed
+	 */
+	public String getText() throws IOException {
+		StringBuilder text = new StringBuilder();
+		try {
+			int depth = 0;
+			while (depth >= 0) {
+				int event = reader.next();
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					depth++;
+				} else if (event == XMLStreamConstants.END_ELEMENT) {
+					depth--;
+				} else if (depth == 0 && (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+						|| event == XMLStreamConstants.SPACE)) {
+					text.append(reader.getText());
+				}
+			}
+		} catch (XMLStreamException e) {
+			throw malformed(file, e);
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Skip the current element, and all its children.
+	 * @throws IOException if the XML is malformed
+	 */
+	public void skip() throws IOException {
+		while (nextChild()) {
+			skip();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			reader.close();
+		} catch (XMLStreamException e) {
+			Logger.debug("Failed to close the XML reader of " + file, e);
+		} finally {
+			input.close();
+		}
+	}
+
+	private static IOException malformed(final Path file, final XMLStreamException cause) {
+		return new IOException("Malformed XML in " + file + ": " + cause.getMessage(), cause);
+	}
+}
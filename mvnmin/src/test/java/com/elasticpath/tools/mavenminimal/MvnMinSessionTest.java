@@ -0,0 +1,181 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.elasticpath.tools.mavenminimal.diff.ProjectRepository;
+
+/**
+ * Validate that mvnmin sessions keep their options and output to themselves.
+ */
+class MvnMinSessionTest {
+
+	private static final int SESSIONS = 24;
+
+	@Test
+	void testConcurrentSessionsDontShareOptions() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(SESSIONS / 2);
+		try {
+			List<Future<String>> dirty = new ArrayList<>();
+			List<Future<String>> diff = new ArrayList<>();
+			for (int session = 0; session < SESSIONS / 2; session++) {
+				dirty.add(executor.submit(run(null, "-p")));
+				diff.add(executor.submit(run("com.example:stdin\n", "-p", "--diff=main", "--nbi")));
+			}
+			for (Future<String> output : dirty) {
+				assertThat(output.get()).isEqualTo("com.example:dirty\n");
+			}
+			for (Future<String> output : diff) {
+				assertThat(output.get()).isEqualTo("com.example:dirty\ncom.example:main\ncom.example:stdin\n");
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void testExitingDoesntEndTheJvm() throws Exception {
+		assertThat(run(null, "--help").call()).startsWith("usage: mvmin");
+		assertThat(run(null, "-f", "pom.xml").call()).isEqualTo("The options '-f' and '--file' are not supported by mvnmin, exiting.\n");
+	}
+
+	@Test
+	void testProfileReportsEachPhase() throws Exception {
+		String output = run(null, "-p", "--profile", "--diff=main").call();
+
+		assertThat(output).startsWith("com.example:dirty\ncom.example:main\n\nmvnmin: profile\n");
+		assertThat(output.split("\n"))
+				.anyMatch(line -> line.matches(" +\\d+\\.\\d ms  mvnmin"))
+				.anyMatch(line -> line.endsWith("  determine requested modules"))
+				.anyMatch(line -> line.endsWith("      git diff main..  (files: 1)"))
+				.anyMatch(line -> line.endsWith("      git status  (files: 1)"))
+				.anyMatch(line -> line.endsWith("      determine project ids  (files: 2, projects: 2)"))
+				.anyMatch(line -> line.endsWith("  partition reactors  (modules: 2, reactors: 1)"));
+	}
+
+	@Test
+	void testProfileIsWrittenAsJson(@TempDir final Path folder) throws Exception {
+		Path profile = folder.resolve("profile.json");
+
+		assertThat(run(null, "-p", "--profile=" + profile).call()).as("print mode only prints the modules").isEqualTo("com.example:dirty\n");
+		assertThat(new String(Files.readAllBytes(profile), StandardCharsets.UTF_8))
+				.startsWith("{\n\t\"name\": \"mvnmin\",")
+				.contains("\"name\": \"git status\"");
+	}
+
+	@Test
+	void testTraceIsWrittenWithMvnminsPhases(@TempDir final Path folder) throws Exception {
+		Path trace = folder.resolve("trace.json");
+
+		assertThat(run(null, "-p", "--trace=" + trace).call()).as("print mode only prints the modules").isEqualTo("com.example:dirty\n");
+		assertThat(new String(Files.readAllBytes(trace), StandardCharsets.UTF_8))
+				.contains("\"traceEvents\"")
+				.contains("git status");
+	}
+
+	@Test
+	void testFlightRecordingHasTheReactorPartition(@TempDir final Path folder) throws Exception {
+		Path recording = folder.resolve("mvnmin.jfr");
+
+		assertThat(run(null, "-p", "--jfr=" + recording).call()).isEqualTo("com.example:dirty\n");
+		assertThat(RecordingFile.readAllEvents(recording))
+				.filteredOn(event -> event.getEventType().getName().equals("mvnmin.ReactorPartition"))
+				.extracting(event -> event.getInt("modules"))
+				.contains(1);
+	}
+
+	@Test
+	void testMetricsCountTheModulesEachSourceActivated(@TempDir final Path folder) throws Exception {
+		Path metrics = folder.resolve("mvnmin.prom");
+
+		assertThat(run("com.example:stdin\n!com.example:main\n", "-p", "--diff=main", "--metrics=" + metrics).call())
+				.isEqualTo("com.example:dirty\ncom.example:stdin\n");
+		assertThat(new String(Files.readAllBytes(metrics), StandardCharsets.UTF_8))
+				.contains("mvnmin_activated_modules{source=\"stdin\"} 1\n"
+						+ "mvnmin_activated_modules{source=\"projects\"} 0\n"
+						+ "mvnmin_activated_modules{source=\"git_diff\"} 1\n"
+						+ "mvnmin_activated_modules{source=\"git_status\"} 1\n"
+						+ "mvnmin_activated_modules{source=\"build_if\"} 0\n")
+				.contains("mvnmin_reactor_modules{reactor=\"Main reactor\"} 2\n")
+				.contains("mvnmin_phase_duration_seconds{phase=\"mvnmin/partition reactors\"} ")
+				.contains("mvnmin_exit_code 0\n")
+				.endsWith("# EOF\n");
+	}
+
+	private static Callable<String> run(final String stdin, final String... args) {
+		return () -> {
+			ByteArrayOutputStream output = new ByteArrayOutputStream();
+			MvnMinSession session = new MvnMinSession(new FakeRepository(), print(output),
+					stdin == null ? null : new ByteArrayInputStream(stdin.getBytes(StandardCharsets.UTF_8)), false);
+			session.run(args);
+			return new String(output.toByteArray(), StandardCharsets.UTF_8);
+		};
+	}
+
+	private static PrintStream print(final ByteArrayOutputStream bytes) throws UnsupportedEncodingException {
+		return new PrintStream(bytes, true, "UTF-8");
+	}
+
+	/**
+	 * A repository with a dirty module, and a module changed on the main branch.
+	 */
+	private static final class FakeRepository implements ProjectRepository {
+		@Override
+		public Set<String> findDirtyFiles() {
+			return Collections.singleton("dirty/pom.xml");
+		}
+
+		@Override
+		public Set<String> gitDiffRange(final String commitRange) {
+			return Collections.singleton(commitRange.replace("..", "") + "/pom.xml");
+		}
+
+		@Override
+		public Set<String> findAllPomFiles(final int maxDepth) {
+			return Collections.emptySet();
+		}
+
+		@Override
+		public Set<String> determineProjectIdsForFilesOrFolders(final Set<String> files) {
+			Set<String> projectIds = new TreeSet<>();
+			files.forEach(file -> projectIds.add("com.example:" + file.substring(0, file.indexOf('/'))));
+			return projectIds;
+		}
+	}
+}
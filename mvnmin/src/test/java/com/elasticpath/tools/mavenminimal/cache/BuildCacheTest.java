@@ -0,0 +1,186 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.cache;
+
+import static com.elasticpath.tools.mavenminimal.support.ReactorBuilder.reactor;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.elasticpath.tools.mavenminimal.reactor.Reactor;
+
+/**
+ * Validate that modules are hashed by their inputs, and stored in and restored from the build cache.
+ */
+class BuildCacheTest {
+
+	private static final List<String> INSTALL = Arrays.asList("clean", "install", "-DskipTests");
+
+	@TempDir
+	Path folder;
+
+	private Path project;
+
+	@BeforeEach
+	void createProject() throws IOException {
+		project = folder.resolve("project");
+		write("pom.xml", pom("<groupId>com.example</groupId><artifactId>root</artifactId><version>1.0</version>"
+				+ "<packaging>pom</packaging>"));
+		write("core/pom.xml", pom(parent() + "<artifactId>core</artifactId>"));
+		write("core/src/main/java/Core.java", "class Core { }");
+		write("web/pom.xml", pom(parent() + "<artifactId>web</artifactId><packaging>war</packaging>"
+				+ "<dependencies><dependency><groupId>${project.groupId}</groupId><artifactId>core</artifactId></dependency>"
+				+ "<dependency><groupId>org.example</groupId><artifactId>external</artifactId></dependency></dependencies>"));
+		write("web/src/main/webapp/index.html", "<html/>");
+	}
+
+	@Test
+	void testModulesAreIndexedFromTheirPoms() {
+		ModuleIndex index = ModuleIndex.scan(project, 3);
+
+		assertThat(index.size()).isEqualTo(3);
+		ProjectModule web = index.get("com.example:web");
+		assertThat(web.getVersion()).isEqualTo("1.0");
+		assertThat(web.getPackaging()).isEqualTo("war");
+		assertThat(web.getParentId()).isEqualTo("com.example:root");
+		assertThat(web.getDependencyIds()).containsExactly("com.example:core", "org.example:external");
+		assertThat(web.getDirectory()).isEqualTo(project.resolve("web").toAbsolutePath().normalize());
+	}
+
+	@Test
+	void testHashesChangeWithTheModuleAndItsUpstreamModules() throws IOException {
+		ModuleHasher before = new ModuleHasher(ModuleIndex.scan(project, 3));
+		write("core/target/classes/Core.class", "compiled");
+		write(".git/HEAD", "ref");
+		assertThat(new ModuleHasher(ModuleIndex.scan(project, 3)).hash("com.example:web"))
+				.as("target and hidden folders are ignored")
+				.isEqualTo(before.hash("com.example:web"));
+
+		write("core/src/main/java/Core.java", "class Core { int changed; }");
+		ModuleHasher after = new ModuleHasher(ModuleIndex.scan(project, 3));
+
+		assertThat(after.hash("com.example:root")).as("nested modules aren't part of the parent").isEqualTo(before.hash("com.example:root"));
+		assertThat(after.hash("com.example:core")).isNotEqualTo(before.hash("com.example:core"));
+		assertThat(after.hash("com.example:web")).as("web depends on core").isNotEqualTo(before.hash("com.example:web"));
+		assertThat(after.hash("org.example:external")).isNull();
+	}
+
+	@Test
+	void testHashesChangeWithTheModulesTheBuildUses() throws IOException {
+		write("build-tools/pom.xml", pom(parent() + "<artifactId>build-tools</artifactId>"));
+		write("build-tools/src/main/resources/checks.xml", "<checks/>");
+		write("docs/pom.xml", pom(parent() + "<artifactId>docs</artifactId><packaging>pom</packaging>"
+				+ "<build><plugins><plugin><artifactId>maven-checkstyle-plugin</artifactId><dependencies>"
+				+ "<dependency><groupId>com.example</groupId><artifactId>build-tools</artifactId></dependency>"
+				+ "</dependencies></plugin></plugins></build>"));
+		ModuleIndex index = ModuleIndex.scan(project, 3);
+		assertThat(index.get("com.example:docs").getDependencyIds()).containsExactly("com.example:build-tools");
+		ModuleHasher before = new ModuleHasher(index);
+		String docsBefore = before.hash("com.example:docs");
+		String webBefore = before.hash("com.example:web");
+
+		write("build-tools/src/main/resources/checks.xml", "<checks><check/></checks>");
+		ModuleHasher after = new ModuleHasher(ModuleIndex.scan(project, 3));
+
+		assertThat(after.hash("com.example:docs")).as("docs builds with a plugin which depends on build-tools").isNotEqualTo(docsBefore);
+		assertThat(after.hash("com.example:web")).isEqualTo(webBefore);
+	}
+
+	@Test
+	void testBuiltModulesAreRestoredInsteadOfRebuilt() throws IOException {
+		Path cacheFolder = folder.resolve("cache");
+		Path repository = folder.resolve("repository");
+		write("core/target/core-1.0.jar", "core jar");
+		write("core/target/core-1.0-sources.jar", "core sources");
+		write("core/target/surefire-reports/report.txt", "not an artifact");
+		write("web/target/web-1.0.war", "web war");
+
+		Reactor reactor = mainReactor();
+		BuildCache firstBuild = new BuildCache(cacheFolder, repository, ModuleIndex.scan(project, 3), INSTALL);
+		assertThat(firstBuild.restoreHits(Collections.singletonList(reactor))).isEmpty();
+		firstBuild.store(reactor);
+
+		// a branch switch changes web, and a clean removes the target folders
+		write("web/src/main/webapp/index.html", "<html>changed</html>");
+		deleteTargets();
+
+		Reactor rebuild = mainReactor();
+		BuildCache secondBuild = new BuildCache(cacheFolder, repository, ModuleIndex.scan(project, 3), INSTALL);
+		assertThat(secondBuild.restoreHits(Collections.singletonList(rebuild))).containsExactly("com.example:core", "com.example:root");
+		assertThat(rebuild.getActiveModules()).containsExactly("com.example:web");
+
+		assertThat(project.resolve("core/target/core-1.0.jar")).hasContent("core jar");
+		assertThat(project.resolve("core/target/surefire-reports")).doesNotExist();
+		Path coreInRepository = repository.resolve("com/example/core/1.0");
+		assertThat(coreInRepository.resolve("core-1.0.jar")).hasContent("core jar");
+		assertThat(coreInRepository.resolve("core-1.0-sources.jar")).hasContent("core sources");
+		assertThat(coreInRepository.resolve("core-1.0.pom")).hasSameTextualContentAs(project.resolve("core/pom.xml"));
+		assertThat(repository.resolve("com/example/root/1.0/root-1.0.pom")).exists();
+	}
+
+	@Test
+	void testOnlyInstallingBuildsUseTheCache() {
+		assertThat(BuildCache.appliesTo(INSTALL)).isTrue();
+		assertThat(BuildCache.appliesTo(Arrays.asList("verify"))).isFalse();
+		assertThat(BuildCache.appliesTo(Arrays.asList("install", "deploy"))).isFalse();
+
+		assertThat(BuildCache.effectiveGoals(Arrays.asList("-q", "install", "-Pci", "-T4", "-DskipTests", "-o")))
+				.containsExactly("install", "-Pci", "-DskipTests");
+		assertThat(BuildCache.findLocalRepository(Arrays.asList("install", "-Dmaven.repo.local=/tmp/repo"), folder))
+				.isEqualTo(Paths.get("/tmp/repo"));
+	}
+
+	private static Reactor mainReactor() {
+		return reactor("main").withActiveModules("com.example:root", "com.example:core", "com.example:web").build();
+	}
+
+	private void deleteTargets() throws IOException {
+		for (String module : new String[] {"core", "web"}) {
+			Path target = project.resolve(module).resolve("target");
+			try (Stream<Path> paths = Files.walk(target)) {
+				paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+			}
+		}
+	}
+
+	private void write(final String path, final String content) throws IOException {
+		Path file = project.resolve(path);
+		Files.createDirectories(file.getParent());
+		Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String parent() {
+		return "<parent><groupId>com.example</groupId><artifactId>root</artifactId><version>1.0</version></parent>";
+	}
+
+	private static String pom(final String content) {
+		return "<project xmlns=\"http://maven.apache.org/POM/4.0.0\"><modelVersion>4.0.0</modelVersion>" + content + "</project>";
+	}
+}
@@ -0,0 +1,162 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Validate that cache entries are shared through an HTTP server, and that a slow server is given up on.
+ */
+class RemoteBuildCacheTest {
+
+	private static final int TIMEOUT_MILLIS = 500;
+
+	@TempDir
+	Path folder;
+
+	private HttpServer server;
+	private final Map<String, byte[]> blobs = new ConcurrentHashMap<>();
+	private final AtomicInteger activeRequests = new AtomicInteger();
+	private final AtomicInteger mostActiveRequests = new AtomicInteger();
+	private volatile long responseDelayMillis;
+
+	@BeforeEach
+	void startServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.createContext("/cache/", this::handle);
+		server.start();
+	}
+
+	@AfterEach
+	void stopServer() {
+		server.stop(0);
+	}
+
+	@Test
+	void testEntriesAreUploadedAndDownloaded() throws IOException {
+		Path entry = Files.createDirectories(folder.resolve("local").resolve("abc123"));
+		Files.write(entry.resolve("pom.xml"), "<project/>".getBytes(StandardCharsets.UTF_8));
+		Files.write(entry.resolve("core-1.0.jar"), new byte[] {1, 2, 3});
+
+		try (RemoteBuildCache remote = remoteCache(2)) {
+			remote.upload("abc123", entry);
+		}
+		assertThat(blobs).containsOnlyKeys("abc123");
+
+		Path otherMachine = folder.resolve("other");
+		try (RemoteBuildCache remote = remoteCache(2)) {
+			assertThat(remote.fetchAll(Arrays.asList("abc123", "missing"), otherMachine)).containsExactly("abc123");
+			assertThat(remote.isAvailable()).isTrue();
+		}
+		assertThat(otherMachine.resolve("abc123").resolve("core-1.0.jar")).hasBinaryContent(new byte[] {1, 2, 3});
+		assertThat(otherMachine.resolve("abc123").resolve("pom.xml")).hasContent("<project/>");
+		assertThat(otherMachine.resolve("missing")).doesNotExist();
+		try (Stream<Path> entries = Files.list(otherMachine)) {
+			assertThat(entries).as("no partial downloads are left").hasSize(1);
+		}
+	}
+
+	@Test
+	void testTransfersAreBoundedInConcurrency() {
+		responseDelayMillis = 50;
+		try (RemoteBuildCache remote = remoteCache(3)) {
+			remote.fetchAll(Arrays.asList("a", "b", "c", "d", "e", "f", "g", "h"), folder);
+		}
+		assertThat(mostActiveRequests.get()).isBetween(1, 3);
+	}
+
+	@Test
+	void testSlowServerIsGivenUpOn() {
+		blobs.put("abc123", new byte[0]);
+		responseDelayMillis = TIMEOUT_MILLIS * 4;
+
+		try (RemoteBuildCache remote = remoteCache(1)) {
+			long start = System.currentTimeMillis();
+			assertThat(remote.fetchAll(Arrays.asList("abc123", "def456", "ghi789"), folder)).isEmpty();
+			assertThat(remote.isAvailable()).isFalse();
+			assertThat(System.currentTimeMillis() - start).as("only the first request waits").isLessThan(TIMEOUT_MILLIS * 3);
+			remote.upload("abc123", folder);
+		}
+		assertThat(blobs.get("abc123")).as("nothing is uploaded once the server has failed").isEmpty();
+	}
+
+	private RemoteBuildCache remoteCache(final int concurrency) {
+		return new RemoteBuildCache(URI.create("http://localhost:" + server.getAddress().getPort() + "/cache"), concurrency, TIMEOUT_MILLIS);
+	}
+
+	private void handle(final HttpExchange exchange) throws IOException {
+		int active = activeRequests.incrementAndGet();
+		mostActiveRequests.accumulateAndGet(active, Math::max);
+		try {
+			Thread.sleep(responseDelayMillis);
+			String key = exchange.getRequestURI().getPath().substring("/cache/".length());
+			if ("PUT".equals(exchange.getRequestMethod())) {
+				blobs.put(key, readAll(exchange.getRequestBody()));
+				exchange.sendResponseHeaders(201, -1);
+			} else if (blobs.containsKey(key)) {
+				byte[] blob = blobs.get(key);
+				exchange.sendResponseHeaders(200, blob.length == 0 ? -1 : blob.length);
+				try (OutputStream body = exchange.getResponseBody()) {
+					body.write(blob);
+				}
+			} else {
+				exchange.sendResponseHeaders(404, -1);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (IOException e) {
+			// the client gave up waiting
+		} finally {
+			activeRequests.decrementAndGet();
+			exchange.close();
+		}
+	}
+
+	private static byte[] readAll(final InputStream input) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		for (int read = input.read(buffer); read >= 0; read = input.read(buffer)) {
+			bytes.write(buffer, 0, read);
+		}
+		return bytes.toByteArray();
+	}
+}
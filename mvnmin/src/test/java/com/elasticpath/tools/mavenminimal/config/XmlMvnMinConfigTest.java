@@ -0,0 +1,136 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.elasticpath.tools.mavenminimal.reactor.Reactor;
+
+/**
+ * Validate that mvnmin.xml is read into the configuration.
+ */
+class XmlMvnMinConfigTest {
+
+	@TempDir
+	Path project;
+
+	@Test
+	void testAllElementsAreRead() throws IOException {
+		write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+				+ "<!-- comments and unknown elements are ignored -->\n"
+				+ "<mvnmin>\n"
+				+ "  <unknown><module>ignored</module></unknown>\n"
+				+ "  <maven-command>mvnd</maven-command>\n"
+				+ "  <ignored-modules><module>com.example:docs</module><module><![CDATA[com.example:.*-it]]></module></ignored-modules>\n"
+				+ "  <build-ifs>\n"
+				+ "    <build-if><match regex=\"com.example:core\"/><match regex=\"com.example:api\"/><module>com.example:web</module></build-if>\n"
+				+ "  </build-ifs>\n"
+				+ "  <reactors>\n"
+				+ "    <reactor primary=\"true\" extra-params=\"-Dquick\"/>\n"
+				+ "    <reactor name=\"search\" pom=\"search/pom.xml\" single-thread=\"1\" skip-if=\"-DskipSearch\" depends-on=\"Main reactor, \"\n"
+				+ "        memory-weight=\"2g\" cpu-weight=\"1.5\">\n"
+				+ "      <pattern>com.example.search:.*</pattern>\n"
+				+ "    </reactor>\n"
+				+ "    <reactor name=\"docs\" pom=\"docs/pom.xml\"><pattern>com.example:docs</pattern></reactor>\n"
+				+ "  </reactors>\n"
+				+ "</mvnmin>\n");
+
+		XmlMvnMinConfig config = XmlMvnMinConfig.load(project.toFile());
+
+		assertThat(config.getMvnCommand()).isEqualTo("mvnd");
+		assertThat(config.getModulesToIgnore()).containsExactly("com.example:docs", "com.example:.*-it");
+		assertThat(config.getBuildIfModules())
+				.containsEntry("com.example:core", Collections.singletonList("com.example:web"))
+				.containsEntry("com.example:api", Collections.singletonList("com.example:web"));
+		assertThat(config.determineBuildIfProjects(new HashSet<>(Collections.singletonList("com.example:api"))))
+				.contains("com.example:web");
+
+		Reactor primary = config.getPrimaryReactor();
+		assertThat(primary.getReactorName()).isEqualTo("Main reactor");
+		assertThat(primary.getPomLocation()).isEqualTo("pom.xml");
+		assertThat(primary.getExtraParams()).isEqualTo("-Dquick");
+
+		List<Reactor> reactors = config.getSubReactors();
+		assertThat(reactors).extracting(Reactor::getReactorName).containsExactly("search", "docs");
+		Reactor search = reactors.get(0);
+		assertThat(search.getReactorNumber()).isEqualTo(1);
+		assertThat(search.getPomLocation()).isEqualTo("search/pom.xml");
+		assertThat(search.isSingleThread()).isTrue();
+		assertThat(search.getSkipReactorIf()).isEqualTo("-DskipSearch");
+		assertThat(search.getDependsOn()).isEqualTo(Arrays.asList("Main reactor"));
+		assertThat(search.getMemoryWeight()).isEqualTo(2L << 30);
+		assertThat(search.getCpuWeight()).isEqualTo(1.5);
+		assertThat(reactors.get(1).isSingleThread()).isFalse();
+		assertThat(reactors.get(1).getDependsOn()).isNull();
+	}
+
+	@Test
+	void testEmptyAndMissingConfigurationsHaveNoHints() throws IOException {
+		assertThat(XmlMvnMinConfig.load(project.toFile()).getSubReactors()).isEmpty();
+
+		write("<mvnmin><ignored-modules/><build-ifs/><reactors/></mvnmin>");
+		XmlMvnMinConfig config = XmlMvnMinConfig.load(project.toFile());
+		assertThat(config.getModulesToIgnore()).isEmpty();
+		assertThat(config.getBuildIfModules()).isEmpty();
+		assertThat(config.getSubReactors()).isEmpty();
+		assertThat(config.getMvnCommand()).isNull();
+	}
+
+	@Test
+	void testInvalidConfigurationsAreRejected() throws IOException {
+		write("<mvnmin><reactors></mvnmin>");
+		assertThatThrownBy(() -> XmlMvnMinConfig.load(project.toFile()))
+				.isInstanceOf(MvnMinConfigurationException.class)
+				.hasMessage("Failed to load configuration:")
+				.hasRootCauseInstanceOf(XMLStreamException.class);
+
+		write("<config/>");
+		assertThatThrownBy(() -> XmlMvnMinConfig.load(project.toFile()))
+				.isInstanceOf(MvnMinConfigurationException.class)
+				.getCause()
+				.hasMessageContaining("is <config>, not <mvnmin>");
+	}
+
+	@Test
+	void testUnchangedConfigurationIsReadOnce() throws IOException {
+		write("<mvnmin><maven-command>mvn</maven-command></mvnmin>");
+		XmlMvnMinConfig config = XmlMvnMinConfig.load(project.toFile());
+		assertThat(XmlMvnMinConfig.load(project.toFile())).isSameAs(config);
+
+		write("<mvnmin><maven-command>mvnd</maven-command></mvnmin>");
+		assertThat(XmlMvnMinConfig.load(project.toFile()).getMvnCommand()).isEqualTo("mvnd");
+	}
+
+	private void write(final String mvnminXml) throws IOException {
+		Files.write(project.resolve(XmlMvnMinConfig.MVNMIN_CONFIG_FILE_NAME), mvnminXml.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,81 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+
+package com.elasticpath.tools.mavenminimal.jfr;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import jdk.jfr.Name;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Validate that mvnmin's events are recorded, with the settings shipped in mvnmin.jfc.
+ */
+class FlightRecordingTest {
+
+	private static final List<Class<?>> EVENTS = Arrays.asList(GitCommandEvent.class, PomResolutionEvent.class,
+			BuildIfEvaluationEvent.class, ReactorPartitionEvent.class, MavenProcessEvent.class);
+
+	@TempDir
+	Path folder;
+
+	@Test
+	void testSettingsEnableEveryEvent() throws IOException, ParseException {
+		Map<String, String> settings = FlightRecording.readSettings().getSettings();
+
+		for (Class<?> event : EVENTS) {
+			String name = event.getAnnotation(Name.class).value();
+			assertThat(settings).as(name).containsEntry(name + "#enabled", "true").containsEntry(name + "#threshold", "0 ms");
+		}
+	}
+
+	@Test
+	void testEventsAreWrittenToTheRecording() throws IOException {
+		Path file = folder.resolve("recordings").resolve("mvnmin.jfr");
+		try (FlightRecording recording = FlightRecording.start(file)) {
+			assertThat(FlightRecording.isEnabled()).isTrue();
+			new GitCommandEvent("git status -s").end(3, 0);
+			new MavenProcessEvent("search", "ForkedMavenEngine", "mvn install -pl :search", 1).end(1);
+		}
+
+		List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+				.filter(event -> event.getEventType().getName().startsWith("mvnmin."))
+				.collect(Collectors.toList());
+		assertThat(events).extracting(event -> event.getEventType().getName())
+				.containsExactlyInAnyOrder("mvnmin.GitCommand", "mvnmin.MavenProcess");
+		for (RecordedEvent event : events) {
+			if (event.getEventType().getName().equals("mvnmin.GitCommand")) {
+				assertThat(event.getString("command")).isEqualTo("git status -s");
+				assertThat(event.getInt("files")).isEqualTo(3);
+			} else {
+				assertThat(event.getString("reactor")).isEqualTo("search");
+				assertThat(event.getInt("exitValue")).isEqualTo(1);
+			}
+		}
+	}
+}
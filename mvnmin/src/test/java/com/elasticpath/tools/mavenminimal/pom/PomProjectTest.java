@@ -0,0 +1,117 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.pom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Validate that the identity and dependencies of a pom are read.
+ */
+class PomProjectTest {
+
+	@TempDir
+	Path project;
+
+	@Test
+	void testProjectElementsAreReadAndTheRestSkipped() throws IOException {
+		PomProject pom = PomProject.read(write("<?xml version=\"1.0\"?>\n"
+				+ "<project xmlns=\"http://maven.apache.org/POM/4.0.0\" xmlns:x=\"urn:other\">\n"
+				+ "  <modelVersion>4.0.0</modelVersion>\n"
+				+ "  <parent><groupId>com.example</groupId><artifactId>parent</artifactId><version>1.0</version></parent>\n"
+				+ "  <artifactId> core </artifactId>\n"
+				+ "  <packaging>bundle</packaging>\n"
+				+ "  <x:groupId>not.maven</x:groupId>\n"
+				+ "  <dependencyManagement><dependencies>\n"
+				+ "    <dependency><groupId>managed</groupId><artifactId>managed</artifactId></dependency>\n"
+				+ "  </dependencies></dependencyManagement>\n"
+				+ "  <dependencies>\n"
+				+ "    <dependency><groupId>com.example</groupId><artifactId>api</artifactId><scope>test</scope></dependency>\n"
+				+ "  </dependencies>\n"
+				+ "  <profiles><profile><dependencies>\n"
+				+ "    <dependency><groupId>profiled</groupId><artifactId>profiled</artifactId></dependency>\n"
+				+ "  </dependencies></profile></profiles>\n"
+				+ "</project>\n"));
+
+		assertThat(pom.getGroupId()).isNull();
+		assertThat(pom.getArtifactId()).isEqualTo("core");
+		assertThat(pom.getVersion()).isNull();
+		assertThat(pom.getPackaging()).isEqualTo("bundle");
+		assertThat(pom.getParent().getGroupId()).isEqualTo("com.example");
+		assertThat(pom.getParent().getArtifactId()).isEqualTo("parent");
+		assertThat(pom.getParent().getVersion()).isEqualTo("1.0");
+		assertThat(pom.getDependencies()).hasSize(1);
+		assertThat(pom.getDependencies().get(0).getGroupId()).isEqualTo("com.example");
+		assertThat(pom.getDependencies().get(0).getArtifactId()).isEqualTo("api");
+	}
+
+	@Test
+	void testPluginsExtensionsAndProfilesAreReadAsBuildDependencies() throws IOException {
+		PomProject pom = PomProject.read(write("<project><artifactId>a</artifactId>\n"
+				+ "  <build>\n"
+				+ "    <pluginManagement><plugins><plugin><groupId>managed</groupId><artifactId>managed</artifactId></plugin></plugins>"
+				+ "</pluginManagement>\n"
+				+ "    <plugins><plugin><artifactId>maven-checkstyle-plugin</artifactId><dependencies>\n"
+				+ "      <dependency><groupId>g</groupId><artifactId>checks</artifactId></dependency>\n"
+				+ "    </dependencies></plugin></plugins>\n"
+				+ "    <extensions><extension><groupId>g</groupId><artifactId>extension</artifactId></extension></extensions>\n"
+				+ "  </build>\n"
+				+ "  <profiles><profile><id>p</id>\n"
+				+ "    <dependencies><dependency><groupId>g</groupId><artifactId>profiled</artifactId></dependency></dependencies>\n"
+				+ "    <build><plugins><plugin><groupId>g</groupId><artifactId>profiled-plugin</artifactId></plugin></plugins></build>\n"
+				+ "  </profile></profiles>\n"
+				+ "</project>"));
+
+		assertThat(pom.getDependencies()).isEmpty();
+		assertThat(pom.getBuildDependencies())
+				.extracting(dependency -> dependency.getGroupId() + ":" + dependency.getArtifactId())
+				.containsExactly("g:checks", "null:maven-checkstyle-plugin", "g:extension", "g:profiled", "g:profiled-plugin");
+	}
+
+	@Test
+	void testPomsWithoutTheNamespaceAreRead() throws IOException {
+		PomProject pom = PomProject.read(write("<project><groupId>g</groupId><artifactId>a</artifactId><version>2</version></project>"));
+
+		assertThat(pom.getGroupId()).isEqualTo("g");
+		assertThat(pom.getVersion()).isEqualTo("2");
+		assertThat(pom.getParent()).isNull();
+		assertThat(pom.getDependencies()).isEmpty();
+	}
+
+	@Test
+	void testInvalidPomsAreRejected() throws IOException {
+		Path truncated = write("<project><artifactId>a</artifactId>");
+		assertThatThrownBy(() -> PomProject.read(truncated)).isInstanceOf(IOException.class).hasMessageStartingWith("Malformed XML in " + truncated);
+
+		Path settings = write("<settings/>");
+		assertThatThrownBy(() -> PomProject.read(settings)).isInstanceOf(IOException.class).hasMessageContaining("root element is <settings>");
+	}
+
+	private Path write(final String pomXml) throws IOException {
+		Path pom = Files.createTempFile(project, "pom", ".xml");
+		Files.write(pom, pomXml.getBytes(StandardCharsets.UTF_8));
+		return pom;
+	}
+}
@@ -0,0 +1,145 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.reactor;
+
+import static com.elasticpath.tools.mavenminimal.support.ReactorBuilder.reactor;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Validate that build history is kept between runs, and used to estimate and compare builds.
+ */
+class BuildHistoryTest {
+
+	private static final long MEGABYTE = 1024L * 1024;
+
+	@TempDir
+	Path folder;
+
+	@Test
+	void testEstimatesUseTheMedianOfSuccessfulBuilds() {
+		Reactor main = reactor(0, "main").withActiveModules("a", "b").build();
+		run(1, history -> history.recordReactor(main, 10_000, 0));
+		run(2, history -> history.recordReactor(main, 30_000, 0));
+		run(3, history -> history.recordReactor(main, 20_000, 0));
+		run(4, history -> history.recordReactor(main, 500, 1));
+
+		BuildHistory history = new BuildHistory(folder, 5);
+		assertThat(history.expectedReactorMillis(main)).hasValue(20_000);
+		assertThat(history.expectedReactorMillis(reactor(1, "other").withActiveModules("a").build())).isEmpty();
+		assertThat(history.getStoredLines()).isEqualTo(4);
+	}
+
+	@Test
+	void testReactorsAreComparedWithBuildsOfTheSameSize() {
+		run(1, history -> history.recordReactor(reactor(0, "main").withActiveModules("a").build(), 1_000, 0));
+		run(2, history -> history.recordReactor(reactor(0, "main").withActiveModules("a", "b", "c").build(), 9_000, 0));
+
+		BuildHistory history = new BuildHistory(folder, 3);
+		assertThat(history.expectedReactorMillis(reactor(0, "main").withActiveModules("b").build())).hasValue(1_000);
+		assertThat(history.expectedReactorMillis(reactor(0, "main").withActiveModules("a", "b").build()))
+				.as("no builds of the same size")
+				.hasValue(9_000);
+	}
+
+	@Test
+	void testPeakMemoryRefinesWeights() {
+		Reactor main = reactor(0, "main").withActiveModules("a").build();
+		main.setMemoryWeight(4096 * MEGABYTE);
+		run(1, history -> {
+			history.recordReactor(main, 1_000, 0);
+			history.recordPeakRss(main, 2000 * MEGABYTE);
+		});
+		run(2, history -> {
+			history.recordReactor(main, 1_000, 0);
+			history.recordPeakRss(main, 1500 * MEGABYTE);
+		});
+
+		new BuildHistory(folder, 3).refineWeights(Collections.singletonList(main));
+		assertThat(main.getMemoryWeight()).isEqualTo(2000 * MEGABYTE);
+	}
+
+	@Test
+	void testSlowModulesAreReportedAsRegressions() {
+		List<Long> usual = Arrays.asList(20_000L, 21_000L, 19_000L);
+		for (int run = 0; run < usual.size(); run++) {
+			long millis = usual.get(run);
+			run(run, history -> history.recordModules(Arrays.asList(timing("com.example:core", millis), timing("com.example:api", 1_000))));
+		}
+
+		BuildHistory history = new BuildHistory(folder, 10);
+		history.recordModules(Arrays.asList(timing("com.example:core", 45_000), timing("com.example:api", 2_000)));
+
+		// api doubled, but by too little to matter
+		assertThat(history.findRegressions()).singleElement().satisfies(regression -> {
+			assertThat(regression.getName()).isEqualTo("com.example:core");
+			assertThat(regression.getMillis()).isEqualTo(45_000);
+			assertThat(regression.getUsualMillis()).isEqualTo(20_000);
+		});
+	}
+
+	@Test
+	void testHistoryIsCompactedToTheLatestBuilds() throws IOException {
+		Reactor main = reactor(0, "main").withActiveModules("a").build();
+		for (int run = 0; run < 200; run++) {
+			long millis = run;
+			run(run, history -> history.recordReactor(main, millis, 0));
+		}
+
+		BuildHistory history = new BuildHistory(folder, 200);
+		assertThat(history.getStoredLines()).isLessThan(200);
+		assertThat(Files.readAllLines(folder.resolve("builds.tsv"))).hasSize(history.getStoredLines());
+		// the median of the latest kept builds
+		assertThat(history.expectedReactorMillis(main)).hasValue(200 - BuildHistory.KEPT_SAMPLES / 2);
+	}
+
+	@Test
+	void testSchedulerStartsTheSlowestReactorsFirst() {
+		Reactor main = reactor(0, "main").withActiveModules("a").build();
+		Reactor cm = reactor(1, "cm").withActiveModules("b").build();
+		Reactor search = reactor(2, "search").withActiveModules("c").build();
+		Reactor added = reactor(3, "added").withActiveModules("d").build();
+		run(1, history -> {
+			history.recordReactor(main, 5_000, 0);
+			history.recordReactor(cm, 60_000, 0);
+			history.recordReactor(search, 5_000, 0);
+		});
+
+		assertThat(ReactorScheduler.slowestFirst(Arrays.asList(main, cm, search, added), new BuildHistory(folder, 2)))
+				.containsExactly(added, cm, main, search);
+	}
+
+	private void run(final long runMillis, final Consumer<BuildHistory> recorder) {
+		BuildHistory history = new BuildHistory(folder, runMillis);
+		recorder.accept(history);
+		history.save();
+	}
+
+	private static ModuleTiming timing(final String module, final long millis) {
+		return new ModuleTiming("main", module, ModuleTiming.Outcome.SUCCEEDED, millis, Collections.emptyMap());
+	}
+}
@@ -0,0 +1,89 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+
+package com.elasticpath.tools.mavenminimal.reactor;
+
+import static com.elasticpath.tools.mavenminimal.support.ReactorBuilder.reactor;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.elasticpath.tools.mavenminimal.util.Profiler;
+
+/**
+ * Validate that a run's metrics are written in the OpenMetrics text format.
+ */
+class BuildMetricsTest {
+
+	@TempDir
+	Path folder;
+
+	@Test
+	void testMetricsAreGroupedByFamily() throws IOException {
+		Profiler.Phase root = Profiler.begin("mvnmin");
+		for (int attempt = 0; attempt < 2; attempt++) {
+			try (Profiler.Phase maven = Profiler.start("maven \"main\"")) {
+				maven.count("modules", 1);
+			}
+		}
+		root.close();
+
+		Reactor main = reactor("main").withActiveModules("com.example:core", "com.example:api").build();
+		BuildMetrics metrics = new BuildMetrics()
+				.withExitValue(1)
+				.withActivatedModules("git_status", 2)
+				.withActivatedModules("build_if", 0)
+				.withReactors(Collections.singletonList(main))
+				.withCache("build", 4, 1)
+				.withCache("pom", 0, 0)
+				.withPhases(root);
+		metrics.recordReactor(main, 1500, 1);
+
+		Path file = folder.resolve("textfile").resolve("mvnmin.prom");
+		metrics.write(file);
+		String text = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+
+		assertThat(text)
+				.startsWith("# TYPE mvnmin_activated_modules gauge\n"
+						+ "# HELP mvnmin_activated_modules Modules requested by each source, such as git status, or added by build-ifs.\n"
+						+ "mvnmin_activated_modules{source=\"git_status\"} 2\n"
+						+ "mvnmin_activated_modules{source=\"build_if\"} 0\n"
+						+ "# TYPE mvnmin_reactor_modules gauge\n")
+				.contains("mvnmin_reactor_modules{reactor=\"main\"} 2\n")
+				.contains("mvnmin_cache_lookups{cache=\"build\"} 4\nmvnmin_cache_lookups{cache=\"pom\"} 0\n")
+				.contains("mvnmin_cache_hit_ratio{cache=\"build\"} 0.25\n# TYPE")
+				.contains("mvnmin_reactor_duration_seconds{reactor=\"main\"} 1.5\n")
+				.contains("mvnmin_reactor_exit_code{reactor=\"main\"} 1\n")
+				.contains("mvnmin_exit_code 1\n")
+				.endsWith("# EOF\n");
+		assertThat(text.split("\n"))
+				.containsOnlyOnce("# TYPE mvnmin_phase_duration_seconds gauge")
+				.anyMatch(line -> line.matches("mvnmin_phase_duration_seconds\\{phase=\"mvnmin\"} 0\\.\\d+"))
+				.anyMatch(line -> line.startsWith("mvnmin_phase_duration_seconds{phase=\"mvnmin/maven \\\"main\\\"\"} "))
+				.anyMatch(line -> line.matches("mvnmin_last_run_timestamp_seconds \\d+\\.\\d+"))
+				.filteredOn(line -> line.contains("maven \\\"main\\\""))
+				.hasSize(1);
+		assertThat(folder.resolve("textfile")).isDirectoryNotContaining("glob:**.tmp");
+	}
+}
@@ -0,0 +1,96 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.reactor;
+
+import static com.elasticpath.tools.mavenminimal.support.ReactorBuilder.groupReactor;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.elasticpath.tools.mavenminimal.config.MvnMinConfigurationException;
+
+/**
+ * Validate that a build plan is saved, and builds the same modules when loaded.
+ */
+class BuildPlanTest {
+
+	@TempDir
+	Path project;
+
+	@Test
+	void testPlanRestoresTheActiveModulesOfEachReactor() throws IOException {
+		Files.write(project.resolve("mvnmin.xml"), "<mvnmin/>".getBytes(StandardCharsets.UTF_8));
+		Files.createDirectories(project.resolve("cm/core"));
+		Files.write(project.resolve("cm/core/A.java"), "class A {}".getBytes(StandardCharsets.UTF_8));
+		List<Reactor> reactors = Arrays.asList(
+				groupReactor(0, "main").withActiveModules("main:a", "main:b").build(),
+				groupReactor(1, "cm").withActiveModules("cm:core").build(),
+				groupReactor(2, "search").build());
+
+		Path planFile = project.resolve("plan/plan.json");
+		BuildPlan.create(reactors, Collections.singletonList("install"), "mvn", project, Arrays.asList("cm/core/A.java", "gone.txt"))
+				.write(planFile);
+		assertThat(new String(Files.readAllBytes(planFile), StandardCharsets.UTF_8))
+				.contains("\"command\": [\n\t\t\t\t\"mvn\",\n\t\t\t\t\"install\",\n\t\t\t\t\"-f\",\n\t\t\t\t\"cm/pom.xml\"");
+
+		BuildPlan plan = BuildPlan.read(planFile);
+		assertThat(plan.getModules()).containsExactlyInAnyOrder("main:a", "main:b", "cm:core");
+		assertThat(plan.getInputFiles()).containsExactly("cm/core/A.java", "gone.txt");
+		assertThat(plan.findChangedInputs(project)).isEmpty();
+
+		List<Reactor> planned = Arrays.asList(
+				groupReactor(0, "main").withActiveModules("main:a", "main:c").build(),
+				groupReactor(1, "cm").build(),
+				groupReactor(2, "search").withActiveModules("search:x").build());
+		plan.applyTo(planned);
+		assertThat(planned.get(0).getActiveModules()).containsExactlyInAnyOrder("main:a", "main:b");
+		assertThat(planned.get(1).getActiveModules()).containsExactly("cm:core");
+		assertThat(planned.get(2).shouldBuild()).isFalse();
+
+		Files.write(project.resolve("cm/core/A.java"), "class A { }".getBytes(StandardCharsets.UTF_8));
+		Files.write(project.resolve("gone.txt"), "back".getBytes(StandardCharsets.UTF_8));
+		assertThat(plan.findChangedInputs(project)).containsExactly("cm/core/A.java", "gone.txt");
+		Files.delete(project.resolve("mvnmin.xml"));
+		assertThat(plan.findChangedInputs(project)).startsWith("mvnmin.xml");
+	}
+
+	@Test
+	void testInvalidPlansAreRejected() throws IOException {
+		Path planFile = project.resolve("plan.json");
+		Files.write(planFile, "{\"version\": 99}".getBytes(StandardCharsets.UTF_8));
+		assertThatThrownBy(() -> BuildPlan.read(planFile)).isInstanceOf(MvnMinConfigurationException.class).hasMessageContaining("version");
+
+		Files.write(planFile, "{\"version\": 1, \"inputs\": {}}".getBytes(StandardCharsets.UTF_8));
+		assertThatThrownBy(() -> BuildPlan.read(planFile)).isInstanceOf(MvnMinConfigurationException.class).hasMessageContaining("Malformed");
+
+		Reactor gone = groupReactor(0, "gone").withActiveModules("gone:a").build();
+		BuildPlan.create(Collections.singletonList(gone), Collections.emptyList(), "mvn", project, Collections.emptyList()).write(planFile);
+		assertThatThrownBy(() -> BuildPlan.read(planFile).applyTo(Collections.singletonList(groupReactor(0, "main").build())))
+				.isInstanceOf(MvnMinConfigurationException.class)
+				.hasMessageContaining("'gone'");
+	}
+}
@@ -0,0 +1,88 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.reactor;
+
+import static com.elasticpath.tools.mavenminimal.support.ReactorBuilder.groupReactor;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.elasticpath.tools.mavenminimal.config.MvnMinConfigurationException;
+
+/**
+ * Validate that a failed build's plan is kept, and resumed from where it failed.
+ */
+class BuildProgressTest {
+
+	@TempDir
+	Path folder;
+
+	@Test
+	void testFailedBuildIsResumedFromTheFailedModule() {
+		Path file = folder.resolve("progress.tsv");
+		List<Reactor> reactors = Arrays.asList(
+				groupReactor(0, "main").withActiveModules("main:a", "main:b").build(),
+				groupReactor(1, "cm").withActiveModules("cm:core", "cm:web").build(),
+				groupReactor(2, "search").withActiveModules("search:core").build());
+		BuildProgress progress = BuildProgress.plan(file, reactors);
+		progress.recordReactor(reactors.get(0), 0);
+		reactors.get(1).setFailedModule(":web");
+		progress.recordReactor(reactors.get(1), 1);
+
+		List<Reactor> resumed = Arrays.asList(
+				groupReactor(0, "main").withActiveModules("main:a").build(),
+				groupReactor(1, "cm").build(),
+				groupReactor(2, "search").withActiveModules("search:core", "search:web").build(),
+				groupReactor(3, "new").withActiveModules("new:core").build());
+		BuildProgress resumedProgress = BuildProgress.load(file);
+		resumedProgress.resume(resumed);
+
+		assertThat(resumed.get(0).shouldBuild()).as("main succeeded").isFalse();
+		assertThat(resumed.get(1).getActiveModules()).containsExactlyInAnyOrder("cm:core", "cm:web");
+		assertThat(resumed.get(2).getActiveModules()).containsExactly("search:core");
+		assertThat(resumed.get(3).shouldBuild()).as("new wasn't part of the plan").isFalse();
+
+		List<String> args = Collections.singletonList("install");
+		assertThat(resumedProgress.withResumeArguments(resumed.get(1), args)).containsExactly("install", "-rf", ":web");
+		assertThat(resumedProgress.withResumeArguments(resumed.get(2), args)).containsExactly("install");
+		assertThat(resumedProgress.getStatus("cm")).isEqualTo(BuildProgress.Status.FAILED);
+		assertThat(resumedProgress.isComplete()).isFalse();
+	}
+
+	@Test
+	void testPlanIsCompleteWhenEveryReactorSucceeds() {
+		Path file = folder.resolve("progress.tsv");
+		List<Reactor> reactors = Arrays.asList(groupReactor(0, "main").withActiveModules("main:a").build(), groupReactor(1, "cm").build());
+		BuildProgress progress = BuildProgress.plan(file, reactors);
+		assertThat(file).exists();
+
+		reactors.forEach(reactor -> progress.recordReactor(reactor, 0));
+		assertThat(progress.isComplete()).isTrue();
+		progress.delete();
+
+		assertThatThrownBy(() -> BuildProgress.load(file))
+				.isInstanceOf(MvnMinConfigurationException.class)
+				.hasMessageContaining("no failed build to resume");
+	}
+}
@@ -0,0 +1,124 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.reactor;
+
+import static com.elasticpath.tools.mavenminimal.support.ReactorBuilder.reactor;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.elasticpath.tools.mavenminimal.config.MvnMinConfigurationException;
+
+/**
+ * Validate that build events are turned into module timings.
+ */
+class BuildTimingsTest {
+
+	private static final String COMPILE = "maven-compiler-plugin:compile (default-compile)";
+	private static final String TEST = "maven-surefire-plugin:test (default-test)";
+
+	@TempDir
+	Path folder;
+
+	@Test
+	void testEventLogIsReadIntoModuleTimings() throws IOException {
+		Path eventsFile = folder.resolve("events.tsv");
+		Files.write(eventsFile, Arrays.asList(
+				BuildEventLog.format(1000, BuildEventLog.PROJECT_STARTED, "com.example:core", "", "BuilderThread 0"),
+				BuildEventLog.format(1100, BuildEventLog.MOJO_STARTED, "com.example:core", COMPILE, "BuilderThread 0"),
+				BuildEventLog.format(1200, BuildEventLog.PROJECT_STARTED, "com.example:web", "", "BuilderThread 1"),
+				BuildEventLog.format(1600, BuildEventLog.MOJO_SUCCEEDED, "com.example:core", COMPILE, "BuilderThread 0"),
+				BuildEventLog.format(1600, BuildEventLog.MOJO_STARTED, "com.example:core", TEST, "BuilderThread 0"),
+				BuildEventLog.format(3600, BuildEventLog.MOJO_FAILED, "com.example:core", TEST, "BuilderThread 0"),
+				BuildEventLog.format(3700, BuildEventLog.PROJECT_FAILED, "com.example:core", "", "BuilderThread 0"),
+				// written by an older extension, without the thread
+				"3800\tProjectSkipped\tcom.example:app\t",
+				"3900\tProjectSucc"), StandardCharsets.UTF_8);
+
+		List<ModuleTiming> timings = BuildEventLog.read("main", eventsFile);
+
+		// web never finished, and the truncated last line is ignored
+		assertThat(timings).extracting(ModuleTiming::getModule).containsExactly("com.example:core", "com.example:app");
+		ModuleTiming core = timings.get(0);
+		assertThat(core.getReactorName()).isEqualTo("main");
+		assertThat(core.getOutcome()).isEqualTo(ModuleTiming.Outcome.FAILED);
+		assertThat(core.getWallMillis()).isEqualTo(2700);
+		assertThat(core.getMojoMillis()).containsExactly(
+				entry(COMPILE, 500L),
+				entry(TEST, 2000L));
+		assertThat(core.getSlowestMojo()).contains(TEST);
+		assertThat(timings.get(1).getOutcome()).isEqualTo(ModuleTiming.Outcome.SKIPPED);
+	}
+
+	@Test
+	void testEventArgumentsExtendTheExtensionClassPath() throws IOException {
+		Path jar = Files.createFile(folder.resolve("mvnmin-maven-extension-1.0.jar"));
+		Path eventsFolder = folder.resolve("events");
+		BuildTimings buildTimings = new BuildTimings(jar, eventsFolder);
+		Reactor reactor = reactor(2, "web app").withPom("web/pom.xml").build();
+		Files.createDirectories(eventsFolder);
+		Files.createFile(eventsFolder.resolve("2-web_app.tsv"));
+
+		List<String> args = buildTimings.withEventArguments(reactor, Arrays.asList("install", "-Dmaven.ext.class.path=/opt/other.jar", "-o"));
+
+		assertThat(args).containsExactly(
+				"install",
+				"-o",
+				"-Dmaven.ext.class.path=/opt/other.jar" + File.pathSeparator + jar,
+				"-Dmvnmin.events.file=" + eventsFolder.resolve("2-web_app.tsv"));
+		assertThat(eventsFolder.resolve("2-web_app.tsv")).as("the old event log is removed").doesNotExist();
+	}
+
+	@Test
+	void testExtensionJarIsFoundFromTheEnvironmentOrBesideMvnmin() throws IOException {
+		Path jar = Files.createFile(folder.resolve("mvnmin-maven-extension-1.0.4.jar"));
+
+		assertThat(BuildTimings.findExtensionJar(Collections.singletonMap(BuildTimings.EXTENSION_JAR_ENVVAR, jar.toString()), null))
+				.isEqualTo(jar);
+		assertThat(BuildTimings.findExtensionJar(Collections.emptyMap(), folder)).isEqualTo(jar);
+		assertThatThrownBy(() -> BuildTimings.findExtensionJar(Collections.emptyMap(), folder.resolve("missing")))
+				.isInstanceOf(MvnMinConfigurationException.class)
+				.hasMessageContaining(BuildTimings.EXTENSION_JAR_ENVVAR);
+	}
+
+	@Test
+	void testSummaryRanksModulesByWallTime() {
+		List<ModuleTiming> timings = Arrays.asList(
+				new ModuleTiming("main", "com.example:core", ModuleTiming.Outcome.SUCCEEDED, 12300,
+						Collections.singletonMap("maven-surefire-plugin:test (default-test)", 9000L)),
+				new ModuleTiming("web", "com.example:web", ModuleTiming.Outcome.SUCCEEDED, 4000, Collections.emptyMap()),
+				new ModuleTiming("main", "com.example:api", ModuleTiming.Outcome.SUCCEEDED, 100, Collections.emptyMap()));
+
+		assertThat(BuildTimings.summary(timings, 2)).containsExactly(
+				"Module            Reactor       Time  Result     Slowest mojo",
+				"com.example:core  main         12.3s  SUCCEEDED  maven-surefire-plugin:test (default-test) 9.0s",
+				"com.example:web   web           4.0s  SUCCEEDED",
+				"... and 1 more modules");
+	}
+}
@@ -0,0 +1,100 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+
+package com.elasticpath.tools.mavenminimal.reactor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.elasticpath.tools.mavenminimal.util.JsonReader;
+import com.elasticpath.tools.mavenminimal.util.Profiler;
+
+/**
+ * Validate that mvnmin's phases and maven's modules and mojos are written as trace events.
+ */
+class BuildTraceTest {
+
+	private static final String COMPILE = "maven-compiler-plugin:compile (default-compile)";
+
+	@TempDir
+	Path folder;
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void testPhasesAndMavenEventsAreLaidOutByProcessAndThread() throws IOException {
+		Profiler.Phase root = Profiler.begin("mvnmin");
+		try (Profiler.Phase diff = Profiler.start("diff")) {
+			diff.count("files", 2);
+		}
+		root.close();
+
+		Path eventsFile = folder.resolve("events.tsv");
+		Files.write(eventsFile, Arrays.asList(
+				BuildEventLog.format(1000, BuildEventLog.PROJECT_STARTED, "com.example:core", "", "BuilderThread 0"),
+				BuildEventLog.format(1000, BuildEventLog.PROJECT_STARTED, "com.example:api", "", "BuilderThread 1"),
+				BuildEventLog.format(1100, BuildEventLog.MOJO_STARTED, "com.example:core", COMPILE, "BuilderThread 0"),
+				BuildEventLog.format(1600, BuildEventLog.MOJO_SUCCEEDED, "com.example:core", COMPILE, "BuilderThread 0"),
+				BuildEventLog.format(1700, BuildEventLog.PROJECT_SUCCEEDED, "com.example:core", "", "BuilderThread 0"),
+				BuildEventLog.format(1800, BuildEventLog.PROJECT_FAILED, "com.example:api", "", "BuilderThread 1"),
+				BuildEventLog.format(1900, BuildEventLog.PROJECT_SKIPPED, "com.example:web", "", "BuilderThread 0"),
+				BuildEventLog.format(1900, BuildEventLog.PROJECT_STARTED, "com.example:stopped", "", "BuilderThread 0")),
+				StandardCharsets.UTF_8);
+
+		Path traceFile = folder.resolve("trace").resolve("trace.json");
+		new BuildTrace().withPhases(root).withMavenEvents("maven main", eventsFile).write(traceFile);
+
+		Map<?, ?> trace = (Map<?, ?>) JsonReader.parse(new String(Files.readAllBytes(traceFile), StandardCharsets.UTF_8));
+		List<Map<String, Object>> events = (List<Map<String, Object>>) trace.get("traceEvents");
+
+		assertThat(events).filteredOn(event -> "process_name".equals(event.get("name")))
+				.extracting(event -> (Object) ((Map<?, ?>) event.get("args")).get("name"))
+				.containsExactly("mvnmin", "maven main");
+		assertThat(events).filteredOn(event -> "thread_name".equals(event.get("name")) && Long.valueOf(2).equals(event.get("pid")))
+				.extracting(event -> (Object) ((Map<?, ?>) event.get("args")).get("name"))
+				.containsExactly("BuilderThread 0", "BuilderThread 1");
+
+		Map<String, Object> diff = find(events, "diff");
+		assertThat(diff.get("pid")).isEqualTo(1L);
+		assertThat(diff.get("cat")).isEqualTo("mvnmin");
+		assertThat(diff.get("args")).isEqualTo(Collections.singletonMap("files", 2L));
+		assertThat((Long) diff.get("ts")).isGreaterThanOrEqualTo(root.getStartEpochMicros());
+
+		Map<String, Object> compile = find(events, COMPILE);
+		assertThat(compile).containsEntry("ph", "X").containsEntry("ts", 1_100_000L).containsEntry("dur", 500_000L)
+				.containsEntry("pid", 2L).containsEntry("tid", 1L).containsEntry("cat", "mojo");
+		assertThat(find(events, "com.example:api")).containsEntry("tid", 2L).containsEntry("dur", 800_000L)
+				.containsEntry("args", Collections.singletonMap("outcome", "failed"));
+		assertThat(find(events, "com.example:web")).containsEntry("ph", "i");
+		assertThat(events).noneMatch(event -> "com.example:stopped".equals(event.get("name")));
+	}
+
+	private static Map<String, Object> find(final List<Map<String, Object>> events, final String name) {
+		return events.stream().filter(event -> name.equals(event.get("name"))).findFirst()
+				.orElseThrow(() -> new AssertionError("No event named " + name));
+	}
+}
@@ -0,0 +1,154 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.reactor;
+
+import static com.elasticpath.tools.mavenminimal.support.ReactorBuilder.reactor;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.exec.CommandLine;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.elasticpath.tools.mavenminimal.config.MvnMinConfigurationException;
+import com.elasticpath.tools.mavenminimal.util.Environment;
+
+/**
+ * Validate that the maven installation for the embedded engine is found, and shared by the reactors of a run.
+ */
+class EmbeddedMavenEngineTest {
+
+	private static final String POM = "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n"
+			+ "  <modelVersion>4.0.0</modelVersion>\n"
+			+ "  <groupId>com.example</groupId>\n"
+			+ "  <artifactId>embedded</artifactId>\n"
+			+ "  <version>1.0</version>\n"
+			+ "  <packaging>pom</packaging>\n"
+			+ "</project>\n";
+
+	@TempDir
+	Path folder;
+
+	@Test
+	void testMavenHomeVariableIsPreferred() throws IOException {
+		Path mavenHome = mavenInstallation("maven-home");
+		Map<String, String> environment = new HashMap<>();
+		environment.put("MAVEN_HOME", mavenHome.toString());
+		environment.put("PATH", mavenInstallation("on-path").resolve("bin").toString());
+
+		assertThat(EmbeddedMavenEngine.findMavenHome(environment)).isEqualTo(mavenHome);
+	}
+
+	@Test
+	void testMavenOnThePathIsFound() throws IOException {
+		Path mavenHome = mavenInstallation("on-path");
+		Map<String, String> environment = new HashMap<>();
+		environment.put("MAVEN_HOME", folder.resolve("missing").toString());
+		environment.put("PATH", folder.resolve("empty") + File.pathSeparator + mavenHome.resolve("bin"));
+
+		assertThat(EmbeddedMavenEngine.findMavenHome(environment)).isEqualTo(mavenHome.toRealPath());
+	}
+
+	@Test
+	void testMissingMavenIsReported() {
+		Map<String, String> environment = new HashMap<>();
+		environment.put("PATH", folder.toString());
+
+		assertThatThrownBy(() -> EmbeddedMavenEngine.findMavenHome(environment))
+				.isInstanceOf(MvnMinConfigurationException.class)
+				.hasMessageContaining("MAVEN_HOME");
+	}
+
+	@Test
+	void testReactorsShareOneMavenContainer() throws IOException {
+		EmbeddedMavenEngine engine = new EmbeddedMavenEngine(installedMaven());
+		Path pom = folder.resolve("pom.xml");
+		Files.write(pom, POM.getBytes(StandardCharsets.UTF_8));
+		try {
+			ByteArrayOutputStream output = new ByteArrayOutputStream();
+			assertThat(execute(engine, output, "-o", "-B", "-f", pom.toString(), "-Dmvnmin.embedded.test=true", "validate")).isZero();
+			assertThat(execute(engine, output, "-o", "-B", "-f", pom.toString(), "validate")).isZero();
+
+			assertThat(engine.getContainersCreated()).isEqualTo(1);
+			assertThat(new String(output.toByteArray(), StandardCharsets.UTF_8)).contains("BUILD SUCCESS");
+			assertThat(System.getProperty("mvnmin.embedded.test")).isNull();
+			assertThat(System.getProperty("maven.home")).isNull();
+		} finally {
+			engine.close();
+		}
+	}
+
+	@Test
+	void testCancelledReactorDoesntStartMaven() throws IOException {
+		EmbeddedMavenEngine engine = new EmbeddedMavenEngine(folder);
+		CancellableWatchdog watchdog = new CancellableWatchdog();
+		watchdog.cancel();
+		Reactor reactor = reactor("main").build();
+		try (ReactorOutput output = new ReactorOutput(reactor, new ReactorPrinter(4, print(new ByteArrayOutputStream())), null)) {
+			assertThatThrownBy(() -> engine.execute(reactor, new CommandLine("mvn").addArgument("validate"), output, watchdog))
+					.isInstanceOf(IOException.class)
+					.hasMessageContaining("cancelled");
+		}
+		assertThat(engine.getContainersCreated()).isZero();
+	}
+
+	private static int execute(final EmbeddedMavenEngine engine, final ByteArrayOutputStream bytes, final String... args)
+			throws IOException {
+		Reactor reactor = reactor("main").build();
+		try (ReactorOutput output = new ReactorOutput(reactor, new ReactorPrinter(4, print(bytes)), null)) {
+			return engine.execute(reactor, new CommandLine("mvn").addArguments(args, false), output, new CancellableWatchdog());
+		}
+	}
+
+	private static Path installedMaven() {
+		try {
+			return EmbeddedMavenEngine.findMavenHome(Environment.getAll());
+		} catch (MvnMinConfigurationException e) {
+			assumeTrue(false, "needs a maven installation");
+			return null;
+		}
+	}
+
+	private static PrintStream print(final ByteArrayOutputStream bytes) {
+		try {
+			return new PrintStream(bytes, true, "UTF-8");
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private Path mavenInstallation(final String name) throws IOException {
+		Path mavenHome = folder.resolve(name);
+		Files.createDirectories(mavenHome.resolve("boot"));
+		Files.createDirectories(mavenHome.resolve("lib"));
+		Files.createDirectories(mavenHome.resolve("bin"));
+		Files.createFile(mavenHome.resolve("bin").resolve("mvn"));
+		Files.createFile(mavenHome.resolve("bin").resolve("mvn.cmd"));
+		return mavenHome;
+	}
+}
@@ -0,0 +1,109 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.reactor;
+
+import static com.elasticpath.tools.mavenminimal.support.ReactorBuilder.reactor;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.commons.exec.CommandLine;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Validate that reactors are routed to the mvnd daemon pool.
+ */
+class MvndMavenEngineTest {
+
+	@TempDir
+	Path folder;
+
+	@Test
+	void testReactorsReturnToTheirPreviousSlot() {
+		Path slotHistory = folder.resolve("mvnd-slots.properties");
+		Reactor main = reactor("main").build();
+		Reactor cm = reactor("cm").build();
+
+		MvndMavenEngine firstRun = engine(2, slotHistory);
+		assertThat(firstRun.acquireSlot(main)).isEqualTo(0);
+		assertThat(firstRun.acquireSlot(cm)).isEqualTo(1);
+
+		MvndMavenEngine secondRun = engine(2, slotHistory);
+		assertThat(secondRun.acquireSlot(cm)).isEqualTo(1);
+		assertThat(secondRun.acquireSlot(main)).isEqualTo(0);
+	}
+
+	@Test
+	void testBusySlotIsNotShared() {
+		MvndMavenEngine engine = engine(2, folder.resolve("mvnd-slots.properties"));
+		Reactor main = reactor("main").build();
+		Reactor cm = reactor("cm").build();
+
+		assertThat(engine.acquireSlot(main)).isEqualTo(0);
+		engine.releaseSlot(main);
+		assertThat(engine.acquireSlot(cm)).isEqualTo(0);
+		assertThat(engine.acquireSlot(main)).isEqualTo(1);
+	}
+
+	@Test
+	void testCommandUsesRawStreamsAndSharesTheCpus() {
+		MvndMavenEngine engine = engine(2, folder.resolve("mvnd-slots.properties"));
+		CommandLine command = new CommandLine("mvn").addArguments(new String[] {"install", "-f", "pom.xml"}, false);
+
+		CommandLine mvnd = engine.mvndCommand(command, folder.resolve("slot-0"));
+
+		assertThat(mvnd.getExecutable()).isEqualTo("/opt/mvnd/bin/mvnd");
+		assertThat(mvnd.getArguments()).containsExactly(
+				"install", "-f", "pom.xml", "-Dmvnd.daemonStorage=" + folder.resolve("slot-0").toAbsolutePath(), "--raw-streams", "-T4");
+	}
+
+	@Test
+	void testRequestedThreadCountIsKept() {
+		MvndMavenEngine engine = engine(2, folder.resolve("mvnd-slots.properties"));
+		CommandLine command = new CommandLine("mvn").addArguments(new String[] {"install", "-T1"}, false);
+
+		assertThat(engine.mvndCommand(command, folder).getArguments()).containsOnlyOnce("-T1").doesNotContain("-T4");
+	}
+
+	@Test
+	void testPoolKeyDependsOnJvmConfig() throws IOException {
+		Path jvmConfig = folder.resolve("jvm.config");
+		String withoutConfig = MvndMavenEngine.poolKey("/opt/jdk11", jvmConfig);
+		Files.write(jvmConfig, "-Xmx4g".getBytes(StandardCharsets.UTF_8));
+
+		assertThat(MvndMavenEngine.poolKey("/opt/jdk11", jvmConfig))
+				.isNotEqualTo(withoutConfig)
+				.isNotEqualTo(MvndMavenEngine.poolKey("/opt/jdk17", jvmConfig))
+				.isEqualTo(MvndMavenEngine.poolKey("/opt/jdk11", jvmConfig));
+	}
+
+	@Test
+	void testMvndIsDetected() {
+		assertThat(MvndMavenEngine.isMvnd("/opt/mvnd/bin/mvnd")).isTrue();
+		assertThat(MvndMavenEngine.isMvnd("mvnd.cmd")).isTrue();
+		assertThat(MvndMavenEngine.isMvnd("./mvnw")).isFalse();
+		assertThat(MvndMavenEngine.isMvnd("mvn")).isFalse();
+	}
+
+	private MvndMavenEngine engine(final int poolSize, final Path slotHistory) {
+		return new MvndMavenEngine("/opt/mvnd/bin/mvnd", poolSize, 8, folder.resolve("pool"), slotHistory);
+	}
+}
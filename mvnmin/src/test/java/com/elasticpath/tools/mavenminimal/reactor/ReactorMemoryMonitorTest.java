@@ -0,0 +1,66 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.reactor;
+
+import static com.elasticpath.tools.mavenminimal.support.ReactorBuilder.reactor;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Validate that the memory of each reactor's processes is sampled, and remembered between runs.
+ */
+class ReactorMemoryMonitorTest {
+
+	private static final long KILOBYTE = 1024;
+
+	@TempDir
+	Path procRoot;
+
+	@Test
+	void testPeakRssSumsTheProcessesOfEachReactor() throws IOException {
+		Reactor main = reactor(1, "main").build();
+		Reactor cm = reactor(2, "cm").build();
+		process(100, "PATH=/bin\u0000MVNMIN_REACTOR_ID=run:1\u0000", 1000);
+		process(101, "MVNMIN_REACTOR_ID=run:1\u0000HOME=/root\u0000", 500);
+		process(102, "MVNMIN_REACTOR_ID=run:2\u0000", 300);
+		process(103, "MVNMIN_REACTOR_ID=other:1\u0000", 9000);
+		process(104, "PATH=/bin\u0000", 9000);
+		ReactorMemoryMonitor monitor = new ReactorMemoryMonitor(procRoot, "run");
+
+		monitor.sample();
+		process(101, "MVNMIN_REACTOR_ID=run:1\u0000", 100);
+		monitor.sample();
+
+		assertThat(monitor.getPeakRss(main)).isEqualTo(1500 * KILOBYTE);
+		assertThat(monitor.getPeakRss(cm)).isEqualTo(300 * KILOBYTE);
+		assertThat(monitor.getPeakRss(reactor(3, "search").build())).isEqualTo(0);
+	}
+
+	private void process(final int pid, final String environment, final long rssKilobytes) throws IOException {
+		Path process = Files.createDirectories(procRoot.resolve(String.valueOf(pid)));
+		Files.write(process.resolve("environ"), environment.getBytes(StandardCharsets.UTF_8));
+		Files.write(process.resolve("status"), ("Name:\tjava\nVmPeak:\t 99999 kB\nVmRSS:\t  " + rssKilobytes + " kB\n")
+				.getBytes(StandardCharsets.UTF_8));
+	}
+}
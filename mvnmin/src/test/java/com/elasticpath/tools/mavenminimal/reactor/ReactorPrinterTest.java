@@ -0,0 +1,91 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.reactor;
+
+import static com.elasticpath.tools.mavenminimal.support.ReactorBuilder.reactor;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Validate that reactor output is prefixed, logged and tracked.
+ */
+class ReactorPrinterTest {
+
+	@TempDir
+	Path logDirectory;
+
+	@Test
+	void testPrefixedOutputIsWrittenToTheTerminalAndLog() throws IOException {
+		ByteArrayOutputStream terminal = new ByteArrayOutputStream();
+		ReactorPrinter printer = new ReactorPrinter(6, new PrintStream(terminal, true, "UTF-8"))
+				.withPrefixedOutput()
+				.withLogDirectory(logDirectory);
+		Reactor reactor = reactor(1, "search").withPom("search/pom.xml").build();
+
+		ReactorOutput output = printer.openReactorOutput(reactor);
+		write(output.getStdout(), "[INFO] -----------< com.example:search-core >-----------\n[INFO] Building\n");
+		assertThat(output.getCurrentModule()).isEqualTo("com.example:search-core");
+		write(output.getStderr(), "\u001B[1;31m[ERROR] broken\u001B[m\n");
+		write(output.getStdout(), "[ERROR]   mvn <args> -rf :search-core\n");
+		assertThat(output.getResumeFrom()).isEqualTo(":search-core");
+		printer.reactorFinished(output, 1);
+		printer.close();
+
+		String printed = new String(terminal.toByteArray(), StandardCharsets.UTF_8);
+		assertThat(printed)
+				.contains("search | [INFO] Building\n")
+				.contains("search | \u001B[1;31m[ERROR] broken\u001B[m\n")
+				.contains("search | FAILED after 00:00, log: " + output.getLogFile());
+
+		assertThat(output.getLogFile()).isEqualTo(logDirectory.resolve("1-search.log"));
+		assertThat(Files.readAllLines(output.getLogFile())).containsExactly(
+				"[INFO] -----------< com.example:search-core >-----------",
+				"[INFO] Building",
+				"[ERROR] broken",
+				"[ERROR]   mvn <args> -rf :search-core");
+	}
+
+	@Test
+	void testUnprefixedOutputPassesThrough() throws IOException {
+		ByteArrayOutputStream terminal = new ByteArrayOutputStream();
+		ReactorPrinter printer = new ReactorPrinter(4, new PrintStream(terminal, true, "UTF-8"));
+		Reactor reactor = reactor("main").build();
+
+		ReactorOutput output = printer.openReactorOutput(reactor);
+		write(output.getStdout(), "[INFO] BUILD SUCCESS\n[INFO] partial");
+		printer.reactorFinished(output, 0);
+		printer.close();
+
+		assertThat(new String(terminal.toByteArray(), StandardCharsets.UTF_8)).isEqualTo("[INFO] BUILD SUCCESS\n[INFO] partial\n");
+		assertThat(output.getLogFile()).isNull();
+	}
+
+	private static void write(final OutputStream stream, final String text) throws IOException {
+		stream.write(text.getBytes(StandardCharsets.UTF_8));
+		stream.flush();
+	}
+}
@@ -0,0 +1,311 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.reactor;
+
+import static com.elasticpath.tools.mavenminimal.support.ReactorBuilder.reactor;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.exec.CommandLine;
+import org.apache.commons.exec.ExecuteWatchdog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.elasticpath.tools.mavenminimal.config.MvnMinConfigurationException;
+
+/**
+ * Validate that reactors are run in dependency order, and in parallel where allowed.
+ */
+class ReactorSchedulerTest {
+
+	private static final long GIGABYTE = 1024L * 1024 * 1024;
+
+	@TempDir
+	Path historyFolder;
+
+	@Test
+	void testReactorsWithoutDependsOnRunInDeclaredOrder() {
+		List<Reactor> reactors = Arrays.asList(reactor(0, "main").build(), reactor(1, "cm").build(), reactor(2, "search").build());
+		List<String> started = new CopyOnWriteArrayList<>();
+
+		int exitValue = new ReactorScheduler(reactors, 3).run((reactor, watchdog) -> {
+			started.add(reactor.getReactorName());
+			return 0;
+		});
+
+		assertThat(exitValue).isEqualTo(0);
+		assertThat(started).containsExactly("main", "cm", "search");
+	}
+
+	@Test
+	void testIndependentReactorsRunConcurrently() throws InterruptedException {
+		List<Reactor> reactors = Arrays.asList(
+				reactor(0, "main").build(),
+				reactor(1, "cm").withDependsOn("main").build(),
+				reactor(2, "search").withDependsOn("main").build(),
+				reactor(3, "integration").withDependsOn("cm", "search").build());
+		CountDownLatch bothRunning = new CountDownLatch(2);
+		List<String> started = new CopyOnWriteArrayList<>();
+
+		int exitValue = new ReactorScheduler(reactors, 2).run((reactor, watchdog) -> {
+			started.add(reactor.getReactorName());
+			if (reactor.getReactorName().equals("cm") || reactor.getReactorName().equals("search")) {
+				bothRunning.countDown();
+				awaitQuietly(bothRunning);
+			}
+			return 0;
+		});
+
+		assertThat(exitValue).isEqualTo(0);
+		assertThat(bothRunning.await(0, TimeUnit.SECONDS)).isTrue();
+		assertThat(started.get(0)).isEqualTo("main");
+		assertThat(started.subList(1, 3)).containsExactlyInAnyOrder("cm", "search");
+		assertThat(started.get(3)).isEqualTo("integration");
+	}
+
+	@Test
+	void testFailureStopsDependentReactorsAndCancelsRunningOnes() {
+		List<Reactor> reactors = Arrays.asList(
+				reactor(0, "main").withDependsOn().build(),
+				reactor(1, "cm").withDependsOn().build(),
+				reactor(2, "search").withDependsOn("main").build());
+		CountDownLatch cmRunning = new CountDownLatch(1);
+		AtomicInteger cancelled = new AtomicInteger();
+		List<String> started = new CopyOnWriteArrayList<>();
+
+		int exitValue = new ReactorScheduler(reactors, 2).run((reactor, watchdog) -> {
+			started.add(reactor.getReactorName());
+			if (reactor.getReactorName().equals("cm")) {
+				cmRunning.countDown();
+				while (!watchdog.isCancelled()) {
+					Thread.yield();
+				}
+				cancelled.incrementAndGet();
+				return 1;
+			}
+			awaitQuietly(cmRunning);
+			return 2;
+		});
+
+		assertThat(exitValue).isEqualTo(2);
+		assertThat(cancelled.get()).isEqualTo(1);
+		assertThat(started).doesNotContain("search");
+	}
+
+	@Test
+	void testCancelStopsTheBuild() {
+		List<Reactor> reactors = Arrays.asList(reactor(0, "main").build(), reactor(1, "cm").build());
+		List<String> started = new CopyOnWriteArrayList<>();
+		ReactorScheduler scheduler = new ReactorScheduler(reactors, 1);
+
+		int exitValue = scheduler.run((reactor, watchdog) -> {
+			started.add(reactor.getReactorName());
+			scheduler.cancel();
+			// the running reactor's watchdog is cancelled, though it finishes successfully
+			return watchdog.isCancelled() ? 0 : 1;
+		});
+
+		assertThat(exitValue).isEqualTo(ReactorScheduler.CANCELLED_EXIT_VALUE);
+		assertThat(started).containsExactly("main");
+	}
+
+	@Test
+	void testUnknownDependencyIsRejected() {
+		List<Reactor> reactors = Arrays.asList(reactor(0, "main").build(), reactor(1, "cm").withDependsOn("nope").build());
+
+		assertThatThrownBy(() -> new ReactorScheduler(reactors, 1))
+				.isInstanceOf(MvnMinConfigurationException.class)
+				.hasMessageContaining("nope");
+	}
+
+	@Test
+	void testDependencyCycleIsRejected() {
+		List<Reactor> reactors = Arrays.asList(
+				reactor(0, "main").build(),
+				reactor(1, "cm").withDependsOn("search").build(),
+				reactor(2, "search").withDependsOn("cm").build());
+
+		assertThatThrownBy(() -> new ReactorScheduler(reactors, 1))
+				.isInstanceOf(MvnMinConfigurationException.class)
+				.hasMessageContaining("cm")
+				.hasMessageContaining("search");
+	}
+
+	@Test
+	void testReactorsWaitForMemoryBudget() {
+		List<Reactor> reactors = Arrays.asList(
+				reactor(0, "main").withDependsOn().build(),
+				reactor(1, "cm").withDependsOn().build(),
+				reactor(2, "search").withDependsOn().build());
+		reactors.forEach(reactor -> {
+			reactor.consumeActiveModules(new HashSet<>(Collections.singleton(reactor.getReactorName() + "-core")));
+			reactor.setMemoryWeight(GIGABYTE * 6);
+		});
+		AtomicInteger runningNow = new AtomicInteger();
+		AtomicInteger mostRunning = new AtomicInteger();
+
+		int exitValue = new ReactorScheduler(reactors, 3)
+				.withResourceBudget(new ResourceBudget(GIGABYTE * 16, 8))
+				.run((reactor, watchdog) -> {
+					mostRunning.accumulateAndGet(runningNow.incrementAndGet(), Math::max);
+					sleepQuietly();
+					runningNow.decrementAndGet();
+					return 0;
+				});
+
+		assertThat(exitValue).isEqualTo(0);
+		assertThat(mostRunning.get()).isEqualTo(2);
+	}
+
+	@Test
+	void testFailedReactorIsResumedFromTheFailedModule() throws IOException {
+		Reactor cm = reactor(0, "cm").build();
+		cm.consumeActiveModules(new HashSet<>(Arrays.asList("cm:core", "cm:web")));
+		ScriptedMavenEngine engine = new ScriptedMavenEngine(1, 0);
+		RetryLog retryLog = new RetryLog(historyFolder, 1);
+
+		int exitValue = new ReactorScheduler(Collections.singletonList(cm), 1)
+				.withMavenEngine(engine)
+				.withRetries(2, retryLog)
+				.run(Arrays.asList("install", "-rf", ":cm-core"), "mvn", false, printer());
+
+		assertThat(exitValue).isEqualTo(0);
+		assertThat(engine.commands).hasSize(2);
+		assertThat(engine.commands.get(0)).contains("-rf :cm-core");
+		assertThat(engine.commands.get(1)).contains("-rf :cm-web").doesNotContain(":cm-core");
+		assertThat(cm.getActiveModules()).containsExactlyInAnyOrder("cm:core", "cm:web");
+		assertThat(retryLog.findFlakyModules()).containsExactly(":cm-web");
+
+		retryLog.save();
+		RetryLog nextRun = new RetryLog(historyFolder, 2);
+		nextRun.recordAttempt(cm, 1, 1, Collections.singleton(":cm-web"));
+		nextRun.recordAttempt(cm, 2, 0, Collections.emptySet());
+		assertThat(nextRun.countFlakyRuns(":cm-web")).isEqualTo(2);
+	}
+
+	@Test
+	void testOnlyModulesWhichDidntBuildAreRetried() throws IOException {
+		Reactor cm = reactor(0, "cm").build();
+		cm.consumeActiveModules(new HashSet<>(Arrays.asList("cm:core", "cm:web")));
+		ScriptedMavenEngine engine = new ScriptedMavenEngine(1, 0);
+		RetryLog retryLog = new RetryLog(historyFolder, 1);
+
+		int exitValue = new ReactorScheduler(Collections.singletonList(cm), 1)
+				.withMavenEngine(engine)
+				.withBuildTimings(new BuildTimings(historyFolder.resolve("extension.jar"), historyFolder.resolve("events")))
+				.withRetries(1, retryLog)
+				.run(Collections.singletonList("install"), "mvn", false, printer());
+
+		assertThat(exitValue).isEqualTo(0);
+		assertThat(engine.commands.get(0)).contains("--projects cm:");
+		assertThat(engine.commands.get(1)).contains("--projects cm:web").doesNotContain("-rf");
+		assertThat(retryLog.findFlakyModules()).containsExactly("cm:web");
+	}
+
+	@Test
+	void testRetriesRunOut() throws IOException {
+		Reactor cm = reactor(0, "cm").build();
+		cm.consumeActiveModules(new HashSet<>(Collections.singleton("cm:core")));
+		ScriptedMavenEngine engine = new ScriptedMavenEngine(1, 1, 1, 0);
+		RetryLog retryLog = new RetryLog(historyFolder, 1);
+
+		int exitValue = new ReactorScheduler(Collections.singletonList(cm), 1)
+				.withMavenEngine(engine)
+				.withRetries(2, retryLog)
+				.run(Collections.singletonList("install"), "mvn", false, printer());
+
+		assertThat(exitValue).isEqualTo(1);
+		assertThat(engine.commands).hasSize(3);
+		assertThat(retryLog.findFlakyModules()).isEmpty();
+	}
+
+	private static ReactorPrinter printer() throws IOException {
+		return new ReactorPrinter(10, new PrintStream(new ByteArrayOutputStream(), true, "UTF-8"));
+	}
+
+	/**
+	 * Pretends to run maven, failing on the web module while its exit values are non-zero.
+	 */
+	private static final class ScriptedMavenEngine implements MavenEngine {
+		private final Deque<Integer> exitValues;
+		private final List<String> commands = new CopyOnWriteArrayList<>();
+
+		ScriptedMavenEngine(final Integer... exitValues) {
+			this.exitValues = new ArrayDeque<>(Arrays.asList(exitValues));
+		}
+
+		@Override
+		public int execute(final Reactor reactor, final CommandLine command, final ReactorOutput output, final ExecuteWatchdog watchdog)
+				throws IOException {
+			commands.add(String.join(" ", command.toStrings()));
+			int exitValue = exitValues.pop();
+			if (exitValue != 0) {
+				output.getStdout().write("[ERROR]   mvn <args> -rf :cm-web\n".getBytes(StandardCharsets.UTF_8));
+			}
+			for (String arg : command.getArguments()) {
+				if (arg.startsWith("-D" + BuildEventLog.EVENTS_FILE_PROPERTY + "=")) {
+					Files.write(Paths.get(arg.substring(arg.indexOf('=') + 1)), Arrays.asList(
+							BuildEventLog.format(1, BuildEventLog.PROJECT_STARTED, "cm:core", "", "main"),
+							BuildEventLog.format(2, BuildEventLog.PROJECT_SUCCEEDED, "cm:core", "", "main"),
+							BuildEventLog.format(2, BuildEventLog.PROJECT_STARTED, "cm:web", "", "main"),
+							BuildEventLog.format(3, exitValue == 0 ? BuildEventLog.PROJECT_SUCCEEDED : BuildEventLog.PROJECT_FAILED, "cm:web", "",
+									"main")));
+				}
+			}
+			return exitValue;
+		}
+
+		@Override
+		public boolean supportsConcurrentReactors() {
+			return true;
+		}
+	}
+
+	private static void sleepQuietly() {
+		try {
+			Thread.sleep(100);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void awaitQuietly(final CountDownLatch latch) {
+		try {
+			latch.await(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
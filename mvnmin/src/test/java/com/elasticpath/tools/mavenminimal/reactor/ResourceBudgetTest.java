@@ -0,0 +1,84 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.reactor;
+
+import static com.elasticpath.tools.mavenminimal.support.ReactorBuilder.reactor;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Validate that reactors are only admitted while their weights fit the budget.
+ */
+class ResourceBudgetTest {
+
+	private static final long GIGABYTE = 1024L * 1024 * 1024;
+
+	@Test
+	void testReactorsAreAdmittedWhileTheyFit() {
+		ResourceBudget budget = new ResourceBudget(GIGABYTE * 16, 4);
+		Reactor main = reactor("main").withActiveModules("main-core").withWeights(GIGABYTE * 8, 2).build();
+		Reactor cm = reactor("cm").withActiveModules("cm-core").withWeights(GIGABYTE * 6, 1).build();
+		Reactor search = reactor("search").withActiveModules("search-core").withWeights(GIGABYTE * 4, 1).build();
+
+		assertThat(budget.tryAdmit(main)).isTrue();
+		assertThat(budget.tryAdmit(cm)).isTrue();
+		assertThat(budget.tryAdmit(search)).isFalse();
+
+		budget.release(cm);
+		assertThat(budget.tryAdmit(search)).isTrue();
+	}
+
+	@Test
+	void testCpuWeightIsBudgeted() {
+		ResourceBudget budget = new ResourceBudget(GIGABYTE * 16, 4);
+		assertThat(budget.tryAdmit(reactor("main").withActiveModules("main-core").withWeights(0, 3).build())).isTrue();
+		assertThat(budget.tryAdmit(reactor("cm").withActiveModules("cm-core").withWeights(0, 2).build())).isFalse();
+		assertThat(budget.tryAdmit(reactor("search").withActiveModules("search-core").withWeights(0, 0).build())).isTrue();
+	}
+
+	@Test
+	void testOversizedReactorIsAdmittedAlone() {
+		ResourceBudget budget = new ResourceBudget(GIGABYTE * 4, 4);
+		Reactor main = reactor("main").withActiveModules("main-core").withWeights(GIGABYTE * 8, 1).build();
+
+		assertThat(budget.tryAdmit(main)).isTrue();
+		assertThat(budget.tryAdmit(reactor("cm").withActiveModules("cm-core").withWeights(GIGABYTE, 1).build())).isFalse();
+		budget.release(main);
+		assertThat(budget.tryAdmit(reactor("cm").withActiveModules("cm-core").withWeights(GIGABYTE, 1).build())).isTrue();
+	}
+
+	@Test
+	void testSkippedReactorReturnsTheWeightsItWasAdmittedWith() {
+		ResourceBudget budget = new ResourceBudget(GIGABYTE * 16, 4);
+		Reactor cm = reactor("cm").withActiveModules("cm-core").withWeights(GIGABYTE * 8, 2).withSkipReactorIf("-P!cm").build();
+		Reactor main = reactor("main").withActiveModules("main-core").withWeights(GIGABYTE * 8, 2).build();
+
+		assertThat(budget.tryAdmit(cm)).isTrue();
+		assertThat(budget.tryAdmit(main)).isTrue();
+
+		// maven skips the reactor once it sees the profile matching skip-if, after the reactor was admitted
+		MavenDriver.determineMavenCommand(cm, Arrays.asList("install", "-P!cm"), null);
+		assertThat(cm.shouldBuild()).isFalse();
+
+		budget.release(cm);
+		assertThat(budget.tryAdmit(reactor("search").withActiveModules("search-core").withWeights(GIGABYTE * 8, 2).build())).isTrue();
+		assertThat(budget.tryAdmit(reactor("integration").withActiveModules("integration-core").withWeights(GIGABYTE, 1).build())).isFalse();
+	}
+}
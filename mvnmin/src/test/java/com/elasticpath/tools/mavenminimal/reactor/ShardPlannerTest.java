@@ -0,0 +1,100 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.reactor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Validate that modules are split into balanced shards, keeping modules which depend on each other together.
+ */
+class ShardPlannerTest {
+
+	private final Map<String, Collection<String>> upstream = new HashMap<>();
+	private final Map<String, Long> millis = new HashMap<>();
+
+	@Test
+	void testShardsAreBalancedByBuildTime() {
+		millis.put("g:a", 100L);
+		millis.put("g:b", 90L);
+		millis.put("g:c", 60L);
+		millis.put("g:d", 50L);
+		upstream.put("g:d", Collections.singletonList("g:c"));
+
+		List<Set<String>> shards = planner(2).partition(Arrays.asList("g:a", "g:b", "g:c", "g:d", "g:e"));
+
+		assertThat(shards.get(0)).as("c and d, then e which weighs the average").containsExactly("g:c", "g:d", "g:e");
+		assertThat(shards.get(1)).containsExactly("g:a", "g:b");
+	}
+
+	@Test
+	void testConnectedModulesShareAShardWhateverTheirOrder() {
+		upstream.put("g:web", Arrays.asList("g:core", "com.other:lib"));
+		upstream.put("g:core-test", Collections.singletonList("g:parent"));
+		upstream.put("g:core", Collections.singletonList("g:parent"));
+
+		List<String> modules = Arrays.asList("g:web", "g:core", "g:core-test", "g:parent", "g:search", "g:tools");
+		List<Set<String>> shards = planner(3).partition(modules);
+		List<String> reversed = Arrays.asList("g:tools", "g:search", "g:parent", "g:core-test", "g:core", "g:web");
+
+		assertThat(shards.get(0)).containsExactly("g:core", "g:core-test", "g:parent", "g:web");
+		assertThat(shards.get(1)).containsExactly("g:search");
+		assertThat(shards.get(2)).containsExactly("g:tools");
+		assertThat(planner(3).partition(reversed)).isEqualTo(shards);
+		assertThat(planner(8).partition(modules)).hasSize(8).filteredOn(Set::isEmpty).hasSize(5);
+	}
+
+	@Test
+	void testWithoutBuildTimesModulesWeighTheSame() {
+		upstream.put("g:b", Collections.singletonList("g:a"));
+
+		List<Set<String>> shards = planner(2).partition(Arrays.asList("g:a", "g:b", "g:c", "g:d"));
+
+		assertThat(shards.get(0)).containsExactly("g:a", "g:b");
+		assertThat(shards.get(1)).containsExactly("g:c", "g:d");
+	}
+
+	@Test
+	void testFingerprintChangesWithTheInputs() {
+		List<String> modules = Arrays.asList("g:a", "g:b", "g:c");
+		String fingerprint = planner(2).fingerprint(modules);
+
+		assertThat(planner(2).fingerprint(Arrays.asList("g:c", "g:b", "g:a"))).isEqualTo(fingerprint);
+		assertThat(planner(3).fingerprint(modules)).isNotEqualTo(fingerprint);
+		millis.put("g:a", 100L);
+		assertThat(planner(2).fingerprint(modules)).isNotEqualTo(fingerprint);
+		millis.clear();
+		upstream.put("g:b", Collections.singletonList("g:a"));
+		assertThat(planner(2).fingerprint(modules)).isNotEqualTo(fingerprint);
+	}
+
+	private ShardPlanner planner(final int shardCount) {
+		return new ShardPlanner(shardCount,
+				module -> upstream.getOrDefault(module, Collections.emptyList()),
+				module -> millis.containsKey(module) ? OptionalLong.of(millis.get(module)) : OptionalLong.empty());
+	}
+}
@@ -0,0 +1,106 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.reactor;
+
+import static com.elasticpath.tools.mavenminimal.support.ReactorBuilder.reactor;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Validate that CPUs are shared out between running reactors.
+ */
+class ThreadAllocatorTest {
+
+	private final Map<String, Collection<String>> upstream = new HashMap<>();
+
+	@Test
+	void testThreadsLimitedByActiveModules() {
+		ThreadAllocator allocator = new ThreadAllocator(16, 1);
+		assertThat(allocator.allocate(reactor("cm").withActiveModules("a", "b", "c").build())).isEqualTo(3);
+	}
+
+	@Test
+	void testChainOfModulesGetsOneThread() {
+		upstream.put("g:b", Collections.singletonList("g:a"));
+		upstream.put("g:c", Collections.singletonList("g:b"));
+		upstream.put("g:d", Arrays.asList("g:c", "g:a"));
+		ThreadAllocator allocator = new ThreadAllocator(16, 1).withUpstreamModules(this::upstreamOf);
+
+		assertThat(allocator.allocate(reactor("cm").withActiveModules("g:a", "g:b", "g:c", "g:d").build())).isEqualTo(1);
+	}
+
+	@Test
+	void testThreadsLimitedByTheWidestLevelOfTheModuleGraph() {
+		upstream.put("g:api", Collections.singletonList("g:parent"));
+		upstream.put("g:core", Collections.singletonList("g:api"));
+		upstream.put("g:web", Collections.singletonList("g:api"));
+		upstream.put("g:batch", Collections.singletonList("g:api"));
+		// through a module which isn't active
+		upstream.put("g:plugins", Collections.singletonList("g:inactive"));
+		upstream.put("g:inactive", Collections.singletonList("g:core"));
+		ThreadAllocator allocator = new ThreadAllocator(16, 1).withUpstreamModules(this::upstreamOf);
+
+		Reactor reactor = reactor("cm").withActiveModules("g:parent", "g:api", "g:core", "g:web", "g:batch", "g:plugins").build();
+		assertThat(allocator.estimateGraphWidth(reactor)).isEqualTo(3);
+		assertThat(allocator.allocate(reactor)).isEqualTo(3);
+	}
+
+	@Test
+	void testCpusSplitBetweenConcurrentReactors() {
+		ThreadAllocator allocator = new ThreadAllocator(12, 3);
+		Reactor main = reactor("main").withActiveModules("a", "b", "c", "d", "e", "f", "g", "h").build();
+		Reactor cm = reactor("cm").withActiveModules("i", "j", "k", "l", "m", "n", "o", "p").build();
+		Reactor search = reactor("search").withActiveModules("q", "r", "s", "t", "u", "v", "w", "x").build();
+
+		assertThat(allocator.allocate(main)).isEqualTo(4);
+		assertThat(allocator.allocate(cm)).isEqualTo(4);
+		assertThat(allocator.allocate(search)).isEqualTo(4);
+	}
+
+	@Test
+	void testNarrowReactorLeavesCpusForTheOthers() {
+		ThreadAllocator allocator = new ThreadAllocator(8, 2);
+		Reactor search = reactor("search").withActiveModules("a").build();
+		Reactor main = reactor("main").withActiveModules("b", "c", "d", "e", "f", "g", "h", "i", "j").build();
+
+		assertThat(allocator.allocate(search)).isEqualTo(1);
+		assertThat(allocator.allocate(main)).isEqualTo(7);
+
+		allocator.release(search);
+		allocator.release(main);
+		assertThat(allocator.allocate(reactor("integration").withActiveModules("k", "l", "m", "n", "o", "p").build())).isEqualTo(4);
+	}
+
+	@Test
+	void testEveryReactorGetsAThread() {
+		ThreadAllocator allocator = new ThreadAllocator(2, 4);
+		assertThat(allocator.allocate(reactor("main").withActiveModules("a", "b").build())).isEqualTo(1);
+		assertThat(allocator.allocate(reactor("cm").withActiveModules("c", "d").build())).isEqualTo(1);
+		assertThat(allocator.allocate(reactor("search").withActiveModules("e", "f").build())).isEqualTo(1);
+	}
+
+	private Collection<String> upstreamOf(final String module) {
+		return upstream.getOrDefault(module, Collections.emptyList());
+	}
+}
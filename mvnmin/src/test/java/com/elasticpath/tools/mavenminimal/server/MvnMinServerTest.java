@@ -0,0 +1,186 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.OptionalInt;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.elasticpath.tools.mavenminimal.diff.GitFilesystemProjectRepository;
+
+/**
+ * Validate that the mvnmin server runs requests from clients in its project, and stops when idle.
+ */
+class MvnMinServerTest {
+
+	private static final long WAIT_MILLIS = 10_000;
+
+	@TempDir
+	Path project;
+
+	private MvnMinServer server;
+
+	@AfterEach
+	void stopServer() {
+		if (server != null) {
+			server.stop();
+		}
+	}
+
+	@Test
+	void testRequestsRunInTheServer() throws Exception {
+		CompletableFuture<Integer> serving = start(WAIT_MILLIS);
+		Properties serverFile = MvnMinClient.readServerFile(server.getServerFile());
+
+		ByteArrayOutputStream help = new ByteArrayOutputStream();
+		assertThat(MvnMinClient.forward(serverFile, request(serverFile, project, "--help"), print(help))).isEqualTo(OptionalInt.of(0));
+		assertThat(text(help)).startsWith("usage: mvmin");
+
+		// --help exits mvnmin, but not the server
+		ByteArrayOutputStream version = new ByteArrayOutputStream();
+		assertThat(MvnMinClient.forward(serverFile, request(serverFile, project, "--version"), print(version))).isEqualTo(OptionalInt.of(0));
+		assertThat(text(version)).startsWith("mvnmin ");
+
+		server.stop();
+		assertThat(serving.get(WAIT_MILLIS, TimeUnit.MILLISECONDS)).isZero();
+		assertThat(server.getServerFile()).doesNotExist();
+	}
+
+	@Test
+	void testRequestsFromOtherFoldersOrWithoutTheTokenAreRefused() throws Exception {
+		start(WAIT_MILLIS);
+		Properties serverFile = MvnMinClient.readServerFile(server.getServerFile());
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+		assertThat(MvnMinClient.forward(serverFile, request(serverFile, project.resolve("module"), "--version"), print(output))).isEmpty();
+		ServerRequest wrongToken = new ServerRequest("guess", project.toString(), Collections.singletonList("--version"),
+				Collections.emptyMap(), null, false);
+		assertThat(MvnMinClient.forward(serverFile, wrongToken, print(output))).isEmpty();
+		assertThat(output.size()).isZero();
+	}
+
+	@Test
+	void testStdinIsLeftForMvnminWhenTheServerIsGone() throws Exception {
+		int deadPort;
+		try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+			deadPort = socket.getLocalPort();
+		}
+		Path serverFile = ServerProtocol.serverFile(project);
+		Files.createDirectories(serverFile.getParent());
+		Files.write(serverFile, Arrays.asList(ServerProtocol.PORT_PROPERTY + "=" + deadPort, ServerProtocol.TOKEN_PROPERTY + "=stale"));
+		BufferedInputStream stdin = stdin("com.example:core\n");
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+		assertThat(MvnMinClient.forward(project, Collections.singletonList("--version"), stdin, print(output))).isEmpty();
+		assertThat(text(stdin)).isEqualTo("com.example:core\n");
+		assertThat(output.size()).isZero();
+	}
+
+	@Test
+	void testStdinIsRewoundWhenTheServerRefusesTheRequest() throws Exception {
+		start(WAIT_MILLIS);
+		// a server file pointing at the server, from a folder the server doesn't serve
+		Path other = project.resolve("module");
+		Path serverFile = ServerProtocol.serverFile(other);
+		Files.createDirectories(serverFile.getParent());
+		Files.copy(server.getServerFile(), serverFile);
+		BufferedInputStream stdin = stdin("com.example:core\n");
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+		assertThat(MvnMinClient.forward(other, Collections.singletonList("--version"), stdin, print(output))).isEmpty();
+		assertThat(text(stdin)).isEqualTo("com.example:core\n");
+	}
+
+	@Test
+	void testServerStopsWhenIdle() throws Exception {
+		CompletableFuture<Integer> serving = start(1);
+		assertThat(serving.get(WAIT_MILLIS, TimeUnit.MILLISECONDS)).isZero();
+		assertThat(server.getServerFile()).doesNotExist();
+	}
+
+	@Test
+	void testOnlyOneServerRunsForAProject() throws Exception {
+		start(WAIT_MILLIS);
+		ByteArrayOutputStream log = new ByteArrayOutputStream();
+		MvnMinServer second = new MvnMinServer(project, new GitFilesystemProjectRepository(), WAIT_MILLIS);
+		assertThat(second.serve(print(log))).isEqualTo(1);
+		assertThat(text(log)).contains("a server is already running");
+		assertThat(server.getServerFile()).exists();
+	}
+
+	private CompletableFuture<Integer> start(final long idleTimeoutMillis) throws InterruptedException {
+		server = new MvnMinServer(project, new GitFilesystemProjectRepository(), idleTimeoutMillis);
+		CompletableFuture<Integer> serving = CompletableFuture.supplyAsync(() -> server.serve(print(new ByteArrayOutputStream())));
+		long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+		while (!Files.exists(server.getServerFile()) && !serving.isDone() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		return serving;
+	}
+
+	private static ServerRequest request(final Properties serverFile, final Path directory, final String... args) {
+		return new ServerRequest(serverFile.getProperty(ServerProtocol.TOKEN_PROPERTY), directory.toString(), Arrays.asList(args),
+				System.getenv(), null, false);
+	}
+
+	private static BufferedInputStream stdin(final String text) {
+		return new BufferedInputStream(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private static String text(final InputStream stream) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		int read = stream.read();
+		while (read != -1) {
+			bytes.write(read);
+			read = stream.read();
+		}
+		return text(bytes);
+	}
+
+	private static PrintStream print(final ByteArrayOutputStream bytes) {
+		try {
+			return new PrintStream(bytes, true, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String text(final ByteArrayOutputStream bytes) {
+		return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,145 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.support;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.elasticpath.tools.mavenminimal.reactor.Reactor;
+
+/**
+ * Builds reactors for tests.  Unless told otherwise, a reactor is number 0, built from pom.xml, and owns every module.
+ * Tests which need the reactors to own different modules use groupReactor().
+ */
+public final class ReactorBuilder {
+
+	private final int number;
+	private final String name;
+	private String pom = "pom.xml";
+	private String modulePattern = ".*";
+	private String skipReactorIf = "";
+	private final Set<String> activeModules = new HashSet<>();
+	private List<String> dependsOn;
+	private Long memoryWeight;
+	private Double cpuWeight;
+
+	private ReactorBuilder(final int number, final String name) {
+		this.number = number;
+		this.name = name;
+	}
+
+	/**
+	 * @param name the name of the reactor
+	 * @return a builder for reactor number 0.
+	 */
+	public static ReactorBuilder reactor(final String name) {
+		return new ReactorBuilder(0, name);
+	}
+
+	/**
+	 * @param number the number of the reactor, its position in mvnmin.xml
+	 * @param name the name of the reactor
+	 * @return a builder for the reactor.
+	 */
+	public static ReactorBuilder reactor(final int number, final String name) {
+		return new ReactorBuilder(number, name);
+	}
+
+	/**
+	 * @param number the number of the reactor, its position in mvnmin.xml
+	 * @param group the name of the reactor, and the group id of the modules it owns
+	 * @return a builder for a reactor built from the pom in the folder named after the group, which owns the group's modules.
+	 */
+	public static ReactorBuilder groupReactor(final int number, final String group) {
+		return new ReactorBuilder(number, group).withPom(group + "/pom.xml").withModulePattern(group + ":.*");
+	}
+
+	/**
+	 * @param pom the reactor's pom, relative to the project root
+	 * @return this instance.
+	 */
+	public ReactorBuilder withPom(final String pom) {
+		this.pom = pom;
+		return this;
+	}
+
+	/**
+	 * @param modulePattern the pattern of the modules the reactor owns
+	 * @return this instance.
+	 */
+	public ReactorBuilder withModulePattern(final String modulePattern) {
+		this.modulePattern = modulePattern;
+		return this;
+	}
+
+	/**
+	 * @param modules the modules the reactor should build, of those it owns
+	 * @return this instance.
+	 */
+	public ReactorBuilder withActiveModules(final String... modules) {
+		activeModules.addAll(Arrays.asList(modules));
+		return this;
+	}
+
+	/**
+	 * @param reactors the names of the reactors this reactor depends on, none for a reactor which depends on nothing
+	 * @return this instance.
+	 */
+	public ReactorBuilder withDependsOn(final String... reactors) {
+		this.dependsOn = Arrays.asList(reactors);
+		return this;
+	}
+
+	/**
+	 * @param skipReactorIf the pattern of a maven argument which skips the reactor
+	 * @return this instance.
+	 */
+	public ReactorBuilder withSkipReactorIf(final String skipReactorIf) {
+		this.skipReactorIf = skipReactorIf;
+		return this;
+	}
+
+	/**
+	 * @param memoryWeight the bytes of memory the reactor is expected to use
+	 * @param cpuWeight the CPUs the reactor is expected to use
+	 * @return this instance.
+	 */
+	public ReactorBuilder withWeights(final long memoryWeight, final double cpuWeight) {
+		this.memoryWeight = memoryWeight;
+		this.cpuWeight = cpuWeight;
+		return this;
+	}
+
+	/**
+	 * @return the reactor.
+	 */
+	public Reactor build() {
+		Reactor reactor = new Reactor(number, name, pom, new HashSet<>(Collections.singleton(modulePattern)), false, "", skipReactorIf);
+		reactor.consumeActiveModules(new HashSet<>(activeModules));
+		if (dependsOn != null) {
+			reactor.setDependsOn(dependsOn);
+		}
+		if (memoryWeight != null) {
+			reactor.setMemoryWeight(memoryWeight);
+			reactor.setCpuWeight(cpuWeight);
+		}
+		return reactor;
+	}
+}
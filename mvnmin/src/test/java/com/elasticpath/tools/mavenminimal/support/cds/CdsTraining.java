@@ -0,0 +1,168 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.support.cds;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Trains the AppCDS (Application Class Data Sharing) class list shipped with mvnmin, and benchmarks the startup it gains.
+ *
+ * Run by the cds profile when packaging, with the shaded jar and the build folder as arguments.  A fixture project is
+ * generated, the classes loaded by {@code mvnmin -p --all} in it are written to {@code mvnmin.classlist}, and a shared
+ * archive of those classes is dumped to {@code mvnmin.jsa}.  Finally mvnmin is run with and without the archive, and
+ * the median startup times are printed.
+ */
+public final class CdsTraining {
+
+	private static final int MODULES_PER_LEVEL = 4;
+	private static final int LEVELS = 3;
+	private static final int BENCHMARK_RUNS = 10;
+	private static final long NANOS_PER_MILLI = 1_000_000;
+
+	private final Path java = Paths.get(System.getProperty("java.home"), "bin", "java");
+	private final Path jar;
+	private final Path buildFolder;
+	private final Path fixture;
+	private final Path log;
+
+	private CdsTraining(final Path jar, final Path buildFolder) {
+		this.jar = jar.toAbsolutePath();
+		this.buildFolder = buildFolder.toAbsolutePath();
+		this.fixture = this.buildFolder.resolve("cds-fixture");
+		this.log = this.buildFolder.resolve("cds-training.log");
+	}
+
+	/**
+	 * Train the class list, dump the archive and benchmark it.
+	 * @param args the shaded jar, and the folder to write the class list and archive to
+	 * @throws IOException if the files can't be written, or a java process fails
+	 * @throws InterruptedException if interrupted while waiting for a java process
+	 */
+	public static void main(final String[] args) throws IOException, InterruptedException {
+		if (args.length != 2) {
+			throw new IllegalArgumentException("Usage: CdsTraining <mvnmin jar> <output folder>");
+		}
+		new CdsTraining(Paths.get(args[0]), Paths.get(args[1])).train();
+	}
+
+	private void train() throws IOException, InterruptedException {
+		Path classList = buildFolder.resolve("mvnmin.classlist");
+		Path archive = buildFolder.resolve("mvnmin.jsa");
+		Files.deleteIfExists(classList);
+		Files.deleteIfExists(archive);
+		Files.deleteIfExists(log);
+		generateFixture();
+
+		run(fixture, java.toString(), "-XX:DumpLoadedClassList=" + classList, "-jar", jar.toString(), "-p", "--all");
+		run(buildFolder, java.toString(), "-Xshare:dump", "-XX:SharedClassListFile=" + classList, "-XX:SharedArchiveFile=" + archive,
+				"-cp", jar.toString());
+
+		// Alternate the runs, so that anything else happening on the machine affects both alike
+		List<Long> withoutArchive = new ArrayList<>();
+		List<Long> withArchive = new ArrayList<>();
+		for (int run = 0; run < BENCHMARK_RUNS; run++) {
+			withoutArchive.add(run(fixture, java.toString(), "-jar", jar.toString(), "-p", "--all"));
+			withArchive.add(run(fixture, java.toString(), "-Xshare:on", "-XX:SharedArchiveFile=" + archive, "-jar", jar.toString(),
+					"-p", "--all"));
+		}
+		System.out.printf("mvnmin -p --all startup, median of %d runs: %d ms without the AppCDS archive, %d ms with it%n",
+				BENCHMARK_RUNS, median(withoutArchive), median(withArchive));
+	}
+
+	/**
+	 * Generate a tree of pom projects, LEVELS deep with MODULES_PER_LEVEL modules under each pom project.
+	 */
+	private void generateFixture() throws IOException {
+		if (Files.exists(fixture)) {
+			try (Stream<Path> paths = Files.walk(fixture)) {
+				for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+					Files.delete(path);
+				}
+			}
+		}
+		generateModule(fixture, "fixture", 0);
+	}
+
+	private void generateModule(final Path folder, final String artifactId, final int level) throws IOException {
+		List<String> modules = new ArrayList<>();
+		if (level < LEVELS) {
+			for (int module = 1; module <= MODULES_PER_LEVEL; module++) {
+				modules.add(artifactId + "-" + module);
+			}
+		}
+		StringBuilder pom = new StringBuilder()
+				.append("<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n")
+				.append("\t<modelVersion>4.0.0</modelVersion>\n")
+				.append("\t<groupId>com.example.fixture</groupId>\n")
+				.append("\t<artifactId>").append(artifactId).append("</artifactId>\n")
+				.append("\t<version>1.0</version>\n")
+				.append("\t<packaging>").append(modules.isEmpty() ? "jar" : "pom").append("</packaging>\n");
+		if (!modules.isEmpty()) {
+			pom.append("\t<modules>\n");
+			modules.forEach(module -> pom.append("\t\t<module>").append(module).append("</module>\n"));
+			pom.append("\t</modules>\n");
+		}
+		pom.append("</project>\n");
+
+		Files.createDirectories(folder);
+		Files.write(folder.resolve("pom.xml"), pom.toString().getBytes(StandardCharsets.UTF_8));
+		for (String module : modules) {
+			generateModule(folder.resolve(module), module, level + 1);
+		}
+	}
+
+	/**
+	 * Run a command, appending its output to the training log.
+	 * @return the elapsed milliseconds
+	 */
+	private long run(final Path folder, final String... command) throws IOException, InterruptedException {
+		long start = System.nanoTime();
+		Process process = new ProcessBuilder(command)
+				.directory(folder.toFile())
+				.redirectErrorStream(true)
+				.redirectOutput(ProcessBuilder.Redirect.appendTo(log.toFile()))
+				.redirectInput(ProcessBuilder.Redirect.from(nullFile()))
+				.start();
+		int exitValue = process.waitFor();
+		long elapsedMillis = (System.nanoTime() - start) / NANOS_PER_MILLI;
+		if (exitValue != 0) {
+			throw new IOException("Failed with exit value " + exitValue + ", see " + log + ": " + Arrays.toString(command));
+		}
+		return elapsedMillis;
+	}
+
+	private static File nullFile() {
+		return new File(System.getProperty("os.name").startsWith("Windows") ? "NUL" : "/dev/null");
+	}
+
+	private static long median(final List<Long> values) {
+		List<Long> sorted = new ArrayList<>(values);
+		Collections.sort(sorted);
+		return sorted.get(sorted.size() / 2);
+	}
+}
@@ -43,6 +43,11 @@ import com.elasticpath.tools.mavenminimal.util.Pair;
  */
 public class MvnMinLauncher {
 
+	/**
+	 * The system property naming an mvnmin executable to test, instead of running MvnMinCli in a new JVM.
+	 */
+	public static final String EXECUTABLE_PROPERTY = "mvnmin.executable";
+
 
 	public static void assertMvnMin(final GitRepoTestHarness repository, final String[] mvnminArgs, final int expectedReturnValue, final String expectedOutput)
 			throws IOException, InterruptedException {
@@ -85,10 +90,14 @@ public class MvnMinLauncher {
 	private static Pair<Integer, String> mvnmin(final GitRepoTestHarness repository, final String [] args,
 			final Set<String> projectsToActivateStdin) throws IOException,
 			InterruptedException {
-		String [] commands = {"java",
-				"-classpath", System.getProperty("java.class.path"),
-				MvnMinCli.class.getName()};
-		List<String> finalCommand = new ArrayList<>(Arrays.asList(commands));
+		List<String> finalCommand = new ArrayList<>();
+		String executable = System.getProperty(EXECUTABLE_PROPERTY);
+		if (executable == null) {
+			finalCommand.addAll(Arrays.asList("java", "-classpath", System.getProperty("java.class.path"), MvnMinCli.class.getName()));
+		} else {
+			// e.g. the native executable, built by the native profile
+			finalCommand.add(executable);
+		}
 		finalCommand.addAll(Arrays.asList(args));
 		ProcessBuilder builder = new ProcessBuilder().directory(repository.rootDirectory()).command(finalCommand);
 
@@ -0,0 +1,99 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Validate that container limits are read from both cgroup hierarchies.
+ */
+class CgroupLimitsTest {
+
+	private static final long GIGABYTE = 1024L * 1024 * 1024;
+
+	@TempDir
+	Path cgroupRoot;
+
+	@Test
+	void testNoCgroupUsesAvailableProcessors() {
+		assertThat(new CgroupLimits(cgroupRoot, 8, GIGABYTE * 64).availableCpus()).isEqualTo(8);
+	}
+
+	@Test
+	void testCgroupV2QuotaIsRoundedUp() throws IOException {
+		write("cpu.max", "250000 100000\n");
+		assertThat(new CgroupLimits(cgroupRoot, 8, GIGABYTE * 64).availableCpus()).isEqualTo(3);
+	}
+
+	@Test
+	void testCgroupV2UnlimitedQuota() throws IOException {
+		write("cpu.max", "max 100000\n");
+		assertThat(new CgroupLimits(cgroupRoot, 8, GIGABYTE * 64).availableCpus()).isEqualTo(8);
+	}
+
+	@Test
+	void testCgroupV1Quota() throws IOException {
+		write("cpu/cpu.cfs_quota_us", "200000");
+		write("cpu/cpu.cfs_period_us", "100000");
+		assertThat(new CgroupLimits(cgroupRoot, 8, GIGABYTE * 64).availableCpus()).isEqualTo(2);
+	}
+
+	@Test
+	void testCgroupV1UnlimitedQuota() throws IOException {
+		write("cpu/cpu.cfs_quota_us", "-1");
+		write("cpu/cpu.cfs_period_us", "100000");
+		assertThat(new CgroupLimits(cgroupRoot, 4, GIGABYTE * 64).availableCpus()).isEqualTo(4);
+	}
+
+	@Test
+	void testQuotaNeverExceedsProcessors() throws IOException {
+		write("cpu.max", "1600000 100000");
+		assertThat(new CgroupLimits(cgroupRoot, 4, GIGABYTE * 64).availableCpus()).isEqualTo(4);
+	}
+
+	@Test
+	void testCgroupV2MemoryLimit() throws IOException {
+		write("memory.max", String.valueOf(GIGABYTE * 16));
+		assertThat(new CgroupLimits(cgroupRoot, 4, GIGABYTE * 64).availableMemory()).isEqualTo(GIGABYTE * 16);
+	}
+
+	@Test
+	void testCgroupV1UnlimitedMemoryIsCappedToPhysicalMemory() throws IOException {
+		write("memory/memory.limit_in_bytes", "9223372036854771712");
+		assertThat(new CgroupLimits(cgroupRoot, 4, GIGABYTE * 64).availableMemory()).isEqualTo(GIGABYTE * 64);
+	}
+
+	@Test
+	void testNoMemoryLimitUsesPhysicalMemory() throws IOException {
+		write("memory.max", "max");
+		assertThat(new CgroupLimits(cgroupRoot, 4, GIGABYTE * 64).availableMemory()).isEqualTo(GIGABYTE * 64);
+	}
+
+	private void write(final String file, final String contents) throws IOException {
+		Path path = cgroupRoot.resolve(file);
+		Files.createDirectories(path.getParent());
+		Files.write(path, contents.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,75 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+package com.elasticpath.tools.mavenminimal.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Validate that JSON written by JsonWriter is read back by JsonReader.
+ */
+class JsonTest {
+
+	@Test
+	void testDocumentsRoundTrip() {
+		String json = new JsonWriter()
+				.beginObject()
+				.name("name").value("tab\there \"quoted\" \\ \u0001")
+				.name("count").value(42)
+				.name("ratio").value(0.5)
+				.name("ok").value(true)
+				.name("missing").value((String) null)
+				.name("empty").beginArray().endArray()
+				.name("list").values(Arrays.asList("a", "b"))
+				.name("nested").beginObject().name("x").value(-1).endObject()
+				.endObject()
+				.toString();
+
+		assertThat(json).startsWith("{\n\t\"name\": ").contains("\"empty\": [],").endsWith("\n}");
+		Map<?, ?> document = (Map<?, ?>) JsonReader.parse(json);
+		assertThat(document.get("name")).isEqualTo("tab\there \"quoted\" \\ \u0001");
+		assertThat(document.get("count")).isEqualTo(42L);
+		assertThat(document.get("ratio")).isEqualTo(0.5);
+		assertThat(document.get("ok")).isEqualTo(true);
+		assertThat(document.containsKey("missing")).isTrue();
+		assertThat(document.get("missing")).isNull();
+		assertThat(document.get("empty")).isEqualTo(Collections.emptyList());
+		assertThat(document.get("list")).isEqualTo(Arrays.asList("a", "b"));
+		assertThat(((Map<?, ?>) document.get("nested")).get("x")).isEqualTo(-1L);
+	}
+
+	@Test
+	void testCompactOutput() {
+		String json = new JsonWriter(true).beginArray().value(1).beginObject().name("a").value("b").endObject().endArray().toString();
+
+		assertThat(json).isEqualTo("[1,{\"a\":\"b\"}]");
+	}
+
+	@Test
+	void testMalformedDocumentsAreRejected() {
+		assertThatThrownBy(() -> JsonReader.parse("{\"a\": }")).isInstanceOf(IllegalArgumentException.class).hasMessageContaining("offset 6");
+		assertThatThrownBy(() -> JsonReader.parse("[1, 2")).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> JsonReader.parse("\"open")).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> JsonReader.parse("{} {}")).isInstanceOf(IllegalArgumentException.class);
+	}
+}
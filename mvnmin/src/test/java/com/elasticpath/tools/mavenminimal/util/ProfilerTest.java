@@ -0,0 +1,83 @@
+/*	Copyright 2021 Elastic Path Software Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+	http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+
+
+
+package com.elasticpath.tools.mavenminimal.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Validate that phases are nested, timed and counted, only while profiling.
+ */
+class ProfilerTest {
+
+	@Test
+	void testPhasesNestUnderTheRunningPhase() throws InterruptedException {
+		Profiler.Phase root = Profiler.begin("mvnmin");
+		try (Profiler.Phase diff = Profiler.start("diff")) {
+			try (Profiler.Phase status = Profiler.start("git status")) {
+				status.count("files", 2);
+			}
+			Profiler.count("poms parsed");
+			Profiler.count("poms parsed");
+		}
+		Thread reactorThread = new Thread(() -> {
+			try (Profiler.Phase maven = Profiler.start("maven main")) {
+				Profiler.count("modules");
+			}
+		});
+		reactorThread.start();
+		reactorThread.join();
+		Profiler.Phase pool = Profiler.start("pool");
+		Thread poolThread = new Thread(() -> pool.run(() -> Profiler.count("directories visited")));
+		pool.close();
+		poolThread.start();
+		poolThread.join();
+		root.close();
+
+		assertThat(root.getChildren()).extracting(Profiler.Phase::getName).containsExactly("diff", "maven main", "pool");
+		Profiler.Phase diff = root.getChildren().get(0);
+		assertThat(diff.getCounts()).containsEntry("poms parsed", 2L);
+		assertThat(diff.getChildren().get(0).getCounts()).containsEntry("files", 2L);
+		assertThat(root.getChildren().get(1).getCounts()).containsEntry("modules", 1L);
+		assertThat(root.getChildren().get(2).getCounts()).containsEntry("directories visited", 1L);
+		assertThat(diff.getMillis()).isLessThanOrEqualTo(root.getMillis());
+		assertThat(root.getTotalCount("files")).isEqualTo(2);
+		assertThat(root.getTotalCount("poms read")).isZero();
+
+		assertThat(root.report()).hasSize(5);
+		assertThat(root.report().get(2)).matches(" +\\d+\\.\\d ms      git status  \\(files: 2\\)");
+		assertThat(root.toJson())
+				.startsWith("{\n\t\"name\": \"mvnmin\",\n\t\"millis\": ")
+				.contains("\"name\": \"git status\"")
+				.contains("\"counts\": {\n\t\t\t\t\t\t\"files\": 2\n\t\t\t\t\t}");
+	}
+
+	@Test
+	void testNothingIsRecordedWithoutProfiling() {
+		try (Profiler.Phase phase = Profiler.start("diff")) {
+			phase.count("files", 1);
+			Profiler.count("poms parsed");
+			assertThat(Profiler.start("git status").getChildren()).isEmpty();
+			assertThat(phase.getCounts()).isEqualTo(Collections.emptyMap());
+			assertThat(phase.getChildren()).isEmpty();
+		}
+	}
+}